@@ -1972,7 +1972,7 @@ public final class CSQL extends SResultSet implements ResultsLoader
 
                 metaData    = result.getMetaData();
                 colCount    = metaData.getColumnCount();
-                rowPage = new ArrayList();
+                resetRows();
 
                 for( i = 1; i <= colCount; i++)
                 {
@@ -2011,8 +2011,9 @@ public final class CSQL extends SResultSet implements ResultsLoader
 
                     row = new Row(tz, columns, result);
 
-                    rowPage.add( row);
+                    addRow( row);
                 }
+                rowsLoaded();
             }
             if( stmt.getMoreResults())
             {
@@ -2020,6 +2021,8 @@ public final class CSQL extends SResultSet implements ResultsLoader
                     stmt.getUpdateCount() != -1)
                 {
                     nextSql = new CSQL(dataBase);
+                    nextSql.setColumnar( isColumnar());
+                    nextSql.setSpillBudget( getSpillBudget());
 
                     nextSql.loader.loadResults( stmt);
                 }
@@ -2464,7 +2467,7 @@ public final class CSQL extends SResultSet implements ResultsLoader
     private void clear()
     {
         currentRow          = 0;
-        rowPage             = null;
+        resetRows();
         sqlWarning          = null;
         columnKeys          = null;
         columns             = null;
@@ -72,6 +72,12 @@ public class DataBase
 
     /** SQL read timeout */
     public static final String SQL_READ_TIMEOUT="SQL_READ_TIMEOUT";
+
+    /** check out connections with a FIFO queue of waiting threads ( true/false) */
+    public static final String PROPERTY_FAIR_POOL="DATABASE_FAIR_POOL";
+
+    /** the maximum milliseconds to wait for a free connection */
+    public static final String PROPERTY_ACQUIRE_TIMEOUT="DATABASE_ACQUIRE_TIMEOUT";
     /**
      * Derby database
      */
@@ -126,6 +132,10 @@ public class DataBase
     private int driverMajorVersion;
     private int driverMinorVersion;
     private int maxStatementLength;
+    private volatile boolean fairPool;
+    private volatile long acquireTimeout;
+    private final PoolMetrics poolMetrics = new PoolMetrics( this);
+    private final FairConnectionPool fairConnectionPool = new FairConnectionPool( this, poolMetrics);
     private static DataBase currentDB;//MT CHECKED
     
     private static final String DERBY_EMBEDDED="embedded:";
@@ -194,6 +204,8 @@ public class DataBase
     {
         if( protection==null) throw new IllegalArgumentException("protection mode is mandatory");
         this.protection=protection;
+        fairPool = Boolean.parseBoolean( CProperties.getProperty( PROPERTY_FAIR_POOL, "false").trim());
+        acquireTimeout = Long.parseLong( CProperties.getProperty( PROPERTY_ACQUIRE_TIMEOUT, "" + 60 * 1000).trim());
         
         if( StringUtilities.isBlank(inType) )
         {
@@ -1178,7 +1190,75 @@ public class DataBase
     public void checkInConnection( final @Nullable Connection connection)
     {
         assert checkConnection( connection);
+        if( connection != null)
+        {
+            poolMetrics.recordCheckIn( connection);
+        }
         LinkManager.checkInClient( connection);
+
+        if( fairPool)
+        {
+            try
+            {
+                fairConnectionPool.dispatch();
+            }
+            catch( Exception e)
+            {
+                LOGGER.warn( "could not hand the connection to a waiting thread", e);
+            }
+        }
+    }
+
+    /**
+     * Check out connections with a FIFO queue of waiting threads instead of the database monitor. When the
+     * pool is at the maximum each connection checked in is handed directly to the thread that has waited the longest.
+     *
+     * @param fairPool use the FIFO queue.
+     */
+    public void setFairPool( final boolean fairPool)
+    {
+        this.fairPool = fairPool;
+    }
+
+    /**
+     * Are connections checked out with a FIFO queue of waiting threads ?
+     * @return true if fair
+     */
+    @CheckReturnValue
+    public boolean isFairPool()
+    {
+        return fairPool;
+    }
+
+    /**
+     * The maximum time to wait for a free connection.
+     *
+     * @param millis the milliseconds
+     */
+    public void setAcquireTimeout( final long millis)
+    {
+        if( millis < 0) throw new IllegalArgumentException( "acquire timeout must be non negative: " + millis);
+        acquireTimeout = millis;
+    }
+
+    /**
+     * The maximum time to wait for a free connection.
+     * @return the milliseconds
+     */
+    @CheckReturnValue
+    public long getAcquireTimeout()
+    {
+        return acquireTimeout;
+    }
+
+    /**
+     * The connection pool metrics.
+     * @return the metrics
+     */
+    @CheckReturnValue @Nonnull
+    public PoolMetrics getPoolMetrics()
+    {
+        return poolMetrics;
     }
     
     private boolean checkConnection( final @Nullable Connection connection)
@@ -1246,8 +1326,40 @@ public class DataBase
      * @return the connection
      */
     @CheckReturnValue @Nonnull
-    public synchronized Connection checkOutConnection() throws Exception
+    public Connection checkOutConnection() throws Exception
+    {
+        if( fairPool == false)
+        {
+            return checkOutConnectionSynchronized();
+        }
+
+        if( shuttingDown)
+        {
+            throw new DataBaseError( this + " shutting down");
+        }
+
+        if( Thread.currentThread().isInterrupted())
+        {
+            throw new DataBaseError( "Thread has been interrupted");
+        }
+
+        if( isConnected() == false)
+        {
+            connect( );
+        }
+
+        Connection connection = fairConnectionPool.checkOut( acquireTimeout);
+
+        assert protection!=Protection.SELECT_READONLY_BY_DEFAULT || connection.isReadOnly()==false: connection + " must be writtable";
+        assert protection!=Protection.READONLY || connection.isReadOnly(): connection + " must be readonly";
+
+        return connection;
+    }
+
+    @CheckReturnValue @Nonnull
+    private synchronized Connection checkOutConnectionSynchronized() throws Exception
     {
+        long startNanos = System.nanoTime();
         if( shuttingDown)
         {
             throw new DataBaseError( this + " shutting down");
@@ -1294,8 +1406,9 @@ public class DataBase
                 }
                 else
                 {
-                    if( System.currentTimeMillis() - startTime > 60 * 1000)
+                    if( System.currentTimeMillis() - startTime > acquireTimeout)
                     {
+                        poolMetrics.recordTimeout( System.nanoTime() - startNanos);
                         throw new Exception(
                             "Waited " + TimeUtil.getDiff( startTime) + " for a free connection (" +count +" of " +max +") to " + key
                         );
@@ -1323,6 +1436,7 @@ public class DataBase
             }
         }
         assert connection!=null: "must have a connection";
+        poolMetrics.recordCheckOut( connection, System.nanoTime() - startNanos, false);
         assert protection!=Protection.SELECT_READONLY_BY_DEFAULT || connection.isReadOnly()==false: connection + " must be writtable";
         assert protection!=Protection.READONLY || connection.isReadOnly(): connection + " must be readonly";
         
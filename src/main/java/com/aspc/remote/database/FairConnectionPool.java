@@ -0,0 +1,312 @@
+/**
+ *  STS Remote library
+ *
+ *  Copyright (C) 2006  stSoftware Pty Ltd
+ *
+ *  stSoftware.com.au
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ *  Bug fixes, suggestions and comments should be sent to:
+ *
+ *  info AT stsoftware.com.au
+ *
+ *  or by snail mail to:
+ *
+ *  stSoftware
+ *  building C, level 1,
+ *  14 Rodborough Rd
+ *  Frenchs Forest 2086
+ *  Australia.
+ */
+package com.aspc.remote.database;
+
+import com.aspc.remote.util.links.LinkManager;
+import com.aspc.remote.util.links.NoLinksException;
+import java.sql.Connection;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import javax.annotation.CheckReturnValue;
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ *  Connection check out without the database monitor. When the pool is at the maximum the
+ *  threads wait in a FIFO queue and each connection checked in is handed directly to the
+ *  thread that has waited the longest.
+ *
+ *  The connections are still owned and counted by the Link Manager.
+ *
+ *  <br>
+ *  <i>THREAD MODE: MULTI-THREADED</i>
+ *
+ *  @author      Nigel Leck
+ *  @since       18 October 2026
+ */
+final class FairConnectionPool
+{
+    /** a waiting thread checks for connections closed by the Link Manager at least this often */
+    private static final long RECHECK_NANOS = TimeUnit.SECONDS.toNanos( 1);
+
+    private final DataBase dataBase;
+    private final PoolMetrics metrics;
+    private final ConcurrentLinkedQueue<Waiter> waiters = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger connecting = new AtomicInteger();
+
+    FairConnectionPool( final @Nonnull DataBase dataBase, final @Nonnull PoolMetrics metrics)
+    {
+        this.dataBase = dataBase;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Check out a connection.
+     *
+     * @param timeout the maximum milliseconds to wait.
+     * @return the connection
+     * @throws Exception no connection within the timeout.
+     */
+    @CheckReturnValue @Nonnull
+    Connection checkOut( final @Nonnegative long timeout) throws Exception
+    {
+        String key = dataBase.getTypeKey();
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos( timeout);
+        boolean priority = false;
+
+        while( true)
+        {
+            /* threads already waiting are served first */
+            if( priority || waiters.isEmpty())
+            {
+                Connection connection = tryCheckOut( key);
+                if( connection != null)
+                {
+                    metrics.recordCheckOut( connection, System.nanoTime() - start, false);
+                    return connection;
+                }
+
+                if( tryConnect( key))
+                {
+                    continue;
+                }
+            }
+
+            Waiter waiter = new Waiter();
+            waiters.add( waiter);
+            dispatch( key);
+
+            while( true)
+            {
+                long now = System.nanoTime();
+                if( waiter.isHanded() == false)
+                {
+                    if( Thread.currentThread().isInterrupted() || now - deadline >= 0)
+                    {
+                        if( waiter.cancel())
+                        {
+                            waiters.remove( waiter);
+                            if( Thread.currentThread().isInterrupted())
+                            {
+                                throw new DataBaseError( "Thread has been interrupted");
+                            }
+                            metrics.recordTimeout( now - start);
+                            throw new Exception(
+                                "Waited " + TimeUnit.NANOSECONDS.toMillis( now - start) + "ms for a free connection (" +
+                                LinkManager.countConnections( key) + " of " + LinkManager.getMaxConnections( key) + ") to " + key
+                            );
+                        }
+                    }
+                    else
+                    {
+                        LockSupport.parkNanos( this, Math.min( deadline - now, RECHECK_NANOS));
+                    }
+                }
+
+                if( waiter.isHanded())
+                {
+                    Connection connection = waiter.connection;
+                    metrics.recordCheckOut( connection, System.nanoTime() - start, true);
+                    return connection;
+                }
+
+                if( waiter.isRetry() || ( waiters.peek() == waiter && isAvailable( key)))
+                {
+                    if( waiter.cancel() || waiter.isRetry())
+                    {
+                        waiters.remove( waiter);
+                        priority = true;
+                        break;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * A connection has being checked in or closed, serve the waiting threads in order.
+     *
+     * @throws Exception a serious problem.
+     */
+    void dispatch() throws Exception
+    {
+        if( waiters.isEmpty()) return;
+
+        dispatch( dataBase.getTypeKey());
+    }
+
+    private void dispatch( final @Nonnull String key) throws Exception
+    {
+        while( true)
+        {
+            Waiter waiter = waiters.peek();
+            if( waiter == null) return;
+            if( waiter.isWaiting() == false)
+            {
+                waiters.remove( waiter);
+                continue;
+            }
+
+            Connection connection = tryCheckOut( key);
+            if( connection == null)
+            {
+                if( hasRoom( key) && waiter.retry())
+                {
+                    waiters.remove( waiter);
+                }
+                return;
+            }
+
+            if( waiters.remove( waiter) && waiter.handOff( connection))
+            {
+                continue;
+            }
+
+            LinkManager.checkInClient( connection);
+        }
+    }
+
+    @CheckReturnValue @Nullable
+    private Connection tryCheckOut( final @Nonnull String key) throws Exception
+    {
+        try
+        {
+            return (Connection)LinkManager.checkOutClient( key);
+        }
+        catch( NoLinksException nl)
+        {
+            return null;
+        }
+    }
+
+    @CheckReturnValue
+    private boolean isAvailable( final @Nonnull String key) throws Exception
+    {
+        return LinkManager.countAvailableClient( key) > 0 || hasRoom( key);
+    }
+
+    @CheckReturnValue
+    private boolean hasRoom( final @Nonnull String key) throws Exception
+    {
+        return LinkManager.countConnections( key) + connecting.get() < LinkManager.getMaxConnections( key);
+    }
+
+    /**
+     * Open a new connection if the pool is not at the maximum.
+     */
+    private boolean tryConnect( final @Nonnull String key) throws Exception
+    {
+        int count = LinkManager.countConnections( key);
+        int max = LinkManager.getMaxConnections( key);
+        if( connecting.incrementAndGet() + count > max)
+        {
+            connecting.decrementAndGet();
+            return false;
+        }
+
+        try
+        {
+            dataBase.connect();
+        }
+        finally
+        {
+            connecting.decrementAndGet();
+        }
+        return true;
+    }
+
+    /**
+     * A thread waiting for a connection.
+     */
+    private static final class Waiter
+    {
+        private static final int WAITING = 0;
+        private static final int HANDED = 1;
+        private static final int CANCELLED = 2;
+        private static final int RETRY = 3;
+
+        private final Thread thread = Thread.currentThread();
+        private final AtomicInteger state = new AtomicInteger( WAITING);
+        private volatile Connection connection;
+
+        boolean isWaiting()
+        {
+            return state.get() == WAITING;
+        }
+
+        boolean isHanded()
+        {
+            return state.get() == HANDED;
+        }
+
+        boolean isRetry()
+        {
+            return state.get() == RETRY;
+        }
+
+        boolean handOff( final @Nonnull Connection connection)
+        {
+            this.connection = connection;
+            if( state.compareAndSet( WAITING, HANDED))
+            {
+                LockSupport.unpark( thread);
+                return true;
+            }
+            this.connection = null;
+            return false;
+        }
+
+        /**
+         * There is room for a new connection, the waiter should open it.
+         */
+        boolean retry()
+        {
+            if( state.compareAndSet( WAITING, RETRY))
+            {
+                LockSupport.unpark( thread);
+                return true;
+            }
+            return false;
+        }
+
+        boolean cancel()
+        {
+            return state.compareAndSet( WAITING, CANCELLED);
+        }
+    }
+}
@@ -0,0 +1,286 @@
+/**
+ *  STS Remote library
+ *
+ *  Copyright (C) 2006  stSoftware Pty Ltd
+ *
+ *  stSoftware.com.au
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ *  Bug fixes, suggestions and comments should be sent to:
+ *
+ *  info AT stsoftware.com.au
+ *
+ *  or by snail mail to:
+ *
+ *  stSoftware
+ *  building C, level 1,
+ *  14 Rodborough Rd
+ *  Frenchs Forest 2086
+ *  Australia.
+ */
+package com.aspc.remote.database;
+
+import com.aspc.remote.util.links.LinkManager;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import javax.annotation.CheckReturnValue;
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+
+/**
+ *  The connection pool metrics of a database.
+ *
+ *  The wait time to check out a connection is recorded in a histogram, the active and idle counts
+ *  come from the Link Manager accounting of the connection type.
+ *
+ *  <br>
+ *  <i>THREAD MODE: MULTI-THREADED</i>
+ *
+ *  @author      Nigel Leck
+ *  @since       18 October 2026
+ */
+public final class PoolMetrics
+{
+    /** the upper limits in milliseconds of the wait time buckets, the last bucket has no limit */
+    private static final long WAIT_LIMITS[]={1, 10, 100, 1000, 10000};
+
+    private final DataBase dataBase;
+    private final AtomicLongArray waitHistogram = new AtomicLongArray( WAIT_LIMITS.length + 1);
+    private final AtomicLong checkOutCount = new AtomicLong();
+    private final AtomicLong handOffCount = new AtomicLong();
+    private final AtomicLong timeoutCount = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong checkInCount = new AtomicLong();
+    private final AtomicLong totalCheckedOutNanos = new AtomicLong();
+    private final AtomicLong maxCheckedOutNanos = new AtomicLong();
+    private final ConcurrentHashMap<Object, Long> checkedOutAt = new ConcurrentHashMap<>();
+
+    PoolMetrics( final @Nonnull DataBase dataBase)
+    {
+        this.dataBase = dataBase;
+    }
+
+    /**
+     * The upper limits of the wait time histogram buckets in milliseconds.
+     *
+     * @return the limits, the histogram has one more bucket for the longer waits.
+     */
+    @CheckReturnValue @Nonnull
+    public static long[] getWaitLimits()
+    {
+        return WAIT_LIMITS.clone();
+    }
+
+    /**
+     * The number of check outs that waited for each bucket of the wait time.
+     *
+     * @return the counts
+     */
+    @CheckReturnValue @Nonnull
+    public long[] getWaitHistogram()
+    {
+        long counts[] = new long[ waitHistogram.length()];
+        for( int i = 0; i < counts.length; i++)
+        {
+            counts[i] = waitHistogram.get( i);
+        }
+        return counts;
+    }
+
+    /**
+     * The number of connections checked out.
+     * @return the count
+     */
+    @CheckReturnValue @Nonnegative
+    public long getCheckOutCount()
+    {
+        return checkOutCount.get();
+    }
+
+    /**
+     * The number of connections handed directly to a waiting thread.
+     * @return the count
+     */
+    @CheckReturnValue @Nonnegative
+    public long getHandOffCount()
+    {
+        return handOffCount.get();
+    }
+
+    /**
+     * The number of check outs that gave up waiting.
+     * @return the count
+     */
+    @CheckReturnValue @Nonnegative
+    public long getTimeoutCount()
+    {
+        return timeoutCount.get();
+    }
+
+    /**
+     * The average wait to check out a connection.
+     * @return the milliseconds
+     */
+    @CheckReturnValue
+    public double getAverageWaitMillis()
+    {
+        long count = checkOutCount.get();
+        if( count == 0) return 0;
+
+        return (double)totalWaitNanos.get() / count / TimeUnit.MILLISECONDS.toNanos( 1);
+    }
+
+    /**
+     * The average time a connection is checked out.
+     * @return the milliseconds
+     */
+    @CheckReturnValue
+    public double getAverageCheckOutMillis()
+    {
+        long count = checkInCount.get();
+        if( count == 0) return 0;
+
+        return (double)totalCheckedOutNanos.get() / count / TimeUnit.MILLISECONDS.toNanos( 1);
+    }
+
+    /**
+     * The longest time a connection was checked out.
+     * @return the milliseconds
+     */
+    @CheckReturnValue @Nonnegative
+    public long getMaxCheckOutMillis()
+    {
+        return TimeUnit.NANOSECONDS.toMillis( maxCheckedOutNanos.get());
+    }
+
+    /**
+     * The number of connections currently checked out.
+     * @return the count
+     */
+    @CheckReturnValue @Nonnegative
+    public int getActiveCount()
+    {
+        return Math.max( 0, getConnectionCount() - getIdleCount());
+    }
+
+    /**
+     * The number of open connections that are not checked out.
+     * @return the count
+     */
+    @CheckReturnValue @Nonnegative
+    public int getIdleCount()
+    {
+        String key = dataBase.getTypeKey();
+        if( LinkManager.hasType( key) == false) return 0;
+        try
+        {
+            return LinkManager.countAvailableClient( key);
+        }
+        catch( Exception e)
+        {
+            return 0;
+        }
+    }
+
+    /**
+     * The number of open connections.
+     * @return the count
+     */
+    @CheckReturnValue @Nonnegative
+    public int getConnectionCount()
+    {
+        String key = dataBase.getTypeKey();
+        if( LinkManager.hasType( key) == false) return 0;
+        try
+        {
+            return LinkManager.countConnections( key);
+        }
+        catch( Exception e)
+        {
+            return 0;
+        }
+    }
+
+    /**
+     * The metrics
+     * @return the description
+     */
+    @Override @CheckReturnValue @Nonnull
+    public String toString()
+    {
+        StringBuilder sb = new StringBuilder();
+        sb.append( "active=").append( getActiveCount());
+        sb.append( " idle=").append( getIdleCount());
+        sb.append( " checkOuts=").append( checkOutCount.get());
+        sb.append( " handOffs=").append( handOffCount.get());
+        sb.append( " timeouts=").append( timeoutCount.get());
+        sb.append( " waits={");
+        for( int i = 0; i < waitHistogram.length(); i++)
+        {
+            if( i > 0) sb.append( ", ");
+            sb.append( i < WAIT_LIMITS.length ? "<" + WAIT_LIMITS[i] : ">=" + WAIT_LIMITS[WAIT_LIMITS.length - 1]);
+            sb.append( "ms=").append( waitHistogram.get( i));
+        }
+        sb.append( "} avgCheckOut=").append( Math.round( getAverageCheckOutMillis())).append( "ms");
+
+        return sb.toString();
+    }
+
+    void recordCheckOut( final @Nonnull Object connection, final @Nonnegative long waitNanos, final boolean handOff)
+    {
+        checkOutCount.incrementAndGet();
+        if( handOff)
+        {
+            handOffCount.incrementAndGet();
+        }
+        totalWaitNanos.addAndGet( waitNanos);
+        waitHistogram.incrementAndGet( bucket( waitNanos));
+        checkedOutAt.put( connection, System.nanoTime());
+    }
+
+    void recordTimeout( final @Nonnegative long waitNanos)
+    {
+        timeoutCount.incrementAndGet();
+        waitHistogram.incrementAndGet( bucket( waitNanos));
+    }
+
+    void recordCheckIn( final @Nonnull Object connection)
+    {
+        Long start = checkedOutAt.remove( connection);
+        if( start == null) return;
+
+        long nanos = System.nanoTime() - start;
+        checkInCount.incrementAndGet();
+        totalCheckedOutNanos.addAndGet( nanos);
+        while( true)
+        {
+            long max = maxCheckedOutNanos.get();
+            if( nanos <= max || maxCheckedOutNanos.compareAndSet( max, nanos)) break;
+        }
+    }
+
+    private static int bucket( final long waitNanos)
+    {
+        long millis = TimeUnit.NANOSECONDS.toMillis( waitNanos);
+        for( int i = 0; i < WAIT_LIMITS.length; i++)
+        {
+            if( millis < WAIT_LIMITS[i]) return i;
+        }
+        return WAIT_LIMITS.length;
+    }
+}
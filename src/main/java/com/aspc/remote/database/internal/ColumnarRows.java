@@ -0,0 +1,570 @@
+/**
+ *  STS Remote library
+ *
+ *  Copyright (C) 2006  stSoftware Pty Ltd
+ *
+ *  stSoftware.com.au
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ *  Bug fixes, suggestions and comments should be sent to:
+ *
+ *  info AT stsoftware.com.au
+ *
+ *  or by snail mail to:
+ *
+ *  stSoftware
+ *  building C, level 1,
+ *  14 Rodborough Rd
+ *  Frenchs Forest 2086
+ *  Australia.
+ */
+package com.aspc.remote.database.internal;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.TimeZone;
+import javax.annotation.CheckReturnValue;
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ *  Column by column storage of the rows of a result set.
+ *
+ *  Whole number, floating point and date columns are held in primitive arrays with a null bitmap,
+ *  string columns are dictionary encoded. A column that holds a mix of value classes ( or strings that
+ *  are mostly unique) falls back to an array of objects. The Row for a position is created when it is
+ *  fetched so only the current row is boxed.
+ *
+ *  The rows are read only. A fetched Row is a new copy of the cells, so a change to it is not seen
+ *  by the next fetch. Only plain Row objects are accepted as the columns can't hold the extra
+ *  state of a sub class ( for example the attributes of a SoapRow).
+ *
+ *  <br>
+ *  <i>THREAD MODE: SINGLE-THREADED sql</i>
+ *
+ *  @author      Nigel Leck
+ *  @since       18 October 2026
+ */
+final class ColumnarRows
+{
+    private static final int INITIAL_CAPACITY = 64;
+    /** the dictionary is always used for the first strings of a column */
+    private static final int MIN_DICTIONARY_SIZE = 1024;
+
+    private final TimeZone tz;
+    private final ColumnData data[];
+    private int size;
+
+    ColumnarRows( final @Nonnull TimeZone tz, final @Nonnegative int columnCount)
+    {
+        this.tz = tz;
+        data = new ColumnData[ columnCount];
+        for( int c = 0; c < columnCount; c++)
+        {
+            data[c] = new EmptyColumn();
+        }
+    }
+
+    /**
+     * Add the cells of the row.
+     *
+     * @param row the row
+     */
+    void add( final @Nonnull Row row)
+    {
+        if( row.getClass() != Row.class)
+        {
+            throw new IllegalArgumentException( "only plain rows can be stored by column: " + row.getClass().getName());
+        }
+        Object cells[] = row.cells;
+        for( int c = 0; c < data.length; c++)
+        {
+            Object value = c < cells.length ? cells[c] : null;
+            ColumnData column = data[c];
+            if( value != null && column.accepts( value) == false)
+            {
+                column = column.widen( value, size);
+                data[c] = column;
+            }
+            column.set( size, value);
+        }
+        size++;
+    }
+
+    /**
+     * A read only copy of the row at this position.
+     *
+     * @param index the zero based position
+     * @return the row
+     */
+    @CheckReturnValue @Nonnull
+    Row get( final @Nonnegative int index)
+    {
+        Object cells[] = new Object[ data.length];
+        for( int c = 0; c < data.length; c++)
+        {
+            cells[c] = data[c].get( index);
+        }
+
+        return new Row( tz, cells);
+    }
+
+    /**
+     * The number of rows.
+     * @return the size
+     */
+    @CheckReturnValue @Nonnegative
+    int size()
+    {
+        return size;
+    }
+
+    /**
+     * All the rows have being added, release the spare capacity and the dictionary lookups.
+     */
+    void trim()
+    {
+        for( int c = 0; c < data.length; c++)
+        {
+            data[c].trim( size);
+        }
+    }
+
+    /**
+     * The storage of one column.
+     */
+    private abstract static class ColumnData
+    {
+        @CheckReturnValue
+        abstract boolean accepts( @Nonnull Object value);
+
+        abstract void set( int row, @Nullable Object value);
+
+        @CheckReturnValue @Nullable
+        abstract Object get( int row);
+
+        void trim( final int rows)
+        {
+        }
+
+        /**
+         * The column to use from now on, holding the rows so far.
+         */
+        @CheckReturnValue @Nonnull
+        ColumnData widen( final @Nonnull Object value, final int rows)
+        {
+            ObjectColumn column = new ObjectColumn( rows);
+            for( int r = 0; r < rows; r++)
+            {
+                column.set( r, get( r));
+            }
+            return column;
+        }
+
+        static int grow( final int capacity, final int row)
+        {
+            int newCapacity = Math.max( capacity, INITIAL_CAPACITY);
+            while( newCapacity <= row)
+            {
+                newCapacity = newCapacity * 2;
+            }
+            return newCapacity;
+        }
+    }
+
+    /**
+     * No value found yet.
+     */
+    private static final class EmptyColumn extends ColumnData
+    {
+        @Override
+        boolean accepts( final Object value)
+        {
+            return false;
+        }
+
+        @Override
+        void set( final int row, final Object value)
+        {
+        }
+
+        @Override
+        Object get( final int row)
+        {
+            return null;
+        }
+
+        @Override
+        ColumnData widen( final Object value, final int rows)
+        {
+            if( value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte)
+            {
+                return new LongColumn( value.getClass(), rows);
+            }
+            else if( value instanceof Double || value instanceof Float)
+            {
+                return new DoubleColumn( value.getClass(), rows);
+            }
+            else if( DateColumn.isSupported( value))
+            {
+                return new DateColumn( value.getClass(), rows);
+            }
+            else if( value instanceof String && value != Row.NULL_STR)
+            {
+                return new StringColumn( rows);
+            }
+
+            return super.widen( value, rows);
+        }
+    }
+
+    private static final class ObjectColumn extends ColumnData
+    {
+        private Object values[];
+
+        ObjectColumn( final int rows)
+        {
+            values = new Object[ grow( 0, rows)];
+        }
+
+        @Override
+        boolean accepts( final Object value)
+        {
+            return true;
+        }
+
+        @Override
+        void set( final int row, final Object value)
+        {
+            if( row >= values.length)
+            {
+                values = Arrays.copyOf( values, grow( values.length, row));
+            }
+            values[row] = value;
+        }
+
+        @Override
+        Object get( final int row)
+        {
+            return values[row];
+        }
+
+        @Override
+        void trim( final int rows)
+        {
+            if( values.length > rows)
+            {
+                values = Arrays.copyOf( values, rows);
+            }
+        }
+    }
+
+    /**
+     * Whole numbers of one class.
+     */
+    private static final class LongColumn extends ColumnData
+    {
+        private final Class<?> type;
+        private final BitSet nulls = new BitSet();
+        private long values[];
+
+        LongColumn( final Class<?> type, final int rows)
+        {
+            this.type = type;
+            values = new long[ grow( 0, rows)];
+            nulls.set( 0, rows);
+        }
+
+        @Override
+        boolean accepts( final Object value)
+        {
+            return value.getClass() == type;
+        }
+
+        @Override
+        void set( final int row, final Object value)
+        {
+            if( row >= values.length)
+            {
+                values = Arrays.copyOf( values, grow( values.length, row));
+            }
+            if( value == null)
+            {
+                nulls.set( row);
+            }
+            else
+            {
+                values[row] = ((Number)value).longValue();
+            }
+        }
+
+        @Override
+        Object get( final int row)
+        {
+            if( nulls.get( row)) return null;
+
+            long value = values[row];
+            if( type == Integer.class)
+            {
+                return Integer.valueOf( (int)value);
+            }
+            else if( type == Short.class)
+            {
+                return Short.valueOf( (short)value);
+            }
+            else if( type == Byte.class)
+            {
+                return Byte.valueOf( (byte)value);
+            }
+
+            return Long.valueOf( value);
+        }
+
+        @Override
+        void trim( final int rows)
+        {
+            if( values.length > rows)
+            {
+                values = Arrays.copyOf( values, rows);
+            }
+        }
+    }
+
+    /**
+     * Floating point numbers of one class.
+     */
+    private static final class DoubleColumn extends ColumnData
+    {
+        private final Class<?> type;
+        private final BitSet nulls = new BitSet();
+        private double values[];
+
+        DoubleColumn( final Class<?> type, final int rows)
+        {
+            this.type = type;
+            values = new double[ grow( 0, rows)];
+            nulls.set( 0, rows);
+        }
+
+        @Override
+        boolean accepts( final Object value)
+        {
+            return value.getClass() == type;
+        }
+
+        @Override
+        void set( final int row, final Object value)
+        {
+            if( row >= values.length)
+            {
+                values = Arrays.copyOf( values, grow( values.length, row));
+            }
+            if( value == null)
+            {
+                nulls.set( row);
+            }
+            else
+            {
+                values[row] = ((Number)value).doubleValue();
+            }
+        }
+
+        @Override
+        Object get( final int row)
+        {
+            if( nulls.get( row)) return null;
+
+            if( type == Float.class)
+            {
+                return Float.valueOf( (float)values[row]);
+            }
+
+            return Double.valueOf( values[row]);
+        }
+
+        @Override
+        void trim( final int rows)
+        {
+            if( values.length > rows)
+            {
+                values = Arrays.copyOf( values, rows);
+            }
+        }
+    }
+
+    /**
+     * Dates of one class held as milliseconds.
+     */
+    private static final class DateColumn extends ColumnData
+    {
+        private final Class<?> type;
+        private final BitSet nulls = new BitSet();
+        private long values[];
+
+        DateColumn( final Class<?> type, final int rows)
+        {
+            this.type = type;
+            values = new long[ grow( 0, rows)];
+            nulls.set( 0, rows);
+        }
+
+        static boolean isSupported( final Object value)
+        {
+            Class<?> c = value.getClass();
+            if( c == Timestamp.class)
+            {
+                /* only whole milliseconds can be rebuilt from the time */
+                return ((Timestamp)value).getNanos() % 1000000 == 0;
+            }
+
+            return c == java.util.Date.class || c == SDate.class || c == java.sql.Date.class || c == java.sql.Time.class;
+        }
+
+        @Override
+        boolean accepts( final Object value)
+        {
+            return value.getClass() == type && isSupported( value);
+        }
+
+        @Override
+        void set( final int row, final Object value)
+        {
+            if( row >= values.length)
+            {
+                values = Arrays.copyOf( values, grow( values.length, row));
+            }
+            if( value == null)
+            {
+                nulls.set( row);
+            }
+            else
+            {
+                values[row] = ((java.util.Date)value).getTime();
+            }
+        }
+
+        @Override
+        Object get( final int row)
+        {
+            if( nulls.get( row)) return null;
+
+            long time = values[row];
+            if( type == SDate.class)
+            {
+                return new SDate( new java.util.Date( time));
+            }
+            else if( type == Timestamp.class)
+            {
+                return new Timestamp( time);
+            }
+            else if( type == java.sql.Date.class)
+            {
+                return new java.sql.Date( time);
+            }
+            else if( type == java.sql.Time.class)
+            {
+                return new java.sql.Time( time);
+            }
+
+            return new java.util.Date( time);
+        }
+
+        @Override
+        void trim( final int rows)
+        {
+            if( values.length > rows)
+            {
+                values = Arrays.copyOf( values, rows);
+            }
+        }
+    }
+
+    /**
+     * Dictionary encoded strings.
+     */
+    private static final class StringColumn extends ColumnData
+    {
+        private final ArrayList<String> dictionary = new ArrayList<>();
+        private HashMap<String, Integer> lookup = new HashMap<>();
+        private int codes[];
+        private int rows;
+
+        StringColumn( final int rows)
+        {
+            codes = new int[ grow( 0, rows)];
+            Arrays.fill( codes, 0, rows, -1);
+            this.rows = rows;
+        }
+
+        @Override
+        boolean accepts( final Object value)
+        {
+            if( value instanceof String == false || value == Row.NULL_STR || lookup == null) return false;
+
+            /* mostly unique strings gain nothing from the dictionary */
+            return dictionary.size() < MIN_DICTIONARY_SIZE || dictionary.size() * 2 < rows;
+        }
+
+        @Override
+        void set( final int row, final Object value)
+        {
+            if( row >= codes.length)
+            {
+                codes = Arrays.copyOf( codes, grow( codes.length, row));
+            }
+            rows = Math.max( rows, row + 1);
+            if( value == null)
+            {
+                codes[row] = -1;
+            }
+            else
+            {
+                Integer code = lookup.get( (String)value);
+                if( code == null)
+                {
+                    code = dictionary.size();
+                    dictionary.add( (String)value);
+                    lookup.put( (String)value, code);
+                }
+                codes[row] = code;
+            }
+        }
+
+        @Override
+        Object get( final int row)
+        {
+            int code = codes[row];
+            if( code == -1) return null;
+
+            return dictionary.get( code);
+        }
+
+        @Override
+        void trim( final int rows)
+        {
+            lookup = null;
+            dictionary.trimToSize();
+            if( codes.length > rows)
+            {
+                codes = Arrays.copyOf( codes, rows);
+            }
+        }
+    }
+}
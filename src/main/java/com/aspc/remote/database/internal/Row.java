@@ -73,100 +73,81 @@ public class Row
         this.tz = tz;
     }
     
+    /**
+     * A row of cells already converted.
+     *
+     * @param tz the time zone
+     * @param cells the cells
+     */
+    Row( final TimeZone tz, final @Nonnull Object cells[])
+    {
+        this( tz);
+        this.cells = cells;
+    }
+
+    /**
+     * A row that shares the cells of another row.
+     *
+     * @param row the row
+     */
+    protected Row( final @Nonnull Row row)
+    {
+        this( row.tz, row.cells);
+    }
+
     /**
      *
      * @param tz
      * @param columns
      * @param data
      */
-    @SuppressWarnings("empty-statement")
     public Row( final TimeZone tz, final ArrayList columns, final String data)
     {
         this( tz);
-        String temp = data;
-        int i,
-            colCount,
-            type;
+        String values[] = new String[ columns.size()];
+        int count = TableDataDecoder.split( data, values);
 
-        Column column = null;
-        Object theObject;
-        colCount     = columns.size();
-        cells        = new Object[ colCount];
-
-        if( temp.startsWith( "\t"))
-        {
-            temp = "$NULL$" + temp;
-        }
+        cells = new Object[ columns.size()];
+        decodeCells( columns, values, count);
+    }
 
-        while( temp.contains("\t\t"))
-        {
-            temp  = temp.replace( "\t\t", "\t$NULL$\t");
-        }
-        StringTokenizer cd = new StringTokenizer( temp, "\t");
+    /**
+     * A row from cells already split by the {@link TableDataDecoder}.
+     *
+     * @param tz the time zone
+     * @param columns the columns
+     * @param values the encoded cell values, null for a NULL cell.
+     * @param count the number of cells found in the line.
+     */
+    public Row( final TimeZone tz, final ArrayList columns, final @Nonnull String values[], final int count)
+    {
+        this( tz);
+        cells = new Object[ columns.size()];
+        decodeCells( columns, values, count);
+    }
 
-        i = 1;
+    private void decodeCells( final ArrayList columns, final String values[], final int count)
+    {
+        int i = 1;
+        int colCount = columns.size();
+        Column column = null;
 
         try
         {
             for( ; i <= colCount; i++)
             {
                 column = (Column)columns.get(i - 1);
-                type = column.getType();
 
-                String od;
-                if( cd.hasMoreTokens())
+                String od = null;
+                if( i <= count)
                 {
-                    od = cd.nextToken();
+                    od = values[i - 1];
                 }
-                else
-                {
-                    od = "$NULL$";
-                }
-                theObject = null;
-                if( od.equals( "$NULL$") == false)
+
+                Object theObject = null;
+                if( od != null)
                 {
-                    od = StringUtilities.decode(od);
-                    theObject = od;
-
-                    switch (type) {
-                        case Types.DATE:
-                        case Types.TIMESTAMP:
-                            final SimpleDateFormat dfs[] = {
-                                new SimpleDateFormat( "yyyy-MM-dd hh:mm:ss"),//NOPMD
-                                new SimpleDateFormat( "yyyy-MM-dd"),//NOPMD
-                                new SimpleDateFormat( "dd-MMM-yyyy hh:mm:ss"),//NOPMD
-                                new SimpleDateFormat( "dd-MMM-yyyy"),//NOPMD
-                            };  
-                            
-                            for (SimpleDateFormat df : dfs) {
-                                try {
-                                    int pos;
-                                    pos = od.indexOf('.');
-                                    if( pos != -1)
-                                    {
-                                        od = od.substring(0, pos);
-                                    }
-                                    if (type == Types.DATE) {
-                                        theObject = new SDate(df.parse(od));
-                                    } else if (type == Types.TIMESTAMP) {
-                                        theObject = new Timestamp(df.parse(od).getTime());
-                                    }
-                                }
-                                catch( Exception e)
-                                {
-                                    ;//don't care
-                                }
-                            }   
-                            break;
-                        case Types.INTEGER:
-                            theObject = Integer.valueOf( od);
-                            break;
-                        case Types.FLOAT:
-                            theObject = new Double( od);
-                            break;
-                        default:
-                            break;
-                    }
+                    theObject = decodeCell( column.getType(), StringUtilities.decode(od));
                 }
 
                 cells[i-1] = theObject;
@@ -184,6 +165,59 @@ public class Row
         }
     }
 
+    /**
+     * Convert the decoded text of a cell to the value for this type of column.
+     *
+     * @param type the column type
+     * @param od the decoded text
+     * @return the value
+     */
+    @CheckReturnValue @Nonnull
+    private static Object decodeCell( final int type, final @Nonnull String od)
+    {
+        switch (type) {
+            case Types.DATE:
+            case Types.TIMESTAMP:
+                String text = od;
+                int pos = text.indexOf('.');
+                if( pos != -1)
+                {
+                    text = text.substring(0, pos);
+                }
+
+                /**
+                 * The last format that parses wins so try them from the last.
+                 */
+                SimpleDateFormat dfs[] = DATE_FORMATS.get();
+                TimeZone defaultTZ = TimeZone.getDefault();
+                for( int f = dfs.length - 1; f >= 0; f--)
+                {
+                    SimpleDateFormat df = dfs[f];
+                    if( df.getTimeZone().equals( defaultTZ) == false)
+                    {
+                        df.setTimeZone( defaultTZ);
+                    }
+                    ParsePosition pp = new ParsePosition( 0);
+                    java.util.Date date = df.parse( text, pp);
+                    if( date != null && pp.getIndex() != 0)
+                    {
+                        if (type == Types.DATE) {
+                            return new SDate(date);
+                        } else {
+                            return new Timestamp(date.getTime());
+                        }
+                    }
+                }
+                return od;
+            case Types.INTEGER:
+                return Integer.valueOf( od);
+            case Types.FLOAT:
+                return new Double( od);
+            default:
+                return od;
+        }
+    }
+
     /**
      *
      * @param tz
@@ -460,4 +494,20 @@ public class Row
     protected Object[] cells;
     
     private static final Log LOGGER = CLogger.getLog( "com.aspc.remote.database.internal.Row");//#LOGGER-NOPMD
+
+    /**
+     * SimpleDateFormat is not thread safe so each thread keeps its own parsers.
+     */
+    private static final ThreadLocal<SimpleDateFormat[]> DATE_FORMATS=new ThreadLocal<SimpleDateFormat[]>(){
+        @Override
+        protected SimpleDateFormat[] initialValue() {
+            SimpleDateFormat dfs[] = {
+                new SimpleDateFormat( "yyyy-MM-dd hh:mm:ss"),//NOPMD
+                new SimpleDateFormat( "yyyy-MM-dd"),//NOPMD
+                new SimpleDateFormat( "dd-MMM-yyyy hh:mm:ss"),//NOPMD
+                new SimpleDateFormat( "dd-MMM-yyyy"),//NOPMD
+            };
+            return dfs;
+        }
+    };
 }
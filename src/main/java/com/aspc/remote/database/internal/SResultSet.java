@@ -39,13 +39,16 @@ import com.aspc.remote.memory.HashMapFactory;
 import com.aspc.remote.util.misc.CLogger;
 import com.aspc.remote.util.misc.StringUtilities;
 import com.aspc.remote.util.misc.TimeUtil;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.Reader;
+import java.io.StringReader;
 import java.math.BigDecimal;
 import java.nio.charset.StandardCharsets;
 import java.sql.*;
 import java.util.*;
 import javax.annotation.CheckReturnValue;
+import javax.annotation.Nonnegative;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import org.apache.commons.logging.Log;
@@ -314,7 +317,7 @@ public class SResultSet implements ResultSet
     @Override @CheckReturnValue
     public boolean next() throws SQLException
     {
-        if( LOGGER.isDebugEnabled() && loggedOutput == false)
+        if( LOGGER.isDebugEnabled() && loggedOutput == false && streamDecoder == null)
         {
             loggedOutput = true;
             try
@@ -349,6 +352,38 @@ public class SResultSet implements ResultSet
     @CheckReturnValue @Nullable
     protected Row fetchRow(int row) throws SQLException
     {
+        if( streamDecoder != null)
+        {
+            return fetchStreamRow( row);
+        }
+
+        if( spillStore != null)
+        {
+            if( row > spillStore.size() || row < 1)
+            {
+                return null;
+            }
+
+            try
+            {
+                return spillStore.get( row - 1);
+            }
+            catch( IOException io)
+            {
+                throw new SoapSQLException( "could not read spilled row " + row + ": " + io.getMessage());
+            }
+        }
+
+        if( columnStore != null)
+        {
+            if( row > columnStore.size() || row < 1)
+            {
+                return null;
+            }
+
+            return columnStore.get( row - 1);
+        }
+
         if (rowPage == null || row > rowPage.size() || row < 1)
         {
             return null;
@@ -357,6 +392,229 @@ public class SResultSet implements ResultSet
         return (Row) rowPage.get(row - 1);
     }
 
+    /**
+     * Store the rows column by column. Whole number, floating point and date columns are held in
+     * primitive arrays and strings are dictionary encoded, a Row is only created for the fetched row.
+     *
+     * The stored rows are read only. The columns only hold the cells, a sub class such as a SoapResultSet
+     * keeps the extra state of its rows itself ( see {@link #storedRow(int, Row)}). The rows already
+     * loaded are moved to the columns.
+     *
+     * @param columnar store the rows by column.
+     * @throws SQLException the loaded rows could not be moved.
+     */
+    public void setColumnar( final boolean columnar) throws SQLException
+    {
+        this.columnar = columnar;
+        if( columnar)
+        {
+            moveLoadedRows();
+        }
+    }
+
+    /**
+     * Are the rows stored column by column ?
+     * @return true if columnar
+     */
+    @CheckReturnValue
+    public boolean isColumnar()
+    {
+        return columnar;
+    }
+
+    /**
+     * Limit the estimated heap used by the loaded rows, the rows past the budget spill to a temporary
+     * file and are read back as they are fetched. The budget shrinks when the heap is low.
+     *
+     * Takes precedence over the columnar storage, the rows already loaded are moved to the spilled rows.
+     *
+     * @param bytes the budget in bytes, zero for no limit.
+     * @throws SQLException the loaded rows could not be moved.
+     */
+    public void setSpillBudget( final @Nonnegative long bytes) throws SQLException
+    {
+        if( bytes < 0) throw new IllegalArgumentException( "spill budget must be non negative: " + bytes);
+        spillBudget = bytes;
+        if( bytes > 0)
+        {
+            moveLoadedRows();
+        }
+    }
+
+    /**
+     * The estimated heap the loaded rows may use before they spill to disk.
+     * @return the budget in bytes, zero for no limit.
+     */
+    @CheckReturnValue @Nonnegative
+    public long getSpillBudget()
+    {
+        return spillBudget;
+    }
+
+    /**
+     * The number of loaded rows held in the temporary file.
+     * @return the count
+     */
+    @CheckReturnValue @Nonnegative
+    public int getSpilledRowCount()
+    {
+        return spillStore != null ? spillStore.getSpillCount() : 0;
+    }
+
+    /**
+     * The number of rows loaded so far.
+     * @return the count
+     */
+    @CheckReturnValue @Nonnegative
+    protected final int getLoadedRowCount()
+    {
+        if( spillStore != null)
+        {
+            return spillStore.size();
+        }
+        else if( columnStore != null)
+        {
+            return columnStore.size();
+        }
+        else if( rowPage != null)
+        {
+            return rowPage.size();
+        }
+
+        return 0;
+    }
+
+    /**
+     * Start a new set of rows.
+     */
+    protected final void resetRows()
+    {
+        rowPage = new ArrayList();
+        columnStore = null;
+        releaseSpill();
+    }
+
+    /**
+     * Add a loaded row.
+     *
+     * @param row the row
+     * @throws SQLException the row could not be spilled to disk.
+     */
+    protected final void addRow( final @Nonnull Row row) throws SQLException
+    {
+        /* the storage is chosen by the first row, the rows of one load are never split between them */
+        boolean first = rowPage == null || rowPage.isEmpty();
+        if( spillStore != null || ( spillBudget > 0 && columnStore == null && first))
+        {
+            Row stored = storedRow( getLoadedRowCount(), row);
+            if( spillStore == null)
+            {
+                spillStore = new SpillRows( row.tz, columns.size(), spillBudget);
+            }
+            try
+            {
+                spillStore.add( stored);
+            }
+            catch( IOException io)
+            {
+                throw new SoapSQLException( "could not spill row: " + io.getMessage());
+            }
+        }
+        else if( columnStore != null || ( columnar && first))
+        {
+            Row stored = storedRow( getLoadedRowCount(), row);
+            if( columnStore == null)
+            {
+                columnStore = new ColumnarRows( row.tz, columns.size());
+            }
+            columnStore.add( stored);
+        }
+        else
+        {
+            if( rowPage == null)
+            {
+                rowPage = new ArrayList();
+            }
+            rowPage.add( row);
+        }
+    }
+
+    /**
+     * The plain row to hold in the columnar or spilled storage, which only keep the cells. A sub class
+     * that loads its own kind of row keeps any extra state of the row itself.
+     *
+     * @param index the zero based position of the row
+     * @param row the loaded row
+     * @return the row to store
+     */
+    @CheckReturnValue @Nonnull
+    protected Row storedRow( final @Nonnegative int index, final @Nonnull Row row)
+    {
+        if( row.getClass() == Row.class)
+        {
+            return row;
+        }
+
+        return new Row( row.tz, row.cells);
+    }
+
+    /**
+     * Move the rows already held on the heap to the columnar or spilled storage.
+     */
+    private void moveLoadedRows() throws SQLException
+    {
+        if( spillStore != null || columnStore != null || rowPage == null || rowPage.isEmpty())
+        {
+            return;
+        }
+
+        ArrayList loaded = rowPage;
+        rowPage = new ArrayList();
+        for( Object row: loaded)
+        {
+            addRow( (Row)row);
+        }
+    }
+
+    /**
+     * All the rows have being loaded.
+     * @throws SQLException the spilled rows could not be written.
+     */
+    protected final void rowsLoaded() throws SQLException
+    {
+        if( columnStore != null)
+        {
+            columnStore.trim();
+        }
+        if( spillStore != null)
+        {
+            try
+            {
+                spillStore.loaded();
+            }
+            catch( IOException io)
+            {
+                throw new SoapSQLException( "could not spill rows: " + io.getMessage());
+            }
+        }
+    }
+
+    private void releaseSpill()
+    {
+        if( spillStore != null)
+        {
+            try
+            {
+                spillStore.close();
+            }
+            catch( IOException io)
+            {
+                LOGGER.warn( "could not remove spilled rows", io);
+            }
+            spillStore = null;
+        }
+    }
+
     /**
      * Load all the data for a result set.
      *
@@ -412,6 +670,7 @@ public class SResultSet implements ResultSet
     @Override
     public void close() throws SQLException
     {
+        releaseSpill();
     }
 
     /**
@@ -1406,13 +1665,65 @@ public class SResultSet implements ResultSet
      */
     public final synchronized void decodeTableData(final @Nonnull String data) throws SQLException
     {
-        StringTokenizer line = new StringTokenizer(data, "\n");
+        decodeTableData( new StringReader( data), false);
+    }
 
-        rowPage = new ArrayList();
+    /**
+     * Decode the tab separated table data in a single pass from the reader.
+     *
+     * When lazy the rows are decoded as the result set is iterated with next() and are not
+     * held in memory, the result set is then forward only and the reader is closed at the end of the data.
+     *
+     * @param reader the table data
+     * @param lazy decode the rows as they are fetched.
+     * @throws java.sql.SQLException if a database-access error occurs.
+     */
+    public final synchronized void decodeTableData(final @Nonnull Reader reader, final boolean lazy) throws SQLException
+    {
+        TableDataDecoder decoder = new TableDataDecoder( reader);
+
+        resetRows();
         columns = new ArrayList();
         columnKeys = HashMapFactory.create();
+        streamDecoder = null;
+        streamNext = null;
+        streamRow = 0;
+        streamEnded = false;
+        try
+        {
+            String header = decoder.readLine();
+            if( header == null)
+            {
+                throw new SoapSQLException( "no table data header");
+            }
+            decodeHeader( header);
 
-        StringTokenizer cols = new StringTokenizer(line.nextToken(), "\t");
+            streamTZ = TimeZone.getDefault();
+            streamCells = new String[ columns.size()];
+            if( lazy)
+            {
+                streamDecoder = decoder;
+                return;
+            }
+
+            while( true)
+            {
+                int count = decoder.readCells( streamCells);
+                if( count < 0) break;
+
+                addRow( new Row( streamTZ, columns, streamCells, count));
+            }
+            rowsLoaded();
+        }
+        catch( IOException io)
+        {
+            throw new SoapSQLException( "could not read table data: " + io.getMessage());
+        }
+    }
+
+    private void decodeHeader( final @Nonnull String header)
+    {
+        StringTokenizer cols = new StringTokenizer(header, "\t");
 
         for (int i = 0; cols.hasMoreTokens(); i++)
         {
@@ -1454,12 +1765,54 @@ public class SResultSet implements ResultSet
 
             columnKeys.put(name.toLowerCase(), col);
         }
-        TimeZone tz = TimeZone.getDefault();
+    }
 
-        while (line.hasMoreTokens())
+    /**
+     * The next row of a lazy result set.
+     */
+    @CheckReturnValue @Nullable
+    private Row fetchStreamRow( final int row) throws SQLException
+    {
+        if( row < 1) return null;
+        if( row == streamRow) return currentData;
+        if( row != streamRow + 1)
         {
-            rowPage.add(
-                    new Row(tz, columns, line.nextToken()));
+            throw new SoapSQLException( "lazy result set is forward only, can not fetch row " + row + " after row " + streamRow);
+        }
+
+        Row nextRow = streamNext;
+        streamNext = null;
+        if( nextRow == null)
+        {
+            nextRow = readStreamRow();
+        }
+
+        if( nextRow != null)
+        {
+            streamRow++;
+        }
+        return nextRow;
+    }
+
+    @CheckReturnValue @Nullable
+    private Row readStreamRow() throws SQLException
+    {
+        if( streamEnded) return null;
+        try
+        {
+            int count = streamDecoder.readCells( streamCells);
+            if( count < 0)
+            {
+                streamEnded = true;
+                streamDecoder.close();
+                return null;
+            }
+
+            return new Row( streamTZ, columns, streamCells, count);
+        }
+        catch( IOException io)
+        {
+            throw new SoapSQLException( "could not read table data: " + io.getMessage());
         }
     }
 
@@ -2836,7 +3189,18 @@ public class SResultSet implements ResultSet
     {
         boolean last = false;
 
-        if (currentRow == rowPage.size())
+        if( streamDecoder != null)
+        {
+            if( streamNext == null && currentRow == streamRow)
+            {
+                streamNext = readStreamRow();
+            }
+
+            return currentRow > 0 && streamNext == null;
+        }
+
+        int rows = getLoadedRowCount();
+        if (currentRow == rows)
         {
             last = true;
         }
@@ -3766,6 +4130,16 @@ public class SResultSet implements ResultSet
     protected Row currentData;
     private int lastCol;
     private boolean isAfterLastFg;
+    private TableDataDecoder streamDecoder;
+    private String streamCells[];
+    private TimeZone streamTZ;
+    private Row streamNext;
+    private int streamRow;
+    private boolean streamEnded;
+    private boolean columnar;
+    private ColumnarRows columnStore;
+    private long spillBudget;
+    private SpillRows spillStore;
 
     @Override @CheckReturnValue @Nullable
     public <T> T getObject( final int columnIndex, Class<T> type) throws SQLException
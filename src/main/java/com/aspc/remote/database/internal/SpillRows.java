@@ -0,0 +1,535 @@
+/**
+ *  STS Remote library
+ *
+ *  Copyright (C) 2006  stSoftware Pty Ltd
+ *
+ *  stSoftware.com.au
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ *  Bug fixes, suggestions and comments should be sent to:
+ *
+ *  info AT stsoftware.com.au
+ *
+ *  or by snail mail to:
+ *
+ *  stSoftware
+ *  building C, level 1,
+ *  14 Rodborough Rd
+ *  Frenchs Forest 2086
+ *  Australia.
+ */
+package com.aspc.remote.database.internal;
+
+import com.aspc.remote.memory.MemoryManager;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.RandomAccessFile;
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.TimeZone;
+import javax.annotation.CheckReturnValue;
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ *  The rows of a result set that spill to a temporary file once the memory budget is used.
+ *
+ *  The first rows are held on the heap until their estimated size reaches the budget, the
+ *  rest are written to a temporary file in a compact binary format and read back as they are
+ *  fetched. Sequential fetches read straight through the file, other fetches seek to the row.
+ *  The budget shrinks when the Memory Manager reports that the heap is low.
+ *
+ *  <br>
+ *  <i>THREAD MODE: SINGLE-THREADED sql</i>
+ *
+ *  @author      Nigel Leck
+ *  @since       18 October 2026
+ */
+final class SpillRows implements Closeable
+{
+    /** how often to check the heap while loading */
+    private static final int CHECK_INTERVAL = 256;
+    private static final int READ_BUFFER = 64 * 1024;
+
+    private static final byte TAG_NULL = 0;
+    private static final byte TAG_STRING = 1;
+    private static final byte TAG_INTEGER = 2;
+    private static final byte TAG_LONG = 3;
+    private static final byte TAG_DOUBLE = 4;
+    private static final byte TAG_FLOAT = 5;
+    private static final byte TAG_SHORT = 6;
+    private static final byte TAG_BYTE = 7;
+    private static final byte TAG_BOOLEAN = 8;
+    private static final byte TAG_BIG_DECIMAL = 9;
+    private static final byte TAG_DATE = 10;
+    private static final byte TAG_SDATE = 11;
+    private static final byte TAG_SQL_DATE = 12;
+    private static final byte TAG_TIME = 13;
+    private static final byte TAG_TIMESTAMP = 14;
+    private static final byte TAG_BYTES = 15;
+    private static final byte TAG_NULL_STR = 16;
+    private static final byte TAG_SERIALIZED = 17;
+
+    private final TimeZone tz;
+    private final int columnCount;
+    private final long budget;
+    private long currentBudget;
+    private final ArrayList<Row> memoryRows = new ArrayList<>();
+    private long memorySize;
+
+    private File file;
+    private DataOutputStream out;
+    private long offsets[] = new long[ 0];
+    private int spillCount;
+    private long fileSize;
+    private final ByteArrayOutputStream rowBytes = new ByteArrayOutputStream( 256);
+    private final DataOutputStream rowOut = new DataOutputStream( rowBytes);
+
+    private RandomAccessFile raf;
+    private DataInputStream in;
+    private int nextRead = -1;
+
+    /**
+     * The spilled rows.
+     *
+     * @param tz the time zone of the rows
+     * @param columnCount the number of columns
+     * @param budget the estimated heap to use in bytes.
+     */
+    SpillRows( final @Nonnull TimeZone tz, final @Nonnegative int columnCount, final @Nonnegative long budget)
+    {
+        this.tz = tz;
+        this.columnCount = columnCount;
+        this.budget = budget;
+        currentBudget = budget;
+    }
+
+    /**
+     * Add a row.
+     *
+     * @param row the row
+     * @throws IOException the row could not be written.
+     */
+    void add( final @Nonnull Row row) throws IOException
+    {
+        if( out == null)
+        {
+            /* the heap is checked now and then, every row is compared with the budget of the last check */
+            if( memoryRows.size() % CHECK_INTERVAL == 0)
+            {
+                currentBudget = effectiveBudget();
+            }
+
+            if( memorySize > currentBudget)
+            {
+                startSpill();
+            }
+            else
+            {
+                memoryRows.add( row);
+                memorySize += estimateSize( row.cells);
+                if( memorySize > currentBudget)
+                {
+                    startSpill();
+                }
+                return;
+            }
+        }
+
+        write( row.cells);
+    }
+
+    /**
+     * The row at this position.
+     *
+     * @param index the zero based position
+     * @return the row
+     * @throws IOException the row could not be read.
+     */
+    @CheckReturnValue @Nonnull
+    Row get( final @Nonnegative int index) throws IOException
+    {
+        int memoryCount = memoryRows.size();
+        if( index < memoryCount)
+        {
+            return memoryRows.get( index);
+        }
+
+        int spillIndex = index - memoryCount;
+        if( spillIndex >= spillCount)
+        {
+            throw new IndexOutOfBoundsException( "row " + index + " of " + size());
+        }
+
+        if( out != null)
+        {
+            out.flush();
+        }
+
+        if( in == null || spillIndex != nextRead)
+        {
+            if( raf == null)
+            {
+                raf = new RandomAccessFile( file, "r");
+            }
+            raf.getChannel().position( offsets[spillIndex]);
+            in = new DataInputStream( new BufferedInputStream( Channels.newInputStream( raf.getChannel()), READ_BUFFER));
+        }
+
+        Object cells[] = new Object[ columnCount];
+        for( int c = 0; c < columnCount; c++)
+        {
+            cells[c] = readCell( in);
+        }
+        nextRead = spillIndex + 1;
+
+        return new Row( tz, cells);
+    }
+
+    /**
+     * The number of rows.
+     * @return the size
+     */
+    @CheckReturnValue @Nonnegative
+    int size()
+    {
+        return memoryRows.size() + spillCount;
+    }
+
+    /**
+     * The number of rows in the temporary file.
+     * @return the count
+     */
+    @CheckReturnValue @Nonnegative
+    int getSpillCount()
+    {
+        return spillCount;
+    }
+
+    /**
+     * All rows have being added.
+     * @throws IOException the file could not be written.
+     */
+    void loaded() throws IOException
+    {
+        if( out != null)
+        {
+            out.close();
+            out = null;
+        }
+        if( offsets.length > spillCount)
+        {
+            offsets = Arrays.copyOf( offsets, spillCount);
+        }
+    }
+
+    /**
+     * Remove the temporary file.
+     * @throws IOException the file could not be closed.
+     */
+    @Override
+    public void close() throws IOException
+    {
+        in = null;
+        try
+        {
+            if( out != null)
+            {
+                out.close();
+                out = null;
+            }
+            if( raf != null)
+            {
+                raf.close();
+                raf = null;
+            }
+        }
+        finally
+        {
+            if( file != null)
+            {
+                file.delete();
+                file = null;
+            }
+        }
+    }
+
+    /**
+     * The budget for the heap rows, shrinks when the heap is low.
+     */
+    private long effectiveBudget()
+    {
+        if( MemoryManager.isFull())
+        {
+            return 0;
+        }
+
+        if( MemoryManager.getTenuredFreePercent() < MemoryManager.getSafeUpperPercent())
+        {
+            return budget / 4;
+        }
+
+        return budget;
+    }
+
+    private void startSpill() throws IOException
+    {
+        file = File.createTempFile( "rows", ".spill");
+        file.deleteOnExit();
+        out = new DataOutputStream( new BufferedOutputStream( new FileOutputStream( file), READ_BUFFER));
+    }
+
+    private void write( final @Nonnull Object cells[]) throws IOException
+    {
+        rowBytes.reset();
+        for( int c = 0; c < columnCount; c++)
+        {
+            writeCell( rowOut, c < cells.length ? cells[c] : null);
+        }
+        rowOut.flush();
+
+        if( spillCount == offsets.length)
+        {
+            offsets = Arrays.copyOf( offsets, Math.max( 1024, spillCount * 2));
+        }
+        offsets[spillCount++] = fileSize;
+        rowBytes.writeTo( out);
+        fileSize += rowBytes.size();
+    }
+
+    private static void writeCell( final @Nonnull DataOutputStream dos, final @Nullable Object value) throws IOException
+    {
+        if( value == null)
+        {
+            dos.writeByte( TAG_NULL);
+        }
+        else if( value == Row.NULL_STR)
+        {
+            dos.writeByte( TAG_NULL_STR);
+        }
+        else if( value instanceof String)
+        {
+            dos.writeByte( TAG_STRING);
+            writeBytes( dos, ((String)value).getBytes( StandardCharsets.UTF_8));
+        }
+        else if( value instanceof Integer)
+        {
+            dos.writeByte( TAG_INTEGER);
+            dos.writeInt( (Integer)value);
+        }
+        else if( value instanceof Long)
+        {
+            dos.writeByte( TAG_LONG);
+            dos.writeLong( (Long)value);
+        }
+        else if( value instanceof Double)
+        {
+            dos.writeByte( TAG_DOUBLE);
+            dos.writeDouble( (Double)value);
+        }
+        else if( value instanceof Float)
+        {
+            dos.writeByte( TAG_FLOAT);
+            dos.writeFloat( (Float)value);
+        }
+        else if( value instanceof Short)
+        {
+            dos.writeByte( TAG_SHORT);
+            dos.writeShort( (Short)value);
+        }
+        else if( value instanceof Byte)
+        {
+            dos.writeByte( TAG_BYTE);
+            dos.writeByte( (Byte)value);
+        }
+        else if( value instanceof Boolean)
+        {
+            dos.writeByte( TAG_BOOLEAN);
+            dos.writeBoolean( (Boolean)value);
+        }
+        else if( value.getClass() == BigDecimal.class)
+        {
+            dos.writeByte( TAG_BIG_DECIMAL);
+            writeBytes( dos, value.toString().getBytes( StandardCharsets.UTF_8));
+        }
+        else if( value.getClass() == Timestamp.class)
+        {
+            dos.writeByte( TAG_TIMESTAMP);
+            dos.writeLong( ((Timestamp)value).getTime());
+            dos.writeInt( ((Timestamp)value).getNanos());
+        }
+        else if( value.getClass() == java.util.Date.class)
+        {
+            dos.writeByte( TAG_DATE);
+            dos.writeLong( ((java.util.Date)value).getTime());
+        }
+        else if( value.getClass() == SDate.class)
+        {
+            dos.writeByte( TAG_SDATE);
+            dos.writeLong( ((java.util.Date)value).getTime());
+        }
+        else if( value.getClass() == java.sql.Date.class)
+        {
+            dos.writeByte( TAG_SQL_DATE);
+            dos.writeLong( ((java.util.Date)value).getTime());
+        }
+        else if( value.getClass() == java.sql.Time.class)
+        {
+            dos.writeByte( TAG_TIME);
+            dos.writeLong( ((java.util.Date)value).getTime());
+        }
+        else if( value instanceof byte[])
+        {
+            dos.writeByte( TAG_BYTES);
+            writeBytes( dos, (byte[])value);
+        }
+        else if( value instanceof Serializable)
+        {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try( ObjectOutputStream oos = new ObjectOutputStream( bytes))
+            {
+                oos.writeObject( value);
+            }
+            dos.writeByte( TAG_SERIALIZED);
+            writeBytes( dos, bytes.toByteArray());
+        }
+        else
+        {
+            /* not serializable so only the text can be kept */
+            dos.writeByte( TAG_STRING);
+            writeBytes( dos, value.toString().getBytes( StandardCharsets.UTF_8));
+        }
+    }
+
+    @CheckReturnValue @Nullable
+    private static Object readCell( final @Nonnull DataInputStream dis) throws IOException
+    {
+        byte tag = dis.readByte();
+        switch( tag)
+        {
+            case TAG_NULL:
+                return null;
+            case TAG_NULL_STR:
+                return Row.NULL_STR;
+            case TAG_STRING:
+                return new String( readBytes( dis), StandardCharsets.UTF_8);
+            case TAG_INTEGER:
+                return dis.readInt();
+            case TAG_LONG:
+                return dis.readLong();
+            case TAG_DOUBLE:
+                return dis.readDouble();
+            case TAG_FLOAT:
+                return dis.readFloat();
+            case TAG_SHORT:
+                return dis.readShort();
+            case TAG_BYTE:
+                return dis.readByte();
+            case TAG_BOOLEAN:
+                return dis.readBoolean();
+            case TAG_BIG_DECIMAL:
+                return new BigDecimal( new String( readBytes( dis), StandardCharsets.UTF_8));
+            case TAG_TIMESTAMP:
+                Timestamp ts = new Timestamp( dis.readLong());
+                ts.setNanos( dis.readInt());
+                return ts;
+            case TAG_DATE:
+                return new java.util.Date( dis.readLong());
+            case TAG_SDATE:
+                return new SDate( new java.util.Date( dis.readLong()));
+            case TAG_SQL_DATE:
+                return new java.sql.Date( dis.readLong());
+            case TAG_TIME:
+                return new java.sql.Time( dis.readLong());
+            case TAG_BYTES:
+                return readBytes( dis);
+            case TAG_SERIALIZED:
+                try( ObjectInputStream ois = new ObjectInputStream( new ByteArrayInputStream( readBytes( dis))))
+                {
+                    return ois.readObject();
+                }
+                catch( ClassNotFoundException cnf)
+                {
+                    throw new IOException( "could not read spilled cell", cnf);
+                }
+            default:
+                throw new IOException( "unknown cell tag " + tag);
+        }
+    }
+
+    private static void writeBytes( final @Nonnull DataOutputStream dos, final @Nonnull byte bytes[]) throws IOException
+    {
+        dos.writeInt( bytes.length);
+        dos.write( bytes);
+    }
+
+    @CheckReturnValue @Nonnull
+    private static byte[] readBytes( final @Nonnull DataInputStream dis) throws IOException
+    {
+        byte bytes[] = new byte[ dis.readInt()];
+        dis.readFully( bytes);
+        return bytes;
+    }
+
+    /**
+     * The estimated heap used by the cells of a row.
+     */
+    @CheckReturnValue @Nonnegative
+    private static long estimateSize( final @Nonnull Object cells[])
+    {
+        long size = 32 + 8L * cells.length;
+        for( Object value: cells)
+        {
+            if( value == null)
+            {
+                continue;
+            }
+            else if( value instanceof String)
+            {
+                size += 40 + 2L * ((String)value).length();
+            }
+            else if( value instanceof byte[])
+            {
+                size += 16 + ((byte[])value).length;
+            }
+            else if( value instanceof Number || value instanceof Boolean)
+            {
+                size += 24;
+            }
+            else
+            {
+                size += 48;
+            }
+        }
+        return size;
+    }
+}
@@ -0,0 +1,318 @@
+/**
+ *  STS Remote library
+ *
+ *  Copyright (C) 2006  stSoftware Pty Ltd
+ *
+ *  stSoftware.com.au
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ *  Bug fixes, suggestions and comments should be sent to:
+ *
+ *  info AT stsoftware.com.au
+ *
+ *  or by snail mail to:
+ *
+ *  stSoftware
+ *  building C, level 1,
+ *  14 Rodborough Rd
+ *  Frenchs Forest 2086
+ *  Australia.
+ */
+package com.aspc.remote.database.internal;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import javax.annotation.CheckReturnValue;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ *  Single pass decoder of the tab/newline table data format.
+ *
+ *  The characters are read straight from the Reader into a reused buffer and each cell is
+ *  created directly from that buffer, no intermediate line strings are created. Empty lines are
+ *  skipped, an empty cell or the text $NULL$ is a NULL cell.
+ *
+ *  <br>
+ *  <i>THREAD MODE: SINGLE-THREADED sql</i>
+ *
+ *  @author      Nigel Leck
+ *  @since       18 October 2026
+ */
+public final class TableDataDecoder implements Closeable
+{
+    private static final int BUFFER_SIZE = 8 * 1024;
+    private static final String NULL_MARKER = "$NULL$";
+
+    private final Reader reader;
+    private final char buffer[];
+    private final StringBuilder partial = new StringBuilder();
+    private int pos;
+    private int limit;
+    private boolean eof;
+
+    /**
+     * Decode the table data from this reader.
+     *
+     * @param reader the table data
+     */
+    public TableDataDecoder( final @Nonnull Reader reader)
+    {
+        this.reader = reader;
+        buffer = new char[ BUFFER_SIZE];
+    }
+
+    /**
+     * Split one line in to the cells.
+     *
+     * @param line the line of table data
+     * @param values the cells found, null for a NULL cell.
+     * @return the number of cells found in the line.
+     */
+    @CheckReturnValue
+    public static int split( final @Nonnull String line, final @Nonnull String values[])
+    {
+        int count = 0;
+        int start = 0;
+        int len = line.length();
+
+        while( true)
+        {
+            int end = line.indexOf( '\t', start);
+            if( end == -1)
+            {
+                end = len;
+            }
+
+            if( count < values.length)
+            {
+                String value = null;
+                if( end > start)
+                {
+                    value = line.substring( start, end);
+                    if( value.equals( NULL_MARKER))
+                    {
+                        value = null;
+                    }
+                }
+                values[count] = value;
+            }
+            count++;
+
+            if( end == len) break;
+            start = end + 1;
+        }
+
+        return count;
+    }
+
+    /**
+     * The next line that is not empty, used for the header.
+     *
+     * @return the line or null at the end of the data.
+     * @throws IOException the data could not be read.
+     */
+    @CheckReturnValue @Nullable
+    public String readLine() throws IOException
+    {
+        while( true)
+        {
+            partial.setLength( 0);
+            boolean endOfLine = false;
+            while( endOfLine == false)
+            {
+                if( pos >= limit && fill() == false)
+                {
+                    break;
+                }
+                int start = pos;
+                while( pos < limit && buffer[pos] != '\n')
+                {
+                    pos++;
+                }
+                partial.append( buffer, start, pos - start);
+                if( pos < limit)
+                {
+                    pos++;
+                    endOfLine = true;
+                }
+            }
+
+            if( partial.length() > 0)
+            {
+                return partial.toString();
+            }
+
+            if( endOfLine == false)
+            {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Read the cells of the next line that is not empty. Cells past the end of the values array are skipped.
+     *
+     * @param values the cells found, null for a NULL cell.
+     * @return the number of cells found in the line or -1 at the end of the data.
+     * @throws IOException the data could not be read.
+     */
+    @CheckReturnValue
+    public int readCells( final @Nonnull String values[]) throws IOException
+    {
+        while( true)
+        {
+            int count = 0;
+            boolean lineFound = false;
+            int terminator;
+
+            do
+            {
+                partial.setLength( 0);
+                boolean spanned = false;
+                int start = pos;
+                terminator = -1;
+
+                while( true)
+                {
+                    if( pos >= limit)
+                    {
+                        if( pos > start)
+                        {
+                            partial.append( buffer, start, pos - start);
+                            spanned = true;
+                        }
+                        if( fill() == false)
+                        {
+                            start = pos;
+                            break;
+                        }
+                        start = 0;
+                        continue;
+                    }
+
+                    char c = buffer[pos];
+                    if( c == '\t' || c == '\n')
+                    {
+                        terminator = c;
+                        break;
+                    }
+                    pos++;
+                }
+
+                int len = pos - start;
+                if( spanned)
+                {
+                    partial.append( buffer, start, len);
+                    len = partial.length();
+                }
+
+                if( terminator != -1)
+                {
+                    pos++;
+                }
+
+                if( len > 0 || terminator == '\t')
+                {
+                    lineFound = true;
+                }
+
+                if( count < values.length)
+                {
+                    String value = null;
+                    if( len > 0)
+                    {
+                        if( spanned)
+                        {
+                            value = partial.toString();
+                        }
+                        else if( isNullMarker( start, len) == false)
+                        {
+                            value = new String( buffer, start, len);
+                        }
+
+                        if( value != null && value.equals( NULL_MARKER))
+                        {
+                            value = null;
+                        }
+                    }
+                    values[count] = value;
+                }
+                count++;
+            }
+            while( terminator == '\t');
+
+            if( lineFound)
+            {
+                return count;
+            }
+
+            if( terminator == -1)
+            {
+                return -1;
+            }
+        }
+    }
+
+    /**
+     * Close the reader.
+     *
+     * @throws IOException the reader could not be closed.
+     */
+    @Override
+    public void close() throws IOException
+    {
+        eof = true;
+        reader.close();
+    }
+
+    private boolean isNullMarker( final int start, final int len)
+    {
+        if( len != NULL_MARKER.length()) return false;
+
+        for( int i = 0; i < len; i++)
+        {
+            if( buffer[start + i] != NULL_MARKER.charAt( i)) return false;
+        }
+
+        return true;
+    }
+
+    private boolean fill() throws IOException
+    {
+        if( eof) return false;
+
+        int read;
+        do
+        {
+            read = reader.read( buffer, 0, buffer.length);
+        }
+        while( read == 0);
+
+        if( read < 0)
+        {
+            eof = true;
+            pos = 0;
+            limit = 0;
+            return false;
+        }
+
+        pos = 0;
+        limit = read;
+        return true;
+    }
+}
@@ -11,11 +11,17 @@
  */
 package com.aspc.remote.formula;
 
+import com.aspc.remote.formula.internal.NativeExpression;
+import com.aspc.remote.memory.MemoryHandler;
+import com.aspc.remote.memory.MemoryManager;
 import com.aspc.remote.util.misc.CLogger;
 import com.aspc.remote.util.misc.ServerSecurityManager;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 import javax.annotation.CheckReturnValue;
+import javax.annotation.Nonnegative;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import javax.script.*;
@@ -28,6 +34,10 @@ import org.apache.commons.logging.Log;
  *
  *  Operators are ()-+/*,"'
  *
+ *  The compiled form of each definition is held in a process wide LRU cache ( FORMULA_CACHE_SIZE) which the
+ *  Memory Manager clears when memory is low. Definitions in the common arithmetic and comparison subset are evaluated by a native expression
+ *  tree without the script engine, set FORMULA_NATIVE=false to always use the script engine.
+ *
  *  <br>
  *  <i>THREAD MODE: MULTI-THREADED formula is shared</i>
  *
@@ -42,8 +52,32 @@ public class Formula
      */
     public static final int JIT_CALL_LIMIT=10;
 
+    /**
+     * Evaluate the common arithmetic and comparison subset without the script engine.
+     */
+    public static final String PROPERTY_FORMULA_NATIVE="FORMULA_NATIVE";
+
+    /**
+     * The maximum number of definitions held in the compiled formula cache.
+     */
+    public static final String PROPERTY_FORMULA_CACHE_SIZE="FORMULA_CACHE_SIZE";
+
+    private static final boolean NATIVE;
+    private static final int CACHE_SIZE;
+    private static final LinkedHashMap<String, Compiled> CACHE;
+    private static final AtomicLong LAST_ACCESSED=new AtomicLong();
+    private static final ThreadLocal<Context> CONTEXT=new ThreadLocal<Context>()
+    {
+        @Override
+        protected Context initialValue()
+        {
+            return new Context();
+        }
+    };
+
     private final String definition;
-    private CompiledScript script;
+    private final Compiled compiled;
+    private volatile CompiledScript script;
     private final AtomicLong CALL_COUNT=new AtomicLong();
     private final AtomicBoolean JIT=new AtomicBoolean();
     private static final ScriptEngine ENGINE;
@@ -62,7 +96,55 @@ public class Formula
             throw new IllegalArgumentException( "Formula must not be null");
         }
         this.definition = definition.trim();
+        compiled = find( this.definition);
+    }
+
+    /**
+     * The number of definitions in the compiled formula cache.
+     * @return the count
+     */
+    @CheckReturnValue @Nonnegative
+    public static int cacheSize()
+    {
+        synchronized( CACHE)
+        {
+            return CACHE.size();
+        }
+    }
+
+    /**
+     * Is the compiled form of this definition in the cache ? doesn't count as a use of the definition.
+     * @param definition the formula
+     * @return true if cached.
+     */
+    @CheckReturnValue
+    public static boolean isCached( final @Nonnull String definition)
+    {
+        synchronized( CACHE)
+        {
+            return CACHE.containsKey( definition.trim());
+        }
+    }
 
+    /**
+     * Clear the compiled formula cache.
+     */
+    public static void clearCache()
+    {
+        synchronized( CACHE)
+        {
+            CACHE.clear();
+        }
+    }
+
+    /**
+     * Is this formula evaluated by the native expression tree ?
+     * @return true if native.
+     */
+    @CheckReturnValue
+    public boolean isNative()
+    {
+        return compiled.expression != null;
     }
 
     /**
@@ -72,7 +154,7 @@ public class Formula
     @CheckReturnValue
     public boolean isCompiled()
     {
-        return script != null;
+        return script != null || JIT.get() && compiled.expression != null;
     }
 
     /**
@@ -85,27 +167,52 @@ public class Formula
     @CheckReturnValue @Nullable
     public Object compute( final Bindings binding) throws Exception
     {
-        SimpleScriptContext ctxt = new SimpleScriptContext( );
-        ctxt.setBindings(binding, SimpleScriptContext.ENGINE_SCOPE);
-        ctxt.setBindings(new SimpleBindings(), SimpleScriptContext.GLOBAL_SCOPE);
-
         long count = CALL_COUNT.addAndGet(1);
-        if( script == null && count > JIT_CALL_LIMIT)
+        boolean jit = count > JIT_CALL_LIMIT;
+        if( jit && JIT.get() == false)
         {
-            if( ENGINE instanceof Compilable && JIT.getAndSet(true) == false)
+            JIT.set(true);
+        }
+
+        NativeExpression expression=compiled.expression;
+        if( expression != null)
+        {
+            try
             {
-                script = ((Compilable)ENGINE).compile(definition );
+                return expression.eval( binding);
+            }
+            catch( RuntimeException re)
+            {
+                if( re != NativeExpression.UNSUPPORTED)
+                {
+                    throw re;
+                }
             }
         }
 
+        if( ENGINE == null)
+        {
+            throw new Exception( "no script engine to evaluate: " + definition);
+        }
+
+        if( script == null && jit)
+        {
+            script = compiled.compile();
+        }
+
+        Context context = CONTEXT.get();
+        SimpleScriptContext ctxt = context.take();
+        ctxt.setBindings(binding, SimpleScriptContext.ENGINE_SCOPE);
+
         try
         {
             ServerSecurityManager.modeUserScriptAccess(true);
 
             Object eval;
-            if( script != null)
+            CompiledScript tmpScript=script;
+            if( tmpScript != null)
             {
-                eval= script.eval( ctxt);
+                eval= tmpScript.eval( ctxt);
             }
             else
             {
@@ -132,6 +239,7 @@ public class Formula
         finally
         {
             ServerSecurityManager.modeUserScriptAccess(false);
+            context.release( ctxt);
         }
     }
 
@@ -141,12 +249,200 @@ public class Formula
         return definition;
     }
 
+    @CheckReturnValue @Nonnull
+    private static Compiled find( final @Nonnull String definition)
+    {
+        LAST_ACCESSED.set(MemoryManager.lastTick()/1000L);
+
+        if( CACHE_SIZE > 0)
+        {
+            synchronized( CACHE)
+            {
+                Compiled compiled=CACHE.get( definition);
+                if( compiled != null)
+                {
+                    return compiled;
+                }
+            }
+        }
+
+        Compiled compiled=new Compiled( definition);
+
+        if( CACHE_SIZE > 0)
+        {
+            synchronized( CACHE)
+            {
+                Compiled temp=CACHE.get( definition);
+                if( temp != null)
+                {
+                    return temp;
+                }
+                CACHE.put( definition, compiled);
+            }
+        }
+
+        return compiled;
+    }
+
+    /**
+     * The compiled forms of a definition, shared by all formulas with the same definition.
+     */
+    private static final class Compiled
+    {
+        private final String definition;
+        private final NativeExpression expression;
+        private CompiledScript script;
+
+        Compiled( final String definition)
+        {
+            this.definition=definition;
+            expression= NATIVE ? NativeExpression.compile( definition) : null;
+        }
+
+        synchronized CompiledScript compile() throws ScriptException
+        {
+            if( script == null && ENGINE instanceof Compilable)
+            {
+                script = ((Compilable)ENGINE).compile(definition );
+            }
+
+            return script;
+        }
+    }
+
+    /**
+     * The evaluation context reused by each thread.
+     */
+    private static final class Context
+    {
+        private final SimpleScriptContext ctxt=new SimpleScriptContext( );
+        private final SimpleBindings global=new SimpleBindings();
+        private final SimpleBindings empty=new SimpleBindings();
+        private boolean inUse;
+
+        Context()
+        {
+            ctxt.setBindings(global, SimpleScriptContext.GLOBAL_SCOPE);
+        }
+
+        SimpleScriptContext take()
+        {
+            if( inUse)
+            {
+                // a formula evaluated while another formula is evaluating on this thread.
+                SimpleScriptContext nested = new SimpleScriptContext( );
+                nested.setBindings(new SimpleBindings(), SimpleScriptContext.GLOBAL_SCOPE);
+                return nested;
+            }
+
+            inUse=true;
+            if( global.isEmpty() == false)
+            {
+                global.clear();
+            }
+            return ctxt;
+        }
+
+        void release( final SimpleScriptContext used)
+        {
+            if( used == ctxt)
+            {
+                ctxt.setBindings(empty, SimpleScriptContext.ENGINE_SCOPE);
+                inUse=false;
+            }
+        }
+    }
+
+    /** clear the compiled formulas when memory is needed */
+    private static class FormulaCacheHandler implements MemoryHandler
+    {
+        /** {@inheritDoc }*/
+        @Override @CheckReturnValue
+        public Cost getCost()
+        {
+            return MemoryHandler.Cost.LOW;
+        }
+
+        /** {@inheritDoc }*/
+        @Override
+        public long freeMemory(final @Nonnegative double percentage)
+        {
+            long estimate=getEstimatedSize();
+            clearCache();
+            return estimate;
+        }
+
+        /** {@inheritDoc }*/
+        @Override
+        public long tidyUp()
+        {
+            return 0;
+        }
+
+        /** {@inheritDoc }*/
+        @Override
+        public long queuedFreeMemory(final @Nonnegative double percentage)
+        {
+            return freeMemory( percentage);
+        }
+
+        /** {@inheritDoc }*/
+        @Override
+        public long panicFreeMemory()
+        {
+            return freeMemory(1);
+        }
+
+        /** {@inheritDoc }*/
+        @Override @CheckReturnValue @Nonnegative
+        public long getEstimatedSize()
+        {
+            return cacheSize() * 2048L;
+        }
+
+        /** {@inheritDoc }*/
+        @Override @CheckReturnValue
+        public long getLastAccessed()
+        {
+            return LAST_ACCESSED.get() * 1000;
+        }
+    }
+
     static
     {
+        NATIVE = !"false".equalsIgnoreCase(System.getProperty(PROPERTY_FORMULA_NATIVE, "true").trim());
+
+        String temp=System.getProperty(PROPERTY_FORMULA_CACHE_SIZE, "10000").trim();
+        int tempSize=10000;
+        try
+        {
+            tempSize = Integer.parseInt( temp);
+        }
+        catch( NumberFormatException nfe)
+        {
+            LOGGER.warn( "Invalid " + PROPERTY_FORMULA_CACHE_SIZE + "='" + temp + "', using " + tempSize, nfe);
+        }
+        CACHE_SIZE = tempSize;
+        CACHE = new LinkedHashMap<String, Compiled>( 16, 0.75f, true)
+        {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry( final Map.Entry<String, Compiled> eldest)
+            {
+                return size() > CACHE_SIZE;
+            }
+        };
+
         ScriptEngineManager em = new ScriptEngineManager();
 
         ENGINE= em.getEngineByName("JavaScript");
-        
-        assert ENGINE!=null: "no engine found";
+
+        if( ENGINE == null)
+        {
+            LOGGER.warn( "no JavaScript engine found, only native formulas can be evaluated");
+        }
+
+        MemoryManager.register(new FormulaCacheHandler());
     }
 }
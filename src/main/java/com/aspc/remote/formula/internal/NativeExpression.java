@@ -0,0 +1,787 @@
+/*
+ *  Copyright (c) 2001-2004 ASP Converters pty ltd
+ *
+ *  www.stSoftware.com.au
+ *
+ *  All Rights Reserved.
+ *
+ *  This software is the proprietary information of
+ *  ASP Converters Pty Ltd.
+ *  Use is subject to license terms.
+ */
+package com.aspc.remote.formula.internal;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import javax.annotation.CheckReturnValue;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+
+/**
+ *  A formula compiled to a Java expression tree.
+ *
+ *  Only the common arithmetic and comparison subset of JavaScript is handled: number, string, true, false and null
+ *  literals, variables from the bindings, the operators + - * / % == != === !== &lt; &lt;= &gt; &gt;= &amp;&amp; || ! and ?: plus brackets.
+ *  Anything else can not be parsed and is left to the script engine. When a value turns up at evaluation time that
+ *  needs the JavaScript type coercion rules ( an unknown variable, a string compared to a number etc.)
+ *  {@link #UNSUPPORTED} is thrown so the caller can fall back to the script engine.
+ *
+ *  The result types follow the script engine: variables are returned as bound, arithmetic on variables is a
+ *  Double and arithmetic on whole number literals is folded to an Integer when the result is a whole number.
+ *
+ *  <br>
+ *  <i>THREAD MODE: READONLY</i>
+ *
+ *  @author      Nigel Leck
+ *  @since       18 October 2026
+ */
+@Immutable
+public final class NativeExpression
+{
+    /**
+     * The expression can not be evaluated natively with these values.
+     */
+    public static final RuntimeException UNSUPPORTED=new UnsupportedException();
+
+    private static final HashSet<String> RESERVED=new HashSet<>(
+        Arrays.asList(
+            "undefined", "NaN", "Infinity", "this", "new", "typeof", "void", "delete", "in", "instanceof",
+            "var", "let", "const", "function", "return", "if", "else", "for", "while", "do", "switch",
+            "case", "default", "break", "continue", "with", "try", "catch", "finally", "throw", "class",
+            "arguments", "eval", "yield"
+        )
+    );
+
+    private final Node root;
+    private final String definition;
+
+    private NativeExpression( final @Nonnull String definition, final @Nonnull Node root)
+    {
+        this.definition=definition;
+        this.root=root;
+    }
+
+    /**
+     * Compile the definition.
+     *
+     * @param definition the formula
+     * @return the expression or null if the definition is not in the supported subset.
+     */
+    @CheckReturnValue @Nullable
+    public static NativeExpression compile( final @Nonnull String definition)
+    {
+        Parser parser=new Parser( definition);
+        Node node=parser.parse();
+        if( node == null) return null;
+
+        return new NativeExpression( definition, node);
+    }
+
+    /**
+     * Evaluate the expression
+     *
+     * @param bindings the variables
+     * @return the value
+     * @throws RuntimeException {@link #UNSUPPORTED} if the values need the script engine.
+     */
+    @CheckReturnValue @Nullable
+    public Object eval( final @Nonnull Map<String, Object> bindings)
+    {
+        return root.eval( bindings);
+    }
+
+    /**
+     * The definition
+     * @return the definition
+     */
+    @Override @CheckReturnValue @Nonnull
+    public String toString()
+    {
+        return definition;
+    }
+
+    /**
+     * The script engine types a number literal without a decimal point, and arithmetic on those
+     * literals that it folds at compile time, as an Integer when the value is a whole number in
+     * the int range. Every other number it calculates is a Double.
+     */
+    private static Object narrow( final double d)
+    {
+        if( d == (int)d && ( d != 0 || 1 / d > 0))
+        {
+            return (int)d;
+        }
+
+        return d;
+    }
+
+    private static boolean isTrue( final Object value)
+    {
+        if( value == null) return false;
+        if( value instanceof Boolean) return (Boolean)value;
+        if( value instanceof String) return ((String)value).isEmpty() == false;
+        if( value instanceof Number)
+        {
+            double d=((Number)value).doubleValue();
+            return d != 0 && Double.isNaN( d) == false;
+        }
+
+        throw UNSUPPORTED;
+    }
+
+    private static double toNumber( final Object value)
+    {
+        if( value instanceof Number) return ((Number)value).doubleValue();
+        if( value == null) return 0;
+        if( value instanceof Boolean) return (Boolean)value ? 1 : 0;
+
+        throw UNSUPPORTED;
+    }
+
+    private static String toText( final Object value)
+    {
+        if( value == null) return "null";
+        if( value instanceof String || value instanceof Boolean) return value.toString();
+        if( value instanceof Number)
+        {
+            double d=((Number)value).doubleValue();
+            if( d == (long)d && Math.abs( d) < 1e15)
+            {
+                return Long.toString( (long)d);
+            }
+            String text=Double.toString( d);
+            if( text.indexOf( 'E') == -1 && Double.isInfinite( d) == false && Double.isNaN( d) == false)
+            {
+                return text;
+            }
+        }
+
+        throw UNSUPPORTED;
+    }
+
+    private static boolean isPrimitive( final Object value)
+    {
+        return value == null || value instanceof Number || value instanceof String || value instanceof Boolean;
+    }
+
+    private static int kind( final Object value)
+    {
+        if( value == null) return 0;
+        if( value instanceof Number) return 1;
+        if( value instanceof String) return 2;
+        if( value instanceof Boolean) return 3;
+
+        throw UNSUPPORTED;
+    }
+
+    private static boolean equal( final Object a, final Object b, final boolean strict)
+    {
+        int kindA=kind( a);
+        int kindB=kind( b);
+
+        if( kindA != kindB)
+        {
+            if( strict) return false;
+            throw UNSUPPORTED;
+        }
+
+        switch( kindA)
+        {
+            case 0:
+                return true;
+            case 1:
+                return ((Number)a).doubleValue() == ((Number)b).doubleValue();
+            default:
+                return a.equals( b);
+        }
+    }
+
+    private static int compare( final Object a, final Object b)
+    {
+        if( a instanceof String && b instanceof String)
+        {
+            return ((String)a).compareTo( (String)b);
+        }
+        if( a instanceof String || b instanceof String)
+        {
+            throw UNSUPPORTED;
+        }
+
+        double da=toNumber( a);
+        double db=toNumber( b);
+
+        if( Double.isNaN( da) || Double.isNaN( db))
+        {
+            return Integer.MIN_VALUE;
+        }
+
+        return Double.compare( da == 0 ? 0 : da, db == 0 ? 0 : db);
+    }
+
+    private interface Node
+    {
+        Object eval( Map<String, Object> bindings);
+    }
+
+    private static final class Constant implements Node
+    {
+        private final Object value;
+
+        Constant( final Object value)
+        {
+            this.value=value;
+        }
+
+        @Override
+        public Object eval( final Map<String, Object> bindings)
+        {
+            return value;
+        }
+    }
+
+    private static final class Variable implements Node
+    {
+        private final String name;
+
+        Variable( final String name)
+        {
+            this.name=name;
+        }
+
+        @Override
+        public Object eval( final Map<String, Object> bindings)
+        {
+            Object value=bindings.get( name);
+            if( value == null && bindings.containsKey( name) == false)
+            {
+                throw UNSUPPORTED;
+            }
+            if( isPrimitive( value) == false)
+            {
+                throw UNSUPPORTED;
+            }
+            return value;
+        }
+    }
+
+    private static final class Unary implements Node
+    {
+        private final char op;
+        private final Node node;
+
+        Unary( final char op, final Node node)
+        {
+            this.op=op;
+            this.node=node;
+        }
+
+        @Override
+        public Object eval( final Map<String, Object> bindings)
+        {
+            Object value=node.eval( bindings);
+            switch( op)
+            {
+                case '!':
+                    return isTrue( value) == false;
+                case '-':
+                    return -toNumber( value);
+                default:
+                    return toNumber( value);
+            }
+        }
+    }
+
+    private static final class Binary implements Node
+    {
+        private final String op;
+        private final Node left;
+        private final Node right;
+
+        Binary( final String op, final Node left, final Node right)
+        {
+            this.op=op;
+            this.left=left;
+            this.right=right;
+        }
+
+        @Override
+        public Object eval( final Map<String, Object> bindings)
+        {
+            Object a=left.eval( bindings);
+
+            switch( op)
+            {
+                case "&&":
+                    return isTrue( a) ? right.eval( bindings) : a;
+                case "||":
+                    return isTrue( a) ? a : right.eval( bindings);
+            }
+
+            Object b=right.eval( bindings);
+            switch( op)
+            {
+                case "+":
+                    if( a instanceof String || b instanceof String)
+                    {
+                        return toText( a).concat( toText( b));
+                    }
+                    return toNumber( a) + toNumber( b);
+                case "-":
+                    return toNumber( a) - toNumber( b);
+                case "*":
+                    return toNumber( a) * toNumber( b);
+                case "/":
+                    return toNumber( a) / toNumber( b);
+                case "%":
+                    return toNumber( a) % toNumber( b);
+                case "==":
+                    return equal( a, b, false);
+                case "!=":
+                    return equal( a, b, false) == false;
+                case "===":
+                    return equal( a, b, true);
+                case "!==":
+                    return equal( a, b, true) == false;
+                case "<":
+                {
+                    int c=compare( a, b);
+                    return c != Integer.MIN_VALUE && c < 0;
+                }
+                case "<=":
+                {
+                    int c=compare( a, b);
+                    return c != Integer.MIN_VALUE && c <= 0;
+                }
+                case ">":
+                {
+                    int c=compare( a, b);
+                    return c != Integer.MIN_VALUE && c > 0;
+                }
+                case ">=":
+                {
+                    int c=compare( a, b);
+                    return c != Integer.MIN_VALUE && c >= 0;
+                }
+                default:
+                    throw new IllegalStateException( "unknown operator " + op);
+            }
+        }
+    }
+
+    private static final class Conditional implements Node
+    {
+        private final Node test;
+        private final Node whenTrue;
+        private final Node whenFalse;
+
+        Conditional( final Node test, final Node whenTrue, final Node whenFalse)
+        {
+            this.test=test;
+            this.whenTrue=whenTrue;
+            this.whenFalse=whenFalse;
+        }
+
+        @Override
+        public Object eval( final Map<String, Object> bindings)
+        {
+            return isTrue( test.eval( bindings)) ? whenTrue.eval( bindings) : whenFalse.eval( bindings);
+        }
+    }
+
+    /**
+     * Recursive descent parser, returns null for anything outside the subset.
+     */
+    private static final class Parser
+    {
+        private static final String LEVELS[][]={
+            {"||"},
+            {"&&"},
+            {"===", "!==", "==", "!="},
+            {"<=", ">=", "<", ">"},
+            {"+", "-"},
+            {"*", "/", "%"}
+        };
+
+        private final String text;
+        private int pos;
+        private boolean failed;
+
+        Parser( final String text)
+        {
+            this.text=text;
+        }
+
+        Node parse()
+        {
+            Node node=expression();
+            skipSpaces();
+            if( pos < text.length() && text.charAt( pos) == ';')
+            {
+                pos++;
+                skipSpaces();
+            }
+
+            if( failed || node == null || pos != text.length())
+            {
+                return null;
+            }
+
+            return node;
+        }
+
+        private Node expression()
+        {
+            Node test=binary( 0);
+            if( failed) return null;
+
+            if( consume( "?"))
+            {
+                Node whenTrue=expression();
+                if( failed || consume( ":") == false) return fail();
+                Node whenFalse=expression();
+                if( failed) return null;
+
+                return new Conditional( test, whenTrue, whenFalse);
+            }
+
+            return test;
+        }
+
+        private Node binary( final int level)
+        {
+            if( level == LEVELS.length) return unary();
+
+            Node node=binary( level + 1);
+            while( failed == false)
+            {
+                String op=operator( LEVELS[level]);
+                if( op == null) break;
+
+                Node right=binary( level + 1);
+                if( failed) return null;
+
+                boolean arithmetic="+-*/%".contains( op);
+                node=fold( new Binary( op, node, right), arithmetic && isWholeConstant( node) && isWholeConstant( right));
+            }
+
+            return failed ? null : node;
+        }
+
+        private Node unary()
+        {
+            skipSpaces();
+            if( pos < text.length())
+            {
+                char c=text.charAt( pos);
+                if( c == '!' && text.startsWith( "!=", pos) == false)
+                {
+                    pos++;
+                    Node node=unary();
+                    return failed ? null : fold( new Unary( c, node), false);
+                }
+                if( ( c == '-' || c == '+') && text.startsWith( "--", pos) == false && text.startsWith( "++", pos) == false)
+                {
+                    pos++;
+                    Node node=unary();
+                    if( failed) return null;
+
+                    return fold( new Unary( c, node), isWholeConstant( node));
+                }
+            }
+
+            return primary();
+        }
+
+        private Node primary()
+        {
+            skipSpaces();
+            if( pos >= text.length()) return fail();
+
+            char c=text.charAt( pos);
+            Node node;
+            if( c == '(')
+            {
+                pos++;
+                node=expression();
+                if( failed || consume( ")") == false) return fail();
+            }
+            else if( c == '\'' || c == '"')
+            {
+                node=string( c);
+            }
+            else if( ( c >= '0' && c <= '9') || c == '.')
+            {
+                node=number();
+            }
+            else if( Character.isJavaIdentifierStart( c))
+            {
+                node=identifier();
+            }
+            else
+            {
+                return fail();
+            }
+
+            if( failed) return null;
+
+            // member access, calls, indexing, assignment and increments are left to the script engine.
+            skipSpaces();
+            if( pos < text.length())
+            {
+                char next=text.charAt( pos);
+                if( next == '.' || next == '(' || next == '[' || next == '`')
+                {
+                    return fail();
+                }
+                if( next == '=' && text.startsWith( "==", pos) == false)
+                {
+                    return fail();
+                }
+                if( text.startsWith( "++", pos) || text.startsWith( "--", pos))
+                {
+                    return fail();
+                }
+            }
+
+            return node;
+        }
+
+        private Node identifier()
+        {
+            int start=pos;
+            while( pos < text.length() && Character.isJavaIdentifierPart( text.charAt( pos)))
+            {
+                pos++;
+            }
+            String name=text.substring( start, pos);
+
+            switch( name)
+            {
+                case "true":
+                    return new Constant( Boolean.TRUE);
+                case "false":
+                    return new Constant( Boolean.FALSE);
+                case "null":
+                    return new Constant( null);
+            }
+
+            if( RESERVED.contains( name)) return fail();
+
+            return new Variable( name);
+        }
+
+        private Node number()
+        {
+            int start=pos;
+            while( pos < text.length())
+            {
+                char c=text.charAt( pos);
+                if( ( c >= '0' && c <= '9') || c == '.')
+                {
+                    pos++;
+                }
+                else if( ( c == 'e' || c == 'E') && pos > start)
+                {
+                    pos++;
+                    if( pos < text.length() && ( text.charAt( pos) == '+' || text.charAt( pos) == '-'))
+                    {
+                        pos++;
+                    }
+                }
+                else
+                {
+                    break;
+                }
+            }
+
+            if( pos < text.length() && Character.isJavaIdentifierPart( text.charAt( pos)))
+            {
+                // hex, octal and other forms are left to the script engine
+                return fail();
+            }
+
+            String literal=text.substring( start, pos);
+            if( literal.length() > 1 && literal.charAt( 0) == '0' && literal.charAt( 1) != '.')
+            {
+                return fail();
+            }
+
+            try
+            {
+                double value=Double.parseDouble( literal);
+                if( literal.indexOf( '.') != -1)
+                {
+                    return new Constant( value);
+                }
+                return new Constant( narrow( value));
+            }
+            catch( NumberFormatException nfe)
+            {
+                return fail();
+            }
+        }
+
+        private Node string( final char quote)
+        {
+            pos++;
+            StringBuilder sb=new StringBuilder();
+            while( pos < text.length())
+            {
+                char c=text.charAt( pos++);
+                if( c == quote)
+                {
+                    return new Constant( sb.toString());
+                }
+                if( c == '\n' || c == '\r')
+                {
+                    return fail();
+                }
+                if( c == '\\')
+                {
+                    if( pos >= text.length()) return fail();
+                    char e=text.charAt( pos++);
+                    switch( e)
+                    {
+                        case 'n':
+                            sb.append( '\n');
+                            break;
+                        case 't':
+                            sb.append( '\t');
+                            break;
+                        case 'r':
+                            sb.append( '\r');
+                            break;
+                        case '\\':
+                        case '\'':
+                        case '"':
+                            sb.append( e);
+                            break;
+                        default:
+                            return fail();
+                    }
+                }
+                else
+                {
+                    sb.append( c);
+                }
+            }
+
+            return fail();
+        }
+
+        private String operator( final String ops[])
+        {
+            skipSpaces();
+            for( String op: ops)
+            {
+                if( text.startsWith( op, pos))
+                {
+                    int end=pos + op.length();
+                    if( op.length() == 1 && "+-*/%".indexOf( op.charAt( 0)) != -1 && end < text.length())
+                    {
+                        char next=text.charAt( end);
+                        // compound assignment, increments, comments and ** are left to the script engine
+                        if( next == '=' || next == op.charAt( 0))
+                        {
+                            failed=true;
+                            return null;
+                        }
+                    }
+                    pos=end;
+                    return op;
+                }
+            }
+
+            return null;
+        }
+
+        private boolean consume( final String token)
+        {
+            skipSpaces();
+            if( text.startsWith( token, pos))
+            {
+                pos+=token.length();
+                return true;
+            }
+            return false;
+        }
+
+        private void skipSpaces()
+        {
+            while( pos < text.length() && Character.isWhitespace( text.charAt( pos)))
+            {
+                pos++;
+            }
+        }
+
+        private Node fail()
+        {
+            failed=true;
+            return null;
+        }
+
+        /**
+         * Is the node a constant the script engine types as a whole number ?
+         */
+        private static boolean isWholeConstant( final Node node)
+        {
+            if( node instanceof Constant == false) return false;
+
+            Object value=((Constant)node).value;
+            return value instanceof Integer || value instanceof Boolean;
+        }
+
+        /**
+         * Replace an operator on constants with its value as the script engine folds it when compiling.
+         *
+         * @param node the operator
+         * @param whole the operands are whole number constants.
+         * @return the constant or the operator if the operands are not constants.
+         */
+        private static Node fold( final Node node, final boolean whole)
+        {
+            if( node instanceof Unary)
+            {
+                if( ((Unary)node).node instanceof Constant == false) return node;
+            }
+            else if( ((Binary)node).left instanceof Constant == false || ((Binary)node).right instanceof Constant == false)
+            {
+                return node;
+            }
+
+            Object value;
+            try
+            {
+                value=node.eval( Collections.<String, Object>emptyMap());
+            }
+            catch( RuntimeException re)
+            {
+                if( re == UNSUPPORTED) return node;
+                throw re;
+            }
+
+            if( whole && value instanceof Double)
+            {
+                value=narrow( (Double)value);
+            }
+
+            return new Constant( value);
+        }
+    }
+
+    /**
+     * Thrown when the values need the script engine, shared so no stack trace is filled in.
+     */
+    private static final class UnsupportedException extends RuntimeException
+    {
+        private static final long serialVersionUID = 1L;
+
+        UnsupportedException()
+        {
+            super( "not supported by the native evaluator", null, false, false);
+        }
+    }
+}
@@ -234,6 +234,9 @@ public class SoapResultSet extends SResultSet
                 }
             }
         }
+
+        /* remove the spilled rows */
+        super.close();
     }
 
     /**
@@ -258,7 +261,10 @@ public class SoapResultSet extends SResultSet
     {
         if( hasResultSet( rsCount))
         {
-            return new SoapResultSet( doc, rsCount, callback);
+            SoapResultSet next = new SoapResultSet( doc, rsCount, callback);
+            next.setSpillBudget( getSpillBudget());
+            next.setColumnar( isColumnar());
+            return next;
         }
         else
         {
@@ -372,23 +378,35 @@ public class SoapResultSet extends SResultSet
             return null;
         }
 
-        if( row >= 1 && row <= rowPage.size())
+        int loaded = getLoadedRowCount();
+        if( row <= loaded)
         {
-            return (Row)rowPage.get( row - 1);
+            Row found = super.fetchRow( row);
+            if( found == null || found instanceof SoapRow)
+            {
+                return found;
+            }
+
+            /* the columnar and spilled storage only hold the cells */
+            SoapRow attributes = row <= storedAttributes.size() ? storedAttributes.get( row - 1) : null;
+            return new SoapRow( found, attributes);
         }
 
         try
         {
             if( StringUtilities.isBlank( nextCursorName) == false)
             {
-                Document tmpDoc = callback.execute( "CURSOR FETCH " + nextCursorName + ", " + rowPage.size() + ", 100");
+                Document tmpDoc = callback.execute( "CURSOR FETCH " + nextCursorName + ", " + loaded + ", 100");
                 NodeList sets = tmpDoc.getElementsByTagName( Constants.ELM_RESULTSET);
 
                 Element rs = (Element)sets.item( 0);
 
                 decodeRS(rs);
 
-                return fetchRow( row);
+                if( getLoadedRowCount() > loaded)
+                {
+                    return fetchRow( row);
+                }
             }
         }
         catch( Exception e)
@@ -399,6 +417,29 @@ public class SoapResultSet extends SResultSet
         return null;
     }
 
+    /**
+     * Keep the attributes of a soap row that is stored by column or spilled.
+     *
+     * @param index the zero based position of the row
+     * @param row the loaded row
+     * @return the row to store
+     */
+    @Override @CheckReturnValue @Nonnull
+    protected Row storedRow( final int index, final @Nonnull Row row)
+    {
+        SoapRow attributes = row instanceof SoapRow ? ((SoapRow)row).getAttributes() : null;
+        if( attributes != null)
+        {
+            while( storedAttributes.size() < index)
+            {
+                storedAttributes.add( null);
+            }
+            storedAttributes.add( attributes);
+        }
+
+        return super.storedRow( index, row);
+    }
+
     private void decodeData() throws Exception
     {
         NodeList sets = doc.getElementsByTagName( Constants.ELM_RESULTSET);
@@ -444,9 +485,10 @@ public class SoapResultSet extends SResultSet
 
         NodeList cols = rs.getElementsByTagName( Constants.ELM_RESULTSET_CD);
 
-        if( rowPage == null)
+        if( columns == null)
         {
-            rowPage = new ArrayList();
+            resetRows();
+            storedAttributes.clear();
 
             columns = new ArrayList();
             columnKeys = HashMapFactory.create();
@@ -510,10 +552,16 @@ public class SoapResultSet extends SResultSet
         {
             Node row = rowList.item( i);
 
-            rowPage.add(
+            addRow(
                 new SoapRow( tz, columns, row)
             );
         }
+
+        /* the last page of the cursor */
+        if( StringUtilities.isBlank( nextCursorName))
+        {
+            rowsLoaded();
+        }
     }
 
     @CheckReturnValue
@@ -543,6 +591,7 @@ public class SoapResultSet extends SResultSet
 
 
     private String      nextCursorName;
+    private final ArrayList<SoapRow> storedAttributes = new ArrayList<>();
 
     private String      rsTitle = "";
 
@@ -151,6 +151,46 @@ public class SoapRow extends Row
         return rowAttributes.keySet().toArray();
     }
 
+    /**
+     * The cells of a stored row with the attributes of the loaded soap row.
+     *
+     * @param row the stored row
+     * @param attributes the attributes of the loaded row, null if it had none.
+     */
+    public SoapRow( final @Nonnull Row row, final @Nullable SoapRow attributes)
+    {
+        super( row);
+
+        if( attributes != null)
+        {
+            rowAttributes = attributes.rowAttributes;
+            cellAttributes = attributes.cellAttributes;
+        }
+    }
+
+    private SoapRow( final @Nonnull TimeZone tz, final HashMap rowAttributes, final HashMap cellAttributes)
+    {
+        super( tz);
+        this.rowAttributes = rowAttributes;
+        this.cellAttributes = cellAttributes;
+    }
+
+    /**
+     * The attributes of this row without the cells.
+     *
+     * @return the attributes, null if there are none.
+     */
+    @CheckReturnValue @Nullable
+    public SoapRow getAttributes()
+    {
+        if( rowAttributes == null && cellAttributes == null)
+        {
+            return null;
+        }
+
+        return new SoapRow( tz, rowAttributes, cellAttributes);
+    }
+
     /**
      * The row for the soap result set
      * @param tz The timezone
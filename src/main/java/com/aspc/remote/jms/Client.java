@@ -41,8 +41,13 @@ import com.aspc.remote.util.misc.*;
 import com.aspc.remote.util.net.NetUtil;
 import java.io.IOException;
 import java.net.ServerSocket;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
 import java.util.TimeZone;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import javax.annotation.CheckReturnValue;
 import javax.annotation.Nonnull;
 import javax.jms.*;
@@ -99,6 +104,22 @@ public abstract class Client implements ExceptionListener,ShutdownListener//, Tr
      * The pending count that we will send out an error
      */
     public static final String ENV_JMS_PENDING_COUNT="JMS_PENDING_COUNT";
+
+    /**
+     * Environment variable to set the maximum number of messages published in one transaction, 1 publishes each message as it is sent.
+     */
+    public static final String ENV_JMS_BATCH_SIZE="JMS_BATCH_SIZE";
+
+    /**
+     * Environment variable to set the maximum time in milliseconds a batch waits for more messages.
+     */
+    public static final String ENV_JMS_BATCH_LINGER_MS="JMS_BATCH_LINGER_MS";
+
+    /**
+     * Environment variable to set the number of messages that can be queued before the senders are blocked.
+     */
+    public static final String ENV_JMS_BATCH_QUEUE="JMS_BATCH_QUEUE";
+
     /**
      * The time that this message was sent.
      */
@@ -122,6 +143,10 @@ public abstract class Client implements ExceptionListener,ShutdownListener//, Tr
 
 //    private long lastPendingWarningMS;
     private static final long JMS_PENDING_COUNT;
+
+    private static final int DEFAULT_BATCH_SIZE;
+    private static final int DEFAULT_BATCH_LINGER_MS;
+    private static final int DEFAULT_BATCH_QUEUE;
     /**
      * the last time we connected to the JMS server
      */
@@ -169,6 +194,37 @@ public abstract class Client implements ExceptionListener,ShutdownListener//, Tr
      */
     private long totalSent;
 
+    private volatile int batchSize=DEFAULT_BATCH_SIZE;
+    private volatile long batchLingerMS=DEFAULT_BATCH_LINGER_MS;
+    private int batchQueueCapacity=DEFAULT_BATCH_QUEUE;
+    private volatile long batchQueueTimeoutMS=JMS_TIMEOUT;
+
+    /**
+     * the thread that publishes the queued messages, created on the first batched send.
+     */
+    private BatchPublisher batchPublisher;
+
+    /**
+     * the transacted session used by the batch publisher.
+     */
+    private TopicSession batchSession;
+    private TopicPublisher batchTopicPublisher;
+
+    private final Object batchMonitor=new Object();
+    private int batchPending;
+
+    private final AtomicLong batchCount=new AtomicLong();
+    private final AtomicLong batchMessageCount=new AtomicLong();
+    private final AtomicLong batchFailedCount=new AtomicLong();
+    private final AtomicLong batchDroppedCount=new AtomicLong();
+    private final AtomicLong publishNanos=new AtomicLong();
+
+    /**
+     * only changed by the batch publisher while it holds the JMS lock.
+     */
+    private volatile int batchMaxSize;
+    private volatile long publishMaxNanos;
+
     /**
      * The logger for the master db
      */
@@ -215,12 +271,24 @@ public abstract class Client implements ExceptionListener,ShutdownListener//, Tr
      *
      * If will fail to send the message because of illegal state then close the
      * connection and try again as the message server was probably been restarted
+     *
+     * When the batch size is more than one the message is queued and published by the batch
+     * publisher thread in a transaction with the other queued messages. The caller is blocked
+     * while the queue is full, the message is dropped once the queue timeout is over ( see {@link #setBatchQueueTimeoutMS(long)}).
+     *
      * @param message The message text to send.
      * @throws Exception A serious message
      */
     public void send( final String message) throws Exception
     {
         long startMS = System.currentTimeMillis();
+
+        if( batchSize > 1)
+        {
+            queue( message, startMS);
+            return;
+        }
+
 //        long pendingCount = 0;
 
         lockJMS.take();
@@ -290,6 +358,403 @@ public abstract class Client implements ExceptionListener,ShutdownListener//, Tr
 //        }
     }
 
+    /**
+     * Set the maximum number of messages published in one transaction.
+     *
+     * @param size the batch size, 1 publishes each message as it is sent.
+     */
+    public void setBatchSize( final int size)
+    {
+        if( size < 1) throw new IllegalArgumentException( "batch size must be at least 1: " + size);
+
+        batchSize=size;
+    }
+
+    /**
+     * The maximum number of messages published in one transaction.
+     *
+     * @return the batch size
+     */
+    @CheckReturnValue
+    public int getBatchSize()
+    {
+        return batchSize;
+    }
+
+    /**
+     * Set the maximum time a batch waits for more messages before it is published.
+     *
+     * @param lingerMS the linger time in milliseconds.
+     */
+    public void setBatchLingerMS( final long lingerMS)
+    {
+        if( lingerMS < 0) throw new IllegalArgumentException( "linger must not be negative: " + lingerMS);
+
+        batchLingerMS=lingerMS;
+    }
+
+    /**
+     * The maximum time a batch waits for more messages before it is published.
+     *
+     * @return the linger time in milliseconds.
+     */
+    @CheckReturnValue
+    public long getBatchLingerMS()
+    {
+        return batchLingerMS;
+    }
+
+    /**
+     * Set the number of messages that can be queued before the senders are blocked.
+     * Must be called before the first batched send.
+     *
+     * @param capacity the queue capacity.
+     */
+    public synchronized void setBatchQueueCapacity( final int capacity)
+    {
+        if( capacity < 1) throw new IllegalArgumentException( "queue capacity must be at least 1: " + capacity);
+        if( batchPublisher != null) throw new java.lang.IllegalStateException( "batch publisher already started");
+
+        batchQueueCapacity=capacity;
+    }
+
+    /**
+     * Set how long a sender waits while the queue is full before the message is dropped, zero drops
+     * the message at once. Defaults to JMS_TIMEOUT.
+     *
+     * @param timeoutMS the time to wait in milliseconds.
+     */
+    public void setBatchQueueTimeoutMS( final long timeoutMS)
+    {
+        if( timeoutMS < 0) throw new IllegalArgumentException( "queue timeout must not be negative: " + timeoutMS);
+
+        batchQueueTimeoutMS=timeoutMS;
+    }
+
+    /**
+     * How long a sender waits while the queue is full.
+     *
+     * @return the time to wait in milliseconds.
+     */
+    @CheckReturnValue
+    public long getBatchQueueTimeoutMS()
+    {
+        return batchQueueTimeoutMS;
+    }
+
+    /**
+     * Wait for the queued messages to be published.
+     *
+     * @param timeoutMS the maximum time to wait.
+     * @return true if all the queued messages have been published.
+     * @throws InterruptedException interrupted while waiting.
+     */
+    public boolean flush( final long timeoutMS) throws InterruptedException
+    {
+        long endMS = System.currentTimeMillis() + timeoutMS;
+
+        synchronized( batchMonitor)
+        {
+            while( batchPending > 0)
+            {
+                long waitMS = endMS - System.currentTimeMillis();
+                if( waitMS <= 0) return false;
+
+                batchMonitor.wait( waitMS);
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * The number of messages queued but not yet published.
+     *
+     * @return the count
+     */
+    @CheckReturnValue
+    public int getBatchPendingCount()
+    {
+        synchronized( batchMonitor)
+        {
+            return batchPending;
+        }
+    }
+
+    /**
+     * How many batches have been committed ?
+     *
+     * @return the count
+     */
+    @CheckReturnValue
+    public long getBatchCount()
+    {
+        return batchCount.get();
+    }
+
+    /**
+     * The average number of messages in a committed batch.
+     *
+     * @return the average batch size.
+     */
+    @CheckReturnValue
+    public double getAverageBatchSize()
+    {
+        long count = batchCount.get();
+        if( count == 0) return 0;
+
+        return (double)batchMessageCount.get() / (double)count;
+    }
+
+    /**
+     * The largest batch committed.
+     *
+     * @return the maximum batch size.
+     */
+    @CheckReturnValue
+    public int getMaxBatchSize()
+    {
+        return batchMaxSize;
+    }
+
+    /**
+     * How many queued messages could not be published ?
+     *
+     * @return the count
+     */
+    @CheckReturnValue
+    public long getBatchFailedCount()
+    {
+        return batchFailedCount.get();
+    }
+
+    /**
+     * How many messages were dropped because the queue was full ?
+     *
+     * @return the count
+     */
+    @CheckReturnValue
+    public long getBatchDroppedCount()
+    {
+        return batchDroppedCount.get();
+    }
+
+    /**
+     * The average time to publish and commit a batch.
+     *
+     * @return the latency in milliseconds.
+     */
+    @CheckReturnValue
+    public double getAveragePublishLatency()
+    {
+        long count = batchCount.get();
+        if( count == 0) return 0;
+
+        return (double)publishNanos.get() / (double)count / 1000000.0;
+    }
+
+    /**
+     * The longest time to publish and commit a batch.
+     *
+     * @return the latency in milliseconds.
+     */
+    @CheckReturnValue
+    public double getMaxPublishLatency()
+    {
+        return (double)publishMaxNanos / 1000000.0;
+    }
+
+    /**
+     * queue the message for the batch publisher, blocks while the queue is full and drops the message when the wait is over.
+     */
+    private void queue( final String message, final long startMS) throws Exception
+    {
+        BatchPublisher publisher = startBatchPublisher();
+
+        synchronized( batchMonitor)
+        {
+            batchPending++;
+        }
+
+        boolean queued = false;
+        try
+        {
+            queued = publisher.queue.offer( message, batchQueueTimeoutMS, TimeUnit.MILLISECONDS);
+        }
+        finally
+        {
+            if( queued == false)
+            {
+                batchDone( 1);
+            }
+        }
+
+        if( queued == false)
+        {
+            batchDroppedCount.incrementAndGet();
+            throw new Exception( "JMS batch queue full, waited " + TimeUtil.getDiff( startMS));
+        }
+    }
+
+    private synchronized BatchPublisher startBatchPublisher()
+    {
+        if( batchPublisher == null)
+        {
+            batchPublisher = new BatchPublisher( new LinkedBlockingQueue<String>( batchQueueCapacity));
+            batchPublisher.start();
+        }
+        else if( batchPublisher.isAlive() == false)
+        {
+            LOGGER.warn( "JMS batch publisher stopped, restarting with " + batchPublisher.queue.size() + " queued messages");
+            batchPublisher = new BatchPublisher( batchPublisher.queue);
+            batchPublisher.start();
+        }
+
+        return batchPublisher;
+    }
+
+    /**
+     * stop the batch publisher, any messages still queued are counted as failed.
+     */
+    private void stopBatchPublisher()
+    {
+        BatchPublisher publisher;
+        synchronized( this)
+        {
+            publisher = batchPublisher;
+            batchPublisher = null;
+        }
+
+        if( publisher != null)
+        {
+            publisher.stopPublishing();
+        }
+    }
+
+    private void batchDone( final int count)
+    {
+        synchronized( batchMonitor)
+        {
+            batchPending -= count;
+            if( batchPending <= 0)
+            {
+                batchMonitor.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Publish the messages in one transaction.
+     *
+     * If the transaction fails because of illegal state then close the connection and try again
+     * as the message server was probably been restarted.
+     */
+    private void publishBatch( final List<String> messages) throws Exception
+    {
+        long startMS = System.currentTimeMillis();
+
+        lockJMS.take();
+        try
+        {
+            for( int loop = 0; loop < 2; loop++)
+            {
+                if( isConnected() == false)
+                {
+                    startJMS( requiredJmsContext, requiredJmsProviderURL);
+                }
+
+                if( currentConnection == null)
+                {
+                    throw new Exception( "not connected to JMS, " + messages.size() + " messages not published");
+                }
+
+                try
+                {
+                    if( batchSession == null)
+                    {
+                        batchSession = currentConnection.createTopicSession( true, Session.SESSION_TRANSACTED);
+                        batchTopicPublisher = batchSession.createPublisher( currentPublisher.getTopic());
+                        batchTopicPublisher.setTimeToLive( currentPublisher.getTimeToLive());
+                        batchTopicPublisher.setDeliveryMode( currentPublisher.getDeliveryMode());
+                    }
+
+                    long startNS = System.nanoTime();
+                    ArrayList<TextMessage> sent = new ArrayList<>( messages.size());
+                    try
+                    {
+                        for( String message: messages)
+                        {
+                            TextMessage tm = batchSession.createTextMessage( message);
+
+                            prePublish(tm);
+                            batchTopicPublisher.publish( tm);
+                            sent.add( tm);
+                        }
+
+                        batchSession.commit();
+                    }
+                    catch( javax.jms.JMSException e)
+                    {
+                        try
+                        {
+                            batchSession.rollback();
+                        }
+                        catch( javax.jms.JMSException re)
+                        {
+                            LOGGER.warn( "could not rollback batch", re);
+                        }
+                        throw e;
+                    }
+
+                    long nanos = System.nanoTime() - startNS;
+                    batchCount.incrementAndGet();
+                    batchMessageCount.addAndGet( sent.size());
+                    if( sent.size() > batchMaxSize) batchMaxSize = sent.size();
+                    publishNanos.addAndGet( nanos);
+                    if( nanos > publishMaxNanos) publishMaxNanos = nanos;
+                    totalSent += sent.size();
+
+                    for( TextMessage tm: sent)
+                    {
+                        postPublish( tm);
+
+                        logSentMessage( tm, startMS);
+                    }
+                }
+                catch( javax.jms.JMSException e)
+                {
+                    LOGGER.error("Trying to Reconnect to JMS: ", e);
+
+                    shutdownJMS();
+                    jmsServerDown = true;
+
+                    if( loop == 0) continue;
+
+                    throw e;
+                }
+                break;
+            }
+        }
+        finally
+        {
+            lockJMS.release();
+        }
+    }
+
+    /**
+     * close the transacted session of the batch publisher.
+     */
+    private void closeBatchSession()
+    {
+        if( batchSession != null || batchTopicPublisher != null)
+        {
+            closeJMS( batchTopicPublisher, null, batchSession, null);
+        }
+
+        batchTopicPublisher = null;
+        batchSession = null;
+    }
+
     /**
      * We have reconnected to the JMS server ( may have lost some messages).
      */
@@ -505,6 +970,7 @@ public abstract class Client implements ExceptionListener,ShutdownListener//, Tr
         lockJMS.take();
         try
         {
+            closeBatchSession();
             closeJMS( currentPublisher, currentSubscriber,  currentSession,  currentConnection);
 
             /**
@@ -757,6 +1223,19 @@ public abstract class Client implements ExceptionListener,ShutdownListener//, Tr
     public final void shutdown( )
     {
         LOGGER.info( "closing JMS on application shutdown");
+        try
+        {
+            if( flush( JMS_TIMEOUT) == false)
+            {
+                LOGGER.warn( "closing JMS with " + getBatchPendingCount() + " unpublished messages");
+            }
+        }
+        catch( InterruptedException e)
+        {
+            LOGGER.warn( "interrupted while publishing the queued messages", e);
+            Thread.currentThread().interrupt();
+        }
+        stopBatchPublisher();
         shutdownJMS();
     }
 
@@ -770,6 +1249,8 @@ public abstract class Client implements ExceptionListener,ShutdownListener//, Tr
         lockJMS.take();
         try
         {
+            closeBatchSession();
+
             if(
                 currentPublisher != null   ||
                 currentSubscriber != null  ||
@@ -843,6 +1324,110 @@ public abstract class Client implements ExceptionListener,ShutdownListener//, Tr
         }
     }
 
+    /**
+     * Publishes the queued messages in transacted batches. While one batch is being committed the
+     * senders continue to fill the queue for the next batch.
+     */
+    private final class BatchPublisher extends Thread
+    {
+        private final LinkedBlockingQueue<String> queue;
+        private volatile boolean stopped;
+
+        BatchPublisher( final LinkedBlockingQueue<String> queue)
+        {
+            super( "JMS batch publisher");
+            setDaemon( true);
+            this.queue = queue;
+        }
+
+        /**
+         * stop after the current batch, only called on shutdown.
+         */
+        void stopPublishing()
+        {
+            stopped = true;
+            interrupt();
+        }
+
+        @Override
+        public void run()
+        {
+            ArrayList<String> batch = new ArrayList<>();
+            while( stopped == false)
+            {
+                try
+                {
+                    batch.add( queue.take());
+                }
+                catch( InterruptedException e)
+                {
+                    if( stopped == false)
+                    {
+                        LOGGER.warn( "JMS batch publisher interrupted, still running", e);
+                    }
+                    continue;
+                }
+
+                try
+                {
+                    linger( batch);
+
+                    publishBatch( batch);
+                }
+                catch( Exception e)
+                {
+                    LOGGER.error( "could not publish batch of " + batch.size() + " messages", e);
+                    batchFailedCount.addAndGet( batch.size());
+                }
+                finally
+                {
+                    batchDone( batch.size());
+                    batch.clear();
+                }
+            }
+
+            queue.drainTo( batch);
+            if( batch.isEmpty() == false)
+            {
+                LOGGER.warn( "JMS batch publisher stopped with " + batch.size() + " unpublished messages");
+                batchFailedCount.addAndGet( batch.size());
+                batchDone( batch.size());
+            }
+        }
+
+        /**
+         * wait for more messages until the batch is full or the linger time is up, an interrupt
+         * publishes what we have.
+         */
+        private void linger( final ArrayList<String> batch)
+        {
+            int size = batchSize;
+            long endNS = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos( batchLingerMS);
+            queue.drainTo( batch, size - batch.size());
+            try
+            {
+                while( batch.size() < size)
+                {
+                    long waitNS = endNS - System.nanoTime();
+                    if( waitNS <= 0) break;
+
+                    String next = queue.poll( waitNS, TimeUnit.NANOSECONDS);
+                    if( next == null) break;
+
+                    batch.add( next);
+                    queue.drainTo( batch, size - batch.size());
+                }
+            }
+            catch( InterruptedException e)
+            {
+                if( stopped == false)
+                {
+                    LOGGER.warn( "JMS batch publisher interrupted, publishing " + batch.size() + " messages", e);
+                }
+            }
+        }
+    }
+
     static
     {
         String temp;
@@ -907,6 +1492,10 @@ public abstract class Client implements ExceptionListener,ShutdownListener//, Tr
 
         LOGGER.info( "JMS PENDING COUNT=" + JMS_PENDING_COUNT);
 
+        DEFAULT_BATCH_SIZE = new VersionENV( ENV_JMS_BATCH_SIZE, 1, 1, 10000).calculateVersion();
+        DEFAULT_BATCH_LINGER_MS = new VersionENV( ENV_JMS_BATCH_LINGER_MS, 5, 1, 60000).calculateVersion();
+        DEFAULT_BATCH_QUEUE = new VersionENV( ENV_JMS_BATCH_QUEUE, 10000, 1, 1000000).calculateVersion();
+
         int tmpMaxInactivityDuration=DEFAULT_MAX_INACTIVITY_DURATION;
 
         try
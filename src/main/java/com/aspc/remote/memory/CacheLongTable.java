@@ -13,10 +13,12 @@ package com.aspc.remote.memory;
 
 import com.aspc.remote.database.*;
 import com.aspc.remote.util.misc.*;
+import java.util.Arrays;
 import java.util.concurrent.locks.Lock;
 import org.apache.commons.logging.Log;
 import com.aspc.remote.memory.internal.*;
 import javax.annotation.CheckReturnValue;
+import javax.annotation.Nonnegative;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
@@ -50,48 +52,185 @@ public class CacheLongTable<V> extends CacheTableTemplate<V>
      * @param description The description of this cache table.
      * @param cost The relative cost.
      */
-    @SuppressWarnings("OverridableMethodCallInConstructor")
     public CacheLongTable(final @Nonnull String description, final @Nonnull Cost cost)
     {
-        super( description, cost);
-        data = createArray( INITIAL_CAPACITY);//NOPMD
+        this( description, cost, 1);
+    }
+
+    /**
+     * Creates a new Cache Long table split into independently locked segments.
+     *
+     * @param description The description of this cache table.
+     * @param cost The relative cost.
+     * @param segmentCount the number of segments ( rounded up to a power of 2)
+     */
+    @SuppressWarnings("OverridableMethodCallInConstructor")
+    public CacheLongTable(final @Nonnull String description, final @Nonnull Cost cost, final @Nonnegative int segmentCount)
+    {
+        super( description, cost, segmentCount);
+        allocateSegments();//NOPMD
+    }
+
+    /**
+     * clear the off heap store too.
+     */
+    @Override
+    protected void cleared()
+    {
+        OffHeapLongStore<V> store = offHeapStore;
+        if( store != null)
+        {
+            store.clear();
+        }
     }
 
     /**
-     * creates a array of the keys.
+     * The value is no longer held on the heap, so it's only in the off heap store.
+     *
+     * @param e the entry released.
+     */
+    @Override
+    protected void released( final @Nonnull InterfaceEntry e)
+    {
+        OffHeapLongStore<V> store = offHeapStore;
+        if( store != null)
+        {
+            store.setResident( ((InterfaceEntryLong)e).key(), false);
+        }
+    }
+
+    /**
+     * creates a array of the keys, including the keys of the values only held in the off heap store.
      *
      * @return The array keys
      */
     @CheckReturnValue @Nonnull
     public long[] getKeyArray()
     {
-        Lock l = rwLock.readLock();
-        l.lock();
-        try
+        long list[] = heapKeyArray();
+
+        OffHeapLongStore<V> store = offHeapStore;
+        if( store != null)
+        {
+            long stored[] = store.getKeyArray();
+            if( stored.length > 0)
+            {
+                long all[] = Arrays.copyOf( list, list.length + stored.length);
+                System.arraycopy( stored, 0, all, list.length, stored.length);
+                Arrays.sort( all);
+
+                int j = 0;
+                for( int i = 0; i < all.length; i++)
+                {
+                    if( j == 0 || all[j - 1] != all[i])
+                    {
+                        all[j++] = all[i];
+                    }
+                }
+
+                list = Arrays.copyOf( all, j);
+            }
+        }
+
+        return list;
+    }
+
+    /**
+     * The number of keys, including the keys of the values only held in the off heap store.
+     *
+     * @return the number of keys.
+     */
+    @Override @CheckReturnValue @Nonnegative
+    public int size()
+    {
+        OffHeapLongStore<V> store = offHeapStore;
+        if( store == null)
+        {
+            return super.size();
+        }
+
+        return super.size() + store.offHeapOnlySize();
+    }
+
+    /**
+     * The estimated memory held by this table and the key index of the off heap store.
+     *
+     * @return the estimated size in bytes
+     */
+    @Override @CheckReturnValue @Nonnegative
+    public long getEstimatedSize()
+    {
+        long size = super.getEstimatedSize();
+
+        OffHeapLongStore<V> store = offHeapStore;
+        if( store != null)
         {
-            long list[] = new long[ count];
+            size += store.getEstimatedSize();
+        }
 
-            if( data == null) return list;
+        return size;
+    }
 
-            int j = 0;
-            for (int i = data.length ; i-- > 0 ;)
+    /**
+     * Clear all memory ASAP, including the off heap store.
+     *
+     * @return The estimated total number of bytes released.
+     */
+    @Override @Nonnegative
+    public long panicFreeMemory()
+    {
+        long released = super.panicFreeMemory();
+
+        OffHeapLongStore<V> store = offHeapStore;
+        if( store != null)
+        {
+            released += store.panicFreeMemory();
+        }
+
+        return released;
+    }
+
+    private long[] heapKeyArray()
+    {
+        long list[] = new long[ super.size()];
+        int j = 0;
+
+        for( CacheSegment s: segments)
+        {
+            Lock l = s.readLock();
+            try
             {
-                for (InterfaceEntry e = (InterfaceEntry)data[i] ; e != null ; e = e.next())
+                if( s.getData() == null) continue;
+
+                for (int i = s.getData().length ; i-- > 0 ;)
                 {
-                    InterfaceEntryLong temp = (InterfaceEntryLong)e;
+                    for (InterfaceEntry e = (InterfaceEntry)s.getData()[i] ; e != null ; e = e.next())
+                    {
+                        InterfaceEntryLong temp = (InterfaceEntryLong)e;
 
-                    list[j] = temp.key();
+                        if( j == list.length)
+                        {
+                            list = Arrays.copyOf(list, list.length * 2 + 1);
+                        }
+
+                        list[j] = temp.key();
 
-                    j++;
+                        j++;
+                    }
                 }
             }
-
-            return list;
+            finally
+            {
+                l.unlock();
+            }
         }
-        finally
+
+        if( j != list.length)
         {
-            l.unlock();
+            list = Arrays.copyOf(list, j);
         }
+
+        return list;
     }
 
     /**
@@ -104,25 +243,26 @@ public class CacheLongTable<V> extends CacheTableTemplate<V>
     @CheckReturnValue
     public boolean containsKey(final long key)
     {
-        Lock l = rwLock.readLock();
-        l.lock();
+        int hash = (int)key;
+        CacheSegment s = segmentFor( hash);
+        Lock l = s.readLock();
         try
         {
-            if( data == null) return false;
-
-            int hash = (int)key;
-
-            int index = (hash & 0x7FFFFFFF) % data.length;
-
-            for (InterfaceEntry e = (InterfaceEntry)data[index]; e != null; e = e.next())
+            if( s.getData() != null)
             {
-                if (key == ((InterfaceEntryLong)e).key())
+                int index = (hash & 0x7FFFFFFF) % s.getData().length;
+
+                for (InterfaceEntry e = (InterfaceEntry)s.getData()[index]; e != null; e = e.next())
                 {
-                    return true;
+                    if (key == ((InterfaceEntryLong)e).key())
+                    {
+                        return true;
+                    }
                 }
             }
 
-            return false;
+            OffHeapLongStore<V> store = offHeapStore;
+            return store != null && store.containsKey( key);
         }
         finally
         {
@@ -139,17 +279,16 @@ public class CacheLongTable<V> extends CacheTableTemplate<V>
     @CheckReturnValue
     public boolean isLocked(final long key)
     {
-        Lock l = rwLock.readLock();
-        l.lock();
+        int hash = (int)key;
+        CacheSegment s = segmentFor( hash);
+        Lock l = s.readLock();
         try
         {
-            if( data == null) return false;
-
-            int hash = (int)key;
+            if( s.getData() == null) return false;
 
-            int index = (hash & 0x7FFFFFFF) % data.length;
+            int index = (hash & 0x7FFFFFFF) % s.getData().length;
 
-            for (InterfaceEntry e = (InterfaceEntry)data[index]; e != null; e = e.next())
+            for (InterfaceEntry e = (InterfaceEntry)s.getData()[index]; e != null; e = e.next())
             {
                 if (key == ((InterfaceEntryLong)e).key())
                 {
@@ -172,18 +311,17 @@ public class CacheLongTable<V> extends CacheTableTemplate<V>
      */
     public boolean lock( final long key)
     {
-        Lock l = rwLock.writeLock();
-        l.lock();
+        int hash = (int)key;
+        CacheSegment s = segmentFor( hash);
+        Lock l = s.writeLock();
         try
         {
-            if( data == null) return false;
+            if( s.getData() == null) return false;
 
-            int hash = (int)key;
-
-            int index = (hash & 0x7FFFFFFF) % data.length;
+            int index = (hash & 0x7FFFFFFF) % s.getData().length;
 
             InterfaceEntry prev = null;
-            for (InterfaceEntry e = (InterfaceEntry)data[index]; e != null; e = e.next())
+            for (InterfaceEntry e = (InterfaceEntry)s.getData()[index]; e != null; e = e.next())
             {
                 if (key == ((InterfaceEntryLong)e).key())
                 {
@@ -203,7 +341,7 @@ public class CacheLongTable<V> extends CacheTableTemplate<V>
                             }
                             else
                             {
-                                data[index]=lel;
+                                s.getData()[index]=lel;
                             }
                             ce.clear();
                             return true;
@@ -230,18 +368,17 @@ public class CacheLongTable<V> extends CacheTableTemplate<V>
      */
     public boolean unlock( final long key)
     {
-        Lock l = rwLock.writeLock();
-        l.lock();
+        int hash = (int)key;
+        CacheSegment s = segmentFor( hash);
+        Lock l = s.writeLock();
         try
         {
-            if( data == null) return false;
-
-            int hash = (int)key;
+            if( s.getData() == null) return false;
 
-            int index = (hash & 0x7FFFFFFF) % data.length;
+            int index = (hash & 0x7FFFFFFF) % s.getData().length;
 
             InterfaceEntry prev = null;
-            for (InterfaceEntry e = (InterfaceEntry)data[index]; e != null; e = e.next())
+            for (InterfaceEntry e = (InterfaceEntry)s.getData()[index]; e != null; e = e.next())
             {
                 if (key == ((InterfaceEntryLong)e).key())
                 {
@@ -257,7 +394,7 @@ public class CacheLongTable<V> extends CacheTableTemplate<V>
                         }
                         else
                         {
-                            data[index]=ce;
+                            s.getData()[index]=ce;
                         }
 
                         return true;
@@ -287,17 +424,16 @@ public class CacheLongTable<V> extends CacheTableTemplate<V>
      */    
     public boolean release(long key)
     {
-        Lock l = rwLock.writeLock();
-        l.lock();
+        int hash = (int)key;
+        CacheSegment s = segmentFor( hash);
+        Lock l = s.writeLock();
         try
         {
-            if( data == null) return false;
+            if( s.getData() == null) return false;
 
-            int hash = (int)key;
+            int index = (hash & 0x7FFFFFFF) % s.getData().length;
 
-            int index = (hash & 0x7FFFFFFF) % data.length;
-
-            for (InterfaceEntry e = (InterfaceEntry)data[index]; e != null; e = e.next())
+            for (InterfaceEntry e = (InterfaceEntry)s.getData()[index]; e != null; e = e.next())
             {
                 if (key == ((InterfaceEntryLong)e).key())
                 {
@@ -333,19 +469,25 @@ public class CacheLongTable<V> extends CacheTableTemplate<V>
     @Nullable
     public V remove(final long key)
     {
-        Lock l = rwLock.writeLock();
-        l.lock();
+        int hash = (int)key;
+        CacheSegment s = segmentFor( hash);
+        Lock l = s.writeLock();
         try
         {
-            if( data == null) return null;
+            OffHeapLongStore<V> store = offHeapStore;
+            if( store != null)
+            {
+                store.remove( key);
+            }
+
+            if( s.getData() == null) return null;
 
-            int hash = (int)key;
-            int index = (hash & 0x7FFFFFFF) % data.length;
+            int index = (hash & 0x7FFFFFFF) % s.getData().length;
 
             InterfaceEntry prev = null;
 
             for (
-                InterfaceEntry e = (InterfaceEntry)data[index];
+                InterfaceEntry e = (InterfaceEntry)s.getData()[index];
                 e != null;
                 e = e.next()
             )
@@ -354,7 +496,7 @@ public class CacheLongTable<V> extends CacheTableTemplate<V>
                 {
                     V oldValue = (V)e.get();
 
-                    removeElement( e, index, prev, oldValue == null);
+                    removeElement( s, e, index, prev, oldValue == null);
 
                     checkRegister();
 
@@ -372,9 +514,83 @@ public class CacheLongTable<V> extends CacheTableTemplate<V>
         }
     }
 
+    /**
+     * Hold a serialized copy of every value off the heap. When the Memory Manager releases a value
+     * from this table it is reloaded from the off heap store on the next get.
+     *
+     * The store is then managed through this table, so it is taken off the Memory Manager and its
+     * key index counted in the estimated size of this table. Values that can't be serialized are
+     * only held on the heap.
+     *
+     * @param store the off heap store or null to turn off.
+     */
+    public void setOffHeapStore( final @Nullable OffHeapLongStore<V> store)
+    {
+        OffHeapLongStore<V> previous = offHeapStore;
+        if( previous == store) return;
+
+        if( store != null)
+        {
+            MemoryManager.deregister( store);
+            store.clearResident();
+        }
+
+        offHeapStore = store;
+
+        if( store != null)
+        {
+            for( long key: heapKeyArray())
+            {
+                store.setResident( key, true);
+            }
+        }
+
+        if( previous != null)
+        {
+            previous.clearResident();
+            MemoryManager.register( previous);
+        }
+    }
+
+    /**
+     * The off heap store
+     *
+     * @return the store if set.
+     */
+    @CheckReturnValue @Nullable
+    public OffHeapLongStore<V> getOffHeapStore()
+    {
+        return offHeapStore;
+    }
+
     /**
      * Retrieve the data for the key.
      *
+     * If the value has been released and there is an off heap store the value is reloaded from the store.
+     *
+     * @param key The key
+     * @return The object if found
+     */
+    @Nullable
+    public V get( final long key)
+    {
+        V value = getFromTable( key);
+
+        if( value == null)
+        {
+            OffHeapLongStore<V> store = offHeapStore;
+            if( store != null)
+            {
+                value = reload( key, store);
+            }
+        }
+
+        return value;
+    }
+
+    /**
+     * Retrieve the data for the key from the heap.
+     *
      * Only check the weak table if it contains keys
      * that are not in hard map table. We do this because
      * weak references are slow on Solaris as of 2.8
@@ -383,18 +599,18 @@ public class CacheLongTable<V> extends CacheTableTemplate<V>
      * @return The object if found
      */
     @Nullable
-    public V get( final long key)
+    private V getFromTable( final long key)
     {
-        Lock l = rwLock.readLock();
-        l.lock();
+        int hash = (int)key;
+        CacheSegment s = segmentFor( hash);
+        Lock l = s.readLock();
         try
         {
-            if( data == null) return null;
+            if( s.getData() == null) return null;
 
-            int hash = (int)key;
-            int index = (hash & 0x7FFFFFFF) % data.length;
+            int index = (hash & 0x7FFFFFFF) % s.getData().length;
 
-            for (InterfaceEntry e = (InterfaceEntry)data[index]; e != null; e = e.next())
+            for (InterfaceEntry e = (InterfaceEntry)s.getData()[index]; e != null; e = e.next())
             {
                 if( key == ((InterfaceEntryLong)e).key())
                 {
@@ -405,19 +621,22 @@ public class CacheLongTable<V> extends CacheTableTemplate<V>
                     if( value == null)
                     {
                         /* OK remove this entry */
-                        estEmptyCount++;
+                        s.incrementEstEmptyCount();
 
                         checkRegister();
+                        recordMiss( hash);
                     }
                     else
                     {
-                        touch( e);
+                        touch( s, e);
+                        recordHit();
                     }
 
                     return value;
                 }
             }
 
+            recordMiss( hash);
             return null;
         }
         finally
@@ -483,15 +702,17 @@ public class CacheLongTable<V> extends CacheTableTemplate<V>
 
         CacheEntryLong addedEntry;
 
-        Lock l = rwLock.writeLock();
-        l.lock();
+        CacheSegment s = segmentFor( hash);
+        Lock l = s.writeLock();
         try
         {
-            int index = (hash & 0x7FFFFFFF) % data.length;
+            OffHeapLongStore<V> store = offHeapStore;
+
+            int index = (hash & 0x7FFFFFFF) % s.getData().length;
 
             InterfaceEntry prev = null;
 
-            for (InterfaceEntry e = (InterfaceEntry)data[index] ; e != null ; e = e.next())
+            for (InterfaceEntry e = (InterfaceEntry)s.getData()[index] ; e != null ; e = e.next())
             {
                 /**
                  * Replacing an existing entry.
@@ -500,6 +721,11 @@ public class CacheLongTable<V> extends CacheTableTemplate<V>
                 {
                     Object old = e.get();
 
+                    if( store != null)
+                    {
+                        store.put( key, orginal, true);
+                    }
+
                     InterfaceEntryLong insert;
 
                     if( e instanceof LockedEntryLong)
@@ -517,7 +743,7 @@ public class CacheLongTable<V> extends CacheTableTemplate<V>
                     }
                     else
                     {
-                        data[index] = insert;
+                        s.getData()[index] = insert;
                     }
 
                     return (V)old;
@@ -526,16 +752,31 @@ public class CacheLongTable<V> extends CacheTableTemplate<V>
                 prev = e;
             }
 
-            index = rehash( index, hash);
+            if( admit( s, hash) == false)
+            {
+                if( store != null)
+                {
+                    store.remove( key);
+                }
+
+                return null;
+            }
+
+            if( store != null)
+            {
+                store.put( key, orginal, true);
+            }
+
+            index = rehash( s, index, hash);
 
             /* Creates the new entry. */
-            addedEntry = makeCacheEntryLong(key, hash, value, (InterfaceEntry)data[index]);
-            data[index] = addedEntry;
-            count++;
+            addedEntry = makeCacheEntryLong(key, hash, value, (InterfaceEntry)s.getData()[index]);
+            s.getData()[index] = addedEntry;
+            s.incrementCount();
 
             checkRegister();
 
-            touch( addedEntry);
+            touch( s, addedEntry);
 
             return null;
         }
@@ -590,6 +831,67 @@ public class CacheLongTable<V> extends CacheTableTemplate<V>
             return remove( key);
         }
 
+        int hash= (int)key;
+        CacheSegment s = segmentFor( hash);
+        Lock l = s.writeLock();
+        try
+        {
+            return placeInTable( s, key, orginal, keepFoundObject, offHeapStore, true);
+        }
+        finally
+        {
+            l.unlock();
+        }
+    }
+
+    /**
+     * Reload the value from the off heap store. The store is read under the segment lock so a
+     * concurrent remove or put of the same key can't be overwritten by the reloaded value.
+     *
+     * @param key The key
+     * @param store the off heap store
+     * @return The object if found
+     */
+    @Nullable
+    private V reload( final long key, final @Nonnull OffHeapLongStore<V> store)
+    {
+        int hash= (int)key;
+        CacheSegment s = segmentFor( hash);
+        Lock l = s.writeLock();
+        try
+        {
+            V value = store.get( key);
+            if( value == null) return null;
+
+            return placeInTable( s, key, value, true, store, false);
+        }
+        finally
+        {
+            l.unlock();
+        }
+    }
+
+    /**
+     * place the object in the heap table, the segment write lock must be held.
+     *
+     * @param s the segment of the key
+     * @param key The key of the object to place
+     * @param orginal The object to place.
+     * @param keepFoundObject Should we keep the original object if found
+     * @param store the off heap store or null.
+     * @param writeStore write the value to the store, false when it was reloaded from the store.
+     * @return The actual object stored.
+     */
+    private V placeInTable(
+        final CacheSegment s,
+        final long key,
+        final @Nonnull V orginal,
+        boolean keepFoundObject,
+        final @Nullable OffHeapLongStore<V> store,
+        final boolean writeStore
+    )
+    {
+
         Object value;
         value = CommonData.recycle( orginal);
 
@@ -598,71 +900,94 @@ public class CacheLongTable<V> extends CacheTableTemplate<V>
 
         InterfaceEntryLong addedEntry;
 
-        Lock l = rwLock.writeLock();
-        l.lock();
-        try
-        {
-            int index = (hash & 0x7FFFFFFF) % data.length;
+        int index = (hash & 0x7FFFFFFF) % s.getData().length;
 
-            InterfaceEntry prev = null;
+        InterfaceEntry prev = null;
 
-            for (InterfaceEntry e = (InterfaceEntry)data[index] ; e != null ; e = e.next())
+        for (InterfaceEntry e = (InterfaceEntry)s.getData()[index] ; e != null ; e = e.next())
+        {
+            /**
+             * Replacing an existing entry.
+             */
+            if( key == ((InterfaceEntryLong)e).key())
             {
+                Object old = e.get();
+
                 /**
-                 * Replacing an existing entry.
+                 * If we should keep the original object then just return the original version.
+                 * this cuts down on the two call overhead in VirtualDB and DBData
                  */
-                if( key == ((InterfaceEntryLong)e).key())
+                if(
+                    old == null ||
+                    keepFoundObject == false
+                )
                 {
-                    Object old = e.get();
-
-                    /**
-                     * If we should keep the original object then just return the original version.
-                     * this cuts down on the two call overhead in VirtualDB and DBData
-                     */
-                    if(
-                        old == null ||
-                        keepFoundObject == false
-                    )
+                    if( store != null && writeStore)
                     {
-                        CacheEntryLong insert = makeCacheEntryLong( key, hash, value, e.next());
+                        store.put( key, orginal, true);
+                    }
 
-                        if( prev != null)
-                        {
-                            prev.setNext( insert);
-                        }
-                        else
-                        {
-                            data[index] = insert;
-                        }
+                    CacheEntryLong insert = makeCacheEntryLong( key, hash, value, e.next());
 
-                        return (V)value;
+                    if( prev != null)
+                    {
+                        prev.setNext( insert);
                     }
                     else
                     {
-                        return (V)old;
+                        s.getData()[index] = insert;
                     }
+
+                    return (V)value;
                 }
+                else
+                {
+                    if( store != null && writeStore && store.containsKey( key) == false)
+                    {
+                        store.put( key, (V)old, true);
+                    }
 
-                prev = e;
+                    return (V)old;
+                }
             }
 
-            index = rehash( index, hash);
-
-            /* Creates the new entry. */
-            addedEntry = makeCacheEntryLong(key, hash, value, (InterfaceEntry)data[index]);
-
-            data[index] = addedEntry;
+            prev = e;
+        }
 
-            count++;
+        if( admit( s, hash) == false)
+        {
+            if( store != null && writeStore)
+            {
+                store.remove( key);
+            }
 
-            checkRegister();
+            return (V)value;
         }
-        finally
+
+        if( store != null)
         {
-            l.unlock();
+            if( writeStore)
+            {
+                store.put( key, orginal, true);
+            }
+            else
+            {
+                store.setResident( key, true);
+            }
         }
 
-        touch( addedEntry);
+        index = rehash( s, index, hash);
+
+        /* Creates the new entry. */
+        addedEntry = makeCacheEntryLong(key, hash, value, (InterfaceEntry)s.getData()[index]);
+
+        s.getData()[index] = addedEntry;
+
+        s.incrementCount();
+
+        checkRegister();
+
+        touch( s, addedEntry);
 
         return (V)value;
     }
@@ -678,5 +1003,7 @@ public class CacheLongTable<V> extends CacheTableTemplate<V>
         return new InterfaceEntryLong[size];
     }
 
+    private volatile OffHeapLongStore<V> offHeapStore;
+
     private static final Log LOGGER = CLogger.getLog( "com.aspc.remote.memory.CacheLongTable");//#LOGGER-NOPMD
 }
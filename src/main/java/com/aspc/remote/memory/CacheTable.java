@@ -19,6 +19,7 @@ import java.util.concurrent.locks.Lock;
 import org.apache.commons.logging.Log;
 import com.aspc.remote.memory.internal.*;
 import javax.annotation.CheckReturnValue;
+import javax.annotation.Nonnegative;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
@@ -57,8 +58,20 @@ public final class CacheTable<K,V> extends CacheTableTemplate<V>
      */
     public CacheTable(final @Nonnull String description, final @Nonnull Cost cost)
     {
-        super( description, cost);
-        data = createArray( INITIAL_CAPACITY);
+        this( description, cost, 1);
+    }
+
+    /**
+     * creates a new cache table split into independently locked segments.
+     *
+     * @param description the description of this cache table
+     * @param cost The relative cost of this cache table.
+     * @param segmentCount the number of segments ( rounded up to a power of 2)
+     */
+    public CacheTable(final @Nonnull String description, final @Nonnull Cost cost, final @Nonnegative int segmentCount)
+    {
+        super( description, cost, segmentCount);
+        allocateSegments();
     }
 
     /**
@@ -72,17 +85,16 @@ public final class CacheTable<K,V> extends CacheTableTemplate<V>
     @CheckReturnValue
     public boolean containsKey(final @Nonnull K key)
     {
-        Lock l = rwLock.readLock();
-        l.lock();
+        int hash = key.hashCode();
+        CacheSegment s = segmentFor( hash);
+        Lock l = s.readLock();
         try
         {
-            if( data == null) return false;
-
-            int hash = key.hashCode();
+            if( s.getData() == null) return false;
 
-            int index = (hash & 0x7FFFFFFF) % data.length;
+            int index = (hash & 0x7FFFFFFF) % s.getData().length;
 
-            for (InterfaceEntry e = (InterfaceEntry)data[index]; e != null; e = e.next())
+            for (InterfaceEntry e = (InterfaceEntry)s.getData()[index]; e != null; e = e.next())
             {
                 if (e.hashCode()==hash && key.equals(((CacheEntryObject)e).key()))
                 {
@@ -111,17 +123,17 @@ public final class CacheTable<K,V> extends CacheTableTemplate<V>
     @Nullable
     public V remove(final @Nonnull K key)
     {
-        Lock l = rwLock.writeLock();
-        l.lock();
+        int hash = key.hashCode();
+        CacheSegment s = segmentFor( hash);
+        Lock l = s.writeLock();
         try
         {
-            if( data == null) return null;
+            if( s.getData() == null) return null;
 
-            int hash = key.hashCode();
-            int index = (hash & 0x7FFFFFFF) % data.length;
+            int index = (hash & 0x7FFFFFFF) % s.getData().length;
 
             for (
-                InterfaceEntry e = (InterfaceEntry)data[index], prev = null;
+                InterfaceEntry e = (InterfaceEntry)s.getData()[index], prev = null;
                 e != null;
                 prev = e, e = e.next()
             )
@@ -132,7 +144,7 @@ public final class CacheTable<K,V> extends CacheTableTemplate<V>
                     {
                         Object oldValue = e.get();
 
-                        removeElement( e, index, prev, oldValue == null);
+                        removeElement( s, e, index, prev, oldValue == null);
 
                         checkRegister();
 
@@ -163,16 +175,16 @@ public final class CacheTable<K,V> extends CacheTableTemplate<V>
     @CheckReturnValue @Nullable
     public V get( final @Nonnull K key)
     {
-        Lock l = rwLock.readLock();
-        l.lock();
+        int hash = key.hashCode();
+        CacheSegment s = segmentFor( hash);
+        Lock l = s.readLock();
         try
         {
-            if( data == null) return null;
+            if( s.getData() == null) return null;
 
-            int hash = key.hashCode();
-            int index = (hash & 0x7FFFFFFF) % data.length;
+            int index = (hash & 0x7FFFFFFF) % s.getData().length;
 
-            for (InterfaceEntry e = (InterfaceEntry)data[index]; e != null; e = e.next())
+            for (InterfaceEntry e = (InterfaceEntry)s.getData()[index]; e != null; e = e.next())
             {
                 if ((e.hashCode() == hash))
                 {
@@ -184,13 +196,15 @@ public final class CacheTable<K,V> extends CacheTableTemplate<V>
 
                         if( value == null)
                         {
-                            estEmptyCount++;
+                            s.incrementEstEmptyCount();
 
                             checkRegister();
+                            recordMiss( hash);
                         }
                         else
                         {
-                            touch( e);
+                            touch( s, e);
+                            recordHit();
                         }
 
                         return (V)value;
@@ -198,6 +212,7 @@ public final class CacheTable<K,V> extends CacheTableTemplate<V>
                 }
             }
 
+            recordMiss( hash);
             return null;
         }
         finally
@@ -269,17 +284,17 @@ public final class CacheTable<K,V> extends CacheTableTemplate<V>
         hash = key.hashCode();
 
         CacheEntryObject addedEntry;
-        Lock l = rwLock.writeLock();
-        l.lock();
+        CacheSegment s = segmentFor( hash);
+        Lock l = s.writeLock();
         try
         {
             int index;
 
-            index = (hash & 0x7FFFFFFF) % data.length;
+            index = (hash & 0x7FFFFFFF) % s.getData().length;
 
             InterfaceEntry prev = null;
 
-            for (InterfaceEntry e = (InterfaceEntry)data[index] ; e != null ; e = e.next())
+            for (InterfaceEntry e = (InterfaceEntry)s.getData()[index] ; e != null ; e = e.next())
             {
                 if ((e.hashCode() == hash))
                 {
@@ -298,7 +313,7 @@ public final class CacheTable<K,V> extends CacheTableTemplate<V>
                         }
                         else
                         {
-                            data[index] = insert;
+                            s.getData()[index] = insert;
                         }
 
                         return (V)old;
@@ -308,12 +323,17 @@ public final class CacheTable<K,V> extends CacheTableTemplate<V>
                 prev = e;
             }
 
-            index = rehash( index, hash);
+            if( admit( s, hash) == false)
+            {
+                return null;
+            }
+
+            index = rehash( s, index, hash);
 
             // Creates the new entry.
-            addedEntry = new CacheEntryObject(key, hash, value, (InterfaceEntry)data[index]);
-            data[index] = addedEntry;
-            count++;
+            addedEntry = new CacheEntryObject(key, hash, value, (InterfaceEntry)s.getData()[index]);
+            s.getData()[index] = addedEntry;
+            s.incrementCount();
 
             checkRegister();
         }
@@ -321,7 +341,7 @@ public final class CacheTable<K,V> extends CacheTableTemplate<V>
         {
             l.unlock();
         }
-        touch( addedEntry);
+        touch( s, addedEntry);
 
         return null;
     }
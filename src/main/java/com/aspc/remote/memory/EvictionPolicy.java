@@ -0,0 +1,302 @@
+/*
+ *  Copyright (c) 1998-2004 ASP Converters pty ltd
+ *
+ *  www.stSoftware.com.au
+ *
+ *  All Rights Reserved.
+ *
+ *  This software is the proprietary information of
+ *  ASP Converters Pty Ltd.
+ *  Use is subject to license terms.
+ */
+package com.aspc.remote.memory;
+
+import com.aspc.remote.memory.internal.AccessTimeEvictionPolicy;
+import com.aspc.remote.memory.internal.LRUEvictionPolicy;
+import com.aspc.remote.memory.internal.TinyLFUEvictionPolicy;
+import com.aspc.remote.util.misc.CLogger;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.CheckReturnValue;
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import org.apache.commons.logging.Log;
+
+/**
+ *  Decides which entries of a cache table are released when the Memory Manager asks the
+ *  table to free memory.
+ *
+ *  The Memory Manager still decides WHEN and HOW MUCH to free for each cost level, the policy
+ *  only picks the victims. Every policy counts the hits, misses and evictions of the table it
+ *  is attached to so the policies can be compared on a real workload.
+ *
+ *  A ranked policy can also bound the table with a maximum size. When a segment of the table is
+ *  full the lowest ranked entry is the victim and the policy decides if the new entry is admitted
+ *  in its place.
+ *
+ *  <br>
+ *  <i>THREAD MODE: MULTI-THREADED memory management</i>
+ *
+ *  @author      Nigel Leck
+ *  @since       18 October 2026
+ */
+public abstract class EvictionPolicy
+{
+    /** the available policies */
+    public enum Type
+    {
+        /** the original time window between the first and last access of the table */
+        ACCESS_TIME,
+        /** least recently used */
+        LRU,
+        /** least frequently used with the recency as the tie breaker ( TinyLFU style admission) */
+        TINY_LFU
+    };
+
+    /**
+     * The property to set the default policy of new cache tables.
+     */
+    public static final String PROPERTY_CACHE_EVICTION_POLICY="CACHE_EVICTION_POLICY";
+
+    private static final Type DEFAULT_TYPE;
+
+    private final AtomicLong hitCount=new AtomicLong();
+    private final AtomicLong missCount=new AtomicLong();
+    private final AtomicLong evictionCount=new AtomicLong();
+    private final AtomicLong rejectedCount=new AtomicLong();
+    private volatile int maximumSize;
+
+    private static final Log LOGGER = CLogger.getLog( "com.aspc.remote.memory.EvictionPolicy");//#LOGGER-NOPMD
+
+    /**
+     * create a new policy
+     *
+     * @param type the type of policy
+     * @param expectedSize the expected number of entries
+     * @return the policy
+     */
+    @CheckReturnValue @Nonnull
+    public static EvictionPolicy create( final @Nonnull Type type, final @Nonnegative int expectedSize)
+    {
+        switch( type)
+        {
+            case ACCESS_TIME:
+                return new AccessTimeEvictionPolicy();
+            case LRU:
+                return new LRUEvictionPolicy();
+            case TINY_LFU:
+                return new TinyLFUEvictionPolicy( expectedSize);
+            default:
+                throw new IllegalArgumentException( "unknown policy " + type);
+        }
+    }
+
+    /**
+     * create the default policy for new cache tables.
+     *
+     * @return the policy
+     */
+    @CheckReturnValue @Nonnull
+    public static EvictionPolicy createDefault()
+    {
+        return create( DEFAULT_TYPE, 1024);
+    }
+
+    /**
+     * The type of this policy.
+     * @return the type
+     */
+    @CheckReturnValue @Nonnull
+    public abstract Type getType();
+
+    /**
+     * Does this policy rank the entries ? if not the cache table uses the original access time window.
+     * @return true if ranked.
+     */
+    @CheckReturnValue
+    public boolean isRanked()
+    {
+        return true;
+    }
+
+    /**
+     * The table has grown, policies that keep a history may need to grow too.
+     *
+     * @param size the current number of entries.
+     */
+    public void ensureCapacity( final @Nonnegative int size)
+    {
+    }
+
+    /**
+     * Bound the number of entries of the table, only ranked policies are bounded.
+     *
+     * @param size the maximum number of entries or zero for no limit.
+     */
+    public final void setMaximumSize( final @Nonnegative int size)
+    {
+        if( size < 0) throw new IllegalArgumentException( "maximum size must not be negative: " + size);
+        maximumSize = size;
+    }
+
+    /**
+     * The maximum number of entries of the table.
+     *
+     * @return the maximum or zero for no limit.
+     */
+    @CheckReturnValue @Nonnegative
+    public final int getMaximumSize()
+    {
+        return maximumSize;
+    }
+
+    /**
+     * Should the new entry replace the victim when the table is full ?
+     *
+     * @param candidateHash the hash code of the key of the new entry
+     * @param victimHash the hash code of the key of the lowest ranked entry
+     * @return true to release the victim and add the new entry.
+     */
+    @CheckReturnValue
+    public boolean admit( final int candidateHash, final int victimHash)
+    {
+        return true;
+    }
+
+    /**
+     * The entry has being accessed.
+     *
+     * @param hash the hash code of the key
+     * @param seconds the current time in seconds
+     * @return the value to store in the entry.
+     */
+    public abstract int access( final int hash, final int seconds);
+
+    /**
+     * The rank of an entry, the lowest ranked entries are released first.
+     *
+     * @param hash the hash code of the key
+     * @param data the value stored at the last access.
+     * @return the rank
+     */
+    @CheckReturnValue
+    public abstract long rank( final int hash, final int data);
+
+    /**
+     * record a request that found the entry.
+     */
+    public final void recordHit()
+    {
+        hitCount.incrementAndGet();
+    }
+
+    /**
+     * record a request that did not find the entry.
+     * @param hash the hash code of the key
+     */
+    public void recordMiss( final int hash)
+    {
+        missCount.incrementAndGet();
+    }
+
+    /**
+     * record the entries released.
+     * @param count the number released.
+     */
+    public final void recordEviction( final @Nonnegative int count)
+    {
+        evictionCount.addAndGet(count);
+    }
+
+    /**
+     * record a new entry that was not admitted.
+     */
+    public final void recordRejection()
+    {
+        rejectedCount.incrementAndGet();
+    }
+
+    /**
+     * The number of new entries that were not admitted.
+     * @return the count
+     */
+    @CheckReturnValue @Nonnegative
+    public final long getRejectedCount()
+    {
+        return rejectedCount.get();
+    }
+
+    /**
+     * The number of requests that found the entry.
+     * @return the count
+     */
+    @CheckReturnValue @Nonnegative
+    public final long getHitCount()
+    {
+        return hitCount.get();
+    }
+
+    /**
+     * The number of requests that did not find the entry.
+     * @return the count
+     */
+    @CheckReturnValue @Nonnegative
+    public final long getMissCount()
+    {
+        return missCount.get();
+    }
+
+    /**
+     * The number of entries released.
+     * @return the count
+     */
+    @CheckReturnValue @Nonnegative
+    public final long getEvictionCount()
+    {
+        return evictionCount.get();
+    }
+
+    /**
+     * The hit ratio
+     * @return 0 to 1
+     */
+    @CheckReturnValue
+    public final double getHitRatio()
+    {
+        long hits = hitCount.get();
+        long total = hits + missCount.get();
+
+        if( total == 0) return 0;
+
+        return (double)hits/(double)total;
+    }
+
+    /**
+     * The policy and its hit ratio
+     *
+     * @return the description
+     */
+    @Override @CheckReturnValue @Nonnull
+    public String toString()
+    {
+        return getType() + " hits=" + hitCount.get() + " misses=" + missCount.get() + " evictions=" + evictionCount.get() + " rejected=" + rejectedCount.get();
+    }
+
+    static
+    {
+        String temp = System.getProperty( PROPERTY_CACHE_EVICTION_POLICY, Type.ACCESS_TIME.name());
+
+        Type tmpType;
+        try
+        {
+            tmpType = Type.valueOf( temp.trim().toUpperCase());
+        }
+        catch( IllegalArgumentException iae)
+        {
+            LOGGER.warn( PROPERTY_CACHE_EVICTION_POLICY + "=" + temp + " is not one of " + Arrays.toString( Type.values()) + ", using " + Type.ACCESS_TIME);
+            tmpType = Type.ACCESS_TIME;
+        }
+
+        DEFAULT_TYPE = tmpType;
+    }
+}
@@ -12,6 +12,7 @@
 package com.aspc.remote.memory;
 
 import com.aspc.developer.ThreadCop;
+import com.aspc.remote.memory.impl.HashLongMapV9;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -33,6 +34,7 @@ public final class HashLongMapFactory
     private static final AtomicInteger DATABASE_VERSION=new AtomicInteger();
     private static final Constructor DEFAULT_CONSTRUCTOR[]=new Constructor[1];
     private static final Constructor INIT_CONSTRUCTOR[]=new Constructor[1];
+    private static final boolean CONCURRENT[]=new boolean[1];
     private static final String PROPERTY_HASH_LONG_MAP_VERSION="HASH_LONG_MAP_VERSION";
     private static final Object DEFAULT_INITS[]=new Object[0];
     public static final float LOAD_FACTOR=0.75f;
@@ -72,7 +74,7 @@ public final class HashLongMapFactory
             Object params[]={initialCapacity};
             HashLongMap lm= (HashLongMap)INIT_CONSTRUCTOR[0].newInstance(params);
 
-            assert ThreadCop.monitor(lm, ThreadCop.MODE.ACCESS_ONLY_BY_CREATING_THREAD);
+            assert CONCURRENT[0] || ThreadCop.monitor(lm, ThreadCop.MODE.ACCESS_ONLY_BY_CREATING_THREAD);
             return lm;
         }
         catch( InstantiationException | IllegalAccessException | IllegalArgumentException | InvocationTargetException e)
@@ -81,6 +83,31 @@ public final class HashLongMapFactory
         }
     };
 
+    /**
+     * create a new concurrent hash long map regardless of the selected version.
+     *
+     * get/containsKey do not lock and put/remove only lock one segment of the map.
+     *
+     * @param expectedItems store at least this number of items
+     * @return the new map
+     */
+    public static HashLongMap createConcurrent(final int expectedItems)
+    {
+        int initialCapacity = (int)((double)expectedItems/LOAD_FACTOR + 1);
+        if( initialCapacity < 11 ) initialCapacity=11;
+
+        return new HashLongMapV9(initialCapacity);
+    }
+
+    /**
+     * is the selected version safe for concurrent modification ?
+     * @return true if concurrent
+     */
+    public static boolean isConcurrent()
+    {
+        return CONCURRENT[0];
+    }
+
     /**
      * set the version
      * @param version the version
@@ -133,6 +160,9 @@ public final class HashLongMapFactory
 
             switch( version)
             {
+                case 9:
+                    tmpClass = Class.forName("com.aspc.remote.memory.impl.HashLongMapV9");
+                    break;
                 case 8:
                     tmpClass = Class.forName("com.aspc.remote.memory.impl.HashLongMapV8");
                     break;
@@ -146,13 +176,14 @@ public final class HashLongMapFactory
                     tmpClass = Class.forName("com.aspc.remote.memory.impl.HashLongMapCompare");
                     break;
                 default:
-                    throw new IllegalArgumentException( "version must be 6,7 or 8 was: " + version);
+                    throw new IllegalArgumentException( "version must be 6,7,8 or 9 was: " + version);
             }
 
             Class defaultTypes[] = new Class[0];
             DEFAULT_CONSTRUCTOR[0] = tmpClass.getDeclaredConstructor(defaultTypes);
             Class intTypes[] = new Class[]{Integer.TYPE};
             INIT_CONSTRUCTOR[0] = tmpClass.getDeclaredConstructor(intTypes);
+            CONCURRENT[0] = version == 9;
         }
         catch( ClassNotFoundException | IllegalArgumentException | NoSuchMethodException | SecurityException e)
         {
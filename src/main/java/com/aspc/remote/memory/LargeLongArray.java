@@ -11,6 +11,10 @@
  */
 package com.aspc.remote.memory;
 
+import com.aspc.remote.memory.internal.ExternalLongSort;
+import com.aspc.remote.memory.internal.LongSegmentTasks;
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import javax.annotation.CheckReturnValue;
@@ -30,6 +34,7 @@ import javax.annotation.Nonnull;
 public class LargeLongArray
 {
     private static final boolean ASSERT;
+    private static final long PARALLEL_THRESHOLD=64 * 1024;
         
     private long[] lastSegment;
     private long lastOffset;
@@ -46,6 +51,8 @@ public class LargeLongArray
     private boolean shallowCopied;
     private boolean fullCopied;
     private final boolean outputShared;
+    private final long sortHeapBudget;
+    private final boolean parallel;
 
     /**
      * The factory to create a new Large Long Array.
@@ -91,7 +98,9 @@ public class LargeLongArray
         final int segmentSize, 
         final boolean inputShared, 
         final boolean outputShared,
-        final Object sanity
+        final Object sanity,
+        final long sortHeapBudget,
+        final boolean parallel
     )
     {
         this.data=data;
@@ -101,6 +110,8 @@ public class LargeLongArray
         this.inputShared=inputShared;
         this.outputShared=outputShared;
         this.sanity=sanity;
+        this.sortHeapBudget=sortHeapBudget;
+        this.parallel=parallel;
 //        this.blankValue=blankValue;
         
         this.nextAppendPosition=-1;
@@ -183,6 +194,11 @@ public class LargeLongArray
         private boolean inputShared=true;
         private boolean outputShared=true;
         private Object sanity;
+        private static final int DEFAULT_MAPPED_SEGMENT_SIZE=8*1024*1024;
+        private boolean segmentSizeSet;
+        private long sortHeapBudget;
+        private File mappedFile;
+        private boolean parallel;
 
         private Builder( final long data[][])
         {
@@ -191,7 +207,7 @@ public class LargeLongArray
 
         @Override
         public String toString() {
-            return "Builder{" + ", checkIfZero=" + checkIfZero + ", checkIfUnique=" + checkIfUnique + ", assertIfZero=" + assertIfZero + ", assertIfUnique=" + assertIfUnique + ", segmentSize=" + segmentSize + ", inputShared=" + inputShared + ", outputShared=" + outputShared + ", sanity=" + sanity + '}';
+            return "Builder{" + ", checkIfZero=" + checkIfZero + ", checkIfUnique=" + checkIfUnique + ", assertIfZero=" + assertIfZero + ", assertIfUnique=" + assertIfUnique + ", segmentSize=" + segmentSize + ", inputShared=" + inputShared + ", outputShared=" + outputShared + ", sanity=" + sanity + ", sortHeapBudget=" + sortHeapBudget + ", mappedFile=" + mappedFile + ", parallel=" + parallel + '}';
         }
         
         /* 
@@ -226,6 +242,7 @@ public class LargeLongArray
         {
             if( size<=0) throw new IllegalArgumentException("segment size must be greater than zero: " + size);
             segmentSize=size;
+            segmentSizeSet=true;
             
             return this;
         }
@@ -311,6 +328,82 @@ public class LargeLongArray
             return this;
         }
         
+        /**
+         * The maximum heap to use when sorting, larger arrays are sorted with an external merge sort
+         * via a temporary file. (DEFAULT zero, sort on the heap)
+         * @param bytes the heap budget in bytes.
+         * @return this
+         */
+        public Builder setSortHeapBudget( final @Nonnegative long bytes)
+        {
+            if( bytes<0) throw new IllegalArgumentException("sort heap budget must be non negative: " + bytes);
+            sortHeapBudget=bytes;
+
+            return this;
+        }
+
+        /**
+         * Sort, repack, replace, remove and contains work on the segments concurrently with fork/join.
+         * Arrays smaller than one parallel task are still handled by the calling thread. (DEFAULT off)
+         * @param on turns this feature on/off
+         * @return this
+         */
+        public Builder setParallel( final boolean on)
+        {
+            parallel=on;
+            return this;
+        }
+
+        /**
+         * The file to hold a mapped array, see {@link #buildMapped()} (DEFAULT a temporary file)
+         * @param file the file, truncated when the array is built.
+         * @return this
+         */
+        public Builder setMappedFile( final File file)
+        {
+            mappedFile=file;
+
+            return this;
+        }
+
+        /**
+         * Create a long array held in a memory mapped file instead of the heap. The initial data is
+         * copied to the file. The mapped segment size is the segment size if set otherwise 8M values.
+         *
+         * @return the new mapped array, must be closed.
+         * @throws IOException the file could not be mapped.
+         */
+        @Nonnull
+        public MappedLongArray buildMapped() throws IOException
+        {
+            File file=mappedFile;
+            boolean deleteOnClose=false;
+            if( file == null)
+            {
+                file=File.createTempFile( "large", ".longs");
+                file.deleteOnExit();
+                deleteOnClose=true;
+            }
+
+            long budget=sortHeapBudget > 0 ? sortHeapBudget : (long)DEFAULT_SEGMENT_SIZE * 8 * 16;
+            MappedLongArray mapped=new MappedLongArray(
+                file,
+                deleteOnClose,
+                segmentSizeSet ? segmentSize : DEFAULT_MAPPED_SEGMENT_SIZE,
+                budget
+            );
+
+            for( long rows[]: data)
+            {
+                for( long row: rows)
+                {
+                    mapped.append( row);
+                }
+            }
+
+            return mapped;
+        }
+
         /**
          * Create the LargeLongArray
          * @return the new Large Long Array.
@@ -337,7 +430,9 @@ public class LargeLongArray
                 segmentSize, 
                 inputShared, 
                 outputShared, 
-                sanity//,
+                sanity,
+                sortHeapBudget,
+                parallel//,
 //                blankValue
             );
         }
@@ -376,6 +471,24 @@ public class LargeLongArray
             makePrivate(outputShared);
             sortedData=data;
         }
+        else if( sortHeapBudget > 0 && size() * 8 > sortHeapBudget)
+        {
+            try
+            {
+                sortedData=externalSort();
+            }
+            catch( IOException ioe)
+            {
+                throw new IllegalStateException( "external sort failed", ioe);
+            }
+        }
+        else if( isParallel())
+        {
+            long raw[][]=repack(true);
+            LongSegmentTasks.sortSegments(raw);
+            sortedData=LongSegmentTasks.merge(raw, segmentSize);
+            countNewArrays(sortedData.length);
+        }
         else
         {
             long raw[][]=repack(true);
@@ -422,6 +535,70 @@ public class LargeLongArray
         return sortedData;
     }
     
+    /**
+     * Sort via sorted runs in a temporary file so the working heap is the budget plus the sorted result.
+     * @return the sorted data.
+     */
+    private long[][] externalSort() throws IOException
+    {
+        long buffer[]=new long[(int)Math.min( ExternalLongSort.runLength( sortHeapBudget), size())];
+
+        final ArrayList<long[]> list=new ArrayList<>();
+        try( ExternalLongSort sorter=new ExternalLongSort( sortHeapBudget, null))
+        {
+            int len=0;
+            for( long rows[]: data)
+            {
+                int offset=0;
+                while( offset < rows.length)
+                {
+                    int count=Math.min( rows.length - offset, buffer.length - len);
+                    System.arraycopy( rows, offset, buffer, len, count);
+                    offset+=count;
+                    len+=count;
+                    if( len == buffer.length)
+                    {
+                        sorter.addRun( buffer, len);
+                        len=0;
+                    }
+                }
+            }
+            sorter.addRun( buffer, len);
+            buffer=null;
+
+            sorter.merge( new ExternalLongSort.LongSink()
+            {
+                private long segment[];
+                private int pos;
+
+                @Override
+                public void append( final long value)
+                {
+                    if( segment == null || pos == segment.length)
+                    {
+                        segment=new long[segmentSize];
+                        if( sanity instanceof SanityArrayCounter) ((SanityArrayCounter)sanity).sanityNewArray();
+                        list.add( segment);
+                        pos=0;
+                    }
+                    segment[pos++]=value;
+                }
+            });
+        }
+
+        int last=list.size() - 1;
+        long total=size();
+        long lastLength=total - (long)last * segmentSize;
+        if( last >= 0 && lastLength < segmentSize)
+        {
+            list.set( last, Arrays.copyOf( list.get( last), (int)lastLength));
+        }
+
+        long sortedData[][]=new long[list.size()][];
+        list.toArray( sortedData);
+        return sortedData;
+    }
+
     public void append( final long value)
     {
         if( validator!=null)
@@ -517,6 +694,19 @@ public class LargeLongArray
     {
         trimAppendData();
         makePrivate(false);
+        if( isParallel())
+        {
+            int changed=LongSegmentTasks.remove(data, value);
+            if( changed>0)
+            {
+                countNewArrays(changed);
+                sizeCache=-1;
+                lastSegment=null;
+                lastOffset=-1;
+                return true;
+            }
+            return false;
+        }
         boolean found=false;
         for( int r=0;r<data.length;r++)
         {
@@ -584,6 +774,49 @@ public class LargeLongArray
         return found;
     }
     
+    /**
+     * Is the value in this array ?
+     * @param value the value to find.
+     * @return true if found.
+     */
+    @CheckReturnValue
+    public boolean contains( final long value)
+    {
+        trimAppendData();
+        if( isParallel())
+        {
+            return LongSegmentTasks.contains(data, value);
+        }
+
+        for( long rows[]: data)
+        {
+            for( long row: rows)
+            {
+                if( row==value) return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Only use the fork/join pool when there is more than one task worth of work.
+     */
+    private boolean isParallel()
+    {
+        return parallel && data.length>1 && size()>=PARALLEL_THRESHOLD;
+    }
+
+    private void countNewArrays( final int count)
+    {
+        if( sanity instanceof SanityArrayCounter)
+        {
+            for( int i=0;i<count;i++)
+            {
+                ((SanityArrayCounter)sanity).sanityNewArray();
+            }
+        }
+    }
+
     /**
      * The size of this long array.
      * @return the size.
@@ -639,6 +872,12 @@ public class LargeLongArray
         {
             return data;
         }
+        if( isParallel())
+        {
+            long raw[][]=LongSegmentTasks.repack(data, segmentSize);
+            countNewArrays(raw.length);
+            return raw;
+        }
         ArrayList<long[]>list=new ArrayList<>();
        
         for (long[] rows : data) {
@@ -833,6 +1072,10 @@ public class LargeLongArray
                 }
             }
         }
+        else if( isParallel())
+        {
+            count=LongSegmentTasks.replace(data, from, to);
+        }
         else
         {
             for( long rows[]: data)
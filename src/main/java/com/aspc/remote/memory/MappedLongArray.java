@@ -0,0 +1,272 @@
+/*
+ *  Copyright (c) 1999-2004 ASP Converters pty ltd
+ *
+ *  www.stSoftware.com.au
+ *
+ *  All Rights Reserved.
+ *
+ *  This software is the proprietary information of
+ *  ASP Converters Pty Ltd.
+ *  Use is subject to license terms.
+ */
+package com.aspc.remote.memory;
+
+import com.aspc.remote.memory.internal.ExternalLongSort;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import javax.annotation.CheckReturnValue;
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+
+/**
+ * A very large long array held in a memory mapped file. Created by {@link LargeLongArray.Builder#buildMapped()}.
+ *
+ * The values are held in mapped segments of the file so hundreds of millions of row ids can be built,
+ * sorted and iterated without using the heap. The sort is an external merge sort that uses no more than
+ * the sort heap budget.
+ * <br>
+ * <i>THREAD MODE: SINGLE THREADED</i>
+ *
+ * @author Nigel Leck
+ *
+ * @since 18 October 2026
+ */
+public final class MappedLongArray implements Closeable
+{
+    private final File file;
+    private final boolean deleteOnClose;
+    private final RandomAccessFile raf;
+    private final FileChannel channel;
+    private final int segmentSize;
+    private final long sortHeapBudget;
+    private final ArrayList<LongBuffer> segments=new ArrayList<>();
+    private long size;
+
+    MappedLongArray(
+        final @Nonnull File file,
+        final boolean deleteOnClose,
+        final @Nonnegative int segmentSize,
+        final @Nonnegative long sortHeapBudget
+    ) throws IOException
+    {
+        this.file=file;
+        this.deleteOnClose=deleteOnClose;
+        this.segmentSize=segmentSize;
+        this.sortHeapBudget=sortHeapBudget;
+
+        raf=new RandomAccessFile( file, "rw");
+        raf.setLength( 0);
+        channel=raf.getChannel();
+    }
+
+    /**
+     * Append a value.
+     *
+     * @param value the value
+     * @throws IOException the file could not be extended.
+     */
+    public void append( final long value) throws IOException
+    {
+        int segmentPos=(int)( size % segmentSize);
+        if( segmentPos == 0 && size / segmentSize == segments.size())
+        {
+            mapSegment();
+        }
+
+        segments.get( segments.size() - 1).put( segmentPos, value);
+        size++;
+    }
+
+    /**
+     * Get the value at this position.
+     * @param pos the position
+     * @return the value.
+     */
+    @CheckReturnValue
+    public long get( final @Nonnegative long pos)
+    {
+        if( pos >= size || pos < 0)
+        {
+            throw new IllegalArgumentException( "can not get position " + pos);
+        }
+
+        return segments.get( (int)( pos / segmentSize)).get( (int)( pos % segmentSize));
+    }
+
+    /**
+     * Set the value at this position.
+     * @param pos the position
+     * @param value the value to set
+     * @return the previous value.
+     */
+    public long set( final @Nonnegative long pos, final long value)
+    {
+        if( pos >= size || pos < 0)
+        {
+            throw new IllegalArgumentException( "can not set position " + pos);
+        }
+
+        LongBuffer segment=segments.get( (int)( pos / segmentSize));
+        int segmentPos=(int)( pos % segmentSize);
+        long previousValue=segment.get( segmentPos);
+        segment.put( segmentPos, value);
+
+        return previousValue;
+    }
+
+    /**
+     * Copy the values from this position.
+     *
+     * @param pos the first position to read.
+     * @param dest the destination
+     * @param offset the offset in the destination
+     * @param length the maximum number of values to read
+     * @return the number of values read.
+     */
+    public int read( final @Nonnegative long pos, final @Nonnull long dest[], final @Nonnegative int offset, final @Nonnegative int length)
+    {
+        if( pos < 0) throw new IllegalArgumentException( "position must be non negative: " + pos);
+
+        long tmpPos=pos;
+        int count=0;
+        while( count < length && tmpPos < size)
+        {
+            LongBuffer segment=segments.get( (int)( tmpPos / segmentSize)).duplicate();
+            int segmentPos=(int)( tmpPos % segmentSize);
+            int len=(int)Math.min( Math.min( length - count, segmentSize - segmentPos), size - tmpPos);
+
+            segment.position( segmentPos);
+            segment.get( dest, offset + count, len);
+
+            count+=len;
+            tmpPos+=len;
+        }
+
+        return count;
+    }
+
+    /**
+     * The size of this long array.
+     * @return the size.
+     */
+    @CheckReturnValue @Nonnegative
+    public long size()
+    {
+        return size;
+    }
+
+    /**
+     * Are the values in ascending order ?
+     * @return true if sorted.
+     */
+    @CheckReturnValue
+    public boolean isSorted()
+    {
+        long last=Long.MIN_VALUE;
+        for( long pos=0;pos<size;pos++)
+        {
+            long value=get( pos);
+            if( value < last) return false;
+            last=value;
+        }
+
+        return true;
+    }
+
+    /**
+     * Sort the values in place. If the values fit in the sort heap budget they are sorted on the
+     * heap otherwise sorted runs are written to a temporary file and merged back.
+     *
+     * @throws IOException the temporary file could not be written.
+     */
+    public void sort() throws IOException
+    {
+        if( size < 2) return;
+
+        int runLength=ExternalLongSort.runLength( sortHeapBudget);
+        long buffer[]=new long[(int)Math.min( runLength, size)];
+
+        if( size <= buffer.length)
+        {
+            int len=read( 0, buffer, 0, buffer.length);
+            Arrays.sort( buffer, 0, len);
+            for( int i=0;i<len;i++)
+            {
+                set( i, buffer[i]);
+            }
+            return;
+        }
+
+        try( ExternalLongSort sorter=new ExternalLongSort( sortHeapBudget, file.getParentFile()))
+        {
+            long pos=0;
+            while( pos < size)
+            {
+                int len=read( pos, buffer, 0, buffer.length);
+                sorter.addRun( buffer, len);
+                pos+=len;
+            }
+            buffer=null;
+
+            sorter.merge( new ExternalLongSort.LongSink()
+            {
+                private long writePos;
+
+                @Override
+                public void append( final long value)
+                {
+                    set( writePos++, value);
+                }
+            });
+        }
+    }
+
+    /**
+     * Release the file.
+     * @throws IOException the file could not be closed.
+     */
+    @Override
+    public void close() throws IOException
+    {
+        segments.clear();
+        size=0;
+        try
+        {
+            raf.close();
+        }
+        finally
+        {
+            if( deleteOnClose)
+            {
+                file.delete();
+            }
+        }
+    }
+
+    /**
+     * The file and size
+     * @return the description
+     */
+    @Override @CheckReturnValue @Nonnull
+    public String toString()
+    {
+        return "MappedLongArray{" + "file=" + file + ", size=" + size + ", segments=" + segments.size() + '}';
+    }
+
+    private void mapSegment() throws IOException
+    {
+        long bytes=(long)segmentSize * 8;
+        LongBuffer segment=channel.map( FileChannel.MapMode.READ_WRITE, segments.size() * bytes, bytes)
+            .order( ByteOrder.nativeOrder())
+            .asLongBuffer();
+
+        segments.add( segment);
+    }
+}
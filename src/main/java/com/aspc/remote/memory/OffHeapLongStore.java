@@ -0,0 +1,924 @@
+/*
+ *  Copyright (c) 1998-2004 ASP Converters pty ltd
+ *
+ *  www.stSoftware.com.au
+ *
+ *  All Rights Reserved.
+ *
+ *  This software is the proprietary information of
+ *  ASP Converters Pty Ltd.
+ *  Use is subject to license terms.
+ */
+package com.aspc.remote.memory;
+
+import com.aspc.remote.util.misc.CLogger;
+import com.aspc.remote.util.misc.NumUtil;
+import java.io.File;
+import java.io.IOException;
+import java.io.NotSerializableException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import javax.annotation.CheckReturnValue;
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import org.apache.commons.logging.Log;
+
+/**
+ *  Serialized values keyed by a long held outside of the Java heap, either in direct byte buffers
+ *  or in a memory mapped file.
+ *
+ *  The values are appended to fixed size blocks, when the maximum number of blocks is reached the
+ *  oldest block is dropped ( with all the values in it) and its memory reused. Only the key index
+ *  is held on the heap so a large store adds very little to the old generation.
+ *
+ *  The store is a Memory Handler, when the Memory Manager asks it to free memory the oldest blocks
+ *  are dropped. The estimated size is the heap held by the index, the off heap memory is reported
+ *  by {@link #getOffHeapSize()} as it doesn't count towards the heap zones.
+ *
+ *  <br>
+ *  <i>THREAD MODE: MULTI-THREADED memory management</i>
+ *
+ *  @author      Nigel Leck
+ *  @param <V> the class of the values.
+ *  @since       18 October 2026
+ */
+public final class OffHeapLongStore<V> implements MemoryHandler
+{
+    private final String description;
+    private final OffHeapSerializer<V> serializer;
+    private final Cost cost;
+    private final int blockSize;
+    private final int maxBlocks;
+    private final RandomAccessFile mappedFile;
+    private final FileChannel channel;
+
+    private final ReentrantReadWriteLock rwLock=new ReentrantReadWriteLock();
+    private final HashLongMap<Long> index;
+    private final ArrayList<Block> blocks=new ArrayList<>();
+    private long firstBlockId;
+    private long nextBlockId;
+    private int residentCount;
+    private volatile int lastAccessed;
+
+    private final AtomicLong hitCount=new AtomicLong();
+    private final AtomicLong missCount=new AtomicLong();
+    private final AtomicLong rejectedCount=new AtomicLong();
+
+    private static final int HEADER=8 + 4;
+    /** the location flag for a value that is also held on the heap by the owning table. */
+    private static final long RESIDENT=Long.MIN_VALUE;
+    private static final int OVERHEAD_ELEMENT=48;
+
+    private static final Log LOGGER = CLogger.getLog( "com.aspc.remote.memory.OffHeapLongStore");//#LOGGER-NOPMD
+
+    /**
+     * The factory to create a new off heap store.
+     *
+     * @param <V> the class of the values.
+     * @param description the description of the store.
+     * @param serializer converts the values to and from bytes.
+     * @return the factory
+     */
+    @CheckReturnValue @Nonnull
+    public static <V> Builder<V> factory( final @Nonnull String description, final @Nonnull OffHeapSerializer<V> serializer)
+    {
+        return new Builder<>( description, serializer);
+    }
+
+    @SuppressWarnings("unchecked")
+    private OffHeapLongStore(
+        final String description,
+        final OffHeapSerializer<V> serializer,
+        final Cost cost,
+        final int blockSize,
+        final int maxBlocks,
+        final RandomAccessFile mappedFile
+    )
+    {
+        this.description=description;
+        this.serializer=serializer;
+        this.cost=cost;
+        this.blockSize=blockSize;
+        this.maxBlocks=maxBlocks;
+        this.mappedFile=mappedFile;
+        this.channel=mappedFile != null ? mappedFile.getChannel() : null;
+
+        index = HashLongMapFactory.createConcurrent( 1024);
+    }
+
+    /**
+     * Store the value.
+     *
+     * @param key the key
+     * @param value the value
+     * @return true if stored, false if the value could not be serialized or is larger than a block.
+     */
+    public boolean put( final long key, final @Nonnull V value)
+    {
+        return put( key, value, false);
+    }
+
+    /**
+     * Store the value, the key stays resident if it was.
+     *
+     * @param key the key
+     * @param value the value
+     * @param resident the value is also held on the heap by the owning table.
+     * @return true if stored, false if the value could not be serialized or is larger than a block.
+     */
+    boolean put( final long key, final @Nonnull V value, final boolean resident)
+    {
+        byte bytes[];
+        try
+        {
+            bytes = serializer.serialize( value);
+        }
+        catch( NotSerializableException nse)
+        {
+            reject( key);
+            return false;
+        }
+        catch( IOException ioe)
+        {
+            LOGGER.warn( description + " could not serialize " + key, ioe);
+            reject( key);
+            return false;
+        }
+
+        int len = HEADER + bytes.length;
+        if( len > blockSize)
+        {
+            reject( key);
+            return false;
+        }
+
+        Lock l = rwLock.writeLock();
+        l.lock();
+        try
+        {
+            Block b = currentBlock( len);
+
+            int offset = b.position;
+            ByteBuffer buffer = b.buffer.duplicate();
+            buffer.position( offset);
+            buffer.putLong( key);
+            buffer.putInt( bytes.length);
+            buffer.put( bytes);
+
+            b.position += len;
+            b.live += len;
+
+            long location = ( b.id << 32) | offset;
+            Long old = index.get( key);
+            if( old != null && ( old & RESIDENT) != 0)
+            {
+                location |= RESIDENT;
+            }
+            else if( resident)
+            {
+                location |= RESIDENT;
+                residentCount++;
+            }
+
+            index.put( key, location);
+            if( old != null)
+            {
+                release( old);
+            }
+        }
+        catch( IOException ioe)
+        {
+            LOGGER.warn( description + " could not allocate a block", ioe);
+            unindex( key);
+            rejectedCount.incrementAndGet();
+            return false;
+        }
+        finally
+        {
+            l.unlock();
+        }
+
+        touch();
+        return true;
+    }
+
+    /**
+     * Retrieve the value for the key.
+     *
+     * @param key the key
+     * @return the value if found.
+     */
+    @CheckReturnValue @Nullable
+    public V get( final long key)
+    {
+        byte bytes[] = null;
+
+        Lock l = rwLock.readLock();
+        l.lock();
+        try
+        {
+            Long location = index.get( key);
+            if( location != null)
+            {
+                Block b = blockFor( location);
+                if( b != null)
+                {
+                    ByteBuffer buffer = b.buffer.duplicate();
+                    buffer.position( (int)( location & 0xffffffffL) + 8);
+                    bytes = new byte[buffer.getInt()];
+                    buffer.get( bytes);
+                }
+            }
+        }
+        finally
+        {
+            l.unlock();
+        }
+
+        if( bytes == null)
+        {
+            missCount.incrementAndGet();
+            return null;
+        }
+
+        hitCount.incrementAndGet();
+        touch();
+
+        try
+        {
+            return serializer.deserialize( bytes);
+        }
+        catch( IOException ioe)
+        {
+            LOGGER.warn( description + " could not deserialize " + key, ioe);
+            remove( key);
+            return null;
+        }
+    }
+
+    /**
+     * Is there a value for this key ?
+     *
+     * @param key the key
+     * @return true if stored.
+     */
+    @CheckReturnValue
+    public boolean containsKey( final long key)
+    {
+        Lock l = rwLock.readLock();
+        l.lock();
+        try
+        {
+            return index.containsKey( key);
+        }
+        finally
+        {
+            l.unlock();
+        }
+    }
+
+    /**
+     * The keys of the stored values.
+     *
+     * @return the keys
+     */
+    @CheckReturnValue @Nonnull
+    public long[] getKeyArray()
+    {
+        Lock l = rwLock.readLock();
+        l.lock();
+        try
+        {
+            return index.getKeyArray();
+        }
+        finally
+        {
+            l.unlock();
+        }
+    }
+
+    /**
+     * Remove the value for this key.
+     *
+     * @param key the key
+     * @return true if the key was stored.
+     */
+    public boolean remove( final long key)
+    {
+        Lock l = rwLock.writeLock();
+        l.lock();
+        try
+        {
+            return unindex( key);
+        }
+        finally
+        {
+            l.unlock();
+        }
+    }
+
+    /**
+     * Mark whether the value for this key is also held on the heap by the owning table.
+     *
+     * @param key the key
+     * @param resident held on the heap.
+     */
+    void setResident( final long key, final boolean resident)
+    {
+        Lock l = rwLock.writeLock();
+        l.lock();
+        try
+        {
+            Long location = index.get( key);
+            if( location == null || ( ( location & RESIDENT) != 0) == resident) return;
+
+            if( resident)
+            {
+                index.put( key, location | RESIDENT);
+                residentCount++;
+            }
+            else
+            {
+                index.put( key, location & ~RESIDENT);
+                residentCount--;
+            }
+        }
+        finally
+        {
+            l.unlock();
+        }
+    }
+
+    /**
+     * Mark every value as not held on the heap, the store has been detached from its table.
+     */
+    void clearResident()
+    {
+        Lock l = rwLock.writeLock();
+        l.lock();
+        try
+        {
+            if( residentCount == 0) return;
+
+            for( long key: index.getKeyArray())
+            {
+                Long location = index.get( key);
+                if( location != null && ( location & RESIDENT) != 0)
+                {
+                    index.put( key, location & ~RESIDENT);
+                }
+            }
+
+            residentCount = 0;
+        }
+        finally
+        {
+            l.unlock();
+        }
+    }
+
+    /**
+     * The number of values stored that are not held on the heap by the owning table.
+     *
+     * @return the count
+     */
+    @CheckReturnValue @Nonnegative
+    int offHeapOnlySize()
+    {
+        Lock l = rwLock.readLock();
+        l.lock();
+        try
+        {
+            return index.size() - residentCount;
+        }
+        finally
+        {
+            l.unlock();
+        }
+    }
+
+    /**
+     * Remove all values.
+     */
+    public void clear()
+    {
+        Lock l = rwLock.writeLock();
+        l.lock();
+        try
+        {
+            index.clear();
+            residentCount = 0;
+            blocks.clear();
+            firstBlockId = nextBlockId;
+        }
+        finally
+        {
+            l.unlock();
+        }
+    }
+
+    /**
+     * Remove all values, release the off heap memory and stop the Memory Manager from calling this store.
+     *
+     * @throws IOException the mapped file could not be closed.
+     */
+    public void close() throws IOException
+    {
+        clear();
+        MemoryManager.deregister( this);
+
+        if( mappedFile != null)
+        {
+            mappedFile.close();
+        }
+    }
+
+    /**
+     * The number of values stored.
+     *
+     * @return the count
+     */
+    @CheckReturnValue @Nonnegative
+    public int size()
+    {
+        return index.size();
+    }
+
+    /**
+     * The off heap memory currently allocated.
+     *
+     * @return the number of bytes.
+     */
+    @CheckReturnValue @Nonnegative
+    public long getOffHeapSize()
+    {
+        Lock l = rwLock.readLock();
+        l.lock();
+        try
+        {
+            return (long)blocks.size() * blockSize;
+        }
+        finally
+        {
+            l.unlock();
+        }
+    }
+
+    /**
+     * The off heap memory used by the values that are still stored.
+     *
+     * @return the number of bytes.
+     */
+    @CheckReturnValue @Nonnegative
+    public long getLiveSize()
+    {
+        Lock l = rwLock.readLock();
+        l.lock();
+        try
+        {
+            long live = 0;
+            for( Block b: blocks)
+            {
+                live += b.live;
+            }
+
+            return live;
+        }
+        finally
+        {
+            l.unlock();
+        }
+    }
+
+    /**
+     * The number of requests that found the value.
+     * @return the count
+     */
+    @CheckReturnValue @Nonnegative
+    public long getHitCount()
+    {
+        return hitCount.get();
+    }
+
+    /**
+     * The number of requests that did not find the value.
+     * @return the count
+     */
+    @CheckReturnValue @Nonnegative
+    public long getMissCount()
+    {
+        return missCount.get();
+    }
+
+    /**
+     * The number of values that could not be stored.
+     * @return the count
+     */
+    @CheckReturnValue @Nonnegative
+    public long getRejectedCount()
+    {
+        return rejectedCount.get();
+    }
+
+    /**
+     * gets the description of this store.
+     *
+     * @return the description.
+     */
+    @CheckReturnValue @Nonnull
+    public String getDescription()
+    {
+        return description;
+    }
+
+    /**
+     * The cost level for this store.
+     * @return The cost
+     */
+    @Override @CheckReturnValue @Nonnull
+    public Cost getCost()
+    {
+        return cost;
+    }
+
+    /**
+     * Drop the oldest blocks.
+     *
+     * @param percentage the percentage to free
+     * @return the estimated heap released
+     */
+    @Override @Nonnegative
+    public long freeMemory( final @Nonnegative double percentage)
+    {
+        return MemoryManager.callFreeMemory( this, percentage);
+    }
+
+    /**
+     * Drop the oldest blocks that no longer hold any values.
+     *
+     * @return the estimated heap released
+     */
+    @Override @Nonnegative
+    public long tidyUp()
+    {
+        int removed = 0;
+
+        Lock l = rwLock.writeLock();
+        l.lock();
+        try
+        {
+            while( blocks.size() > 1 && blocks.get( 0).live == 0)
+            {
+                removed += dropOldest();
+            }
+        }
+        finally
+        {
+            l.unlock();
+        }
+
+        return (long)removed * OVERHEAD_ELEMENT;
+    }
+
+    /**
+     * Drop the oldest blocks.
+     *
+     * @param percentage the percentage to free
+     * @return the estimated heap released
+     */
+    @Override @Nonnegative
+    public long queuedFreeMemory( final @Nonnegative double percentage)
+    {
+        int removed = 0;
+        long offHeap;
+
+        Lock l = rwLock.writeLock();
+        l.lock();
+        try
+        {
+            int dropCount = (int)Math.ceil( blocks.size() * percentage);
+            offHeap = (long)dropCount * blockSize;
+            for( int i = 0; i < dropCount; i++)
+            {
+                removed += dropOldest();
+            }
+        }
+        finally
+        {
+            l.unlock();
+        }
+
+        if( removed > 0 && LOGGER.isDebugEnabled())
+        {
+            LOGGER.debug(
+                "Cleared " + description + " cost: " + cost + " removed: " + removed +
+                " off heap: " + NumUtil.convertMemoryToHumanReadable( offHeap)
+            );
+        }
+
+        return (long)removed * OVERHEAD_ELEMENT;
+    }
+
+    /**
+     * Drop all blocks.
+     *
+     * @return the estimated heap released
+     */
+    @Override @Nonnegative
+    public long panicFreeMemory()
+    {
+        return queuedFreeMemory( 1);
+    }
+
+    /**
+     * The heap held by the key index.
+     *
+     * @return The estimated number of bytes held.
+     */
+    @Override @CheckReturnValue @Nonnegative
+    public long getEstimatedSize()
+    {
+        return (long)index.size() * OVERHEAD_ELEMENT;
+    }
+
+    /**
+     * The last time this store was accessed
+     *
+     * @return The last time in milliseconds.
+     */
+    @Override @CheckReturnValue @Nonnegative
+    public long getLastAccessed()
+    {
+        return lastAccessed * 1000L;
+    }
+
+    /**
+     * The description and usage of this store
+     *
+     * @return the description
+     */
+    @Override @CheckReturnValue @Nonnull
+    public String toString()
+    {
+        return description + " count=" + size() + " off heap=" + NumUtil.convertMemoryToHumanReadable( getOffHeapSize()) +
+            " hits=" + hitCount.get() + " misses=" + missCount.get() + " rejected=" + rejectedCount.get();
+    }
+
+    private void touch()
+    {
+        lastAccessed = (int)( MemoryManager.lastTick()/1000L);
+    }
+
+    private void reject( final long key)
+    {
+        rejectedCount.incrementAndGet();
+        remove( key);
+    }
+
+    /**
+     * The block to append a value of this length to.
+     *
+     * THREAD MODE: MUST HOLD THE WRITE LOCK
+     */
+    private Block currentBlock( final int len) throws IOException
+    {
+        if( blocks.isEmpty() == false)
+        {
+            Block last = blocks.get( blocks.size() - 1);
+            if( last.position + len <= blockSize)
+            {
+                return last;
+            }
+        }
+
+        ByteBuffer buffer;
+        if( blocks.size() >= maxBlocks)
+        {
+            /*
+             * the dropped block's memory is reused, a mapped block is always at ( id % maxBlocks)
+             * so the oldest block is at the same position in the file.
+             */
+            buffer = blocks.get( 0).buffer;
+            dropOldest();
+        }
+        else if( channel != null)
+        {
+            long position = ( nextBlockId % maxBlocks) * blockSize;
+            buffer = channel.map( FileChannel.MapMode.READ_WRITE, position, blockSize);
+        }
+        else
+        {
+            buffer = ByteBuffer.allocateDirect( blockSize);
+        }
+
+        if( blocks.isEmpty())
+        {
+            firstBlockId = nextBlockId;
+        }
+
+        Block b = new Block( nextBlockId++, buffer);
+        blocks.add( b);
+
+        return b;
+    }
+
+    /**
+     * Drop the oldest block and remove the keys of the values that are still in it.
+     *
+     * THREAD MODE: MUST HOLD THE WRITE LOCK
+     *
+     * @return the number of keys removed.
+     */
+    private int dropOldest()
+    {
+        if( blocks.isEmpty()) return 0;
+
+        Block b = blocks.remove( 0);
+        firstBlockId++;
+
+        int removed = 0;
+        ByteBuffer buffer = b.buffer.duplicate();
+        int pos = 0;
+        while( pos < b.position)
+        {
+            long key = buffer.getLong( pos);
+            int len = buffer.getInt( pos + 8);
+
+            Long location = index.get( key);
+            if( location != null && ( location & ~RESIDENT) == (( b.id << 32) | pos))
+            {
+                index.remove( key);
+                if( ( location & RESIDENT) != 0) residentCount--;
+                removed++;
+            }
+
+            pos += HEADER + len;
+        }
+
+        return removed;
+    }
+
+    /**
+     * Remove the key from the index.
+     *
+     * THREAD MODE: MUST HOLD THE WRITE LOCK
+     *
+     * @return true if the key was stored.
+     */
+    private boolean unindex( final long key)
+    {
+        Long old = index.remove( key);
+        if( old == null) return false;
+
+        if( ( old & RESIDENT) != 0) residentCount--;
+        release( old);
+        return true;
+    }
+
+    /**
+     * The value at this location is no longer used.
+     *
+     * THREAD MODE: MUST HOLD THE WRITE LOCK
+     */
+    private void release( final long location)
+    {
+        Block b = blockFor( location);
+        if( b != null)
+        {
+            int offset = (int)( location & 0xffffffffL);
+            b.live -= HEADER + b.buffer.getInt( offset + 8);
+        }
+    }
+
+    /**
+     * THREAD MODE: MUST HOLD THE LOCK
+     */
+    private Block blockFor( final long location)
+    {
+        long pos = ( ( location & ~RESIDENT) >>> 32) - firstBlockId;
+
+        if( pos < 0 || pos >= blocks.size()) return null;
+
+        return blocks.get( (int)pos);
+    }
+
+    /**
+     * A block of values.
+     */
+    private static final class Block
+    {
+        final long id;
+        final ByteBuffer buffer;
+        int position;
+        int live;
+
+        Block( final long id, final ByteBuffer buffer)
+        {
+            this.id = id;
+            this.buffer = buffer;
+        }
+    }
+
+    /**
+     * The off heap store builder.
+     *
+     * @param <V> the class of the values.
+     */
+    public static final class Builder<V>
+    {
+        private final String description;
+        private final OffHeapSerializer<V> serializer;
+        private Cost cost=Cost.MEDIUM;
+        private int blockSize=8 * 1024 * 1024;
+        private long maxSize=256L * 1024 * 1024;
+        private File file;
+
+        private Builder( final String description, final OffHeapSerializer<V> serializer)
+        {
+            if( description == null) throw new IllegalArgumentException( "description is mandatory");
+            if( serializer == null) throw new IllegalArgumentException( "serializer is mandatory");
+            this.description=description;
+            this.serializer=serializer;
+        }
+
+        /**
+         * The relative cost of the values in this store (DEFAULT MEDIUM)
+         * @param cost the cost
+         * @return this
+         */
+        public Builder<V> setCost( final @Nonnull Cost cost)
+        {
+            if( cost == null) throw new IllegalArgumentException( "cost is mandatory");
+            this.cost=cost;
+            return this;
+        }
+
+        /**
+         * The size of each block, a value larger than a block is not stored (DEFAULT 8MB)
+         * @param size the block size in bytes.
+         * @return this
+         */
+        public Builder<V> setBlockSize( final @Nonnegative int size)
+        {
+            if( size <= HEADER) throw new IllegalArgumentException( "block size must be greater than " + HEADER + ": " + size);
+            blockSize=size;
+            return this;
+        }
+
+        /**
+         * The maximum off heap memory, rounded up to a whole block (DEFAULT 256MB)
+         * @param size the maximum size in bytes.
+         * @return this
+         */
+        public Builder<V> setMaxSize( final @Nonnegative long size)
+        {
+            if( size <= 0) throw new IllegalArgumentException( "max size must be greater than zero: " + size);
+            maxSize=size;
+            return this;
+        }
+
+        /**
+         * Store the values in a memory mapped file instead of direct buffers. The file is truncated,
+         * the store is a cache and is not reloaded.
+         *
+         * @param file the file to map.
+         * @return this
+         */
+        public Builder<V> setMappedFile( final @Nullable File file)
+        {
+            this.file=file;
+            return this;
+        }
+
+        /**
+         * Create the store and register it with the Memory Manager.
+         *
+         * @return the new store.
+         * @throws IOException the mapped file could not be opened.
+         */
+        @Nonnull
+        public OffHeapLongStore<V> build() throws IOException
+        {
+            long blocks = ( maxSize + blockSize - 1) / blockSize;
+            if( blocks > Integer.MAX_VALUE) throw new IllegalArgumentException( "too many blocks: " + blocks);
+
+            RandomAccessFile raf = null;
+            if( file != null)
+            {
+                raf = new RandomAccessFile( file, "rw");
+                raf.setLength( 0);
+            }
+
+            OffHeapLongStore<V> store = new OffHeapLongStore<>( description, serializer, cost, blockSize, (int)blocks, raf);
+            MemoryManager.register( store);
+
+            return store;
+        }
+    }
+}
@@ -0,0 +1,49 @@
+/*
+ *  Copyright (c) 1998-2004 ASP Converters pty ltd
+ *
+ *  www.stSoftware.com.au
+ *
+ *  All Rights Reserved.
+ *
+ *  This software is the proprietary information of
+ *  ASP Converters Pty Ltd.
+ *  Use is subject to license terms.
+ */
+package com.aspc.remote.memory;
+
+import java.io.IOException;
+import javax.annotation.CheckReturnValue;
+import javax.annotation.Nonnull;
+
+/**
+ *  Converts the values of an off-heap store to and from bytes.
+ *
+ *  <br>
+ *  <i>THREAD MODE: MULTI-THREADED</i>
+ *
+ *  @author      Nigel Leck
+ *  @param <V> the class of the values.
+ *  @since       18 October 2026
+ */
+public interface OffHeapSerializer<V>
+{
+    /**
+     * convert the value to bytes.
+     *
+     * @param value the value
+     * @return the bytes
+     * @throws IOException the value can not be converted, a NotSerializableException skips the value without a warning.
+     */
+    @CheckReturnValue @Nonnull
+    byte[] serialize( final @Nonnull V value) throws IOException;
+
+    /**
+     * convert the bytes back to the value.
+     *
+     * @param data the bytes
+     * @return the value
+     * @throws IOException the bytes are not valid.
+     */
+    @CheckReturnValue @Nonnull
+    V deserialize( final @Nonnull byte data[]) throws IOException;
+}
@@ -12,6 +12,7 @@
 package com.aspc.remote.memory;//NOPMD
 
 import com.aspc.remote.util.misc.*;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.Lock;
 import org.apache.commons.logging.Log;
 import com.aspc.remote.memory.internal.*;
@@ -31,7 +32,7 @@ import com.aspc.remote.memory.internal.*;
 public final class ResetableCacheLongTable<V> extends CacheLongTable<V>
 {
     /** Recheck any object that doesn't match the read check */
-    private int                readCheck;
+    private final AtomicInteger readCheck=new AtomicInteger();
 
     private static final Log LOGGER = CLogger.getLog( "com.aspc.remote.memory.ResetableCacheLongTable");//#LOGGER-NOPMD
 
@@ -44,8 +45,20 @@ public final class ResetableCacheLongTable<V> extends CacheLongTable<V>
      */
     public ResetableCacheLongTable(final String description, final Cost cost)
     {
-        super( description, cost);
-        data = createArray( INITIAL_CAPACITY);
+        this( description, cost, 1);
+    }
+
+    /**
+     * Creates a new Cache Long table split into independently locked segments.
+     *
+     * @param description The description of this cache table.
+     * @param cost The relative cost.
+     * @param segmentCount the number of segments ( rounded up to a power of 2)
+     */
+    public ResetableCacheLongTable(final String description, final Cost cost, final int segmentCount)
+    {
+        super( description, cost, segmentCount);
+        allocateSegments();
     }
 
     /**
@@ -56,20 +69,20 @@ public final class ResetableCacheLongTable<V> extends CacheLongTable<V>
      */
     public ResetableCacheEntryLong getCacheEntry( final long key)
     {
-        Lock l = rwLock.readLock();
-        l.lock();
+        int hash = (int)key;
+        CacheSegment s = segmentFor( hash);
+        Lock l = s.readLock();
         try
         {
-            if( data == null) return null;
+            if( s.getData() == null) return null;
 
-            int hash = (int)key;
-            int index = (hash & 0x7FFFFFFF) % data.length;
+            int index = (hash & 0x7FFFFFFF) % s.getData().length;
 
-            for (InterfaceEntry e = (InterfaceEntry)data[index]; e != null; e = e.next())
+            for (InterfaceEntry e = (InterfaceEntry)s.getData()[index]; e != null; e = e.next())
             {
                 if( key == ((InterfaceEntryLong)e).key())
                 {
-                    touch( e);
+                    touch( s, e);
 
                     return ((ResetableCacheEntryLong)e);
                 }
@@ -117,16 +130,7 @@ public final class ResetableCacheLongTable<V> extends CacheLongTable<V>
      */
     public int getReadCheck()
     {
-        Lock l = rwLock.readLock();
-        l.lock();
-        try
-        {
-            return readCheck;
-        }
-        finally
-        {
-            l.unlock();
-        }
+        return readCheck.get();
     }
 
     /**
@@ -134,15 +138,6 @@ public final class ResetableCacheLongTable<V> extends CacheLongTable<V>
      */
     public void incrementReadCheck()
     {
-        Lock l = rwLock.writeLock();
-        l.lock();
-        try
-        {
-            readCheck++;
-        }
-        finally
-        {
-            l.unlock();
-        }
+        readCheck.incrementAndGet();
     }
 }
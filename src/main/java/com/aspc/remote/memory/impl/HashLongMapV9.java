@@ -0,0 +1,775 @@
+/*
+ *  Copyright (c) 2002-2004 ASP Converters pty ltd
+ *
+ *  www.stSoftware.com.au
+ *
+ *  All Rights Reserved.
+ *
+ *  This software is the proprietary information of
+ *  ASP Converters Pty Ltd.
+ *  Use is subject to license terms.
+ */
+package com.aspc.remote.memory.impl;
+
+import com.aspc.remote.memory.HashLongMap;
+import com.aspc.remote.memory.HashLongMapFactory;
+import com.aspc.remote.memory.LargeLongArray;
+import com.aspc.remote.memory.internal.MemoryUtil;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+import javax.annotation.CheckReturnValue;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ *  Concurrent version of the HashLongMap for read mostly caches.
+ *
+ *  The keys are spread over a fixed number of segments. Each segment has its own lock which is only
+ *  taken by put/remove/clear, the table of a segment is published via an AtomicReferenceArray so
+ *  get/containsKey never lock. The key arrays are cached against a modification version and are
+ *  rebuilt on demand after a change.
+ *
+ *  <br>
+ *  <i>THREAD MODE: MULTI-THREADED</i>
+ *
+ *  @author      Nigel Leck
+ *  @since       18 October 2026
+ */
+public final class HashLongMapV9 implements HashLongMap, Cloneable
+{
+    /**  <I> MEMORY USAGE: The number of bytes for one instance of a HashLongMap </I>*/
+    public static final int SIZE_OF=96;
+
+    /** the number of segments ( must be a power of 2) */
+    private static final int SEGMENT_COUNT=16;
+    private static final int SEGMENT_MASK=SEGMENT_COUNT - 1;
+    private static final int BRIEF_SIZE=200;
+    private static final long EMPTY_KEYS[]=new long[0];
+    private static final long EMPTY_DATA[][]=new long[0][];
+
+    private final Segment segments[];
+    private final int initialCapacity;
+
+    /** incremented AFTER every change so a key snapshot taken between two equal reads is current */
+    private final AtomicLong version=new AtomicLong();
+    private volatile KeyCache keyCache;
+
+    /**
+     * Constructs a new, empty map with the specified initial capacity
+     * and default load factor, which is <tt>0.75</tt>.
+     *
+     * @param initialCapacity the initial capacity of the HashMap.
+     */
+    public HashLongMapV9(final int initialCapacity)
+    {
+        if (initialCapacity < 0)
+        {
+            throw new IllegalArgumentException(
+                "Illegal Initial Capacity: " + initialCapacity
+            );
+        }
+
+        int tempCapacity= initialCapacity;
+        if (tempCapacity < 11)
+        {
+            tempCapacity = 11;
+        }
+        this.initialCapacity=tempCapacity;
+
+        int segmentCapacity = tempCapacity / SEGMENT_COUNT;
+        if( segmentCapacity < 2) segmentCapacity=2;
+
+        segments=new Segment[SEGMENT_COUNT];
+        for( int i=0;i < SEGMENT_COUNT;i++)
+        {
+            segments[i]=new Segment(segmentCapacity);
+        }
+    }
+
+    /**
+     * Constructs a new, empty map with a default capacity and load
+     * factor, which is <tt>0.75</tt>.
+     */
+    public HashLongMapV9()
+    {
+        this(11);
+    }
+
+    /**
+     * is this hash map initialized.
+     * @return always true, the segments are created with the map.
+     */
+    @Override
+    public boolean isInitialized()
+    {
+        return true;
+    }
+
+    /**
+     * clone the map.
+     * @throws CloneNotSupportedException doesn't happen.
+     * @return the new map.
+     */
+    @Override
+    @SuppressWarnings({"CloneDoesntCallSuperClone"})
+    public Object clone() throws CloneNotSupportedException//NOPMD
+    {
+        HashLongMapV9 tempMap = new HashLongMapV9(initialCapacity);
+
+        long startVersion=version.get();
+        KeyCache cache=keyCache;
+        for( Segment s: segments)
+        {
+            AtomicReferenceArray<Entry> tab=s.table;
+            for( int i=0;i < tab.length();i++)
+            {
+                for (Entry e = tab.get(i); e != null; e = e.next)
+                {
+                    tempMap.put(e.key, e.value);
+                }
+            }
+        }
+
+        if( cache != null && cache.version == startVersion && version.get() == startVersion)
+        {
+            tempMap.keyCache=new KeyCache(tempMap.version.get(), cache.keys, cache.sorted);
+        }
+
+        return tempMap;
+    }
+
+    /**
+     * Returns the number of key-value mappings in this map.
+     *
+     * @return the number of key-value mappings in this map.
+     */
+    @Override
+    public int size()
+    {
+        int total=0;
+        for( Segment s: segments)
+        {
+            total+=s.count;
+        }
+        return total;
+    }
+
+    /**
+     * Returns <tt>true</tt> if this map contains no key-value mappings.
+     *
+     * @return <tt>true</tt> if this map contains no key-value mappings.
+     */
+    @Override
+    public boolean isEmpty()
+    {
+        for( Segment s: segments)
+        {
+            if( s.count != 0) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Returns <tt>true</tt> if this map maps one or more keys to the
+     * specified value.
+     *
+     * @param value value whose presence in this map is to be tested.
+     * @return <tt>true</tt> if this map maps one or more keys to the
+     *         specified value.
+     */
+    @Override
+    public boolean containsValue(final Object value)
+    {
+        for( Segment s: segments)
+        {
+            AtomicReferenceArray<Entry> tab=s.table;
+            for( int i=0;i < tab.length();i++)
+            {
+                for (Entry e = tab.get(i); e != null; e = e.next)
+                {
+                    Object v=e.value;
+                    if( value == v || ( value != null && value.equals(v)))
+                    {
+                        return true;
+                    }
+                }
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * create an array of the first 200 odd keys
+     *
+     * @return the array
+     */
+    @Override
+    public long[] briefKeyArray()
+    {
+        long keys[]=getKeyArray();
+        if( keys.length <= BRIEF_SIZE)
+        {
+            return keys;
+        }
+
+        long list[]=new long[BRIEF_SIZE];
+        System.arraycopy(keys, 0, list, 0, BRIEF_SIZE);
+        return list;
+    }
+
+    /**
+     * create an array of the keys <b>SHARED</b>.
+     *
+     * @return the array
+     */
+    @Override
+    public long[] getKeyArray()
+    {
+        return snapshot().keys;
+    }
+
+    /**
+     * Is the key array sorted ?
+     * @return true if sorted
+     */
+    @Override
+    public boolean isKeyArraySorted()
+    {
+        return snapshot().sorted;
+    }
+
+    /**
+     * create an array of the keys <b>SHARED</b>
+     *
+     * SORTED array.
+     *
+     * @return the array
+     */
+    @Override
+    public long[] getSortedKeyArray()
+    {
+        KeyCache cache=snapshot();
+        if( cache.sorted)
+        {
+            return cache.keys;
+        }
+
+        long list[]=cache.keys.clone();
+        Arrays.sort(list);
+
+        KeyCache sortedCache=new KeyCache(cache.version, list, true);
+        if( version.get() == cache.version)
+        {
+            keyCache=sortedCache;
+        }
+
+        return list;
+    }
+
+    /*
+     *  key data array <B>SHARED</B>
+     */
+    @Override
+    public long[][] getKeyData()
+    {
+        KeyCache cache=snapshot();
+        if( cache.keys.length == 0)
+        {
+            return EMPTY_DATA;
+        }
+
+        long data[][]=cache.keyData;
+        if( data == null)
+        {
+            data=LargeLongArray.factory(cache.keys).setExpectedCapacity(cache.keys.length).build().repack();
+            cache.keyData=data;
+        }
+
+        return data;
+    }
+
+    /**
+     * Returns <tt>true</tt> if this map contains a mapping for the specified
+     * key.
+     *
+     * NO LOCKING
+     *
+     * @return <tt>true</tt> if this map contains a mapping for the specified
+     * key.
+     * @param key key whose presence in this Map is to be tested.
+     */
+    @Override
+    public boolean containsKey(final long key)
+    {
+        int hash=hash(key);
+        return segmentFor(hash).find(hash, key) != null;
+    }
+
+    /**
+     * Returns the value to which this map maps the specified key.  Returns
+     * <tt>null</tt> if the map contains no mapping for this key.  A return
+     * value of <tt>null</tt> does not <i>necessarily</i> indicate that the
+     * map contains no mapping for the key; it's also possible that the map
+     * explicitly maps the key to <tt>null</tt>.  The <tt>containsKey</tt>
+     * operation may be used to distinguish these two cases.
+     *
+     * NO LOCKING
+     *
+     * @return the value to which this map maps the specified key.
+     * @param key key whose associated value is to be returned.
+     */
+    @Override
+    public Object get(final long key)
+    {
+        int hash=hash(key);
+        Entry e=segmentFor(hash).find(hash, key);
+
+        return e == null ? null : e.value;
+    }
+
+    /**
+     * Associates the specified value with the specified key in this map.
+     * If the map previously contained a mapping for this key, the old
+     * value is replaced.
+     *
+     * @return previous value associated with specified key, or <tt>null</tt>
+     *         if there was no mapping for key.  A <tt>null</tt> return can
+     *         also indicate that the HashMap previously associated
+     *         <tt>null</tt> with the specified key.
+     * @param value The object to place into the table.
+     * @param key key with which the specified value is to be associated.
+     */
+    @Override
+    public Object put(final long key, final Object value)
+    {
+        int hash=hash(key);
+        Segment s=segmentFor(hash);
+        Object old;
+        boolean added;
+        s.lock();
+        try
+        {
+            Entry e=s.find(hash, key);
+            if( e != null)
+            {
+                old=e.value;
+                e.value=value;
+                added=false;
+            }
+            else
+            {
+                s.add(hash, key, value);
+                old=null;
+                added=true;
+            }
+        }
+        finally
+        {
+            s.unlock();
+        }
+
+        if( added)
+        {
+            version.incrementAndGet();
+        }
+        return old;
+    }
+
+    /**
+     * put multiple rows.
+     *
+     * If the map is empty and the rows are known to be unique the passed rows are
+     * remembered as the key array so the next call to getKeyArray doesn't rebuild it.
+     *
+     * @param rows the rows
+     * @param value the value
+     * @param stateOfRows are these rows known to be sorted ?
+     */
+    @Override
+    public void putMultiRows( final @Nonnull long rows[], final @Nullable Object value, final @Nonnull State stateOfRows)
+    {
+        if( rows == null || rows.length == 0) return;
+
+        boolean wasEmpty=isEmpty();
+        long startVersion=version.get();
+        boolean added=false;
+
+        for( long row: rows)
+        {
+            int hash=hash(row);
+            Segment s=segmentFor(hash);
+            s.lock();
+            try
+            {
+                Entry e=s.find(hash, row);
+                if( e != null)
+                {
+                    e.value=value;
+                }
+                else
+                {
+                    s.add(hash, row, value);
+                    added=true;
+                }
+            }
+            finally
+            {
+                s.unlock();
+            }
+        }
+
+        if( added)
+        {
+            long nextVersion=version.incrementAndGet();
+
+            if(
+                wasEmpty &&
+                stateOfRows != State.UNKNOWN &&
+                nextVersion == startVersion + 1 &&
+                size() == rows.length
+            )
+            {
+                long keys[]=rows.clone();
+                keyCache=new KeyCache(nextVersion, keys, stateOfRows == State.UNIQUE_SORTED || isSorted(keys));
+            }
+        }
+    }
+
+    /**
+     * Removes the mapping for this key from this map if present.
+     *
+     * @param key key whose mapping is to be removed from the map.
+     * @return previous value associated with specified key, or <tt>null</tt>
+     *         if there was no mapping for key.  A <tt>null</tt> return can
+     *         also indicate that the map previously associated <tt>null</tt>
+     *         with the specified key.
+     */
+    @Override
+    public Object remove(final long key)
+    {
+        int hash=hash(key);
+        Segment s=segmentFor(hash);
+
+        if( s.find(hash, key) == null) return null;
+
+        Entry removed;
+        s.lock();
+        try
+        {
+            removed=s.remove(hash, key);
+        }
+        finally
+        {
+            s.unlock();
+        }
+
+        if( removed == null) return null;
+
+        version.incrementAndGet();
+
+        return removed.value;
+    }
+
+    /**
+     * Removes all mappings from this map.
+     */
+    @Override
+    public void clear()
+    {
+        for( Segment s: segments)
+        {
+            s.lock();
+            try
+            {
+                s.clear();
+            }
+            finally
+            {
+                s.unlock();
+            }
+        }
+        version.incrementAndGet();
+        keyCache=null;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public long sizeOf()
+    {
+        long size = SIZE_OF; // this object
+        for( Segment s: segments)
+        {
+            size += Segment.SIZE_OF;
+            size += 16 + s.table.length() * 8L;
+            size += s.count * (long)Entry.SIZE_OF;
+        }
+
+        KeyCache cache=keyCache;
+        if( cache != null)
+        {
+            size += MemoryUtil.sizeOf(cache.keys);
+        }
+        return size;
+    }
+
+    /**
+     * Get the current key snapshot or build a new one.
+     *
+     * The snapshot is only cached when no change happened while the keys were collected.
+     */
+    private KeyCache snapshot()
+    {
+        long startVersion=version.get();
+        KeyCache cache=keyCache;
+        if( cache != null && cache.version == startVersion)
+        {
+            return cache;
+        }
+
+        long keys[]=collectKeys();
+        boolean sorted=isSorted(keys);
+
+        cache=new KeyCache(startVersion, keys, sorted);
+        if( version.get() == startVersion)
+        {
+            keyCache=cache;
+        }
+
+        return cache;
+    }
+
+    private static boolean isSorted( final long keys[])
+    {
+        long last=Long.MIN_VALUE;
+        for( long key: keys)
+        {
+            if( last > key)
+            {
+                return false;
+            }
+            last=key;
+        }
+
+        return true;
+    }
+
+    private long[] collectKeys()
+    {
+        int total=size();
+        if( total == 0) return EMPTY_KEYS;
+
+        long keys[]=new long[total];
+        int pos=0;
+        for( Segment s: segments)
+        {
+            AtomicReferenceArray<Entry> tab=s.table;
+            for( int i=0;i < tab.length();i++)
+            {
+                for (Entry e = tab.get(i); e != null; e = e.next)
+                {
+                    if( pos == keys.length)
+                    {
+                        keys=Arrays.copyOf(keys, keys.length * 2);
+                    }
+                    keys[pos]=e.key;
+                    pos++;
+                }
+            }
+        }
+
+        if( pos != keys.length)
+        {
+            keys=Arrays.copyOf(keys, pos);
+        }
+
+        return keys;
+    }
+
+    private static int hash( final long key)
+    {
+        int h = (int)(key ^ (key >>> 32));
+        h ^= (h >>> 20) ^ (h >>> 12);
+        return h ^ (h >>> 7) ^ (h >>> 4);
+    }
+
+    private Segment segmentFor( final int hash)
+    {
+        return segments[(hash >>> 16) & SEGMENT_MASK];
+    }
+
+    /**
+     * a snapshot of the keys at a version.
+     */
+    private static final class KeyCache
+    {
+        final long version;
+        final long keys[];
+        final boolean sorted;
+        volatile long keyData[][];
+
+        KeyCache( final long version, final long keys[], final boolean sorted)
+        {
+            this.version=version;
+            this.keys=keys;
+            this.sorted=sorted;
+        }
+    }
+
+    /**
+     * A independently locked part of the map. Readers see the table via volatile reads.
+     */
+    @SuppressWarnings("serial")
+    private static final class Segment extends ReentrantLock
+    {
+        static final int SIZE_OF=48;
+
+        volatile AtomicReferenceArray<Entry> table;
+        volatile int count;
+        private int threshold;
+
+        Segment( final int initialCapacity)
+        {
+            int capacity = 1;
+            while (capacity < initialCapacity)
+            {
+                capacity <<= 1;
+            }
+            setTable( new AtomicReferenceArray<Entry>(capacity));
+        }
+
+        private void setTable( final AtomicReferenceArray<Entry> newTable)
+        {
+            threshold = (int)(newTable.length() * HashLongMapFactory.LOAD_FACTOR);
+            table = newTable;
+        }
+
+        /**
+         * find the entry NO LOCKING
+         */
+        Entry find( final int hash, final long key)
+        {
+            if( count == 0) return null;
+
+            AtomicReferenceArray<Entry> tab=table;
+            for (Entry e = tab.get(hash & (tab.length() - 1)); e != null; e = e.next)
+            {
+                if( e.key == key)
+                {
+                    return e;
+                }
+            }
+
+            return null;
+        }
+
+        /**
+         * add a new entry. MUST BE LOCKED
+         */
+        void add( final int hash, final long key, final Object value)
+        {
+            if( count + 1 > threshold)
+            {
+                rehash();
+            }
+            AtomicReferenceArray<Entry> tab=table;
+            int index=hash & (tab.length() - 1);
+            tab.set(index, new Entry(hash, key, value, tab.get(index)));
+            count++;
+        }
+
+        /**
+         * remove the entry. MUST BE LOCKED
+         */
+        Entry remove( final int hash, final long key)
+        {
+            AtomicReferenceArray<Entry> tab=table;
+            int index=hash & (tab.length() - 1);
+            Entry first=tab.get(index);
+            Entry e = first;
+            while( e != null && e.key != key)
+            {
+                e=e.next;
+            }
+
+            if( e == null) return null;
+
+            /*
+             * The next links are final so readers walking the chain are not disturbed,
+             * copy the entries in front of the removed one.
+             */
+            Entry newFirst=e.next;
+            for( Entry p = first; p != e; p = p.next)
+            {
+                newFirst=new Entry(p.hash, p.key, p.value, newFirst);
+            }
+            tab.set(index, newFirst);
+            count--;
+
+            return e;
+        }
+
+        /**
+         * clear the segment. MUST BE LOCKED
+         */
+        void clear()
+        {
+            if( count != 0)
+            {
+                setTable( new AtomicReferenceArray<Entry>(table.length()));
+                count=0;
+            }
+        }
+
+        private void rehash()
+        {
+            AtomicReferenceArray<Entry> oldTable=table;
+            int oldCapacity=oldTable.length();
+            AtomicReferenceArray<Entry> newTable=new AtomicReferenceArray<>(oldCapacity << 1);
+            int mask=newTable.length() - 1;
+
+            for( int i=0;i < oldCapacity;i++)
+            {
+                for( Entry e = oldTable.get(i); e != null; e = e.next)
+                {
+                    int index=e.hash & mask;
+                    newTable.set(index, new Entry(e.hash, e.key, e.value, newTable.get(index)));
+                }
+            }
+
+            setTable( newTable);
+        }
+    }
+
+    /**
+     * HashMap collision list entry.
+     */
+    private static final class Entry
+    {
+        static final int SIZE_OF=40;
+
+        final int hash;
+        final long key;
+        volatile Object value;
+        final Entry next;
+
+        Entry(final int hash, final long key, final Object value, final Entry next)
+        {
+            this.hash = hash;
+            this.key = key;
+            this.value = value;
+            this.next = next;
+        }
+
+        /**
+         * @return the value
+         */
+        @Override @CheckReturnValue @Nonnull
+        public String toString()
+        {
+            return key+"="+value;
+        }
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ *  Copyright (c) 1998-2004 ASP Converters pty ltd
+ *
+ *  www.stSoftware.com.au
+ *
+ *  All Rights Reserved.
+ *
+ *  This software is the proprietary information of
+ *  ASP Converters Pty Ltd.
+ *  Use is subject to license terms.
+ */
+package com.aspc.remote.memory.internal;
+
+import com.aspc.remote.memory.EvictionPolicy;
+import javax.annotation.CheckReturnValue;
+import javax.annotation.Nonnull;
+
+/**
+ *  The original cache table policy, entries last accessed in the oldest part of the time window
+ *  between the first and last access of the table are released first.
+ *
+ *  <br>
+ *  <i>THREAD MODE: MULTI-THREADED memory management</i>
+ *
+ *  @author      Nigel Leck
+ *  @since       18 October 2026
+ */
+public final class AccessTimeEvictionPolicy extends EvictionPolicy
+{
+    /**
+     * The type of this policy.
+     * @return the type
+     */
+    @Override @CheckReturnValue @Nonnull
+    public Type getType()
+    {
+        return Type.ACCESS_TIME;
+    }
+
+    /**
+     * The cache table uses the access time window directly.
+     * @return false
+     */
+    @Override @CheckReturnValue
+    public boolean isRanked()
+    {
+        return false;
+    }
+
+    /**
+     * The entry has being accessed.
+     *
+     * @param hash the hash code of the key
+     * @param seconds the current time in seconds
+     * @return the access time.
+     */
+    @Override
+    public int access( final int hash, final int seconds)
+    {
+        return seconds & 0xfffe;
+    }
+
+    /**
+     * The rank of an entry
+     *
+     * @param hash the hash code of the key
+     * @param data the access time.
+     * @return the access time
+     */
+    @Override @CheckReturnValue
+    public long rank( final int hash, final int data)
+    {
+        return data & 0xfffe;
+    }
+}
@@ -0,0 +1,290 @@
+/*
+ *  Copyright (c) 1998-2004 ASP Converters pty ltd
+ *
+ *  www.stSoftware.com.au
+ *
+ *  All Rights Reserved.
+ *
+ *  This software is the proprietary information of
+ *  ASP Converters Pty Ltd.
+ *  Use is subject to license terms.
+ */
+package com.aspc.remote.memory.internal;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import javax.annotation.CheckReturnValue;
+import javax.annotation.Nonnull;
+
+/**
+ *  One independently locked segment of a cache table.
+ *
+ *  The table state is guarded by the segment's lock, the lock/contention counters are not.
+ *
+ *  <br>
+ *  <i>THREAD MODE: MULTI-THREADED memory management</i>
+ *
+ *  @author      Nigel Leck
+ *  @since       18 October 2026
+ */
+public final class CacheSegment
+{
+    private final ReentrantReadWriteLock rwLock=new ReentrantReadWriteLock(true);
+    private final int segmentNumber;
+
+    private Object[] data;
+    private int count;
+    private int unallocated;
+    private int estEmptyCount;
+    private int hashThreshold;
+    private int lastAccessed;
+    private int firstAccessed;
+
+    private final AtomicLong lockCount=new AtomicLong();
+    private final AtomicLong contendedCount=new AtomicLong();
+
+    /**
+     * create a new segment
+     * @param segmentNumber the position of this segment in the table.
+     */
+    public CacheSegment( final int segmentNumber)
+    {
+        this.segmentNumber=segmentNumber;
+    }
+
+    /**
+     * take the read lock.
+     * @return the lock taken
+     */
+    @Nonnull
+    public Lock readLock()
+    {
+        if( rwLock.isWriteLocked())
+        {
+            contendedCount.incrementAndGet();
+        }
+        return take( rwLock.readLock());
+    }
+
+    /**
+     * take the write lock.
+     * @return the lock taken
+     */
+    @Nonnull
+    public Lock writeLock()
+    {
+        if( rwLock.isWriteLocked() || rwLock.getReadLockCount() > 0)
+        {
+            contendedCount.incrementAndGet();
+        }
+        return take( rwLock.writeLock());
+    }
+
+    private Lock take( final Lock l)
+    {
+        lockCount.incrementAndGet();
+        l.lock();
+        return l;
+    }
+
+    /**
+     * The number of times this segment was locked.
+     * @return the count
+     */
+    public long getLockCount()
+    {
+        return lockCount.get();
+    }
+
+    /**
+     * The number of times a lock of this segment had to wait for another thread.
+     * @return the count
+     */
+    public long getContendedCount()
+    {
+        return contendedCount.get();
+    }
+    /**
+     * The position of this segment in the table.
+     * @return the segment number
+     */
+    @CheckReturnValue
+    public int getSegmentNumber()
+    {
+        return segmentNumber;
+    }
+
+    /**
+     * The data
+     * @return the value
+     */
+    @CheckReturnValue
+    public Object[] getData()
+    {
+        return data;
+    }
+
+    /**
+     * set the data
+     * @param data the new value
+     */
+    public void setData( final Object[] data)
+    {
+        this.data=data;
+    }
+
+    /**
+     * The count
+     * @return the value
+     */
+    @CheckReturnValue
+    public int getCount()
+    {
+        return count;
+    }
+
+    /**
+     * set the count
+     * @param count the new value
+     */
+    public void setCount( final int count)
+    {
+        this.count=count;
+    }
+
+    /**
+     * The number unallocated
+     * @return the value
+     */
+    @CheckReturnValue
+    public int getUnallocated()
+    {
+        return unallocated;
+    }
+
+    /**
+     * set the number unallocated
+     * @param unallocated the new value
+     */
+    public void setUnallocated( final int unallocated)
+    {
+        this.unallocated=unallocated;
+    }
+
+    /**
+     * The estimated empty count
+     * @return the value
+     */
+    @CheckReturnValue
+    public int getEstEmptyCount()
+    {
+        return estEmptyCount;
+    }
+
+    /**
+     * set the estimated empty count
+     * @param estEmptyCount the new value
+     */
+    public void setEstEmptyCount( final int estEmptyCount)
+    {
+        this.estEmptyCount=estEmptyCount;
+    }
+
+    /**
+     * The threshold to rehash
+     * @return the value
+     */
+    @CheckReturnValue
+    public int getHashThreshold()
+    {
+        return hashThreshold;
+    }
+
+    /**
+     * set the threshold to rehash
+     * @param hashThreshold the new value
+     */
+    public void setHashThreshold( final int hashThreshold)
+    {
+        this.hashThreshold=hashThreshold;
+    }
+
+    /**
+     * The time in seconds an element was last accessed
+     * @return the value
+     */
+    @CheckReturnValue
+    public int getLastAccessed()
+    {
+        return lastAccessed;
+    }
+
+    /**
+     * set the time in seconds an element was last accessed
+     * @param lastAccessed the new value
+     */
+    public void setLastAccessed( final int lastAccessed)
+    {
+        this.lastAccessed=lastAccessed;
+    }
+
+    /**
+     * The time in seconds an element was first accessed
+     * @return the value
+     */
+    @CheckReturnValue
+    public int getFirstAccessed()
+    {
+        return firstAccessed;
+    }
+
+    /**
+     * set the time in seconds an element was first accessed
+     * @param firstAccessed the new value
+     */
+    public void setFirstAccessed( final int firstAccessed)
+    {
+        this.firstAccessed=firstAccessed;
+    }
+
+    /**
+     * increment the count
+     */
+    public void incrementCount()
+    {
+        count++;
+    }
+
+    /**
+     * decrement the count
+     */
+    public void decrementCount()
+    {
+        count--;
+    }
+
+    /**
+     * increment the number unallocated
+     */
+    public void incrementUnallocated()
+    {
+        unallocated++;
+    }
+
+    /**
+     * decrement the number unallocated
+     */
+    public void decrementUnallocated()
+    {
+        unallocated--;
+    }
+
+    /**
+     * increment the estimated empty count
+     */
+    public void incrementEstEmptyCount()
+    {
+        estEmptyCount++;
+    }
+}
@@ -11,11 +11,14 @@
  */
 package com.aspc.remote.memory.internal;
 
+import com.aspc.remote.memory.EvictionPolicy;
 import com.aspc.remote.memory.MemoryHandler;
 import com.aspc.remote.memory.MemoryManager;
 import com.aspc.remote.util.misc.*;
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
 import javax.annotation.CheckReturnValue;
 import javax.annotation.Nonnegative;
 import javax.annotation.Nonnull;
@@ -27,6 +30,13 @@ import org.apache.commons.logging.Log;
  *
  *  Originated from two HashMap, one for weak references and one for hard references.
  *
+ *  The table is split into one or more independently locked segments. With one segment ( the default)
+ *  every access is serialized on the one lock, with more segments readers of one segment are not
+ *  blocked by writers of another and memory is freed one segment at a time.
+ *
+ *  The Memory Manager decides when and how much of the table is freed, the table's {@link EvictionPolicy}
+ *  decides which entries are released.
+ *
  *  <br>
  *  <i>THREAD MODE: MULTI-THREADED memory management</i>
  *
@@ -36,7 +46,8 @@ import org.apache.commons.logging.Log;
  */
 public abstract class CacheTableTemplate<V> implements MemoryHandler
 {
-    protected final ReentrantReadWriteLock rwLock=new ReentrantReadWriteLock(true);
+    /** the independently locked segments */
+    protected final CacheSegment segments[];
 
     /**
      * create a new cache table.
@@ -46,6 +57,22 @@ public abstract class CacheTableTemplate<V> implements MemoryHandler
      */
     public CacheTableTemplate( final @Nonnull String description, final @Nonnull Cost theCost)
     {
+        this( description, theCost, 1);
+    }
+
+    /**
+     * create a new cache table.
+     *
+     * @param description the description of the cache table.
+     * @param theCost the relative cost of this cache table.
+     * @param segmentCount the number of independently locked segments ( rounded up to a power of 2)
+     */
+    public CacheTableTemplate( final @Nonnull String description, final @Nonnull Cost theCost, final @Nonnegative int segmentCount)
+    {
+        if( segmentCount < 1 || segmentCount > MAX_SEGMENTS)
+        {
+            throw new IllegalArgumentException( "segment count must be 1 to " + MAX_SEGMENTS + " was: " + segmentCount);
+        }
         this.description = description;
 
         cost = theCost;
@@ -54,11 +81,49 @@ public abstract class CacheTableTemplate<V> implements MemoryHandler
             cost = Cost.HIGHEST;
         }
 
-        hashThreshold = (int)(INITIAL_CAPACITY * LOAD_FACTOR);
+        int tempCount = 1;
+        while( tempCount < segmentCount)
+        {
+            tempCount <<= 1;
+        }
+
+        segments = new CacheSegment[tempCount];
+        for( int i = 0; i < tempCount; i++)
+        {
+            segments[i] = new CacheSegment( i);
+        }
 
         setAverageSize(100);
     }
 
+    /**
+     * The number of independently locked segments.
+     *
+     * @return the segment count
+     */
+    @CheckReturnValue @Nonnegative
+    public final int getSegmentCount()
+    {
+        return segments.length;
+    }
+
+    /**
+     * The total number of times a lock had to wait for another thread.
+     *
+     * @return the count
+     */
+    @CheckReturnValue @Nonnegative
+    public final long getContendedCount()
+    {
+        long total = 0;
+        for( CacheSegment s: segments)
+        {
+            total += s.getContendedCount();
+        }
+
+        return total;
+    }
+
     /**
      * The default behavior of a cache table is to not release objects that are
      * still referred to elsewhere in the system when release memory is called.
@@ -87,47 +152,91 @@ public abstract class CacheTableTemplate<V> implements MemoryHandler
     }
 
     /**
+     * sets the policy that picks which entries are released when memory is freed.
+     *
+     * @param policy the eviction policy
+     */
+    public final void setEvictionPolicy( final @Nonnull EvictionPolicy policy)
+    {
+        if( policy == null) throw new IllegalArgumentException( "policy is mandatory");
+        evictionPolicy = policy;
+    }
+
+    /**
+     * The policy that picks which entries are released when memory is freed.
+     *
+     * @return the eviction policy
+     */
+    @CheckReturnValue @Nonnull
+    public final EvictionPolicy getEvictionPolicy()
+    {
+        return evictionPolicy;
+    }
+
+    /**
+     * Examine every entry and report each segment's distribution and lock contention.
      *
      * @param collector the collector
      */
     public void stats( final @Nullable StatsCollector collector)
     {
-        Lock l = rwLock.readLock();
-        l.lock();
-        try
+        for( CacheSegment s: segments)
         {
-            InterfaceEntry tmpData[]=(InterfaceEntry[]) data;
-            if( tmpData == null) return;
-
             int tmpCount = 0,
                 blank = 0,
                 multi = 0,
-                max = 0;
+                max = 0,
+                len;
 
-            for (int i = tmpData.length ; i-- > 0 ;)
+            Lock l = s.readLock();
+            try
             {
-                int c = 0;
-                for (InterfaceEntry e = tmpData[i] ; e != null ; e = e.next())
+                InterfaceEntry tmpData[]=(InterfaceEntry[]) s.getData();
+                if( tmpData == null) continue;
+
+                len = tmpData.length;
+                for (int i = tmpData.length ; i-- > 0 ;)
                 {
-                    if( collector != null) collector.examine(e);
-                    c++;
-                    tmpCount++;
+                    int c = 0;
+                    for (InterfaceEntry e = tmpData[i] ; e != null ; e = e.next())
+                    {
+                        if( collector != null) collector.examine(e);
+                        c++;
+                        tmpCount++;
+                    }
+
+                    if( c == 0) blank++;
+                    if( c > 1) multi++;
+
+                    if( c > max) max = c;
                 }
+            }
+            finally
+            {
+                l.unlock();
+            }
 
-                if( c == 0) blank++;
-                if( c > 1) multi++;
+            long locks = s.getLockCount();
+            long contended = s.getContendedCount();
 
-                if( c > max) max = c;
+            if( collector instanceof SegmentStatsCollector)
+            {
+                ((SegmentStatsCollector)collector).examineSegment( s.getSegmentNumber(), tmpCount, len, locks, contended);
             }
 
             if( LOGGER.isDebugEnabled())
             {
-                LOGGER.debug( description + ", count=" + tmpCount + ", blank=" + blank+ ", max=" + max+ ", multi=" + multi + ", len=" + tmpData.length );
+                LOGGER.debug(
+                    description + ( segments.length > 1 ? " segment " + s.getSegmentNumber() : "") +
+                    ", count=" + tmpCount + ", blank=" + blank+ ", max=" + max+ ", multi=" + multi + ", len=" + len +
+                    ", locks=" + locks + ", contended=" + contended
+                );
             }
         }
-        finally
+
+        if( LOGGER.isDebugEnabled())
         {
-            l.unlock();
+            LOGGER.debug( description + " policy=" + evictionPolicy);
         }
     }
 
@@ -159,19 +268,23 @@ public abstract class CacheTableTemplate<V> implements MemoryHandler
      * @return the number of key-value mappings in this map.
      */
     @CheckReturnValue @Nonnegative
-    public final int size()
+    public int size()
     {
-        Lock l = rwLock.readLock();
-        l.lock();
-
-        try
-        {
-            return count;
-        }
-        finally
+        int total = 0;
+        for( CacheSegment s: segments)
         {
-            l.unlock();
+            Lock l = s.readLock();
+            try
+            {
+                total += s.getCount();
+            }
+            finally
+            {
+                l.unlock();
+            }
         }
+
+        return total;
     }
 
     /**
@@ -182,17 +295,21 @@ public abstract class CacheTableTemplate<V> implements MemoryHandler
     @CheckReturnValue @Nonnegative
     public final int getHardLinkCount()
     {
-        Lock l = rwLock.readLock();
-        l.lock();
-
-        try
+        int total = 0;
+        for( CacheSegment s: segments)
         {
-            return count - unallocated;
-        }
-        finally
-        {
-            l.unlock();
+            Lock l = s.readLock();
+            try
+            {
+                total += s.getCount() - s.getUnallocated();
+            }
+            finally
+            {
+                l.unlock();
+            }
         }
+
+        return total;
     }
 
     /**
@@ -203,17 +320,7 @@ public abstract class CacheTableTemplate<V> implements MemoryHandler
     @CheckReturnValue
     public final boolean isEmpty()
     {
-        Lock l = rwLock.readLock();
-        l.lock();
-
-        try
-        {
-            return count == 0;
-        }
-        finally
-        {
-            l.unlock();
-        }
+        return size() == 0;
     }
 
     /**
@@ -227,38 +334,40 @@ public abstract class CacheTableTemplate<V> implements MemoryHandler
     @CheckReturnValue
     public final boolean containsValue( final @Nonnull V value)
     {
-        Lock l = rwLock.readLock();
-        l.lock();
-
-        try
+        for( CacheSegment s: segments)
         {
-            if( data == null) return false;
+            Lock l = s.readLock();
 
-            for (int i = data.length ; i-- > 0 ;)
+            try
             {
-                for (InterfaceEntry e = (InterfaceEntry)data[i] ; e != null ; e = e.next())
-                {
-                    Object temp = e.get();
+                if( s.getData() == null) continue;
 
-                    if( temp == null)
+                for (int i = s.getData().length ; i-- > 0 ;)
+                {
+                    for (InterfaceEntry e = (InterfaceEntry)s.getData()[i] ; e != null ; e = e.next())
                     {
-                        estEmptyCount++;
+                        Object temp = e.get();
 
-                        checkRegister();
-                    }
-                    else if (value.equals( temp))
-                    {
-                        return true;
+                        if( temp == null)
+                        {
+                            s.incrementEstEmptyCount();
+
+                            checkRegister();
+                        }
+                        else if (value.equals( temp))
+                        {
+                            return true;
+                        }
                     }
                 }
             }
-
-            return false;
-        }
-        finally
-        {
-            l.unlock();
+            finally
+            {
+                l.unlock();
+            }
         }
+
+        return false;
     }
 
     /**
@@ -266,22 +375,21 @@ public abstract class CacheTableTemplate<V> implements MemoryHandler
      */
     public final void clear()
     {
-        Lock l = rwLock.writeLock();
-        l.lock();
-
-        try
+        for( CacheSegment s: segments)
         {
-            data = createArray( INITIAL_CAPACITY);
-            estEmptyCount = 0;
-            count = 0;
-            unallocated = 0;
+            Lock l = s.writeLock();
 
-            checkRegister();
-        }
-        finally
-        {
-            l.unlock();
+            try
+            {
+                clearSegment( s);
+            }
+            finally
+            {
+                l.unlock();
+            }
         }
+
+        cleared();
     }
 
     /**
@@ -292,17 +400,22 @@ public abstract class CacheTableTemplate<V> implements MemoryHandler
     @Override @CheckReturnValue
     public final long getLastAccessed()
     {
-        Lock l = rwLock.readLock();
-        l.lock();
-
-        try
+        int max = 0;
+        for( CacheSegment s: segments)
         {
-            return lastAccessed * 1000L;
-        }
-        finally
-        {
-            l.unlock();
+            Lock l = s.readLock();
+
+            try
+            {
+                if( s.getLastAccessed() > max) max = s.getLastAccessed();
+            }
+            finally
+            {
+                l.unlock();
+            }
         }
+
+        return max * 1000L;
     }
 
     /**
@@ -313,16 +426,8 @@ public abstract class CacheTableTemplate<V> implements MemoryHandler
     public final void setAverageSize( final @Nonnegative int size)
     {
         if( size<1)throw new IllegalArgumentException("average size must be positive: " + size);
-        Lock l = rwLock.writeLock();
-        l.lock();
-        try
-        {
-            averageSize = size;
-        }
-        finally
-        {
-            l.unlock();
-        }
+
+        averageSize = size;
     }
 
     /**
@@ -333,16 +438,7 @@ public abstract class CacheTableTemplate<V> implements MemoryHandler
     @CheckReturnValue @Nonnegative
     public final int getAverageSize()
     {
-        Lock l = rwLock.readLock();
-        l.lock();
-        try
-        {
-            return averageSize;
-        }
-        finally
-        {
-            l.unlock();
-        }
+        return averageSize;
     }
 
     /**
@@ -362,39 +458,23 @@ public abstract class CacheTableTemplate<V> implements MemoryHandler
      * @return the estimated size in bytes
      */
     @Override @CheckReturnValue @Nonnegative
-    public final long getEstimatedSize()
+    public long getEstimatedSize()
     {
-        Lock l = rwLock.readLock();
-        l.lock();
-        try
+        long size = 0;
+        for( CacheSegment s: segments)
         {
-            if( data == null) return 0;
-
-            long size = 0;
-
-            long elementSize = count * OVERHEAD_ELEMENT;
-            size += elementSize;
-
-            long arraySize = data.length * MemoryUtil.sizeOfPointer();
-            size += arraySize;
-
-            int temp = count - unallocated;
-
-            long dataSize = 0;
-
-            if( temp > 0)
+            Lock l = s.readLock();
+            try
             {
-                dataSize = (long)temp * (long)averageSize;
+                size += estimatedSize( s);
+            }
+            finally
+            {
+                l.unlock();
             }
-
-            size += dataSize;
-            assert size>=0: "negative size: " + size + " ( count=" + count + ")";
-            return size;
-        }
-        finally
-        {
-            l.unlock();
         }
+
+        return size;
     }
 
     /**
@@ -434,275 +514,477 @@ public abstract class CacheTableTemplate<V> implements MemoryHandler
     public final long queuedFreeMemory( final double requiredPercent)
     {
         assert requiredPercent>0 && requiredPercent<=1: "invalid percentage: " + requiredPercent;
-        Lock l = rwLock.writeLock();
-        l.lock();
-        try
-        {
-            long orginalSize = getEstimatedSize();
 
-            if( orginalSize == 0) return 0;
+        long releasedSize = 0;
 
-            /**
-             * If the programmer has specified that we don't care about whether these
-             * objects are referenced else where and it is more than 90% to be freed
-             * then just clear the whole table.
-             */
-            if( mayReleaseReferences && requiredPercent > 0.9)
+        /*
+         * Walk the segments one at a time so only the readers of the segment being
+         * cleared are blocked.
+         */
+        for( CacheSegment s: segments)
+        {
+            Lock l = s.writeLock();
+            try
             {
-                clear();
-
-                return orginalSize;
+                releasedSize += freeSegment( s, requiredPercent);
+            }
+            finally
+            {
+                l.unlock();
             }
+        }
 
-            int holder = count;
+        return releasedSize;
+    }
 
-            int reqCleared = count;
-            int remaining = count;
-            int previouslyAllocated = count - unallocated;
+    /**
+     * Free the memory of one segment.
+     *
+     * THREAD MODE: MUST HOLD THE SEGMENT'S WRITE LOCK
+     *
+     * @param s the segment
+     * @param requiredPercent The memory to free
+     *
+     * @return The estimate amount of memory released.
+     */
+    private long freeSegment( final CacheSegment s, final double requiredPercent)
+    {
+        long orginalSize = estimatedSize( s);
 
-            unallocated = 0;
+        if( orginalSize == 0) return 0;
 
-            int lowerLimit = lastAccessed;
-            int tempFirstAccess = (int)(MemoryManager.lastTick()/1000L);
+        /**
+         * If the programmer has specified that we don't care about whether these
+         * objects are referenced else where and it is more than 90% to be freed
+         * then just clear the whole table.
+         */
+        if( mayReleaseReferences && requiredPercent > 0.9)
+        {
+            releaseSegment( s);
+            clearSegment( s);
 
-            int freed = 0;
+            return orginalSize;
+        }
 
-            /**
-             * We found a deadlock when writing out to the log file ( conflict with the
-             * print of a validation exception message where the toString() method resulted
-             * in a fetch)
-             */
-            if( requiredPercent != 1)
-            {
-                int diff = (int)(( lastAccessed - firstAccessed ) * requiredPercent);
+        int holder = s.getCount();
 
-                lowerLimit = firstAccessed + diff + 1;
+        int reqCleared = s.getCount();
+        int remaining = s.getCount();
+        int previouslyAllocated = s.getCount() - s.getUnallocated();
 
-                int objCleared = (int)(previouslyAllocated * requiredPercent);
+        s.setUnallocated( 0);
 
-                /**
-                 * Take into account the size of the data array
-                 */
-                int arrayCleared;
+        int lowerLimit = s.getLastAccessed();
+        int tempFirstAccess = (int)(MemoryManager.lastTick()/1000L);
 
-                arrayCleared = (int)Math.round((data.length * MemoryUtil.sizeOfPointer() )/(double)getAverageSize() * requiredPercent);
+        int freed = 0;
 
-                /**
-                 * Take into account the element overhead
-                 */
-                int overheadCleared;
+        /**
+         * We found a deadlock when writing out to the log file ( conflict with the
+         * print of a validation exception message where the toString() method resulted
+         * in a fetch)
+         */
+        if( requiredPercent != 1)
+        {
+            int diff = (int)(( s.getLastAccessed() - s.getFirstAccessed() ) * requiredPercent);
 
-                overheadCleared = (int)Math.round((count * OVERHEAD_ELEMENT)/(getAverageSize() * requiredPercent));
+            lowerLimit = s.getFirstAccessed() + diff + 1;
 
-                reqCleared = objCleared + arrayCleared + overheadCleared;
+            int objCleared = (int)(previouslyAllocated * requiredPercent);
 
-                /**
-                 * If you have asked me to release some memory
-                 * make sure that we release at least one.
-                 */
-                if( reqCleared == 0 && requiredPercent > 0.0)
-                {
-                    reqCleared = 1;
-                }
+            /**
+             * Take into account the size of the data array
+             */
+            int arrayCleared;
+
+            arrayCleared = (int)Math.round((s.getData().length * MemoryUtil.sizeOfPointer() )/(double)getAverageSize() * requiredPercent);
+
+            /**
+             * Take into account the element overhead
+             */
+            int overheadCleared;
+
+            overheadCleared = (int)Math.round((s.getCount() * OVERHEAD_ELEMENT)/(getAverageSize() * requiredPercent));
+
+            reqCleared = objCleared + arrayCleared + overheadCleared;
+
+            /**
+             * If you have asked me to release some memory
+             * make sure that we release at least one.
+             */
+            if( reqCleared == 0 && requiredPercent > 0.0)
+            {
+                reqCleared = 1;
             }
+        }
 
-            if( mayReleaseReferences)
+        EvictionPolicy policy = evictionPolicy;
+        if( policy.isRanked())
+        {
+            policy.ensureCapacity( s.getCount() * segments.length);
+            freed = freeRanked( s, policy, reqCleared);
+        }
+        else if( mayReleaseReferences)
+        {
+            for (int i = s.getData().length ; i-- > 0; )
             {
-                for (int i = data.length ; i-- > 0; )
-                {
-                    InterfaceEntry prev = null;
+                InterfaceEntry prev = null;
 
-                    for (InterfaceEntry e = (InterfaceEntry)data[i] ; e != null; e = e.next(), remaining--)
+                for (InterfaceEntry e = (InterfaceEntry)s.getData()[i] ; e != null; e = e.next(), remaining--)
+                {
+                    /**
+                     * Need to maintain the unallocated to keep and actuate estimate.
+                     */
+                    if( freed >= reqCleared)
                     {
-                        /**
-                         * Need to maintain the unallocated to keep and actuate estimate.
-                         */
-                        if( freed >= reqCleared)
+                        if( e.hasHardReference() == false)
                         {
-                            if( e.hasHardReference() == false)
-                            {
-                                unallocated++;
-                            }
+                            s.incrementUnallocated();
                         }
-                        else
-                        {
-                            int tempAccess = e.getData() & 0xfffe;
+                    }
+                    else
+                    {
+                        int tempAccess = e.getData() & 0xfffe;
 
-                            /**
-                             * 1) If the the minimum required to be cleared is more then the remaining elements then clear.
-                             * 2) If the last access time of this element is less than the lower limit then clear and we haven't cleared
-                             *    too many already.
-                             */
-                            if(
-                                reqCleared >= remaining + freed     ||
-                                (
-                                    tempAccess <= lowerLimit &&
-                                    reqCleared > freed
-                                )
+                        /**
+                         * 1) If the the minimum required to be cleared is more then the remaining elements then clear.
+                         * 2) If the last access time of this element is less than the lower limit then clear and we haven't cleared
+                         *    too many already.
+                         */
+                        if(
+                            reqCleared >= remaining + freed     ||
+                            (
+                                tempAccess <= lowerLimit &&
+                                reqCleared > freed
                             )
-                            {
-                                removeElement( e, i, prev, false);
-                                freed++;
+                        )
+                        {
+                            removeElement( s, e, i, prev, false);
+                            freed++;
 
-                                continue;
-                            }
+                            continue;
+                        }
 
-                            /**
-                             * If we are going to keep this record then
-                             * record the first access time
-                             */
-                            if( tempAccess < tempFirstAccess)
-                            {
-                                tempFirstAccess = tempAccess;
-                            }
+                        /**
+                         * If we are going to keep this record then
+                         * record the first access time
+                         */
+                        if( tempAccess < tempFirstAccess)
+                        {
+                            tempFirstAccess = tempAccess;
                         }
-                        prev = e;
                     }
+                    prev = e;
                 }
             }
-            else
+        }
+        else
+        {
+            for (int i = s.getData().length ; i-- > 0; )
             {
-                for (int i = data.length ; i-- > 0; )
-                {
-                    InterfaceEntry prev = null;
+                InterfaceEntry prev = null;
 
-                    for (InterfaceEntry e = (InterfaceEntry)data[i] ; e != null; e = e.next(), remaining--)
+                for (InterfaceEntry e = (InterfaceEntry)s.getData()[i] ; e != null; e = e.next(), remaining--)
+                {
+                    /**
+                     * Need to maintain the unallocated to keep and actuate estimate.
+                     */
+                    if( freed >= reqCleared)
                     {
-                        /**
-                         * Need to maintain the unallocated to keep and actuate estimate.
-                         */
-                        if( freed >= reqCleared)
+                        if( e.hasHardReference() == false)
                         {
-                            if( e.hasHardReference() == false)
-                            {
-                                unallocated++;
-                            }
+                            s.incrementUnallocated();
                         }
-                        else
+                    }
+                    else
+                    {
+                        boolean flag = false;
+                        boolean hasHardLink = e.hasHardReference();
+                        boolean mustKeep = false;
+                        if( hasHardLink )
                         {
-                            boolean flag = false;
-                            boolean hasHardLink = e.hasHardReference();
-                            boolean mustKeep = false;
-                            if( hasHardLink )
+                            /**
+                             * 1) If the the minimum required to be cleared is more then the remaining elements then clear.
+                             * 2) If the last access time of this element is less than the lower limit then clear and we haven't cleared
+                             *    too many already.
+                             */
+                            if( e instanceof CacheEntry)
                             {
-                                /**
-                                 * 1) If the the minimum required to be cleared is more then the remaining elements then clear.
-                                 * 2) If the last access time of this element is less than the lower limit then clear and we haven't cleared
-                                 *    too many already.
-                                 */
-                                if( e instanceof CacheEntry)
+                                if(reqCleared >= remaining + freed )
                                 {
-                                    if(reqCleared >= remaining + freed )
+                                    flag = true;
+
+                                    ((CacheEntry)e).hardReference=null;
+                                }
+                                else
+                                {
+                                    int tempAccess = e.getData() & 0xfffe;
+
+                                    if(
+                                        tempAccess <= lowerLimit &&
+                                        reqCleared > freed
+                                    )
                                     {
                                         flag = true;
-
                                         ((CacheEntry)e).hardReference=null;
                                     }
                                     else
                                     {
-                                        int tempAccess = e.getData() & 0xfffe;
-
-                                        if(
-                                            tempAccess <= lowerLimit &&
-                                            reqCleared > freed
-                                        )
-                                        {
-                                            flag = true;
-                                            ((CacheEntry)e).hardReference=null;
-                                        }
-                                        else
+                                        mustKeep = true;
+                                        /**
+                                         * If we are going to keep this record then
+                                         * record the first access time
+                                         */
+                                        if( tempAccess < tempFirstAccess)
                                         {
-                                            mustKeep = true;
-                                            /**
-                                             * If we are going to keep this record then
-                                             * record the first access time
-                                             */
-                                            if( tempAccess < tempFirstAccess)
-                                            {
-                                                tempFirstAccess = tempAccess;
-                                            }
+                                            tempFirstAccess = tempAccess;
                                         }
                                     }
                                 }
                             }
+                        }
 
-                            if( mustKeep == false)
-                            {
-                                Object temp = e.get();
+                        if( mustKeep == false)
+                        {
+                            Object temp = e.get();
 
-                                if( temp == null)
-                                {
-                                    removeElement( e, i, prev, false);
+                            if( temp == null)
+                            {
+                                removeElement( s, e, i, prev, false);
 
-                                    if( hasHardLink) freed++;
+                                if( hasHardLink) freed++;
 
-                                    continue;
-                                }
-                                else
+                                continue;
+                            }
+                            else
+                            {
+                                if( flag)
                                 {
-                                    if( flag)
-                                    {
-                                        freed++;
-                                    }
+                                    freed++;
+                                }
 
-                                    if( flag || hasHardLink == false)
-                                    {
-                                        unallocated++;
-                                    }
+                                if( flag || hasHardLink == false)
+                                {
+                                    s.incrementUnallocated();
                                 }
                             }
                         }
-                        prev = e;
                     }
+                    prev = e;
                 }
             }
+        }
 
-            estEmptyCount = 0;
-            checkRegister();
+        policy.recordEviction( freed);
+        s.setEstEmptyCount( 0);
+        checkRegister();
 
-            /**
-             * We may not clear all of the elements under the limit but make sure first accessed is set to the lower
-             * limit so that it is evenly distributed.
-             */
-            firstAccessed = tempFirstAccess;
-            if( firstAccessed < lowerLimit) firstAccessed = lowerLimit;
+        /**
+         * We may not clear all of the elements under the limit but make sure first accessed is set to the lower
+         * limit so that it is evenly distributed.
+         */
+        s.setFirstAccessed( tempFirstAccess);
+        if( s.getFirstAccessed() < lowerLimit) s.setFirstAccessed( lowerLimit);
 
-            long currentSize = getEstimatedSize();
-            long releasedSize = orginalSize - currentSize;
-            if( releasedSize <= 0)
+        long currentSize = estimatedSize( s);
+        long releasedSize = orginalSize - currentSize;
+        if( releasedSize <= 0)
+        {
+            releasedSize = freed * averageSize;
+        }
+
+        if( releasedSize != 0 && LOGGER.isDebugEnabled())
+        {
+            String freedStr = NUMBER_FORMAT.format( freed);
+
+            String holderStr = NUMBER_FORMAT.format( holder);
+
+            double percentCleared = (double)releasedSize/(double)orginalSize;
+
+            String percentStr = PERCENT_FORMAT.format( percentCleared);
+            String requiredStr = PERCENT_FORMAT.format( requiredPercent);
+
+            String previouslyAllocatedStr = NUMBER_FORMAT.format( previouslyAllocated);
+
+            if( LOGGER.isDebugEnabled())
             {
-                releasedSize = freed * averageSize;
+                LOGGER.debug(
+                    "Cleared " + description + ( segments.length > 1 ? " segment " + s.getSegmentNumber() : "") + " cost: " + cost + " unlinked: " + freedStr +
+                    " of " + previouslyAllocatedStr + "(" + holderStr + ") required: " + requiredStr +
+                    " Released: " + NumUtil.convertMemoryToHumanReadable( releasedSize)+ " " + percentStr
+                );
             }
+        }
+
+        return releasedSize;
+    }
 
-            if( releasedSize != 0 && LOGGER.isDebugEnabled())
+    /**
+     * Release the lowest ranked entries of one segment.
+     *
+     * THREAD MODE: MUST HOLD THE SEGMENT'S WRITE LOCK
+     *
+     * @param s the segment
+     * @param policy the policy that ranks the entries
+     * @param reqCleared the number of entries to release
+     *
+     * @return the number released.
+     */
+    private int freeRanked( final CacheSegment s, final EvictionPolicy policy, final int reqCleared)
+    {
+        /*
+         * The ranks are calculated once, a relative rank changes as other segments are accessed.
+         */
+        long ranks[] = new long[s.getCount()];
+        int candidates = 0;
+        for (int i = s.getData().length ; i-- > 0; )
+        {
+            for (InterfaceEntry e = (InterfaceEntry)s.getData()[i] ; e != null; e = e.next())
             {
-                String freedStr = NUMBER_FORMAT.format( freed);
+                if( isCandidate( e))
+                {
+                    ranks[candidates++] = policy.rank( e.hashCode(), e.getData());
+                }
+            }
+        }
 
-                String holderStr = NUMBER_FORMAT.format( holder);
+        long threshold = Long.MAX_VALUE;
+        if( reqCleared < candidates)
+        {
+            long sorted[] = Arrays.copyOf( ranks, candidates);
+            Arrays.sort( sorted);
+            threshold = sorted[reqCleared - 1];
+        }
 
-                double percentCleared = (double)releasedSize/(double)orginalSize;
+        int freed = 0;
+        int pos = 0;
+        for (int i = s.getData().length ; i-- > 0; )
+        {
+            InterfaceEntry prev = null;
+            InterfaceEntry next;
 
-                String percentStr = PERCENT_FORMAT.format( percentCleared);
-                String requiredStr = PERCENT_FORMAT.format( requiredPercent);
+            for (InterfaceEntry e = (InterfaceEntry)s.getData()[i] ; e != null; e = next)
+            {
+                next = e.next();
+
+                boolean release = false;
+                if( isCandidate( e))
+                {
+                    release = freed < reqCleared && ranks[pos++] <= threshold;
+                }
+
+                if( mayReleaseReferences)
+                {
+                    if( release)
+                    {
+                        removeElement( s, e, i, prev, false);
+                        freed++;
+                        continue;
+                    }
+                }
+                else
+                {
+                    if( release)
+                    {
+                        ((CacheEntry)e).hardReference=null;
+                        freed++;
+                    }
 
-                String previouslyAllocatedStr = NUMBER_FORMAT.format( previouslyAllocated);
+                    if( e.hasHardReference() == false && e.get() == null)
+                    {
+                        removeElement( s, e, i, prev, false);
+                        continue;
+                    }
+                }
 
-                if( LOGGER.isDebugEnabled())
+                if( e.hasHardReference() == false)
                 {
-                    LOGGER.debug(
-                        "Cleared " + description + " cost: " + cost + " unlinked: " + freedStr +
-                        " of " + previouslyAllocatedStr + "(" + holderStr + ") required: " + requiredStr +
-                        " Released: " + NumUtil.convertMemoryToHumanReadable( releasedSize)+ " " + percentStr
-                    );
+                    s.incrementUnallocated();
                 }
+                prev = e;
             }
+        }
+
+        return freed;
+    }
+
+    /**
+     * May this entry be released ?
+     */
+    private boolean isCandidate( final InterfaceEntry e)
+    {
+        if( mayReleaseReferences) return true;
 
-            return releasedSize;
+        return e instanceof CacheEntry && e.hasHardReference();
+    }
+
+    /**
+     * Make room for a new entry when the eviction policy has a maximum size. The maximum is split
+     * evenly between the segments, when the segment is full the lowest ranked of a small random sample
+     * of entries is the victim and the policy decides if the new entry replaces it. Sampling keeps the
+     * cost of an insert independent of the segment size.
+     *
+     * THREAD MODE: MUST HOLD THE SEGMENT'S WRITE LOCK
+     *
+     * @param s the segment
+     * @param hash the hash code of the key of the new entry
+     *
+     * @return true if the new entry should be added.
+     */
+    protected final boolean admit( final CacheSegment s, final int hash)
+    {
+        EvictionPolicy policy = evictionPolicy;
+        int max = policy.getMaximumSize();
+        if( max <= 0 || policy.isRanked() == false) return true;
+
+        int segmentMax = Math.max( 1, ( max + segments.length - 1) / segments.length);
+        if( s.getCount() < segmentMax) return true;
+
+        InterfaceEntry victim = null;
+        InterfaceEntry victimPrev = null;
+        int victimPos = 0;
+        long victimRank = Long.MAX_VALUE;
+        Object data[] = s.getData();
+        int length = data.length;
+        int start = ThreadLocalRandom.current().nextInt( length);
+        int sampled = 0;
+        for( int probe = 0; probe < length && sampled < ADMIT_SAMPLE_SIZE; probe++)
+        {
+            /* a sparse table may need more probes, stop once there is a victim */
+            if( probe >= ADMIT_MAX_PROBES && victim != null) break;
+            int i = ( start + probe) % length;
+            InterfaceEntry prev = null;
+            for (InterfaceEntry e = (InterfaceEntry)data[i] ; e != null; e = e.next())
+            {
+                if( isCandidate( e))
+                {
+                    sampled++;
+                    long rank = policy.rank( e.hashCode(), e.getData());
+                    if( victim == null || rank < victimRank)
+                    {
+                        victim = e;
+                        victimPrev = prev;
+                        victimPos = i;
+                        victimRank = rank;
+                    }
+                }
+                prev = e;
+            }
         }
-        finally
+
+        /* nothing can be released, don't block the new entry */
+        if( victim == null) return true;
+
+        if( policy.admit( hash, victim.hashCode()) == false)
         {
-            l.unlock();
+            policy.recordRejection();
+            return false;
         }
+
+        removeElement( s, victim, victimPos, victimPrev, victim.hasHardReference() == false);
+        policy.recordEviction( 1);
+
+        return true;
     }
 
     /**
@@ -710,25 +992,28 @@ public abstract class CacheTableTemplate<V> implements MemoryHandler
      */
     public void compact()
     {
-        Lock l = rwLock.writeLock();
-        l.lock();
-        try
+        for( CacheSegment s: segments)
         {
-            InterfaceEntry oldArray[] = (InterfaceEntry[])data;
+            Lock l = s.writeLock();
+            try
+            {
+                InterfaceEntry oldArray[] = (InterfaceEntry[])s.getData();
 
-            int newCapacity = (int)(count * LOAD_FACTOR) + 1;
+                int newCapacity = (int)(s.getCount() * LOAD_FACTOR) + 1;
 
-            if( newCapacity < INITIAL_CAPACITY) newCapacity = INITIAL_CAPACITY;
+                int minCapacity = initialCapacity();
+                if( newCapacity < minCapacity) newCapacity = minCapacity;
 
-            if( newCapacity < oldArray.length)
+                if( newCapacity < oldArray.length)
+                {
+                    copyData( s, oldArray, newCapacity);
+                }
+            }
+            finally
             {
-                copyData( oldArray, newCapacity);
+                l.unlock();
             }
         }
-        finally
-        {
-            l.unlock();
-        }
     }
 
     /**
@@ -739,20 +1024,13 @@ public abstract class CacheTableTemplate<V> implements MemoryHandler
     public final long tidyUp()
     {
         double percent=0.05;
-        Lock l = rwLock.readLock();
-        l.lock();
-        try
-        {
-            registeredForTidyUp = false;
+
+        registeredForTidyUp.set( false);
 
 //            percent = (double)conservativeCount/(double)count;
 //
 //            if( conservativeCount > 0 && percent < 0.01) percent = 0.01;
-        }
-        finally
-        {
-            l.unlock();
-        }
+
         return queuedFreeMemory( percent);
     }
 
@@ -760,26 +1038,150 @@ public abstract class CacheTableTemplate<V> implements MemoryHandler
      * PROTECTED/PRIVATE METHODS EXPECT LOCKS TO ALREADY TO BE TAKEN.
      *========================================================================*/
 
+    /**
+     * The table has been cleared, sub classes that hold data elsewhere should clear it too.
+     */
+    protected void cleared()
+    {
+    }
+
+    /**
+     * The entry has been taken off the heap table, sub classes that track which keys are on the heap
+     * should update their tracking. Not called when the whole table is cleared.
+     *
+     * @param e the entry released.
+     */
+    protected void released( final @Nonnull InterfaceEntry e)
+    {
+    }
+
     /**
      * tidy up
      */
     protected void tidyUpRequired( )
     {
-        if( registeredForTidyUp == false)
+        if( registeredForTidyUp.compareAndSet( false, true))
         {
-            registeredForTidyUp = true;
             EuthanasiaManager.register( this);
         }
     }
 
     /**
+     * The segment for this hash code.
+     *
+     * @param hash the hash code
+     * @return the segment
+     */
+    @CheckReturnValue @Nonnull
+    protected final CacheSegment segmentFor( final int hash)
+    {
+        if( segments.length == 1) return segments[0];
+
+        int h = hash ^ (hash >>> 16);
+        return segments[h & (segments.length - 1)];
+    }
+
+    /**
+     * allocate the data arrays of all segments.
+     */
+    protected final void allocateSegments()
+    {
+        int capacity = initialCapacity();
+        for( CacheSegment s: segments)
+        {
+            s.setData( createArray( capacity));
+            s.setHashThreshold( (int)(capacity * LOAD_FACTOR));
+        }
+    }
+
+    /**
+     * The initial capacity of each segment, the single segment table keeps the original capacity.
+     */
+    private int initialCapacity()
+    {
+        int capacity = INITIAL_CAPACITY / segments.length;
+        if( capacity < MIN_SEGMENT_CAPACITY) capacity = MIN_SEGMENT_CAPACITY;
+
+        return capacity | 1;
+    }
+
+    /**
+     * release every entry of one segment before it's cleared.
      *
+     * THREAD MODE: MUST HOLD THE SEGMENT'S WRITE LOCK
+     */
+    private void releaseSegment( final CacheSegment s)
+    {
+        InterfaceEntry data[] = (InterfaceEntry[])s.getData();
+        if( data == null) return;
+
+        for( InterfaceEntry head: data)
+        {
+            for( InterfaceEntry e = head; e != null; e = e.next())
+            {
+                released( e);
+            }
+        }
+    }
+
+    /**
+     * clear one segment.
+     *
+     * THREAD MODE: MUST HOLD THE SEGMENT'S WRITE LOCK
+     */
+    private void clearSegment( final CacheSegment s)
+    {
+        int capacity = initialCapacity();
+        s.setData( createArray( capacity));
+        s.setHashThreshold( (int)(capacity * LOAD_FACTOR));
+        s.setEstEmptyCount( 0);
+        s.setCount( 0);
+        s.setUnallocated( 0);
+
+        checkRegister();
+    }
+
+    /**
+     * The estimated size of one segment.
+     *
+     * THREAD MODE: MUST HOLD THE SEGMENT'S LOCK
+     */
+    private long estimatedSize( final CacheSegment s)
+    {
+        if( s.getData() == null) return 0;
+
+        long size = 0;
+
+        long elementSize = s.getCount() * OVERHEAD_ELEMENT;
+        size += elementSize;
+
+        long arraySize = s.getData().length * MemoryUtil.sizeOfPointer();
+        size += arraySize;
+
+        int temp = s.getCount() - s.getUnallocated();
+
+        long dataSize = 0;
+
+        if( temp > 0)
+        {
+            dataSize = (long)temp * (long)averageSize;
+        }
+
+        size += dataSize;
+        assert size>=0: "negative size: " + size + " ( count=" + s.getCount() + ")";
+        return size;
+    }
+
+    /**
+     *
+     * @param s the segment
      * @param current the interface
      * @param pos the position
      * @param prev the previous entry
      * @param updateUnallocated update the unallocated
      */
     protected final void removeElement(
+        final CacheSegment s,
         final InterfaceEntry current,
         final int pos,
         final InterfaceEntry prev,
@@ -796,13 +1198,15 @@ public abstract class CacheTableTemplate<V> implements MemoryHandler
         }
         else
         {
-            data[pos] = current.next();
+            s.getData()[pos] = current.next();
         }
 
         current.setNext( null);
 
-        if( updateUnallocated && unallocated > 0) unallocated--;
-        if( count > 0) count--;
+        if( updateUnallocated && s.getUnallocated() > 0) s.decrementUnallocated();
+        if( s.getCount() > 0) s.decrementCount();
+
+        released( current);
     }
 
     /**
@@ -810,38 +1214,65 @@ public abstract class CacheTableTemplate<V> implements MemoryHandler
      */
     protected final void checkRegister( )
     {
-        if( count - unallocated > memoryMangerThreshold)
+        /*
+         * The other segments are read without their lock, it's only an estimate to
+         * decide if we should be registered.
+         */
+        int hardCount = 0;
+        for( CacheSegment s: segments)
         {
-            if( registered == false)
+            hardCount += s.getCount() - s.getUnallocated();
+        }
+
+        if( hardCount > memoryMangerThreshold)
+        {
+            if( registered.compareAndSet( false, true))
             {
                 MemoryManager.register(this);
-                registered = true;
             }
         }
         else
         {
-            if( registered)
+            if( registered.compareAndSet( true, false))
             {
                 MemoryManager.deregister(this);
-                registered = false;
             }
         }
     }
 
     /**
+     * @param s the segment of the entry
      * @param e The entry to touch.
      */
-    protected final void touch( final InterfaceEntry e)
+    protected final void touch( final CacheSegment s, final InterfaceEntry e)
     {
-        lastAccessed = (int)(MemoryManager.lastTick()/1000L);
-        e.setData( lastAccessed & 0xfffe);
+        s.setLastAccessed( (int)(MemoryManager.lastTick()/1000L));
+        e.setData( evictionPolicy.access( e.hashCode(), s.getLastAccessed()));
 
-        if( firstAccessed == 0)
+        if( s.getFirstAccessed() == 0)
         {
-            firstAccessed = lastAccessed;
+            s.setFirstAccessed( s.getLastAccessed());
         }
     }
 
+    /**
+     * record a request that found the entry.
+     */
+    protected final void recordHit()
+    {
+        evictionPolicy.recordHit();
+    }
+
+    /**
+     * record a request that did not find the entry.
+     *
+     * @param hash the hash code of the key
+     */
+    protected final void recordMiss( final int hash)
+    {
+        evictionPolicy.recordMiss( hash);
+    }
+
     /**************************************************************************/
     /****                         ABSTRACT                                  ***/
     /**************************************************************************/
@@ -863,30 +1294,31 @@ public abstract class CacheTableTemplate<V> implements MemoryHandler
      * with a larger capacity. This method is called automatically when the
      * number of keys in this map exceeds its capacity and load factor.
      *
+     * @param s the segment
      * @param indexTemp the index
      * @param hash the hash code
      * @return the new index
      */
-    protected final int rehash( final int indexTemp, final int hash)
+    protected final int rehash( final CacheSegment s, final int indexTemp, final int hash)
     {
-        if (count < hashThreshold)
+        if (s.getCount() < s.getHashThreshold())
         {
             return indexTemp;
         }
 
-        InterfaceEntry oldArray[] = (InterfaceEntry[])data;
+        InterfaceEntry oldArray[] = (InterfaceEntry[])s.getData();
 
         int newCapacity = oldArray.length * 2 + 1;
 
-        copyData( oldArray, newCapacity);
+        copyData( s, oldArray, newCapacity);
 
-        return (hash & 0x7FFFFFFF) % data.length;
+        return (hash & 0x7FFFFFFF) % s.getData().length;
     }
 
-    private void copyData( InterfaceEntry oldArray[], int newCapacity)
+    private void copyData( final CacheSegment s, final InterfaceEntry oldArray[], final int newCapacity)
     {
         InterfaceEntry tempData[] = createArray(newCapacity);
-        hashThreshold = (int)(tempData.length * LOAD_FACTOR);
+        s.setHashThreshold( (int)(tempData.length * LOAD_FACTOR));
 
         int tempCount=0;
         int tempUnallocated =0;
@@ -913,47 +1345,38 @@ public abstract class CacheTableTemplate<V> implements MemoryHandler
 
                     tempCount++;
                 }
+                else
+                {
+                    released( e);
+                }
             }
         }
 
-        data = tempData;
-        count = tempCount;
-        unallocated=tempUnallocated;
+        s.setData( tempData);
+        s.setCount( tempCount);
+        s.setUnallocated( tempUnallocated);
     }
 
     /** the cost */
     protected Cost                       cost;
-    /** The estimated empty count */
-    protected int                       estEmptyCount;
-    /** the number unallocated */
-    protected int                       unallocated;
     /** the threshold */
-    protected int                       memoryMangerThreshold;
+    protected volatile int              memoryMangerThreshold;
 
     /** the description */
     protected String                    description;
 
-    /** the data */
-    protected Object[]                  data;
-    /** the count */
-    protected int                       count;
-
     /**************************************************************************/
     /****                         PRIVATE                                   ***/
     /**************************************************************************/
 
-    private int                         hashThreshold;
-
     /** the average size of elements in this cache table */
-    private int                         averageSize;
+    private volatile int                averageSize;
 
-    /** The time an element was accessed. */
-    private int                         lastAccessed,
-                                        firstAccessed;
+    private final AtomicBoolean         registered=new AtomicBoolean(),
+                                        registeredForTidyUp=new AtomicBoolean();
 
-    private boolean                     registered,
-                                        registeredForTidyUp,
-                                        mayReleaseReferences;
+    private volatile boolean            mayReleaseReferences;
+    private volatile EvictionPolicy     evictionPolicy = EvictionPolicy.createDefault();
 
     private static final ConcurrentDecimalFormat  NUMBER_FORMAT = new ConcurrentDecimalFormat( "#,##0");
     private static final ConcurrentDecimalFormat  PERCENT_FORMAT = new ConcurrentDecimalFormat( "#,##0.00%");
@@ -963,6 +1386,13 @@ public abstract class CacheTableTemplate<V> implements MemoryHandler
     private static final float          LOAD_FACTOR         = 0.75f;
 
     private static final int            OVERHEAD_ELEMENT    = 48;
+    private static final int            MIN_SEGMENT_CAPACITY = 61;
+    /** the number of entries ranked to choose the victim of an insert */
+    private static final int            ADMIT_SAMPLE_SIZE   = 8;
+    /** the buckets visited to find the sample once there is a victim */
+    private static final int            ADMIT_MAX_PROBES    = 64;
+    /** the maximum number of segments */
+    public static final int             MAX_SEGMENTS        = 256;
     private static final Log LOGGER = CLogger.getLog( "com.aspc.remote.memory.internal.CacheTableTemplate");//#LOGGER-NOPMD
 
     /**
@@ -0,0 +1,242 @@
+/*
+ *  Copyright (c) 1999-2004 ASP Converters pty ltd
+ *
+ *  www.stSoftware.com.au
+ *
+ *  All Rights Reserved.
+ *
+ *  This software is the proprietary information of
+ *  ASP Converters Pty Ltd.
+ *  Use is subject to license terms.
+ */
+package com.aspc.remote.memory.internal;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.PriorityQueue;
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * External merge sort of long values.
+ *
+ * Each run is sorted on the heap and written to a temporary file, the runs are then merged
+ * with one small read buffer per run so the heap used is independent of the number of values.
+ * <br>
+ * <i>THREAD MODE: SINGLE THREADED</i>
+ *
+ * @author Nigel Leck
+ *
+ * @since 18 October 2026
+ */
+public final class ExternalLongSort implements Closeable
+{
+    private static final int MIN_READ_BUFFER=4 * 1024;
+    private static final int MAX_READ_BUFFER=1024 * 1024;
+    private static final int WRITE_BUFFER=64 * 1024;
+
+    private final long heapBudget;
+    private final File file;
+    private final RandomAccessFile raf;
+    private final FileChannel channel;
+    private final ArrayList<long[]> runs=new ArrayList<>();
+    private long position;
+
+    /**
+     * The receiver of the merged values.
+     */
+    public static interface LongSink
+    {
+        /**
+         * The next value in sorted order.
+         * @param value the value
+         * @throws IOException the value could not be stored.
+         */
+        void append( long value) throws IOException;
+    }
+
+    /**
+     * Create a new external sort.
+     *
+     * @param heapBudget the heap to use for the read buffers during the merge.
+     * @param directory the directory for the temporary file or null for the default.
+     * @throws IOException the temporary file could not be created.
+     */
+    public ExternalLongSort( final @Nonnegative long heapBudget, final @Nullable File directory) throws IOException
+    {
+        this.heapBudget=heapBudget;
+        file=File.createTempFile( "sort", ".run", directory);
+        file.deleteOnExit();
+        raf=new RandomAccessFile( file, "rw");
+        channel=raf.getChannel();
+    }
+
+    /**
+     * The number of values to sort on the heap for each run.
+     *
+     * @param heapBudget the heap budget in bytes.
+     * @return the run length.
+     */
+    public static int runLength( final @Nonnegative long heapBudget)
+    {
+        return (int)Math.max( 1024, Math.min( Integer.MAX_VALUE - 8, heapBudget / 8));
+    }
+
+    /**
+     * Sort the values and write them as a run.
+     *
+     * @param values the values, sorted in place.
+     * @param length the number of values to use.
+     * @throws IOException the run could not be written.
+     */
+    public void addRun( final @Nonnull long values[], final @Nonnegative int length) throws IOException
+    {
+        if( length == 0) return;
+
+        Arrays.sort( values, 0, length);
+
+        long start=position;
+        ByteBuffer buffer=ByteBuffer.allocate( WRITE_BUFFER);
+        for( int i=0;i<length;i++)
+        {
+            if( buffer.remaining() < 8)
+            {
+                write( buffer);
+            }
+            buffer.putLong( values[i]);
+        }
+        write( buffer);
+
+        long run[]={start, length};
+        runs.add( run);
+    }
+
+    /**
+     * The number of runs written.
+     * @return the count
+     */
+    public int getRunCount()
+    {
+        return runs.size();
+    }
+
+    /**
+     * Merge the runs.
+     *
+     * @param sink receives the values in order.
+     * @throws IOException the runs could not be read.
+     */
+    public void merge( final @Nonnull LongSink sink) throws IOException
+    {
+        if( runs.isEmpty()) return;
+
+        int bufferSize=(int)Math.max( MIN_READ_BUFFER, Math.min( MAX_READ_BUFFER, heapBudget / runs.size()));
+        bufferSize-=bufferSize % 8;
+
+        PriorityQueue<RunReader> queue=new PriorityQueue<>( runs.size(), new Comparator<RunReader>()
+        {
+            @Override
+            public int compare( final RunReader a, final RunReader b)
+            {
+                return a.current < b.current ? -1 : ( a.current == b.current ? 0 : 1);
+            }
+        });
+
+        for( long run[]: runs)
+        {
+            RunReader reader=new RunReader( run[0], run[1], bufferSize);
+            if( reader.next())
+            {
+                queue.add( reader);
+            }
+        }
+
+        while( queue.isEmpty() == false)
+        {
+            RunReader reader=queue.poll();
+            sink.append( reader.current);
+            if( reader.next())
+            {
+                queue.add( reader);
+            }
+        }
+    }
+
+    /**
+     * remove the temporary file.
+     * @throws IOException the file could not be closed.
+     */
+    @Override
+    public void close() throws IOException
+    {
+        try
+        {
+            raf.close();
+        }
+        finally
+        {
+            file.delete();
+        }
+    }
+
+    private void write( final ByteBuffer buffer) throws IOException
+    {
+        buffer.flip();
+        while( buffer.hasRemaining())
+        {
+            position+=channel.write( buffer, position);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * reads one run.
+     */
+    private final class RunReader
+    {
+        private long filePosition;
+        private long remaining;
+        private final ByteBuffer buffer;
+        long current;
+
+        RunReader( final long start, final long count, final int bufferSize)
+        {
+            filePosition=start;
+            remaining=count;
+            buffer=ByteBuffer.allocate( bufferSize);
+            buffer.flip();
+        }
+
+        boolean next() throws IOException
+        {
+            if( remaining == 0) return false;
+
+            if( buffer.remaining() < 8)
+            {
+                buffer.clear();
+                long bytes=Math.min( buffer.capacity(), remaining * 8);
+                buffer.limit( (int)bytes);
+                while( buffer.hasRemaining())
+                {
+                    int read=channel.read( buffer, filePosition);
+                    if( read < 0) throw new EOFException( "run truncated at " + filePosition);
+                    filePosition+=read;
+                }
+                buffer.flip();
+            }
+
+            current=buffer.getLong();
+            remaining--;
+            return true;
+        }
+    }
+}
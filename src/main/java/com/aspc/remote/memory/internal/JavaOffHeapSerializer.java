@@ -0,0 +1,82 @@
+/*
+ *  Copyright (c) 1998-2004 ASP Converters pty ltd
+ *
+ *  www.stSoftware.com.au
+ *
+ *  All Rights Reserved.
+ *
+ *  This software is the proprietary information of
+ *  ASP Converters Pty Ltd.
+ *  Use is subject to license terms.
+ */
+package com.aspc.remote.memory.internal;
+
+import com.aspc.remote.memory.OffHeapSerializer;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.NotSerializableException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import javax.annotation.CheckReturnValue;
+import javax.annotation.Nonnull;
+
+/**
+ *  Java serialization of the values of an off-heap store, the values must be Serializable.
+ *
+ *  <br>
+ *  <i>THREAD MODE: MULTI-THREADED</i>
+ *
+ *  @author      Nigel Leck
+ *  @param <V> the class of the values.
+ *  @since       18 October 2026
+ */
+public final class JavaOffHeapSerializer<V> implements OffHeapSerializer<V>
+{
+    /**
+     * convert the value to bytes.
+     *
+     * @param value the value
+     * @return the bytes
+     * @throws IOException the value could not be written.
+     * @throws NotSerializableException the value is not serializable.
+     */
+    @Override @CheckReturnValue @Nonnull
+    public byte[] serialize( final @Nonnull V value) throws IOException
+    {
+        if( value instanceof Serializable == false)
+        {
+            throw new NotSerializableException( value.getClass().getName());
+        }
+
+        ByteArrayOutputStream bout = new ByteArrayOutputStream( 256);
+        try (ObjectOutputStream out = new ObjectOutputStream( bout))
+        {
+            out.writeObject( value);
+        }
+
+        return bout.toByteArray();
+    }
+
+    /**
+     * convert the bytes back to the value.
+     *
+     * @param data the bytes
+     * @return the value
+     * @throws IOException the bytes are not valid.
+     */
+    @Override @CheckReturnValue @Nonnull
+    @SuppressWarnings("unchecked")
+    public V deserialize( final @Nonnull byte data[]) throws IOException
+    {
+        try (ObjectInputStream in = new ObjectInputStream( new ByteArrayInputStream( data)))
+        {
+            return (V)in.readObject();
+        }
+        catch( ClassNotFoundException cnf)
+        {
+            throw new IOException( "could not read value", cnf);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ *  Copyright (c) 1998-2004 ASP Converters pty ltd
+ *
+ *  www.stSoftware.com.au
+ *
+ *  All Rights Reserved.
+ *
+ *  This software is the proprietary information of
+ *  ASP Converters Pty Ltd.
+ *  Use is subject to license terms.
+ */
+package com.aspc.remote.memory.internal;
+
+import com.aspc.remote.memory.EvictionPolicy;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.annotation.CheckReturnValue;
+import javax.annotation.Nonnull;
+
+/**
+ *  Least recently used.
+ *
+ *  Every access stamps the entry with the next value of a logical clock so the order is exact
+ *  rather than to the nearest second. The clock wraps, ranks are calculated relative to the current
+ *  clock so the wrap doesn't matter as long as an entry is accessed within 2^31 accesses.
+ *
+ *  <br>
+ *  <i>THREAD MODE: MULTI-THREADED memory management</i>
+ *
+ *  @author      Nigel Leck
+ *  @since       18 October 2026
+ */
+public class LRUEvictionPolicy extends EvictionPolicy
+{
+    private final AtomicInteger clock=new AtomicInteger();
+
+    /**
+     * The type of this policy.
+     * @return the type
+     */
+    @Override @CheckReturnValue @Nonnull
+    public Type getType()
+    {
+        return Type.LRU;
+    }
+
+    /**
+     * The entry has being accessed.
+     *
+     * @param hash the hash code of the key
+     * @param seconds the current time in seconds
+     * @return the logical access time.
+     */
+    @Override
+    public int access( final int hash, final int seconds)
+    {
+        return clock.incrementAndGet();
+    }
+
+    /**
+     * The rank of an entry, the least recently used has the lowest rank.
+     *
+     * @param hash the hash code of the key
+     * @param data the logical access time.
+     * @return minus the number of accesses since this entry was accessed.
+     */
+    @Override @CheckReturnValue
+    public long rank( final int hash, final int data)
+    {
+        return data - clock.get();
+    }
+}
@@ -0,0 +1,623 @@
+/*
+ *  Copyright (c) 1999-2004 ASP Converters pty ltd
+ *
+ *  www.stSoftware.com.au
+ *
+ *  All Rights Reserved.
+ *
+ *  This software is the proprietary information of
+ *  ASP Converters Pty Ltd.
+ *  Use is subject to license terms.
+ */
+package com.aspc.remote.memory.internal;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.annotation.CheckReturnValue;
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+
+/**
+ * Fork/join operations over the segments of a large long array.
+ *
+ * Each task only reads or writes its own segments ( or its own range of the output) so no locking is needed,
+ * the caller must not change the segments while an operation is running.
+ * <br>
+ * <i>THREAD MODE: MULTI-THREADED</i>
+ *
+ * @author Nigel Leck
+ *
+ * @since 18 October 2026
+ */
+public final class LongSegmentTasks
+{
+    /** segments are split between tasks until a task has no more than this number of values */
+    private static final int MIN_TASK_SIZE=64 * 1024;
+
+    private static final long EMPTY[]={};
+
+    private LongSegmentTasks()
+    {
+    }
+
+    /**
+     * The shared pool, created on first use.
+     * @return the pool
+     */
+    @CheckReturnValue @Nonnull
+    public static ForkJoinPool pool()
+    {
+        return PoolHolder.POOL;
+    }
+
+    /**
+     * Sort each segment in place.
+     *
+     * @param segments the segments to sort.
+     */
+    public static void sortSegments( final @Nonnull long segments[][])
+    {
+        pool().invoke( new SortAction( segments, 0, segments.length));
+    }
+
+    /**
+     * Copy the segments into new segments of the given size, the last segment may be shorter.
+     *
+     * @param segments the source segments.
+     * @param segmentSize the size of the new segments.
+     * @return the new segments.
+     */
+    @CheckReturnValue @Nonnull
+    public static long[][] repack( final @Nonnull long segments[][], final @Nonnegative int segmentSize)
+    {
+        long offsets[]=new long[segments.length + 1];
+        for( int i=0;i<segments.length;i++)
+        {
+            offsets[i + 1]=offsets[i] + segments[i].length;
+        }
+
+        long output[][]=allocate( offsets[segments.length], segmentSize);
+
+        pool().invoke( new CopyAction( segments, offsets, output, segmentSize, 0, segments.length));
+
+        return output;
+    }
+
+    /**
+     * Merge sorted segments into new segments of the given size.
+     *
+     * The value range is split by sampled splitters, each task finds its range in every segment by binary
+     * search and merges only that range into its own part of the output.
+     *
+     * @param sorted the sorted segments.
+     * @param segmentSize the size of the new segments.
+     * @return the merged segments.
+     */
+    @CheckReturnValue @Nonnull
+    public static long[][] merge( final @Nonnull long sorted[][], final @Nonnegative int segmentSize)
+    {
+        long total=0;
+        for( long rows[]: sorted)
+        {
+            total+=rows.length;
+        }
+
+        long output[][]=allocate( total, segmentSize);
+        if( total == 0) return output;
+
+        int parts=(int)Math.max( 1, Math.min( pool().getParallelism() * 4L, total / MIN_TASK_SIZE));
+
+        long splitters[]=splitters( sorted, parts);
+        parts=splitters.length + 1;
+
+        int bounds[][]=new int[parts + 1][sorted.length];
+        for( int r=0;r<sorted.length;r++)
+        {
+            bounds[parts][r]=sorted[r].length;
+            for( int p=1;p<parts;p++)
+            {
+                bounds[p][r]=lowerBound( sorted[r], splitters[p - 1]);
+            }
+        }
+
+        ArrayList<MergeAction> tasks=new ArrayList<>();
+        long offset=0;
+        for( int p=0;p<parts;p++)
+        {
+            tasks.add( new MergeAction( sorted, bounds[p], bounds[p + 1], output, segmentSize, offset));
+            for( int r=0;r<sorted.length;r++)
+            {
+                offset+=bounds[p + 1][r] - bounds[p][r];
+            }
+        }
+
+        pool().invoke( new InvokeAll( tasks));
+
+        return output;
+    }
+
+    /**
+     * Replace every occurrence of a value.
+     *
+     * @param segments the segments, changed in place.
+     * @param from the value to replace
+     * @param to the new value
+     * @return the number replaced.
+     */
+    public static int replace( final @Nonnull long segments[][], final long from, final long to)
+    {
+        return pool().invoke( new ReplaceTask( segments, from, to, 0, segments.length));
+    }
+
+    /**
+     * Is the value in any segment ?
+     *
+     * @param segments the segments
+     * @param value the value to find
+     * @return true if found.
+     */
+    @CheckReturnValue
+    public static boolean contains( final @Nonnull long segments[][], final long value)
+    {
+        AtomicBoolean found=new AtomicBoolean();
+        pool().invoke( new ContainsAction( segments, value, found, 0, segments.length));
+
+        return found.get();
+    }
+
+    /**
+     * Remove every occurrence of a value. The segments that contained the value are replaced with new arrays.
+     *
+     * @param segments the segments, the changed segments are replaced.
+     * @param value the value to remove
+     * @return the number of segments replaced.
+     */
+    public static int remove( final @Nonnull long segments[][], final long value)
+    {
+        return pool().invoke( new RemoveTask( segments, value, 0, segments.length));
+    }
+
+    private static long[][] allocate( final long total, final int segmentSize)
+    {
+        int count=(int)(( total + segmentSize - 1) / segmentSize);
+        long output[][]=new long[count][];
+        for( int i=0;i<count;i++)
+        {
+            long len=Math.min( segmentSize, total - (long)i * segmentSize);
+            output[i]=new long[(int)len];
+        }
+
+        return output;
+    }
+
+    private static long[] splitters( final long sorted[][], final int parts)
+    {
+        if( parts < 2) return EMPTY;
+
+        int samplesPerSegment=Math.max( 1, parts * 8 / Math.max( 1, sorted.length));
+        long samples[]=new long[sorted.length * samplesPerSegment];
+        int count=0;
+        for( long rows[]: sorted)
+        {
+            if( rows.length == 0) continue;
+            for( int i=0;i<samplesPerSegment;i++)
+            {
+                samples[count++]=rows[(int)((long)rows.length * i / samplesPerSegment)];
+            }
+        }
+        Arrays.sort( samples, 0, count);
+
+        long splitters[]=new long[parts - 1];
+        int len=0;
+        for( int p=1;p<parts;p++)
+        {
+            long splitter=samples[(int)((long)count * p / parts)];
+            if( len == 0 || splitters[len - 1] != splitter)
+            {
+                splitters[len++]=splitter;
+            }
+        }
+
+        return Arrays.copyOf( splitters, len);
+    }
+
+    /**
+     * The first position with a value not less than the key.
+     */
+    private static int lowerBound( final long rows[], final long key)
+    {
+        int low=0;
+        int high=rows.length;
+        while( low < high)
+        {
+            int mid=( low + high) >>> 1;
+            if( rows[mid] < key)
+            {
+                low=mid + 1;
+            }
+            else
+            {
+                high=mid;
+            }
+        }
+
+        return low;
+    }
+
+    private static boolean isSmall( final long segments[][], final int start, final int end)
+    {
+        if( end - start <= 1) return true;
+
+        long count=0;
+        for( int i=start;i<end;i++)
+        {
+            count+=segments[i].length;
+            if( count > MIN_TASK_SIZE) return false;
+        }
+
+        return true;
+    }
+
+    private static final class SortAction extends RecursiveAction
+    {
+        private static final long serialVersionUID = 42L;
+        private final long segments[][];
+        private final int start;
+        private final int end;
+
+        SortAction( final long segments[][], final int start, final int end)
+        {
+            this.segments=segments;
+            this.start=start;
+            this.end=end;
+        }
+
+        @Override
+        protected void compute()
+        {
+            if( isSmall( segments, start, end))
+            {
+                for( int i=start;i<end;i++)
+                {
+                    Arrays.sort( segments[i]);
+                }
+            }
+            else
+            {
+                int mid=( start + end) >>> 1;
+                invokeAll( new SortAction( segments, start, mid), new SortAction( segments, mid, end));
+            }
+        }
+    }
+
+    private static final class CopyAction extends RecursiveAction
+    {
+        private static final long serialVersionUID = 42L;
+        private final long segments[][];
+        private final long offsets[];
+        private final long output[][];
+        private final int segmentSize;
+        private final int start;
+        private final int end;
+
+        CopyAction( final long segments[][], final long offsets[], final long output[][], final int segmentSize, final int start, final int end)
+        {
+            this.segments=segments;
+            this.offsets=offsets;
+            this.output=output;
+            this.segmentSize=segmentSize;
+            this.start=start;
+            this.end=end;
+        }
+
+        @Override
+        protected void compute()
+        {
+            if( isSmall( segments, start, end))
+            {
+                for( int i=start;i<end;i++)
+                {
+                    long rows[]=segments[i];
+                    long offset=offsets[i];
+                    int pos=0;
+                    while( pos < rows.length)
+                    {
+                        long target[]=output[(int)( offset / segmentSize)];
+                        int targetPos=(int)( offset % segmentSize);
+                        int len=Math.min( rows.length - pos, target.length - targetPos);
+                        System.arraycopy( rows, pos, target, targetPos, len);
+                        pos+=len;
+                        offset+=len;
+                    }
+                }
+            }
+            else
+            {
+                int mid=( start + end) >>> 1;
+                invokeAll(
+                    new CopyAction( segments, offsets, output, segmentSize, start, mid),
+                    new CopyAction( segments, offsets, output, segmentSize, mid, end)
+                );
+            }
+        }
+    }
+
+    private static final class MergeAction extends RecursiveAction
+    {
+        private static final long serialVersionUID = 42L;
+        private final long sorted[][];
+        private final int from[];
+        private final int to[];
+        private final long output[][];
+        private final int segmentSize;
+        private final long offset;
+
+        MergeAction( final long sorted[][], final int from[], final int to[], final long output[][], final int segmentSize, final long offset)
+        {
+            this.sorted=sorted;
+            this.from=from;
+            this.to=to;
+            this.output=output;
+            this.segmentSize=segmentSize;
+            this.offset=offset;
+        }
+
+        @Override
+        protected void compute()
+        {
+            int pos[]=from.clone();
+            int heap[]=new int[sorted.length];
+            int heapSize=0;
+            for( int r=0;r<sorted.length;r++)
+            {
+                if( pos[r] < to[r])
+                {
+                    heap[heapSize++]=r;
+                }
+            }
+            for( int i=heapSize / 2;i-- > 0;)
+            {
+                siftDown( heap, heapSize, i, pos);
+            }
+
+            int outSegment=(int)( offset / segmentSize);
+            int outPos=(int)( offset % segmentSize);
+            long target[]=heapSize > 0 ? output[outSegment] : null;
+
+            while( heapSize > 0)
+            {
+                int r=heap[0];
+                long rows[]=sorted[r];
+
+                if( outPos == target.length)
+                {
+                    target=output[++outSegment];
+                    outPos=0;
+                }
+                target[outPos++]=rows[pos[r]++];
+
+                if( pos[r] == to[r])
+                {
+                    heap[0]=heap[--heapSize];
+                }
+                if( heapSize > 0)
+                {
+                    siftDown( heap, heapSize, 0, pos);
+                }
+            }
+        }
+
+        private void siftDown( final int heap[], final int heapSize, final int index, final int pos[])
+        {
+            int i=index;
+            int r=heap[i];
+            long value=sorted[r][pos[r]];
+            while( true)
+            {
+                int child=i * 2 + 1;
+                if( child >= heapSize) break;
+
+                int c=heap[child];
+                long childValue=sorted[c][pos[c]];
+                if( child + 1 < heapSize)
+                {
+                    int c2=heap[child + 1];
+                    long value2=sorted[c2][pos[c2]];
+                    if( value2 < childValue)
+                    {
+                        child++;
+                        c=c2;
+                        childValue=value2;
+                    }
+                }
+
+                if( value <= childValue) break;
+
+                heap[i]=c;
+                i=child;
+            }
+            heap[i]=r;
+        }
+    }
+
+    private static final class InvokeAll extends RecursiveAction
+    {
+        private static final long serialVersionUID = 42L;
+        private final ArrayList<MergeAction> tasks;
+
+        InvokeAll( final ArrayList<MergeAction> tasks)
+        {
+            this.tasks=tasks;
+        }
+
+        @Override
+        protected void compute()
+        {
+            invokeAll( tasks);
+        }
+    }
+
+    private static final class ReplaceTask extends RecursiveTask<Integer>
+    {
+        private static final long serialVersionUID = 42L;
+        private final long segments[][];
+        private final long from;
+        private final long to;
+        private final int start;
+        private final int end;
+
+        ReplaceTask( final long segments[][], final long from, final long to, final int start, final int end)
+        {
+            this.segments=segments;
+            this.from=from;
+            this.to=to;
+            this.start=start;
+            this.end=end;
+        }
+
+        @Override
+        protected Integer compute()
+        {
+            if( isSmall( segments, start, end))
+            {
+                int count=0;
+                for( int i=start;i<end;i++)
+                {
+                    long rows[]=segments[i];
+                    for( int pos=0;pos<rows.length;pos++)
+                    {
+                        if( rows[pos] == from)
+                        {
+                            rows[pos]=to;
+                            count++;
+                        }
+                    }
+                }
+                return count;
+            }
+
+            int mid=( start + end) >>> 1;
+            ReplaceTask left=new ReplaceTask( segments, from, to, start, mid);
+            left.fork();
+            int right=new ReplaceTask( segments, from, to, mid, end).compute();
+
+            return left.join() + right;
+        }
+    }
+
+    private static final class ContainsAction extends RecursiveAction
+    {
+        private static final long serialVersionUID = 42L;
+        private final long segments[][];
+        private final long value;
+        private final AtomicBoolean found;
+        private final int start;
+        private final int end;
+
+        ContainsAction( final long segments[][], final long value, final AtomicBoolean found, final int start, final int end)
+        {
+            this.segments=segments;
+            this.value=value;
+            this.found=found;
+            this.start=start;
+            this.end=end;
+        }
+
+        @Override
+        protected void compute()
+        {
+            if( found.get()) return;
+
+            if( isSmall( segments, start, end))
+            {
+                for( int i=start;i<end;i++)
+                {
+                    for( long row: segments[i])
+                    {
+                        if( row == value)
+                        {
+                            found.set( true);
+                            return;
+                        }
+                    }
+                    if( found.get()) return;
+                }
+            }
+            else
+            {
+                int mid=( start + end) >>> 1;
+                invokeAll(
+                    new ContainsAction( segments, value, found, start, mid),
+                    new ContainsAction( segments, value, found, mid, end)
+                );
+            }
+        }
+    }
+
+    private static final class RemoveTask extends RecursiveTask<Integer>
+    {
+        private static final long serialVersionUID = 42L;
+        private final long segments[][];
+        private final long value;
+        private final int start;
+        private final int end;
+
+        RemoveTask( final long segments[][], final long value, final int start, final int end)
+        {
+            this.segments=segments;
+            this.value=value;
+            this.start=start;
+            this.end=end;
+        }
+
+        @Override
+        protected Integer compute()
+        {
+            if( isSmall( segments, start, end))
+            {
+                int changed=0;
+                for( int i=start;i<end;i++)
+                {
+                    long rows[]=segments[i];
+                    int count=0;
+                    for( long row: rows)
+                    {
+                        if( row == value) count++;
+                    }
+
+                    if( count > 0)
+                    {
+                        long replaceRows[]=count == rows.length ? EMPTY : new long[rows.length - count];
+                        int pos=0;
+                        for( long row: rows)
+                        {
+                            if( row != value) replaceRows[pos++]=row;
+                        }
+                        segments[i]=replaceRows;
+                        changed++;
+                    }
+                }
+                return changed;
+            }
+
+            int mid=( start + end) >>> 1;
+            RemoveTask left=new RemoveTask( segments, value, start, mid);
+            left.fork();
+            int right=new RemoveTask( segments, value, mid, end).compute();
+
+            return left.join() + right;
+        }
+    }
+
+    /**
+     * Lazy creation of the pool.
+     */
+    private static final class PoolHolder
+    {
+        static final ForkJoinPool POOL=new ForkJoinPool();
+    }
+}
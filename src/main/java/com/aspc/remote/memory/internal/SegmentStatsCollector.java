@@ -0,0 +1,36 @@
+/*
+ *  Copyright (c) 2001-2004 ASP Converters pty ltd
+ *
+ *  www.stSoftware.com.au
+ *
+ *  All Rights Reserved.
+ *
+ *  This software is the proprietary information of
+ *  ASP Converters Pty Ltd.
+ *  Use is subject to license terms.
+ */
+package com.aspc.remote.memory.internal;
+
+/**
+ *  Collect statistics per segment as well as per entry. A StatsCollector that also implements this
+ *  interface is told about each segment of a cache table after its entries have been examined.
+ *
+ *  <br>
+ *  <i>THREAD MODE: MULTI-THREADED memory management</i>
+ *
+ *  @author      Nigel Leck
+ *  @since       18 October 2026
+ */
+public interface SegmentStatsCollector extends StatsCollector
+{
+    /**
+     * called once per segment after its entries have been examined.
+     *
+     * @param segment the segment number
+     * @param count the number of entries in the segment
+     * @param capacity the length of the segment's array
+     * @param locks the number of times the segment was locked
+     * @param contended the number of times a lock had to wait for another thread
+     */
+    void examineSegment( final int segment, final int count, final int capacity, final long locks, final long contended);
+}
@@ -0,0 +1,241 @@
+/*
+ *  Copyright (c) 1998-2004 ASP Converters pty ltd
+ *
+ *  www.stSoftware.com.au
+ *
+ *  All Rights Reserved.
+ *
+ *  This software is the proprietary information of
+ *  ASP Converters Pty Ltd.
+ *  Use is subject to license terms.
+ */
+package com.aspc.remote.memory.internal;
+
+import javax.annotation.CheckReturnValue;
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+
+/**
+ *  Frequency aware policy in the style of TinyLFU.
+ *
+ *  The frequency of every request ( including misses) is recorded in a small count-min sketch of
+ *  4 bit counters which are halved once enough requests have been sampled, so the history ages.
+ *  Entries with the lowest estimated frequency are released first and the least recently used
+ *  breaks a tie. A row that was loaded once is therefore released before a hot row no matter
+ *  how long ago the hot row was loaded.
+ *
+ *  When the table has a maximum size a new entry is only admitted if it has been requested more
+ *  often than the victim it would replace, so a scan of one-hit rows can't push out the hot rows.
+ *
+ *  The counters are updated without locking, a lost increment only makes the estimate a little
+ *  lower.
+ *
+ *  <br>
+ *  <i>THREAD MODE: MULTI-THREADED memory management</i>
+ *
+ *  @author      Nigel Leck
+ *  @since       18 October 2026
+ */
+public final class TinyLFUEvictionPolicy extends LRUEvictionPolicy
+{
+    private static final int DEPTH=4;
+    private static final int MAX_COUNT=15;
+    private static final long SEEDS[]={0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+
+    private volatile Sketch sketch;
+
+    /**
+     * create a new policy
+     * @param expectedSize the expected number of entries.
+     */
+    public TinyLFUEvictionPolicy( final @Nonnegative int expectedSize)
+    {
+        sketch = new Sketch( expectedSize);
+    }
+
+    /**
+     * The type of this policy.
+     * @return the type
+     */
+    @Override @CheckReturnValue @Nonnull
+    public Type getType()
+    {
+        return Type.TINY_LFU;
+    }
+
+    /**
+     * make sure the sketch is wide enough for this number of entries.
+     *
+     * @param size the current number of entries.
+     */
+    @Override
+    public void ensureCapacity( final @Nonnegative int size)
+    {
+        if( size > sketch.width / 2)
+        {
+            sketch = new Sketch( size);
+        }
+    }
+
+    /**
+     * The entry has being accessed.
+     *
+     * @param hash the hash code of the key
+     * @param seconds the current time in seconds
+     * @return the logical access time.
+     */
+    @Override
+    public int access( final int hash, final int seconds)
+    {
+        sketch.increment( hash);
+
+        return super.access( hash, seconds);
+    }
+
+    /**
+     * record a request that did not find the entry.
+     * @param hash the hash code of the key
+     */
+    @Override
+    public void recordMiss( final int hash)
+    {
+        super.recordMiss( hash);
+        sketch.increment( hash);
+    }
+
+    /**
+     * The estimated frequency of this key.
+     * @param hash the hash code of the key
+     * @return the estimate 0 to 15
+     */
+    @CheckReturnValue @Nonnegative
+    public int frequency( final int hash)
+    {
+        return sketch.frequency( hash);
+    }
+
+    /**
+     * Admit the new entry only if it is requested more often than the victim.
+     *
+     * @param candidateHash the hash code of the key of the new entry
+     * @param victimHash the hash code of the key of the lowest ranked entry
+     * @return true to release the victim and add the new entry.
+     */
+    @Override @CheckReturnValue
+    public boolean admit( final int candidateHash, final int victimHash)
+    {
+        Sketch tmpSketch = sketch;
+
+        return tmpSketch.frequency( candidateHash) > tmpSketch.frequency( victimHash);
+    }
+
+    /**
+     * The rank of an entry, the frequency then the recency.
+     *
+     * @param hash the hash code of the key
+     * @param data the logical access time.
+     * @return the rank
+     */
+    @Override @CheckReturnValue
+    public long rank( final int hash, final int data)
+    {
+        long recency = super.rank( hash, data) + Integer.MAX_VALUE;
+
+        return ((long)sketch.frequency( hash) << 32) + recency;
+    }
+
+    /**
+     * count-min sketch of 4 bit counters.
+     */
+    private static final class Sketch
+    {
+        final int width;
+        private final int mask;
+        private final byte table[];
+        private final int sampleSize;
+        private int additions;
+
+        Sketch( final int expectedSize)
+        {
+            /* four counters per entry in each row keeps the over estimate of a one-hit key low */
+            int tmpWidth = 16;
+            while( tmpWidth < expectedSize * 4L && tmpWidth < 1<<24)
+            {
+                tmpWidth <<= 1;
+            }
+            width = tmpWidth;
+            mask = width - 1;
+            table = new byte[width * DEPTH];
+            sampleSize = width * 10;
+        }
+
+        /**
+         * spread the bits of the hash code, keys are often sequential numbers.
+         */
+        private static int spread( final int hash)
+        {
+            int h = hash;
+            h = ( h ^ ( h >>> 16)) * 0x45d9f3b;
+            h = ( h ^ ( h >>> 16)) * 0x45d9f3b;
+
+            return h ^ ( h >>> 16);
+        }
+
+        private int index( final int spread, final int row)
+        {
+            long h = ( spread + SEEDS[row]) * SEEDS[row];
+            h += h >>> 32;
+
+            return row * width + ( (int)h & mask);
+        }
+
+        int frequency( final int hash)
+        {
+            int h = spread( hash);
+            int min = MAX_COUNT;
+            for( int row = 0; row < DEPTH; row++)
+            {
+                int c = table[index( h, row)];
+                if( c < min) min = c;
+            }
+
+            return min;
+        }
+
+        void increment( final int hash)
+        {
+            int h = spread( hash);
+            boolean added = false;
+            for( int row = 0; row < DEPTH; row++)
+            {
+                int i = index( h, row);
+                if( table[i] < MAX_COUNT)
+                {
+                    table[i]++;
+                    added = true;
+                }
+            }
+
+            if( added)
+            {
+                additions++;
+                if( additions >= sampleSize)
+                {
+                    reset();
+                }
+            }
+        }
+
+        /**
+         * age the history by halving every counter.
+         */
+        private void reset()
+        {
+            for( int i = 0; i < table.length; i++)
+            {
+                table[i] = (byte)( table[i] >>> 1);
+            }
+            additions = additions >>> 1;
+        }
+    }
+}
@@ -33,10 +33,12 @@
  */
 package com.aspc.remote.rest;
 
+import com.aspc.remote.rest.internal.ReSTMemoryCache;
 import com.aspc.remote.rest.internal.RestTransport;
 
 import com.aspc.remote.database.InvalidDataException;
 import com.aspc.remote.rest.errors.ReSTException;
+import com.aspc.remote.rest.internal.AsyncReSTExecutor;
 import com.aspc.remote.rest.internal.Friend;
 import com.aspc.remote.rest.internal.HttpRestTransport;
 import com.aspc.remote.rest.internal.ReSTAuthorization;
@@ -68,8 +70,10 @@ import java.util.Arrays;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.regex.Pattern;
@@ -136,6 +140,17 @@ public final class ReST
         return new Builder(url, new HttpRestTransport());
     }
 
+    /**
+     * Set the maximum concurrent asynchronous calls to this host, the default is MAX_REST_CALLS_PER_HOST.
+     *
+     * @param host the host name ( with the port if not the default).
+     * @param limit the maximum concurrent calls.
+     */
+    public static void setMaxConcurrentCalls( final @Nonnull String host, final @Nonnegative int limit)
+    {
+        AsyncReSTExecutor.setHostLimit( host, limit);
+    }
+
     @SuppressWarnings("PublicInnerClass") 
     public static class Builder 
     {
@@ -1085,24 +1100,74 @@ public final class ReST
             String tn=ct.getName();
             try{
                 ct.setName(toString());
-                if(method == null)
-                {
-                    method = Method.GET;
-                }
-                if( method==Method.GET)
-                {
-                    return readResponse();
-                }
-                else
-                {
-                    return writeResponse();
-                }
+                return fetchResponse();
             }
             finally
             {
                 ct.setName(tn);
             }
         }
+
+        /**
+         * Make the call on the shared ReST async executor. The calls to each host are limited
+         * ( MAX_REST_CALLS_PER_HOST) and the calls over the limit wait without holding a thread.
+         * The cache and pre-fetch handling is the same as getResponse().
+         *
+         * The builder must not be changed until the response is returned.
+         *
+         * @return the future response.
+         */
+        @CheckReturnValue @Nonnull
+        public Future<Response> getResponseAsync()
+        {
+            return getResponseAsync( null);
+        }
+
+        /**
+         * Make the call on the shared ReST async executor and pass the response to the callback.
+         *
+         * @param callback called with the response.
+         * @return the future response.
+         * @see #getResponseAsync()
+         */
+        @Nonnull
+        public Future<Response> getResponseAsync( final @Nullable ResponseCallback callback)
+        {
+            if(method == null)
+            {
+                method = Method.GET;
+            }
+
+            return AsyncReSTExecutor.submit(
+                url,
+                new Callable<Response>()
+                {
+                    @Override
+                    public Response call()
+                    {
+                        return fetchResponse();
+                    }
+                },
+                callback
+            );
+        }
+
+        @CheckReturnValue @Nonnull
+        private Response fetchResponse()
+        {
+            if(method == null)
+            {
+                method = Method.GET;
+            }
+            if( method==Method.GET)
+            {
+                return readResponse();
+            }
+            else
+            {
+                return writeResponse();
+            }
+        }
         
         /**
          * Short hand method to call getResponse() & checkStatus()
@@ -1123,8 +1188,26 @@ public final class ReST
         @CheckReturnValue
         private Response makeCacheResponse(final @Nonnull File propertiesFile, final @Nonnull AtomicLong TTL)
         {
+            ReSTMemoryCache.Entry entry=ReSTMemoryCache.find(propertiesFile);
+            if( entry != null)
+            {
+                if (errorCacheTimeToLiveMs > 0 || minCacheTimeToLiveMs > 0 || entry.cacheControl.contains("max-age")||maxBlockMs>0||staleBlockMs>0) {
+                    TTL.set( calculateCacheTTL(entry.status, entry.cacheControl));
+
+                    return Response.builder(entry.status, entry.mimeType, entry.file)
+                        .setTrace(Trace.CACHED)
+                        .setRedirection(entry.redirection)
+                        .setCacheControl(entry.cacheControl)
+                        .setContent(entry.getContent(), entry.fileModified)
+                        .make();
+                }
+                
+                return null;
+            }
+            
 //            long tmpCacheTimeToLiveMs=minCacheTimeToLiveMs;
             if( propertiesFile.exists()) {
+                long propertiesModified=propertiesFile.lastModified();
                 Properties p = new Properties();
                 try {
                     try (FileReader fr = new FileReader(propertiesFile)) {
@@ -1146,43 +1229,22 @@ public final class ReST
                                     if (tmpCS.equals(sha1)) {
                                         String mimetype = p.getProperty(RestTransport.MIME_TYPE);
                                         Status status = Status.find(Integer.parseInt(p.getProperty(RestTransport.STATUS, "200")));
-//                                        String cacheControl=null;
-                                        if (status.isError()) {
-                                            TTL.set(errorCacheTimeToLiveMs);
-                                        } else {
-                                            TTL.set(minCacheTimeToLiveMs);
-//                                            cacheControl=p.getProperty("cache-control");
-                                            if (StringUtilities.notBlank(cacheControl)) {
-                                                if (cacheControl.contains("max-age")) {
-                                                    int equalsPos = cacheControl.indexOf("=");
-                                                    if (equalsPos != -1) {
-                                                        String maxAge = cacheControl.substring(equalsPos + 1);
-                                                        int commaPos = maxAge.indexOf(",");
-                                                        if (commaPos != -1) {
-                                                            maxAge = maxAge.substring(0, commaPos);
-                                                        }
-                                                        maxAge = maxAge.trim();
-                                                        if (maxAge.matches("[0-9]+")) {
-                                                            long serverCacheTime = Long.parseLong(maxAge) * 1000L;
-
-                                                            if (minCacheTimeToLiveMs < serverCacheTime) {
-                                                                TTL.set( serverCacheTime);
-                                                            }
-                                                        }
-                                                    }
-                                                }
-                                            }
-                                        }
+                                        TTL.set( calculateCacheTTL(status, cacheControl));
+                                        
                                         Response.Builder rb = Response.builder(status, mimetype, cachedFile).setTrace(Trace.CACHED);
+                                        String redirection=null;
                                         switch (status) {
                                             case C301_REDIRECT_MOVED_PERMANENTLY:
                                             case C302_REDIRECT_FOUND:
                                             case C303_REDIRECT_SEE_OTHER:
-                                                rb.setRedirection(p.getProperty(RestCall.HEADER_LOCATION));
+                                                redirection=p.getProperty(RestCall.HEADER_LOCATION);
+                                                rb.setRedirection(redirection);
                                         }
                                         if (cacheControl != null) {
                                             rb.setCacheControl(cacheControl);
                                         }
+                                        ReSTMemoryCache.store(propertiesFile, propertiesModified, cachedFile, status, mimetype, cacheControl, redirection);
+                                        
                                         return rb.make();
 
                                     } else {
@@ -1211,6 +1273,42 @@ public final class ReST
             return null;
         }
         
+        /**
+         * How long the cached response is valid for, the error TTL for errors otherwise the larger
+         * of the minimum cache period and the max-age returned by the server.
+         */
+        @CheckReturnValue
+        private long calculateCacheTTL( final @Nonnull Status status, final @Nonnull String cacheControl)
+        {
+            if (status.isError()) {
+                return errorCacheTimeToLiveMs;
+            }
+            
+            long ttl=minCacheTimeToLiveMs;
+            if (StringUtilities.notBlank(cacheControl)) {
+                if (cacheControl.contains("max-age")) {
+                    int equalsPos = cacheControl.indexOf("=");
+                    if (equalsPos != -1) {
+                        String maxAge = cacheControl.substring(equalsPos + 1);
+                        int commaPos = maxAge.indexOf(",");
+                        if (commaPos != -1) {
+                            maxAge = maxAge.substring(0, commaPos);
+                        }
+                        maxAge = maxAge.trim();
+                        if (maxAge.matches("[0-9]+")) {
+                            long serverCacheTime = Long.parseLong(maxAge) * 1000L;
+
+                            if (minCacheTimeToLiveMs < serverCacheTime) {
+                                ttl=serverCacheTime;
+                            }
+                        }
+                    }
+                }
+            }
+            
+            return ttl;
+        }
+        
         /**
          * Set the cache path to use
          * @param cachePath the new cache path
@@ -39,18 +39,26 @@ import com.aspc.remote.util.misc.DocumentException;
 import com.aspc.remote.util.misc.DocumentUtil;
 
 import com.aspc.remote.util.misc.FileUtil;
+import com.aspc.remote.util.misc.JSONStreamReader;
 import com.aspc.remote.util.misc.StringUtilities;
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.util.Date;
 import javax.annotation.CheckReturnValue;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import org.json.JSONObject;
+import org.json.JSONTokener;
 import org.w3c.dom.Document;
 
 /**
@@ -65,6 +73,7 @@ public final class Response
 {
     private final File file;
     private final String data;
+    private final byte content[];
     public final @Nullable String redirection;
     public final Trace trace;
     public final String mimeType;
@@ -102,6 +111,8 @@ public final class Response
         private String cacheControl="no-cache";
         private final Status status;
         private String redirection;
+        private byte content[];
+        private long contentModified;
         
         private Builder( 
             final @Nonnull Status status, 
@@ -157,15 +168,32 @@ public final class Response
             return this;
         }
         
+        /**
+         * The content of the file already held in memory.
+         * @param content the content of the file, not copied.
+         * @param lastModified when the file was modified.
+         * @return this
+         */
+        @Nonnull
+        Builder setContent( final @Nonnull byte content[], final long lastModified)
+        {
+            if( file==null) throw new IllegalArgumentException("content only for file responses");
+            this.content=content;
+            this.contentModified=lastModified;
+            return this;
+        }
+
         public @Nonnull Response make() throws IllegalArgumentException
         {            
-            return new Response( file, data, trace, mimeType, status, cacheControl,redirection);
+            return new Response( file, data, content, contentModified, trace, mimeType, status, cacheControl,redirection);
         }
     }
 
     private Response(
         final @Nullable File file, 
         final @Nullable String data, 
+        final @Nullable byte content[], 
+        final long contentModified, 
         final @Nonnull Trace trace, 
         final @Nonnull String mimetype, 
         final @Nonnull Status status,
@@ -175,6 +203,7 @@ public final class Response
     {
         this.data=data;
         this.file=file;
+        this.content=content;
         assert data != null || file != null: "mandatory data or file";
         this.trace=trace;
         if( trace==null) throw new IllegalArgumentException("trace is mandatory");
@@ -186,6 +215,10 @@ public final class Response
         {
             this.lastModified=System.currentTimeMillis();
         }
+        else if( content != null)
+        {
+            this.lastModified=contentModified;
+        }
         else
         {
             this.lastModified=file.lastModified();
@@ -222,6 +255,11 @@ public final class Response
             return data;
         }
         
+        if( content != null)
+        {
+            return new String( content, Charset.defaultCharset());
+        }
+        
         if( file == null || file.exists() == false)
         {
             return "";
@@ -252,6 +290,22 @@ public final class Response
     @CheckReturnValue @Nonnull
     public JSONObject getContentAsJSON() throws IOException
     {
+        if( data == null && content == null && file != null && file.exists())
+        {
+            // parse straight from the file rather than reading the whole body to a String first.
+            try( BufferedReader r=new BufferedReader( getContentAsReader(), 16 * 1024))
+            {
+                r.mark(1);
+                if( r.read() == '{')
+                {
+                    r.reset();
+                    return new JSONObject( new JSONTokener( r));
+                }
+            }
+
+            throw new FileNotFoundException(getContentAsString());
+        }
+
         String text=getContentAsString();
         if( text.startsWith("{"))
         {
@@ -262,6 +316,47 @@ public final class Response
             throw new FileNotFoundException(text);
         }
     }
+
+    /**
+     * Get the content as a streaming JSON reader so large responses can be processed one element at a time.
+     * The caller must close the reader.
+     *
+     * @return the reader.
+     * @throws IOException problem reading.
+     */
+    @CheckReturnValue @Nonnull
+    public JSONStreamReader getContentAsJSONStream() throws IOException
+    {
+        return new JSONStreamReader( getContentAsReader());
+    }
+
+    /**
+     * Get a reader of the content.
+     * The caller must close the reader.
+     *
+     * @return the reader.
+     * @throws IOException problem reading.
+     */
+    @CheckReturnValue @Nonnull
+    public Reader getContentAsReader() throws IOException
+    {
+        if( data != null)
+        {
+            return new StringReader( data);
+        }
+
+        if( content != null)
+        {
+            return new InputStreamReader( new ByteArrayInputStream( content), Charset.defaultCharset());
+        }
+
+        if( file == null || file.exists() == false)
+        {
+            return new StringReader( "");
+        }
+
+        return new InputStreamReader( new FileInputStream( file), Charset.defaultCharset());
+    }
     
     /**
      * Get the content as a file. 
@@ -304,6 +399,11 @@ public final class Response
             return data.getBytes(StandardCharsets.UTF_8);            
         }
         
+        if( content != null)
+        {
+            return content.clone();
+        }
+        
         long len=file.length();
         if( len >= Integer.MAX_VALUE)
         {
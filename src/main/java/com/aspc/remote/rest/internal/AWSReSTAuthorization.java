@@ -41,6 +41,7 @@ import java.net.URLConnection;
 import java.security.InvalidKeyException;
 import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
 import java.util.List;
@@ -61,6 +62,10 @@ import javax.crypto.spec.SecretKeySpec;
 public final class AWSReSTAuthorization implements ReSTAuthorizationInterface
 {
     private static final String HMAC_SHA1_ALGORITHM = "HmacSHA1";
+    private static final List<String> SUB_RESOURCES=Arrays.asList(
+        "acl", "cors", "delete", "lifecycle", "location", "logging", "notification", "partNumber", "policy",
+        "requestPayment", "tagging", "torrent", "uploadId", "uploads", "versionId", "versioning", "versions", "website"
+    );
     public final String accessKeyID;
     private final String secretAccessKey;
 
@@ -143,6 +148,7 @@ public final class AWSReSTAuthorization implements ReSTAuthorizationInterface
         }
         
         stringToSign+=http.getURL().getPath();
+        stringToSign+=subResources( http.getURL().getQuery());
 
         String signature=calculateRFC2104HMAC(stringToSign,secretAccessKey );
 
@@ -153,6 +159,38 @@ public final class AWSReSTAuthorization implements ReSTAuthorizationInterface
         return this;
     }
 
+    /**
+     * The S3 sub-resources of the query ( uploads, partNumber, uploadId etc.) are part of the
+     * signed resource, sorted by name.
+     */
+    @Nonnull @CheckReturnValue
+    private static String subResources( final String query)
+    {
+        if( StringUtilities.isBlank(query)) return "";
+
+        ArrayList<String> list=new ArrayList<>();
+        for( String pair: query.split("&"))
+        {
+            int pos=pair.indexOf('=');
+            String name=pos == -1 ? pair : pair.substring(0, pos);
+            if( SUB_RESOURCES.contains(name))
+            {
+                list.add(pair);
+            }
+        }
+
+        if( list.isEmpty()) return "";
+
+        Collections.sort(list);
+        StringBuilder sb=new StringBuilder();
+        for( String pair: list)
+        {
+            sb.append( sb.length() == 0 ? '?' : '&').append(pair);
+        }
+
+        return sb.toString();
+    }
+
     @Nonnull @CheckReturnValue
     private String calculateRFC2104HMAC(final @Nonnull String data, final @Nonnull String key)
     {
@@ -0,0 +1,294 @@
+/**
+ *  STS Remote library
+ *
+ *  Copyright (C) 2006  stSoftware Pty Ltd
+ *
+ *  stSoftware.com.au
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ *  Bug fixes, suggestions and comments should be sent to:
+ *
+ *  info AT stsoftware.com.au
+ *
+ *  or by snail mail to:
+ *
+ *  stSoftware
+ *  building C, level 1,
+ *  14 Rodborough Rd
+ *  Frenchs Forest 2086
+ *  Australia.
+ */
+package com.aspc.remote.rest.internal;
+
+import com.aspc.remote.rest.Response;
+import com.aspc.remote.rest.ResponseCallback;
+import com.aspc.remote.rest.Status;
+import com.aspc.remote.util.misc.CLogger;
+import com.aspc.remote.util.misc.VersionENV;
+import java.net.URL;
+import java.util.ArrayDeque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.annotation.CheckReturnValue;
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import org.apache.commons.logging.Log;
+
+/**
+ *  The shared executor of the asynchronous ReST calls.
+ *
+ *  The number of threads is bounded and each host has a limit of concurrent calls, the calls
+ *  over the host limit wait in a queue for that host without holding a thread.
+ *
+ *  <br>
+ *  <i>THREAD MODE: MULTI-THREADED</i>
+ *
+ *  @author      Nigel Leck
+ *  @since       18 October 2026
+ */
+public final class AsyncReSTExecutor
+{
+    /** the maximum number of threads making asynchronous ReST calls */
+    public static final String PROPERTY_MAX_ASYNC_REST_THREADS="MAX_ASYNC_REST_THREADS";
+    /** the default maximum concurrent asynchronous ReST calls to one host */
+    public static final String PROPERTY_MAX_REST_CALLS_PER_HOST="MAX_REST_CALLS_PER_HOST";
+
+    private static final Log LOGGER = CLogger.getLog( "com.aspc.remote.rest.internal.AsyncReSTExecutor");//#LOGGER-NOPMD
+    private static final ThreadPoolExecutor EXECUTOR;
+    private static final int DEFAULT_HOST_LIMIT;
+    private static final ConcurrentHashMap<String, HostQueue> HOSTS=new ConcurrentHashMap<>();
+
+    private AsyncReSTExecutor()
+    {
+    }
+
+    /**
+     * Set the maximum concurrent asynchronous calls to this host.
+     *
+     * @param host the host name ( with the port if not the default).
+     * @param limit the maximum concurrent calls.
+     */
+    public static void setHostLimit( final @Nonnull String host, final @Nonnegative int limit)
+    {
+        if( limit < 1) throw new IllegalArgumentException( "host limit must be positive was: " + limit);
+        hostQueue( host.toLowerCase()).setLimit( limit);
+    }
+
+    /**
+     * The number of asynchronous calls to this host that are running or waiting.
+     *
+     * @param host the host name ( with the port if not the default).
+     * @return the count
+     */
+    @CheckReturnValue @Nonnegative
+    public static int countInFlight( final @Nonnull String host)
+    {
+        HostQueue hq = HOSTS.get( host.toLowerCase());
+        if( hq == null) return 0;
+
+        return hq.count();
+    }
+
+    /**
+     * Submit a call.
+     *
+     * @param url the URL of the call, used for the host limit.
+     * @param call the call
+     * @param callback the optional callback
+     * @return the future response.
+     */
+    @CheckReturnValue @Nonnull
+    public static Future<Response> submit( final @Nonnull URL url, final @Nonnull Callable<Response> call, final @Nullable ResponseCallback callback)
+    {
+        HostQueue hq = hostQueue( hostKey( url));
+        AsyncResponse task = new AsyncResponse( call, callback, hq);
+        hq.submit( task);
+
+        return task;
+    }
+
+    @CheckReturnValue @Nonnull
+    static String hostKey( final @Nonnull URL url)
+    {
+        String host = url.getHost().toLowerCase();
+        int port = url.getPort();
+        if( port != -1 && port != url.getDefaultPort())
+        {
+            host += ":" + port;
+        }
+        return host;
+    }
+
+    @Nonnull
+    private static HostQueue hostQueue( final @Nonnull String host)
+    {
+        HostQueue hq = HOSTS.get( host);
+        if( hq == null)
+        {
+            HostQueue tmp = new HostQueue( DEFAULT_HOST_LIMIT);
+            hq = HOSTS.putIfAbsent( host, tmp);
+            if( hq == null) hq = tmp;
+        }
+        return hq;
+    }
+
+    /**
+     * The calls to one host.
+     */
+    private static final class HostQueue
+    {
+        private final ArrayDeque<AsyncResponse> waiting = new ArrayDeque<>();
+        private int running;
+        private int limit;
+
+        HostQueue( final int limit)
+        {
+            this.limit = limit;
+        }
+
+        synchronized void setLimit( final int limit)
+        {
+            this.limit = limit;
+            drain();
+        }
+
+        synchronized int count()
+        {
+            return running + waiting.size();
+        }
+
+        synchronized void submit( final @Nonnull AsyncResponse task)
+        {
+            waiting.add( task);
+            drain();
+        }
+
+        synchronized void finished()
+        {
+            running--;
+            drain();
+        }
+
+        private void drain()
+        {
+            while( running < limit && waiting.isEmpty() == false)
+            {
+                AsyncResponse task = waiting.poll();
+                if( task.isCancelled()) continue;
+
+                running++;
+                EXECUTOR.execute( task);
+            }
+        }
+    }
+
+    /**
+     * The future response.
+     */
+    private static final class AsyncResponse extends FutureTask<Response>
+    {
+        private final ResponseCallback callback;
+        private final HostQueue hostQueue;
+        private final AtomicInteger finished = new AtomicInteger();
+
+        AsyncResponse( final Callable<Response> call, final ResponseCallback callback, final HostQueue hostQueue)
+        {
+            super( call);
+            this.callback = callback;
+            this.hostQueue = hostQueue;
+        }
+
+        @Override
+        public void run()
+        {
+            try
+            {
+                super.run();
+            }
+            finally
+            {
+                if( finished.compareAndSet( 0, 1))
+                {
+                    hostQueue.finished();
+                }
+            }
+        }
+
+        @Override
+        protected void done()
+        {
+            if( callback == null || isCancelled()) return;
+
+            Response response;
+            try
+            {
+                response = get();
+            }
+            catch( InterruptedException | ExecutionException e)
+            {
+                Throwable cause = e.getCause() != null ? e.getCause() : e;
+                LOGGER.warn( "async ReST call failed", cause);
+                response = Response.builder( Status.C520_UNKNOWN_ERROR, "text/plan", cause.toString()).make();
+            }
+
+            try
+            {
+                callback.completed( response);
+            }
+            catch( RuntimeException re)
+            {
+                LOGGER.warn( "async ReST callback failed", re);
+            }
+        }
+    }
+
+    static
+    {
+        int cores=Runtime.getRuntime().availableProcessors();
+
+        int threads = new VersionENV( PROPERTY_MAX_ASYNC_REST_THREADS, cores * 8, 2, 4096).calculateVersion();
+        DEFAULT_HOST_LIMIT = new VersionENV( PROPERTY_MAX_REST_CALLS_PER_HOST, 8, 1, 4096).calculateVersion();
+
+        final AtomicInteger threadCount = new AtomicInteger();
+        EXECUTOR = new ThreadPoolExecutor(
+            threads,
+            threads,
+            60,
+            TimeUnit.SECONDS,
+            new LinkedBlockingQueue<Runnable>(),
+            new ThreadFactory()
+            {
+                @Override
+                public Thread newThread( final Runnable r)
+                {
+                    Thread t = new Thread( r, "ReST async-" + threadCount.incrementAndGet());
+                    t.setDaemon( true);
+                    return t;
+                }
+            }
+        );
+        EXECUTOR.allowCoreThreadTimeOut( true);
+    }
+}
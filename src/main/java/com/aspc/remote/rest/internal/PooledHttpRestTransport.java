@@ -0,0 +1,46 @@
+package com.aspc.remote.rest.internal;
+
+import com.aspc.remote.rest.ContentType;
+import com.aspc.remote.rest.DispositionType;
+import com.aspc.remote.rest.Method;
+import java.io.File;
+import java.net.URL;
+import javax.annotation.Nonnegative;
+import javax.annotation.Nullable;
+
+/**
+ *  HTTP transport that reuses persistent connections from the shared connection pool.
+ *
+ *  The calls and the cache are the same as {@link HttpRestTransport}, only the connection
+ *  handling differs. Use via ReST.Builder.setTransport( new PooledHttpRestTransport()).
+ *
+ *  @author      Nigel Leck
+ *  @since       18 October 2026
+ */
+public class PooledHttpRestTransport implements RestTransport
+{
+    @Override
+    public String getRootFolderName()
+    {
+        return "remote/";
+    }
+
+    @Override
+    public RestCall makeRestCall(
+        final Method method,
+        final URL url,
+        final ReSTAuthorizationInterface auth,
+        final String agent,
+        final File propertiesFile,
+        final File body,
+        final @Nonnegative int timeout,
+        final boolean disableGZIP,
+        final Friend friend,
+        final @Nullable ContentType contentType,
+        final @Nullable DispositionType dispositionType) {
+        assert timeout >= 0: "timeout must be non negative " + timeout;
+        return new RestCallPooledHTTP(method, url, auth, agent, propertiesFile, body, timeout, disableGZIP, friend,
+                    contentType,
+                    dispositionType);
+    }
+}
@@ -0,0 +1,499 @@
+/**
+ *  STS Remote library
+ *
+ *  Copyright (C) 2006  stSoftware Pty Ltd
+ *
+ *  stSoftware.com.au
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ *  Bug fixes, suggestions and comments should be sent to:
+ *
+ *  info AT stsoftware.com.au
+ *
+ *  or by snail mail to:
+ *
+ *  stSoftware
+ *  building C, level 1,
+ *  14 Rodborough Rd
+ *  Frenchs Forest 2086
+ *  Australia.
+ */
+package com.aspc.remote.rest.internal;
+
+import com.aspc.remote.memory.MemoryHandler;
+import com.aspc.remote.memory.MemoryManager;
+import com.aspc.remote.rest.Status;
+import com.aspc.remote.util.misc.CLogger;
+import com.aspc.remote.util.misc.CProperties;
+import com.aspc.remote.util.misc.NumUtil;
+import com.aspc.remote.util.misc.VersionENV;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.CheckReturnValue;
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import org.apache.commons.logging.Log;
+
+/**
+ *  The in-memory ( L1) tier in front of the ReST disk cache.
+ *
+ *  Small responses that have been validated against the disk cache are held in memory keyed by the
+ *  cache properties file so a hot response is served without reading the properties file or the
+ *  SHA1 of the content. An entry is only used while the properties file has the same modified time
+ *  and the content file the same length and modified time, a new fetch replaces the disk entry and so
+ *  invalidates the memory entry.
+ *
+ *  The tier is limited by the number of entries and the total bytes held, the least recently used
+ *  entries are released first and the Memory Manager shrinks the tier under memory pressure.
+ *
+ *  <br>
+ *  <i>THREAD MODE: MULTI-THREADED</i>
+ *
+ *  @author      Nigel Leck
+ *  @since       18 October 2026
+ */
+public final class ReSTMemoryCache implements MemoryHandler
+{
+    /** is the memory tier enabled ( default true) */
+    public static final String PROPERTY_REST_MEMORY_CACHE="REST_MEMORY_CACHE";
+    /** the maximum number of responses held in memory */
+    public static final String PROPERTY_REST_MEMORY_CACHE_ENTRIES="REST_MEMORY_CACHE_ENTRIES";
+    /** the maximum kilobytes of content held in memory */
+    public static final String PROPERTY_REST_MEMORY_CACHE_KB="REST_MEMORY_CACHE_KB";
+    /** the largest response in kilobytes that will be held in memory */
+    public static final String PROPERTY_REST_MEMORY_CACHE_MAX_ENTRY_KB="REST_MEMORY_CACHE_MAX_ENTRY_KB";
+
+    private static final Log LOGGER = CLogger.getLog( "com.aspc.remote.rest.internal.ReSTMemoryCache");//#LOGGER-NOPMD
+    private static final int OVERHEAD_ENTRY=256;
+    private static final ReSTMemoryCache CACHE;
+
+    private final LinkedHashMap<String, Entry> map=new LinkedHashMap<>( 16, 0.75f, true);
+    private final AtomicLong hitCount=new AtomicLong();
+    private final AtomicLong missCount=new AtomicLong();
+    private final AtomicLong evictionCount=new AtomicLong();
+    private final int maxEntries;
+    private final long maxBytes;
+    private final int maxEntryBytes;
+    private long bytes;
+    private volatile long lastAccessed=System.currentTimeMillis();
+
+    /**
+     * A response held in memory.
+     */
+    public static final class Entry
+    {
+        /** the modified time of the properties file */
+        public final long propertiesModified;
+        /** the cached content file */
+        public final File file;
+        /** the modified time of the content file */
+        public final long fileModified;
+        /** the status */
+        public final Status status;
+        /** the mime type */
+        public final String mimeType;
+        /** the cache control returned by the server */
+        public final String cacheControl;
+        /** the redirection location */
+        public final @Nullable String redirection;
+        private final byte content[];
+
+        private Entry(
+            final long propertiesModified,
+            final @Nonnull File file,
+            final @Nonnull Status status,
+            final @Nonnull String mimeType,
+            final @Nonnull String cacheControl,
+            final @Nullable String redirection,
+            final @Nonnull byte content[]
+        )
+        {
+            this.propertiesModified=propertiesModified;
+            this.file=file;
+            this.fileModified=file.lastModified();
+            this.status=status;
+            this.mimeType=mimeType;
+            this.cacheControl=cacheControl;
+            this.redirection=redirection;
+            this.content=content;
+        }
+
+        /**
+         * The content of the response, shared so must not be modified.
+         * @return the content
+         */
+        @CheckReturnValue @Nonnull
+        public byte[] getContent()
+        {
+            return content;//NOPMD
+        }
+
+        private long size()
+        {
+            return content.length + OVERHEAD_ENTRY;
+        }
+    }
+
+    private ReSTMemoryCache( final @Nonnegative int maxEntries, final @Nonnegative long maxBytes, final @Nonnegative int maxEntryBytes)
+    {
+        this.maxEntries=maxEntries;
+        this.maxBytes=maxBytes;
+        this.maxEntryBytes=maxEntryBytes;
+    }
+
+    /**
+     * Is the memory tier enabled ?
+     * @return true if enabled.
+     */
+    @CheckReturnValue
+    public static boolean isEnabled()
+    {
+        return CACHE.maxEntries > 0;
+    }
+
+    /**
+     * Find the response held in memory for this cache properties file.
+     *
+     * @param propertiesFile the cache properties file.
+     * @return the entry or null if not held or the disk cache has changed.
+     */
+    @CheckReturnValue @Nullable
+    public static Entry find( final @Nonnull File propertiesFile)
+    {
+        return CACHE.get( propertiesFile);
+    }
+
+    /**
+     * Hold the response in memory if small enough.
+     *
+     * @param propertiesFile the cache properties file.
+     * @param propertiesModified the modified time of the properties file that was validated.
+     * @param file the content file.
+     * @param status the status
+     * @param mimeType the mime type
+     * @param cacheControl the cache control
+     * @param redirection the redirection location
+     */
+    public static void store(
+        final @Nonnull File propertiesFile,
+        final long propertiesModified,
+        final @Nonnull File file,
+        final @Nonnull Status status,
+        final @Nonnull String mimeType,
+        final @Nonnull String cacheControl,
+        final @Nullable String redirection
+    )
+    {
+        CACHE.put( propertiesFile, propertiesModified, file, status, mimeType, cacheControl, redirection);
+    }
+
+    /**
+     * Remove the response for this cache properties file.
+     * @param propertiesFile the cache properties file.
+     */
+    public static void remove( final @Nonnull File propertiesFile)
+    {
+        CACHE.drop( propertiesFile.getPath());
+    }
+
+    /**
+     * Release all the responses held.
+     */
+    public static void clear()
+    {
+        CACHE.panicFreeMemory();
+    }
+
+    /**
+     * The number of requests found in memory.
+     * @return the count
+     */
+    @CheckReturnValue @Nonnegative
+    public static long getHitCount()
+    {
+        return CACHE.hitCount.get();
+    }
+
+    /**
+     * The number of requests not found in memory.
+     * @return the count
+     */
+    @CheckReturnValue @Nonnegative
+    public static long getMissCount()
+    {
+        return CACHE.missCount.get();
+    }
+
+    /**
+     * The number of responses released from memory.
+     * @return the count
+     */
+    @CheckReturnValue @Nonnegative
+    public static long getEvictionCount()
+    {
+        return CACHE.evictionCount.get();
+    }
+
+    /**
+     * The number of responses held in memory.
+     * @return the count
+     */
+    @CheckReturnValue @Nonnegative
+    public static int getEntryCount()
+    {
+        synchronized( CACHE.map)
+        {
+            return CACHE.map.size();
+        }
+    }
+
+    @CheckReturnValue @Nullable
+    private Entry get( final @Nonnull File propertiesFile)
+    {
+        if( maxEntries == 0) return null;
+
+        lastAccessed=System.currentTimeMillis();
+        String key=propertiesFile.getPath();
+        Entry e;
+        synchronized( map)
+        {
+            e=map.get( key);
+        }
+
+        if( e != null)
+        {
+            if(
+                propertiesFile.lastModified() == e.propertiesModified &&
+                e.file.lastModified() == e.fileModified &&
+                e.file.length() == e.content.length
+            )
+            {
+                hitCount.incrementAndGet();
+                return e;
+            }
+
+            drop( key);
+        }
+
+        missCount.incrementAndGet();
+        return null;
+    }
+
+    private void put(
+        final @Nonnull File propertiesFile,
+        final long propertiesModified,
+        final @Nonnull File file,
+        final @Nonnull Status status,
+        final @Nonnull String mimeType,
+        final @Nonnull String cacheControl,
+        final @Nullable String redirection
+    )
+    {
+        if( maxEntries == 0) return;
+
+        long len=file.length();
+        if( len > maxEntryBytes || len + OVERHEAD_ENTRY > maxBytes) return;
+
+        byte content[];
+        try
+        {
+            content=Files.readAllBytes( file.toPath());
+        }
+        catch( IOException io)
+        {
+            LOGGER.warn( "could not read " + file, io);
+            return;
+        }
+
+        Entry e=new Entry( propertiesModified, file, status, mimeType, cacheControl, redirection, content);
+        String key=propertiesFile.getPath();
+        int evicted=0;
+        synchronized( map)
+        {
+            Entry previous=map.put( key, e);
+            if( previous != null)
+            {
+                bytes-=previous.size();
+            }
+            bytes+=e.size();
+
+            Iterator<Entry> it=map.values().iterator();
+            while( ( map.size() > maxEntries || bytes > maxBytes) && it.hasNext())
+            {
+                Entry oldest=it.next();
+                if( oldest == e) break;
+                it.remove();
+                bytes-=oldest.size();
+                evicted++;
+            }
+        }
+
+        if( evicted > 0)
+        {
+            evictionCount.addAndGet( evicted);
+        }
+    }
+
+    private void drop( final @Nonnull String key)
+    {
+        synchronized( map)
+        {
+            Entry e=map.remove( key);
+            if( e != null)
+            {
+                bytes-=e.size();
+            }
+        }
+    }
+
+    /**
+     * The memory tier is cheap to rebuild from the disk cache.
+     * @return the cost
+     */
+    @Override @CheckReturnValue @Nonnull
+    public Cost getCost()
+    {
+        return Cost.LOW;
+    }
+
+    /**
+     * Release the least recently used responses.
+     *
+     * @param percentage the percentage to free
+     * @return the estimated bytes released
+     */
+    @Override @Nonnegative
+    public long freeMemory( final @Nonnegative double percentage)
+    {
+        return MemoryManager.callFreeMemory( this, percentage);
+    }
+
+    /**
+     * Nothing to tidy, the entries are checked when used.
+     *
+     * @return zero
+     */
+    @Override @Nonnegative
+    public long tidyUp()
+    {
+        return 0;
+    }
+
+    /**
+     * Release the least recently used responses.
+     *
+     * @param percentage the percentage to free
+     * @return the estimated bytes released
+     */
+    @Override @Nonnegative
+    public long queuedFreeMemory( final @Nonnegative double percentage)
+    {
+        long released=0;
+        int removed=0;
+        synchronized( map)
+        {
+            int dropCount=(int)Math.ceil( map.size() * percentage);
+            Iterator<Map.Entry<String, Entry>> it=map.entrySet().iterator();
+            while( removed < dropCount && it.hasNext())
+            {
+                Entry e=it.next().getValue();
+                it.remove();
+                released+=e.size();
+                removed++;
+            }
+            bytes-=released;
+        }
+
+        if( removed > 0)
+        {
+            evictionCount.addAndGet( removed);
+            if( LOGGER.isDebugEnabled())
+            {
+                LOGGER.debug( "Cleared ReST memory cache removed: " + removed + " released: " + NumUtil.convertMemoryToHumanReadable( released));
+            }
+        }
+
+        return released;
+    }
+
+    /**
+     * Release all responses.
+     *
+     * @return the estimated bytes released
+     */
+    @Override @Nonnegative
+    public long panicFreeMemory()
+    {
+        return queuedFreeMemory( 1);
+    }
+
+    /**
+     * The bytes held.
+     *
+     * @return The estimated number of bytes held.
+     */
+    @Override @CheckReturnValue @Nonnegative
+    public long getEstimatedSize()
+    {
+        synchronized( map)
+        {
+            return bytes;
+        }
+    }
+
+    /**
+     * The last time the memory tier was accessed
+     *
+     * @return The last time in milliseconds.
+     */
+    @Override @CheckReturnValue @Nonnegative
+    public long getLastAccessed()
+    {
+        return lastAccessed;
+    }
+
+    /**
+     * The limits and counters
+     *
+     * @return the description
+     */
+    @Override @CheckReturnValue @Nonnull
+    public String toString()
+    {
+        return "ReSTMemoryCache{entries=" + getEntryCount() + ", bytes=" + getEstimatedSize() +
+            ", hits=" + hitCount.get() + ", misses=" + missCount.get() + ", evictions=" + evictionCount.get() + '}';
+    }
+
+    static
+    {
+        int entries = 0;
+        if( Boolean.parseBoolean( CProperties.getProperty( PROPERTY_REST_MEMORY_CACHE, "true").trim()))
+        {
+            entries = new VersionENV( PROPERTY_REST_MEMORY_CACHE_ENTRIES, 1024, 1, 1024 * 1024).calculateVersion();
+        }
+        int kb = new VersionENV( PROPERTY_REST_MEMORY_CACHE_KB, 16 * 1024, 1, 1024 * 1024).calculateVersion();
+        int maxEntryKB = new VersionENV( PROPERTY_REST_MEMORY_CACHE_MAX_ENTRY_KB, 64, 1, 1024 * 1024).calculateVersion();
+
+        CACHE = new ReSTMemoryCache( entries, kb * 1024L, maxEntryKB * 1024);
+        MemoryManager.register( CACHE);
+    }
+}
@@ -80,6 +80,19 @@ public class RestCallHTTP extends RestCall
         super(method, url, auth, agent, propertiesFile, body, timeout, disableGZIP, friend,contentType,dispositionType);
     }
 
+    /**
+     * Open the connection for this call.
+     * 
+     * @param target the URL to connect to.
+     * @return the connection
+     * @throws IOException could not open the connection.
+     */
+    @CheckReturnValue @Nonnull
+    protected HttpURLConnection openConnection( final @Nonnull URL target) throws IOException
+    {
+        return (HttpURLConnection)target.openConnection();
+    }
+    
     @Override @CheckReturnValue @Nonnull
     protected Response doCall() throws Exception
     {
@@ -116,7 +129,7 @@ public class RestCallHTTP extends RestCall
         HttpURLConnection c =null;
         try
         {           
-            c = (HttpURLConnection)url.openConnection();
+            c = openConnection(url);
             /*
              * TODO: c.setIfModifiedSince(timeout);
              */
@@ -393,7 +406,7 @@ public class RestCallHTTP extends RestCall
                     postData = temp.substring(pos + 1).getBytes( StandardCharsets.UTF_8 );
                 }
             }
-            c = (HttpURLConnection)tmpURL.openConnection();
+            c = openConnection(tmpURL);
             /*
              * TODO: c.setIfModifiedSince(timeout);
              */
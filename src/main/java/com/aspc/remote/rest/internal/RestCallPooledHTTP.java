@@ -0,0 +1,66 @@
+package com.aspc.remote.rest.internal;
+
+import com.aspc.remote.rest.ContentType;
+import com.aspc.remote.rest.DispositionType;
+import com.aspc.remote.rest.Method;
+import com.aspc.remote.util.net.HttpConnectionPool;
+import java.io.File;
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import javax.annotation.CheckReturnValue;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * HTTP ReST call using a pooled persistent connection.
+ * 
+ * Calls that trust all certificates use their own connection as the pool only holds verified connections.
+ * 
+ * @author      Nigel Leck
+ * @since       18 October 2026
+ */
+public class RestCallPooledHTTP extends RestCallHTTP
+{
+    /**
+     * The ReST call. 
+     * 
+     * @param method the method
+     * @param url the URL. 
+     * @param auth any authorization.
+     * @param agent the agent string to use.
+     * @param propertiesFile the properties file
+     * @param body the file contains request body
+     * @param timeout the timeout in milliseconds ( if any) 
+     * @param disableGZIP true to NOT accept GZIP encoding, default is false
+     * @param friend the friend
+     * @param contentType the content type
+     * @param dispositionType the disposition type
+     */    
+    public RestCallPooledHTTP(
+        final @Nonnull Method method,             
+        final URL url, 
+        final ReSTAuthorizationInterface auth, 
+        final String agent, 
+        final File propertiesFile,
+        final File body,
+        final int timeout,
+        final boolean disableGZIP,
+        final Friend friend,
+        final @Nullable ContentType contentType,
+        final @Nullable DispositionType dispositionType
+    ) {
+        super(method, url, auth, agent, propertiesFile, body, timeout, disableGZIP, friend,contentType,dispositionType);
+    }
+
+    @Override @CheckReturnValue @Nonnull
+    protected HttpURLConnection openConnection( final @Nonnull URL target) throws IOException
+    {
+        if( auth instanceof TrustAllCertsAuthorization)
+        {
+            return super.openConnection(target);
+        }
+        
+        return HttpConnectionPool.openConnection(target);
+    }
+}
@@ -40,6 +40,7 @@ import com.aspc.remote.jdbc.SoapResultSet;
 import com.aspc.remote.soap.http.WebTransport;
 import com.aspc.remote.soap.internal.SoapCallException;
 import com.aspc.remote.soap.internal.SoapTransport;
+import com.aspc.remote.soap.internal.TransportBalancer;
 import com.aspc.remote.util.crypto.CryptoUtil;
 import com.aspc.remote.util.misc.*;
 import com.aspc.remote.util.net.NetUrl;
@@ -51,6 +52,7 @@ import java.io.InputStreamReader;
 import java.net.URL;
 import java.security.SecureRandom;
 import java.util.*;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.atomic.AtomicLong;
 import javax.annotation.CheckReturnValue;
 import javax.annotation.Nonnull;
@@ -1120,14 +1122,117 @@ public class Client implements Executor
      * we will retry the command without notifying the user                                                                             <br>
      *                                                                                                                                  <br>
      * This is a SINGLE THREADED class but... as people are accidently calling it from multiple threads we should protect ourselves by
-     * adding a synchronized.
+     * adding a synchronized.                                                                                                          <br>
+     *                                                                                                                                  <br>
+     * When more than one concurrent request is allowed ( see {@link #setMaxConcurrentRequests(int)}) the calls made while the client
+     * is stateless run in parallel, each call choosing its own transport.
      *
      * @param sql The SQL/XML statement
      * @throws Exception A serious problem
      * @return The XML result document
      */
     @Override
-    public synchronized Document execute( final String sql) throws Exception
+    public Document execute( final String sql) throws Exception
+    {
+        Semaphore limit = concurrentLimit;
+        if( limit != null && isStateless())
+        {
+            limit.acquire();
+            try
+            {
+                return concurrentExecute( sql);
+            }
+            finally
+            {
+                limit.release();
+            }
+        }
+
+        return serialExecute( sql);
+    }
+
+    /**
+     * Set the maximum number of stateless calls that may be in flight at once, one ( the default) makes every call wait for the previous.
+     *
+     * @param maxRequests the maximum concurrent requests.
+     */
+    public void setMaxConcurrentRequests( final int maxRequests)
+    {
+        if( maxRequests < 1) throw new IllegalArgumentException( "maximum concurrent requests must be positive was: " + maxRequests);
+
+        maxConcurrentRequests = maxRequests;
+        concurrentLimit = maxRequests > 1 ? new Semaphore( maxRequests) : null;
+    }
+
+    /**
+     * The maximum number of stateless calls that may be in flight at once.
+     *
+     * @return the maximum
+     */
+    @CheckReturnValue
+    public int getMaxConcurrentRequests()
+    {
+        return maxConcurrentRequests;
+    }
+
+    /**
+     * Run a stateless call on the best transport, a failed call is repeated on another transport.
+     */
+    @SuppressWarnings("unchecked")
+    private Document concurrentExecute( final String sql) throws Exception
+    {
+        SoapTransport failed = null;
+        for( int loop = 1; true; loop++)
+        {
+            List<SoapTransport> list;
+            synchronized( this)
+            {
+                currentTransport();
+                list = new ArrayList<>( getTransportList());
+            }
+            SoapTransport transport = TransportBalancer.choose( list, failed);
+
+            long start = System.nanoTime();
+            TransportBalancer.started( transport);
+            boolean ok = false;
+            try
+            {
+                Document result = iExecute( sql, transport);
+                ok = true;
+                return result;
+            }
+            catch( SessionLoggedOutException sloe)
+            {
+                ok = true;
+                synchronized( this)
+                {
+                    login(login, passwd, currentLayer);
+                }
+            }
+            catch( NotFoundException | SoapCallException e)
+            {
+                ok = true;
+                throw e;
+            }
+            catch( Exception e )
+            {
+                LOGGER.warn( sql, e);
+                if( loop >= list.size())
+                {
+                    throw e;
+                }
+
+                LOGGER.warn( "Server '" + transport.getHost() + "' failed so retrying on another transport.");
+                failed = transport;
+            }
+            finally
+            {
+                TransportBalancer.finished( transport, start, ok == false);
+            }
+        }
+    }
+
+    private synchronized Document serialExecute( final String sql) throws Exception
     {
         boolean repeatable = isStateless();
 
@@ -1139,7 +1244,7 @@ public class Client implements Executor
         {
             try
             {
-                return iExecute( sql);
+                return iExecute( sql, currentTransport());
             }
             catch( SessionLoggedOutException sloe)
             {
@@ -1164,7 +1269,7 @@ public class Client implements Executor
                 {
                     try
                     {
-                        iExecute( "SLEEP 0");
+                        iExecute( "SLEEP 0", currentTransport());
                     }
                     catch( Exception e2 )
                     {
@@ -1195,7 +1300,7 @@ public class Client implements Executor
     }
     
     
-    private Document iExecute( final String sql) throws Exception
+    private Document iExecute( final String sql, final SoapTransport transport) throws Exception
     {
         Document envelope = createEnvelope();
 
@@ -1227,7 +1332,8 @@ public class Client implements Executor
         messageIdElement.setTextContent( Long.toString( MESSAGE_ID.incrementAndGet()));
 
         Document doc;
-        doc = sendEnvelope( envelope, "/soap/action/commander");
+        addSessionHeader( envelope);
+        doc = transport.sendEnvelope( envelope, "/soap/action/commander");
 
         Document result = getResult( doc, "result");
 
@@ -1246,17 +1352,18 @@ public class Client implements Executor
                 Element txIdElement = (Element)idList.item( 0);
 
                 Element idElement = (Element)txIdElement.getElementsByTagName( "id").item(0);
-                stateID = idElement.getNodeValue();
+                String tmpStateID = idElement.getNodeValue();
 
-                if( stateID == null)
+                if( tmpStateID == null)
                 {
                     Node textNode = idElement.getFirstChild();
 
                     if( textNode != null)
                     {
-                        stateID = textNode.getNodeValue();
+                        tmpStateID = textNode.getNodeValue();
                     }
                 }
+                stateID = tmpStateID;
             }
         }
 
@@ -2009,6 +2116,13 @@ public class Client implements Executor
      */
     private static final AtomicLong MESSAGE_ID=new AtomicLong();
 
+    /**
+     * The default maximum number of stateless calls in flight per client ( default 1).
+     */
+    public static final String ENV_SOAP_MAX_CONCURRENT="SOAP_MAX_CONCURRENT";
+
+    private static final int DEFAULT_MAX_CONCURRENT = new VersionENV( ENV_SOAP_MAX_CONCURRENT, 1, 1, 1024).calculateVersion();
+
     /**
      * Static field for traffic bypass value
      */
@@ -2056,7 +2170,7 @@ public class Client implements Executor
 
     //private SOAPHeaderElement cacheHeader;
     private String sessionID;
-    private String stateID;
+    private volatile String stateID;
     private String login;//NOPMD
     private String passwd;
     private final ArrayList transports = new ArrayList();
@@ -2066,6 +2180,9 @@ public class Client implements Executor
 
     private String cacheDirectory;
 
+    private int maxConcurrentRequests = DEFAULT_MAX_CONCURRENT;
+    private volatile Semaphore concurrentLimit = DEFAULT_MAX_CONCURRENT > 1 ? new Semaphore( DEFAULT_MAX_CONCURRENT) : null;
+
     private static final String TYPE_CHECKOUT = "CHECKOUT";
     private static final String TYPE_READ = "READ";
     private static final String TYPE_UPDATE = "UPDATE";
@@ -0,0 +1,90 @@
+/**
+ *  STS Remote library
+ *
+ *  Copyright (C) 2006  stSoftware Pty Ltd
+ *
+ *  stSoftware.com.au
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ *  Bug fixes, suggestions and comments should be sent to:
+ *
+ *  info AT stsoftware.com.au
+ *
+ *  or by snail mail to:
+ *
+ *  stSoftware
+ *  building C, level 1,
+ *  14 Rodborough Rd
+ *  Frenchs Forest 2086
+ *  Australia.
+ */
+package com.aspc.remote.soap.http;
+
+import com.aspc.remote.util.net.HttpConnectionPool;
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+
+/**
+ *  HTTP Transport for SOAP calls that reuses persistent connections from the shared connection pool.
+ *
+ *  The envelope is sent the same as {@link WebTransport}, the connection is returned to the pool
+ *  after the response is read instead of being closed.
+ *  <br>
+ *  <i>THREAD MODE: SINGLE-THREADED</i>
+ *
+ *  @author      Nigel Leck
+ *  @since       18 October 2026
+ */
+public class PooledWebTransport extends WebTransport
+{
+    /**
+     * The raw transport layer.
+     * @param host The host name
+     */
+    public PooledWebTransport(final String host)
+    {
+       super( host);
+    }
+
+    /**
+     * Constructor to set the host, userId and password.
+     * @param host Hostname
+     * @param userId User Id
+     * @param password Password
+     */
+    public PooledWebTransport(final String host, final String userId, final String password)
+    {
+        super(host, userId, password);
+    }
+
+    /**
+     * Open a pooled connection unless the certificate is being by passed.
+     * @param url the URL to connect to.
+     * @return the connection
+     * @throws IOException could not open the connection.
+     */
+    @Override
+    protected HttpURLConnection openConnection( final URL url) throws IOException
+    {
+        if( BY_PASS_INVALID_CERT.get())
+        {
+            return super.openConnection(url);
+        }
+
+        return HttpConnectionPool.openConnection(url);
+    }
+}
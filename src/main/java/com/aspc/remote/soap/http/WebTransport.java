@@ -36,10 +36,12 @@ package com.aspc.remote.soap.http;
 import org.w3c.dom.Document;
 import com.aspc.remote.soap.internal.SoapTransport;
 import com.aspc.remote.util.misc.CLogger;
+import com.aspc.remote.util.misc.CProperties;
 import com.aspc.remote.util.misc.DocumentUtil;
 import com.aspc.remote.util.misc.StringUtilities;
 import com.aspc.remote.util.net.NetUrl;
 import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.StringWriter;
@@ -50,6 +52,8 @@ import java.net.UnknownHostException;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 import javax.net.ssl.HttpsURLConnection;
 import javax.net.ssl.SSLHandshakeException;
 import org.apache.commons.logging.Log;
@@ -58,9 +62,9 @@ import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
 
 /**
- *  HTTP Transport for SOAP calls
+ *  HTTP Transport for SOAP calls, each call has its own connection so concurrent calls may share the transport.
  *  <br>
- *  <i>THREAD MODE: SINGLE-THREADED</i>
+ *  <i>THREAD MODE: MULTI-THREADED</i>
  *
  *
  *  @author      Nigel Leck
@@ -71,11 +75,24 @@ public class WebTransport extends SoapTransport
     /** Log handler */
     private static final Log LOGGER = CLogger.getLog( "com.aspc.remote.soap.http.WebTransport");//#LOGGER-NOPMD
     
+    /**
+     * Environment variable to disable the streaming of the SOAP envelope and response ( default enabled)
+     */
+    public static final String ENV_SOAP_STREAMING="SOAP_STREAMING";
+
+    /**
+     * Stream the envelope to the connection and parse the response as it is read rather than
+     * holding the XML as a String and compressed byte array.
+     */
+    public static final boolean SOAP_STREAMING;
+
+    private static final int BUFFER_SIZE = 8192;
+
     /** holder to place the header xml */
-    private String headerXml = "";
+    private volatile String headerXml = "";
     /** Static field for moveTo tag */
     private static final String MOVE_TO = "moveTo";    
-    private boolean invalidSSL=false;
+    private volatile boolean invalidSSL=false;
     public static final ThreadLocal<Boolean> BY_PASS_INVALID_CERT=new ThreadLocal()
     {
         @Override
@@ -108,7 +125,7 @@ public class WebTransport extends SoapTransport
         this.defaultPassword = password;
     }
 
-    private boolean initizalized;
+    private volatile boolean initizalized;
     @SuppressWarnings("SleepWhileInLoop")
     private void init() throws Exception
     {
@@ -146,17 +163,28 @@ public class WebTransport extends SoapTransport
         {
             init();
         }
-        String data = DocumentUtil.docToString(envelope);
+        byte[] bytes = null;
+        if( SOAP_STREAMING == false)
+        {
+            String data = DocumentUtil.docToString(envelope);
+            bytes = StringUtilities.compressToBytes(data);
+        }
         
         URL url = new URL( getHost() + relativePath);
         HttpURLConnection conn=null;
         try
         {
-            conn = (HttpURLConnection)url.openConnection();
+            conn = openConnection(url);
             conn.setRequestMethod("POST");
             conn.setRequestProperty("Content-Type", "application/x-www-form-urlencoded");
-            byte[] bytes = StringUtilities.compressToBytes(data);
-            conn.setRequestProperty("Content-Length", "" +bytes.length);
+            if( bytes != null)
+            {
+                conn.setRequestProperty("Content-Length", "" +bytes.length);
+            }
+            else
+            {
+                conn.setChunkedStreamingMode(BUFFER_SIZE);
+            }
             conn.setRequestProperty("Content-Type", "text/xml");
             conn.setRequestProperty("Content-Encoding", "gzip");
             conn.setRequestProperty("SoapAction", ""); 
@@ -199,7 +227,16 @@ public class WebTransport extends SoapTransport
                 out = conn.getOutputStream();
             }
 
-            out.write(bytes);
+            if( bytes != null)
+            {
+                out.write(bytes);
+            }
+            else
+            {
+                try (GZIPOutputStream gzip = new GZIPOutputStream(out, BUFFER_SIZE)) {
+                    DocumentUtil.writeNode(envelope, gzip, 0);
+                }
+            }
 
             int responseCode = conn.getResponseCode();
             if( responseCode != 200)
@@ -208,41 +245,57 @@ public class WebTransport extends SoapTransport
             }
             conn.connect();
 
-            ByteArrayOutputStream bOut=new ByteArrayOutputStream();
-            InputStream in=conn.getInputStream();
-
-            byte array[]=new byte[2048];
-
-            while( true)
-            {
-                int count = in.read(array);
-
-                if( count == -1) break;
-
-                bOut.write(array, 0, count);
-            }
-            String xml;
             String encoding=conn.getHeaderField("Content-Encoding");
-            if( "gzip".equals(encoding))
+            Document result;
+            if( SOAP_STREAMING)
             {
-                xml= StringUtilities.decompress(bOut.toByteArray());
+                InputStream in=conn.getInputStream();
+                if( "gzip".equals(encoding))
+                {
+                    in=new GZIPInputStream(in, BUFFER_SIZE);
+                }
+                result = DocumentUtil.makeDocument(in, DocumentUtil.PARSER.TOLERANT);
             }
             else
             {
-                xml=new String( bOut.toByteArray(), StandardCharsets.UTF_8);
-            }
+                int contentLength=conn.getContentLength();
+                ByteArrayOutputStream bOut=new ByteArrayOutputStream(contentLength > 0 ? contentLength : BUFFER_SIZE);
+                InputStream in=conn.getInputStream();
+
+                byte array[]=new byte[BUFFER_SIZE];
+
+                while( true)
+                {
+                    int count = in.read(array);
+
+                    if( count == -1) break;
+
+                    bOut.write(array, 0, count);
+                }
+                String xml;
+                if( "gzip".equals(encoding))
+                {
+                    xml= StringUtilities.decompress(bOut.toByteArray());
+                }
+                else
+                {
+                    xml=new String( bOut.toByteArray(), StandardCharsets.UTF_8);
+                }
 
-            Document result = DocumentUtil.makeDocument(xml, DocumentUtil.PARSER.TOLERANT);
+                result = DocumentUtil.makeDocument(xml, DocumentUtil.PARSER.TOLERANT);
+            }
 
-            headerXml = "";
+            /* publish the whole header of this call, a concurrent call may replace it but never sees it half built */
+            String tempHeader = "";
             Element header = (Element)result.getElementsByTagName("Header").item(0);
 
             if( header != null)
             {
                 StringWriter sw=new StringWriter();
                 DocumentUtil.writeNode(header, sw);
-                headerXml=sw.toString();
+                tempHeader=sw.toString();
             }
+            headerXml = tempHeader;
             return result;
         }
         finally
@@ -252,6 +305,25 @@ public class WebTransport extends SoapTransport
     }
     private static final int TIMEOUT = 120000;
 
+    static
+    {
+        String temp = CProperties.getProperty( ENV_SOAP_STREAMING, "");
+        temp = temp.toLowerCase();
+
+        SOAP_STREAMING = !temp.startsWith( "n") && !temp.startsWith( "f");
+    }
+
+    /**
+     * Open the connection to send the envelope.
+     * @param url the URL to connect to.
+     * @return the connection
+     * @throws IOException could not open the connection.
+     */
+    protected HttpURLConnection openConnection( final URL url) throws IOException
+    {
+        return (HttpURLConnection)url.openConnection();
+    }
+
     /**
      * If the moveTo tag in the header has any URL, then
      * it will be passed to the client.
@@ -260,12 +332,13 @@ public class WebTransport extends SoapTransport
     public List getMoveToUrlList ()
     {
         List moveToUrlList = new ArrayList();
+        String tempHeader = this.headerXml;
 
         /**
          * Check header is not empty to avoid Premature end of file
          * Exception.
          */
-        if( StringUtilities.isBlank( this.headerXml ) == false )
+        if( StringUtilities.isBlank( tempHeader ) == false )
         {
             /*
              *      If incase the header is going to have multiple URLs then the following can
@@ -276,7 +349,7 @@ public class WebTransport extends SoapTransport
 
             try
             {
-                docTemp = DocumentUtil.makeDocument( this.headerXml );
+                docTemp = DocumentUtil.makeDocument( tempHeader );
             }
             catch( Exception e )
             {
@@ -37,7 +37,10 @@ import com.aspc.remote.util.misc.CLogger;
 import com.aspc.remote.util.misc.CProperties;
 import com.aspc.remote.util.misc.StringUtilities;
 import com.aspc.remote.util.net.NetUrl;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import javax.annotation.CheckReturnValue;
+import javax.annotation.Nonnegative;
 import javax.annotation.Nonnull;
 import org.apache.commons.logging.Log;
 import org.w3c.dom.Document;
@@ -64,7 +67,7 @@ public abstract class SoapTransport
     public static final boolean SOAP_COMPRESSED;
 
     /** disable compression */
-    protected boolean disabledCompression;
+    protected volatile boolean disabledCompression;
 
      /** Host name */ 
     private final String host;
@@ -78,6 +81,14 @@ public abstract class SoapTransport
     /** Default Layer */
     private String      defaultLayer = "";//NOPMD    
 
+    /** the calls currently using this transport */
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    /** the moving average of the call duration */
+    private volatile long averageNanos;
+
+    private static final long FAILURE_PENALTY_NANOS = TimeUnit.SECONDS.toNanos( 1);
+
     /**
      * The logger for the master db
      */
@@ -119,6 +130,60 @@ public abstract class SoapTransport
         disabledCompression=true;
     }
 
+    /**
+     * The number of calls currently using this transport.
+     * @return the count
+     */
+    @CheckReturnValue @Nonnegative
+    public int getInFlight()
+    {
+        return inFlight.get();
+    }
+
+    /**
+     * The moving average of the call duration, failures count as slow calls.
+     * @return the milliseconds
+     */
+    @CheckReturnValue @Nonnegative
+    public long getAverageLatency()
+    {
+        return TimeUnit.NANOSECONDS.toMillis( averageNanos);
+    }
+
+    /**
+     * A call has started on this transport.
+     */
+    void callStarted()
+    {
+        inFlight.incrementAndGet();
+    }
+
+    /**
+     * A call has finished on this transport.
+     * @param nanos the duration of the call
+     * @param failed true if the call failed.
+     */
+    void callFinished( final @Nonnegative long nanos, final boolean failed)
+    {
+        inFlight.decrementAndGet();
+
+        long sample = nanos;
+        if( failed)
+        {
+            sample = Math.max( nanos, Math.max( averageNanos * 2, FAILURE_PENALTY_NANOS));
+        }
+
+        long average = averageNanos;
+        if( average == 0)
+        {
+            averageNanos = sample;
+        }
+        else
+        {
+            averageNanos = average + ( sample - average) / 5;
+        }
+    }
+
     /**
      * The host.
      * @return the host
@@ -0,0 +1,120 @@
+/**
+ *  STS Remote library
+ *
+ *  Copyright (C) 2006  stSoftware Pty Ltd
+ *
+ *  stSoftware.com.au
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ *  Bug fixes, suggestions and comments should be sent to:
+ *
+ *  info AT stsoftware.com.au
+ *
+ *  or by snail mail to:
+ *
+ *  stSoftware
+ *  building C, level 1,
+ *  14 Rodborough Rd
+ *  Frenchs Forest 2086
+ *  Australia.
+ */
+package com.aspc.remote.soap.internal;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import javax.annotation.CheckReturnValue;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ *  Chooses the transport for each concurrent SOAP call.
+ *
+ *  Two transports are picked at random and the one with the lower expected cost ( the moving
+ *  average duration by the calls in flight) is used, so a slow or failing server receives less
+ *  traffic. One call in twenty ignores the cost so a server that has recovered is sampled again.
+ *  <br>
+ *  <i>THREAD MODE: MULTI-THREADED</i>
+ *
+ *  @author      Nigel Leck
+ *  @since       18 October 2026
+ */
+public final class TransportBalancer
+{
+    private static final int EXPLORE_ONE_IN = 20;
+
+    private TransportBalancer()
+    {
+    }
+
+    /**
+     * Choose the transport for the next call.
+     *
+     * @param transports the available transports.
+     * @param exclude the transport to avoid if there is another ( the one that just failed).
+     * @return the transport
+     */
+    @CheckReturnValue @Nonnull
+    public static SoapTransport choose( final @Nonnull List<SoapTransport> transports, final @Nullable SoapTransport exclude)
+    {
+        int size = transports.size();
+        if( size == 0) throw new IllegalArgumentException( "no transports");
+        if( size == 1) return transports.get( 0);
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int first = random.nextInt( size);
+        int second = random.nextInt( size - 1);
+        if( second >= first)
+        {
+            second++;
+        }
+
+        SoapTransport a = transports.get( first);
+        SoapTransport b = transports.get( second);
+
+        if( a == exclude) return b;
+        if( b == exclude) return a;
+
+        /* now and then ignore the cost */
+        if( random.nextInt( EXPLORE_ONE_IN) == 0) return a;
+
+        return cost( a) <= cost( b) ? a : b;
+    }
+
+    /**
+     * Record the start of a call.
+     * @param transport the transport used.
+     */
+    public static void started( final @Nonnull SoapTransport transport)
+    {
+        transport.callStarted();
+    }
+
+    /**
+     * Record the end of a call.
+     * @param transport the transport used.
+     * @param startNanos the System.nanoTime() when the call started.
+     * @param failed true if the call failed.
+     */
+    public static void finished( final @Nonnull SoapTransport transport, final long startNanos, final boolean failed)
+    {
+        transport.callFinished( Math.max( 0, System.nanoTime() - startNanos), failed);
+    }
+
+    private static double cost( final SoapTransport transport)
+    {
+        return ( transport.getAverageLatency() + 1.0) * ( transport.getInFlight() + 1.0);
+    }
+}
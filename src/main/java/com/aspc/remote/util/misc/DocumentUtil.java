@@ -238,6 +238,36 @@ public final class DocumentUtil
         }
     }
 
+    /**
+     * make a document by parsing the stream as it is read, the XML is never held as a String.
+     * @param in The XML to parse, closed by the parser.
+     * @param parser the parser to use
+     * @return The newly created and populated DOM
+     * @throws DocumentException a serious problem
+     */
+    @CheckReturnValue @Nonnull
+    public static Document makeDocument( final @Nonnull InputStream in, final @Nonnull PARSER parser) throws DocumentException
+    {
+        try
+        {
+            DocumentBuilder builder = getBuilder(parser);
+            
+            Document doc = builder.parse(new InputSource( in));
+
+            if( ASSERT_ENABLED)
+            {
+                doc = new WrapperDocument(doc);
+            }
+
+            return doc;
+        }
+        catch( Exception e)
+        {
+            LOGGER.warn( "could not parse stream", e);
+            throw new DocumentException ("could not parse stream", e);
+        }
+    }
+
     /**
      * Load a file and return it as an XML Document object
      * @param file the file to read the XML file from
@@ -360,6 +390,39 @@ public final class DocumentUtil
         transformer.transform(source, result);
     }
 
+    /**
+     * write the node as UTF-8 to the stream without an intermediate String.
+     * @param node the node to write
+     * @param out the stream to write to, not closed.
+     * @param indent amount to indent
+     * @throws java.lang.Exception a serious problem
+     */
+    public static void writeNode(
+        final @Nonnull Node node,
+        final @Nonnull OutputStream out,
+        final @Nonnegative int indent
+    ) throws Exception
+    {
+        if( node == null) throw new IllegalArgumentException( "node must not be null");
+        if( out == null) throw new IllegalArgumentException( "stream must not be null");
+        if( indent < 0) throw new IllegalArgumentException( "indent must not be zero or more");
+
+        Transformer transformer = newTransformer();
+        transformer.reset();
+        transformer.setOutputProperty(OutputKeys.ENCODING, StandardCharsets.UTF_8.name());
+        DOMSource source = new DOMSource(node);
+        StreamResult result = new StreamResult(out);
+
+        if( indent > 0)
+        {
+            transformer.setOutputProperty(OutputKeys.INDENT, "yes");
+
+            transformer.setOutputProperty("{http://xml.apache.org/xalan}indent-amount", "2");
+        }
+
+        transformer.transform(source, result);
+    }
+
     /**
      * Clear the templates cache
      */
@@ -35,8 +35,12 @@ package com.aspc.remote.util.misc;
 
 import com.aspc.remote.util.misc.internal.ImplFileValidationHandler;
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
 import java.security.MessageDigest;
@@ -1040,29 +1044,35 @@ public final class FileUtil
         mkdirs(targetFile.getParentFile());
         File tempFile = File.createTempFile( targetFile.getName(), "copy", targetFile.getParentFile());
 
-        BufferedInputStream r = null;
-        BufferedOutputStream w = null;
-
-        try
+        try(
+            FileChannel r = new FileInputStream( srcFile).getChannel();
+            FileChannel w = new FileOutputStream( tempFile).getChannel()
+        )
         {
-            r = new BufferedInputStream(
-                new FileInputStream( srcFile )
-            );
-
-            w = new BufferedOutputStream(
-                new FileOutputStream( tempFile )
-            );
+            long size = r.size();
+            long position = 0;
+            while( position < size)
+            {
+                long len = r.transferTo( position, size - position, w);
+                if( len <= 0) break;
 
-            byte array[] = new byte[2048];
+                position += len;
+            }
 
+            // the source has grown while copying.
+            ByteBuffer buffer = ByteBuffer.wrap( ioBuffer());
             while( true)
             {
-                int len;
-
-                len = r.read( array);
-
+                buffer.clear();
+                int len = r.read( buffer, position);
                 if( len == -1) break;
-                w.write(array, 0, len);
+
+                buffer.flip();
+                while( buffer.hasRemaining())
+                {
+                    w.write( buffer);
+                }
+                position += len;
             }
         }
         catch( IOException e)
@@ -1072,32 +1082,22 @@ public final class FileUtil
                 e
             );
 
+            tempFile.delete();
             throw e;
         }
-        finally
-        {
-            try
-            {
-                if( r != null) r.close();
-            }
-            catch(IOException e)
-            {
-                LOGGER.warn("Exception causing when closing input stream " + r , e);
-            }
-
-            try
-            {
-                if( w != null) w.close();
-            }
-            catch(IOException e)
-            {
-                LOGGER.warn("Exception causing when closing output stream " + w , e);
-            }
-        }
 
         replaceTargetWithTempFile( tempFile, targetFile);
     }
 
+    /**
+     * The IO buffer of this thread, must not be held across calls to other methods that use it.
+     */
+    @Nonnull
+    private static byte[] ioBuffer()
+    {
+        return IO_BUFFER.get();
+    }
+
     /**
      * Read a file into a String
      * @param fileName The file to read.
@@ -1116,7 +1116,7 @@ public final class FileUtil
     }
 
     /**
-     * Read the file content as a String. 
+     * Read the file content as a String in the default character set.
      * @param file the file to read.
      * @return the value
      * @throws IOException Exception A serious problem
@@ -1124,17 +1124,34 @@ public final class FileUtil
     @CheckReturnValue @Nonnull
     public static String readFile( final @Nonnull File file ) throws IOException
     {
-        StringBuilder buffer = new StringBuilder();
+        return readFile( file, Charset.defaultCharset());
+    }
+
+    /**
+     * Read the file content as a String decoded with the character set.
+     *
+     * The buffer is sized from the file length so the content is not copied as it grows.
+     *
+     * @param file the file to read.
+     * @param charset the character set of the file.
+     * @return the value
+     * @throws IOException Exception A serious problem
+     */
+    @CheckReturnValue @Nonnull
+    public static String readFile( final @Nonnull File file, final @Nonnull Charset charset ) throws IOException
+    {
+        long length = file.length();
+        StringBuilder buffer = new StringBuilder( (int)Math.min( length, Integer.MAX_VALUE - 8));
 
         try
-        (FileReader fr = new FileReader( file )) {
-            
-            char array[] = new char[10240];
+        (Reader reader = new InputStreamReader( new FileInputStream( file), charset)) {
+
+            char array[] = new char[(int)Math.max( Math.min( length, 32 * 1024), 16)];
             while ( true )
             {
-                int len = fr.read( array );
+                int len = reader.read( array );
 
-                if ( len <= 0 )
+                if ( len == -1 )
                 {
                     break;
                 }
@@ -1145,7 +1162,7 @@ public final class FileUtil
 
         return buffer.toString();
     }
-    
+
     /**
      * Read the file content as a String. 
      * @param fn the file to read.
@@ -1166,29 +1183,19 @@ public final class FileUtil
      */
     @CheckReturnValue @Nonnull
     public static byte[] readFileAsBytes( final @Nonnull File file ) throws IOException
-    {        
+    {
         try
-        (
-            FileInputStream in = new FileInputStream( file );
-            ByteArrayOutputStream out = new ByteArrayOutputStream();
-        ) {
-            byte array[] = new byte[10240];
-            
-            while ( true )
-            {
-                int len = in.read( array );
-
-                if ( len <= 0 )
-                {
-                    break;
-                }
-
-                out.write( array, 0, len );
-            }
-            return out.toByteArray();
+        {
+            return Files.readAllBytes( file.toPath());
+        }
+        catch( NoSuchFileException nsfe)
+        {
+            FileNotFoundException fnfe = new FileNotFoundException( file.getPath());
+            fnfe.initCause( nsfe);
+            throw fnfe;
         }
     }
-    
+
     /**
      * Generates SHA512.
      *
@@ -1237,37 +1244,59 @@ public final class FileUtil
     @CheckReturnValue @Nonnull
     public static byte[] generateDigest( final @Nonnull File file, final String algorithum) throws IOException
     {
-        MessageDigest md;
-        try
-        {
-            md = MessageDigest.getInstance(algorithum);
-        } 
-        catch (NoSuchAlgorithmException ex)
+        return generateDigests( file, algorithum)[0];
+    }
+
+    /**
+     * Generates several digests in one read of the file.
+     *
+     * @param file The input file
+     * @param algorithms the digest algorithms for example MD5, SHA1, SHA-512
+     * @return the digests in the same order as the algorithms.
+     * @throws IOException If something went wrong
+     */
+    @CheckReturnValue @Nonnull
+    public static byte[][] generateDigests( final @Nonnull File file, final @Nonnull String... algorithms) throws IOException
+    {
+        MessageDigest digests[] = new MessageDigest[algorithms.length];
+        for( int i = 0; i < algorithms.length; i++)
         {
-            throw new IOException( "could not get message digest: " + algorithum, ex);
+            try
+            {
+                digests[i] = MessageDigest.getInstance(algorithms[i]);
+            }
+            catch (NoSuchAlgorithmException ex)
+            {
+                throw new IOException( "could not get message digest: " + algorithms[i], ex);
+            }
         }
 
-        int buffsize = Math.max((int)Math.min(file.length(), 16 * 1024 * 1024), 1024);
-        
-        byte[] dataBytes = new byte[buffsize];
-
+        byte array[] = ioBuffer();
         try
         (InputStream fis = Files.newInputStream(file.toPath(),  StandardOpenOption.READ)) {
 
             while( true )
             {
-                int len;
-                len = fis.read(dataBytes);
-
+                int len = fis.read( array);
                 if( len == -1 )
                 {
                     break;
                 }
-                md.update(dataBytes, 0, len);
+
+                for( MessageDigest md: digests)
+                {
+                    md.update( array, 0, len);
+                }
             }
         }
 
-        return md.digest();
+        byte result[][] = new byte[digests.length][];
+        for( int i = 0; i < digests.length; i++)
+        {
+            result[i] = digests[i].digest();
+        }
+
+        return result;
     }
 
     /**
@@ -1577,12 +1606,12 @@ public final class FileUtil
         try
         {
             out = new FileOutputStream(tempFile);
-            bo = new BufferedOutputStream( out);
-            gos = new GZIPOutputStream(bo);
+            bo = new BufferedOutputStream( out, IO_BUFFER_SIZE);
+            gos = new GZIPOutputStream(bo, IO_BUFFER_SIZE);
 
             in = new FileInputStream(inFile);
 
-            byte array[] = new byte[5 * 4096];
+            byte array[] = ioBuffer();
             while( true)
             {
                 int len = in.read(array);
@@ -1688,9 +1717,9 @@ public final class FileUtil
                     throw new Exception( "Unsupported compression type" );
                 }
 
-                out = new BufferedOutputStream( new FileOutputStream(tempFile));
+                out = new BufferedOutputStream( new FileOutputStream(tempFile), IO_BUFFER_SIZE);
 
-                byte array[] = new byte[5 * 4096];
+                byte array[] = ioBuffer();
                 while( true)
                 {
                     int len = gis.read(array);
@@ -2099,4 +2128,16 @@ public final class FileUtil
 //SERVER-END
     }
     private static final Log LOGGER = CLogger.getLog( "com.aspc.remote.util.misc.FileUtil");//#LOGGER-NOPMD
+
+    private static final int IO_BUFFER_SIZE=64 * 1024;
+
+    /**
+     * the IO buffer of each thread, reused by the copy, digest and compress methods.
+     */
+    private static final ThreadLocal<byte[]> IO_BUFFER=new ThreadLocal<byte[]>(){
+        @Override
+        protected byte[] initialValue() {
+            return new byte[IO_BUFFER_SIZE];
+        }
+    };
 }
@@ -0,0 +1,630 @@
+/**
+ *  STS Remote library
+ *
+ *  Copyright (C) 2006  stSoftware Pty Ltd
+ *
+ *  stSoftware.com.au
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ *  Bug fixes, suggestions and comments should be sent to:
+ *
+ *  info AT stsoftware.com.au
+ *
+ *  or by snail mail to:
+ *
+ *  stSoftware
+ *  building C, level 1,
+ *  14 Rodborough Rd
+ *  Frenchs Forest 2086
+ *  Australia.
+ */
+package com.aspc.remote.util.misc;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import javax.annotation.CheckReturnValue;
+import javax.annotation.Nonnull;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.json.JSONTokener;
+
+/**
+ *  A pull style streaming reader of JSON text.
+ *
+ *  The text is read from the Reader as the caller walks through it, only the values that are asked for with
+ *  {@link #nextValue()} are built as JSONObject/JSONArray trees. A large array can be processed one element at a
+ *  time with {@link #iterateArray()} and subtrees that are not needed can be passed over with {@link #skipValue()}.
+ *  <pre>
+ *  try( JSONStreamReader r=new JSONStreamReader( reader))
+ *  {
+ *      r.beginObject();
+ *      while( r.hasNext())
+ *      {
+ *          if( r.nextName().equals( "results"))
+ *          {
+ *              Iterator&lt;Object&gt; it=r.iterateArray();
+ *              while( it.hasNext())
+ *              {
+ *                  JSONObject row=(JSONObject)it.next();
+ *                  ...
+ *              }
+ *          }
+ *          else
+ *          {
+ *              r.skipValue();
+ *          }
+ *      }
+ *      r.endObject();
+ *  }
+ *  </pre>
+ *  The same lenient syntax as the JSONObject/JSONArray parsers is accepted ( single quoted strings, unquoted
+ *  names, ';' between pairs and empty array elements as null) and the values built are identical.
+ *
+ *  <br>
+ *  <i>THREAD MODE: SINGLE-THREADED</i>
+ *
+ *  @author      Nigel Leck
+ *  @since       18 October 2026
+ */
+public final class JSONStreamReader implements Closeable
+{
+    /** the next token in the JSON text */
+    public enum Token
+    {
+        /** the start of an object */
+        BEGIN_OBJECT,
+        /** the end of an object */
+        END_OBJECT,
+        /** the start of an array */
+        BEGIN_ARRAY,
+        /** the end of an array */
+        END_ARRAY,
+        /** the name of a property */
+        NAME,
+        /** a string value */
+        STRING,
+        /** a number value */
+        NUMBER,
+        /** true or false */
+        BOOLEAN,
+        /** null */
+        NULL,
+        /** the end of the text */
+        END_DOCUMENT
+    };
+
+    private static final int SCOPE_EMPTY_DOCUMENT=0;
+    private static final int SCOPE_DOCUMENT=1;
+    private static final int SCOPE_EMPTY_ARRAY=2;
+    private static final int SCOPE_ARRAY=3;
+    private static final int SCOPE_EMPTY_OBJECT=4;
+    private static final int SCOPE_NAME=5;
+    private static final int SCOPE_OBJECT=6;
+
+    private final Reader reader;
+    private final JSONTokener tokener;
+    private int stack[]=new int[32];
+    private int depth;
+    private Token peeked;
+    private Object peekedValue;
+    private String peekedName;
+
+    /**
+     * Read the JSON text from this reader.
+     *
+     * @param reader the source
+     */
+    public JSONStreamReader( final @Nonnull Reader reader)
+    {
+        if( reader == null) throw new IllegalArgumentException( "reader must not be null");
+
+        this.reader=reader.markSupported() ? reader : new BufferedReader( reader, 16 * 1024);
+        tokener=new JSONTokener( this.reader);
+        stack[depth++]=SCOPE_EMPTY_DOCUMENT;
+    }
+
+    /**
+     * Read the JSON text from this stream.
+     *
+     * @param in the source
+     * @param charset the encoding of the text.
+     */
+    public JSONStreamReader( final @Nonnull InputStream in, final @Nonnull Charset charset)
+    {
+        this( new InputStreamReader( in, charset));
+    }
+
+    /**
+     * The next token without consuming it.
+     *
+     * @return the token
+     * @throws JSONException invalid JSON text.
+     */
+    @Nonnull
+    public Token peek() throws JSONException
+    {
+        if( peeked != null) return peeked;
+
+        switch( stack[depth - 1])
+        {
+            case SCOPE_EMPTY_DOCUMENT:
+                return peekValue( false);
+            case SCOPE_DOCUMENT:
+                peeked=Token.END_DOCUMENT;
+                return peeked;
+            case SCOPE_EMPTY_ARRAY:
+            {
+                char c=tokener.nextClean();
+                if( c == ']')
+                {
+                    peeked=Token.END_ARRAY;
+                    return peeked;
+                }
+                tokener.back();
+                return peekValue( true);
+            }
+            case SCOPE_ARRAY:
+            {
+                char c=tokener.nextClean();
+                if( c == ']')
+                {
+                    peeked=Token.END_ARRAY;
+                    return peeked;
+                }
+                if( c != ',')
+                {
+                    throw tokener.syntaxError( "Expected a ',' or ']'");
+                }
+                if( tokener.nextClean() == ']')
+                {
+                    peeked=Token.END_ARRAY;
+                    return peeked;
+                }
+                tokener.back();
+                return peekValue( true);
+            }
+            case SCOPE_EMPTY_OBJECT:
+            {
+                char c=tokener.nextClean();
+                if( c == '}')
+                {
+                    peeked=Token.END_OBJECT;
+                    return peeked;
+                }
+                if( c == 0)
+                {
+                    throw tokener.syntaxError( "A JSONObject text must end with '}'");
+                }
+                tokener.back();
+                return peekName();
+            }
+            case SCOPE_OBJECT:
+            {
+                char c=tokener.nextClean();
+                if( c == '}')
+                {
+                    peeked=Token.END_OBJECT;
+                    return peeked;
+                }
+                if( c != ',' && c != ';')
+                {
+                    throw tokener.syntaxError( "Expected a ',' or '}'");
+                }
+                if( tokener.nextClean() == '}')
+                {
+                    peeked=Token.END_OBJECT;
+                    return peeked;
+                }
+                tokener.back();
+                return peekName();
+            }
+            case SCOPE_NAME:
+            {
+                if( tokener.nextClean() != ':')
+                {
+                    throw tokener.syntaxError( "Expected a ':' after a key");
+                }
+                return peekValue( false);
+            }
+            default:
+                throw new IllegalStateException( "unknown scope " + stack[depth - 1]);
+        }
+    }
+
+    /**
+     * Is there another element in the current array or another property in the current object ?
+     *
+     * @return true if there is more.
+     * @throws JSONException invalid JSON text.
+     */
+    @CheckReturnValue
+    public boolean hasNext() throws JSONException
+    {
+        Token t=peek();
+        return t != Token.END_OBJECT && t != Token.END_ARRAY && t != Token.END_DOCUMENT;
+    }
+
+    /**
+     * Consume the start of an object.
+     * @throws JSONException not the start of an object.
+     */
+    public void beginObject() throws JSONException
+    {
+        expect( Token.BEGIN_OBJECT);
+        push( SCOPE_EMPTY_OBJECT);
+    }
+
+    /**
+     * Consume the end of the current object.
+     * @throws JSONException not the end of an object.
+     */
+    public void endObject() throws JSONException
+    {
+        expect( Token.END_OBJECT);
+        depth--;
+        valueRead();
+    }
+
+    /**
+     * Consume the start of an array.
+     * @throws JSONException not the start of an array.
+     */
+    public void beginArray() throws JSONException
+    {
+        expect( Token.BEGIN_ARRAY);
+        push( SCOPE_EMPTY_ARRAY);
+    }
+
+    /**
+     * Consume the end of the current array.
+     * @throws JSONException not the end of an array.
+     */
+    public void endArray() throws JSONException
+    {
+        expect( Token.END_ARRAY);
+        depth--;
+        valueRead();
+    }
+
+    /**
+     * The name of the next property.
+     *
+     * @return the name
+     * @throws JSONException not a property name.
+     */
+    @Nonnull
+    public String nextName() throws JSONException
+    {
+        expect( Token.NAME);
+        String name=peekedName;
+        peekedName=null;
+        stack[depth - 1]=SCOPE_NAME;
+        return name;
+    }
+
+    /**
+     * The next value, an object or array is read in full as a JSONObject or JSONArray.
+     *
+     * @return the value, JSONObject.NULL for null.
+     * @throws JSONException not a value.
+     */
+    @Nonnull
+    public Object nextValue() throws JSONException
+    {
+        Token t=peek();
+        Object value;
+        switch( t)
+        {
+            case BEGIN_OBJECT:
+                tokener.back();
+                value=new JSONObject( tokener);
+                break;
+            case BEGIN_ARRAY:
+                tokener.back();
+                value=new JSONArray( tokener);
+                break;
+            case STRING:
+            case NUMBER:
+            case BOOLEAN:
+            case NULL:
+                value=peekedValue;
+                peekedValue=null;
+                break;
+            default:
+                throw new JSONException( "Expected a value but was " + t + " " + tokener);
+        }
+
+        peeked=null;
+        valueRead();
+        return value;
+    }
+
+    /**
+     * The next value which must be an object.
+     *
+     * @return the object
+     * @throws JSONException not an object.
+     */
+    @Nonnull
+    public JSONObject nextJSONObject() throws JSONException
+    {
+        if( peek() != Token.BEGIN_OBJECT)
+        {
+            throw new JSONException( "Expected " + Token.BEGIN_OBJECT + " but was " + peeked + " " + tokener);
+        }
+        return (JSONObject)nextValue();
+    }
+
+    /**
+     * The next value which must be an array.
+     *
+     * @return the array
+     * @throws JSONException not an array.
+     */
+    @Nonnull
+    public JSONArray nextJSONArray() throws JSONException
+    {
+        if( peek() != Token.BEGIN_ARRAY)
+        {
+            throw new JSONException( "Expected " + Token.BEGIN_ARRAY + " but was " + peeked + " " + tokener);
+        }
+        return (JSONArray)nextValue();
+    }
+
+    /**
+     * Pass over the next value without building it, nested objects and arrays are skipped too.
+     *
+     * @throws JSONException not a value.
+     */
+    public void skipValue() throws JSONException
+    {
+        int count=0;
+        do
+        {
+            Token t=peek();
+            switch( t)
+            {
+                case BEGIN_OBJECT:
+                    beginObject();
+                    count++;
+                    break;
+                case BEGIN_ARRAY:
+                    beginArray();
+                    count++;
+                    break;
+                case END_OBJECT:
+                    if( count == 0) throw new JSONException( "Expected a value but was " + t + " " + tokener);
+                    endObject();
+                    count--;
+                    break;
+                case END_ARRAY:
+                    if( count == 0) throw new JSONException( "Expected a value but was " + t + " " + tokener);
+                    endArray();
+                    count--;
+                    break;
+                case NAME:
+                    nextName();
+                    break;
+                case END_DOCUMENT:
+                    throw new JSONException( "Expected a value but was " + t + " " + tokener);
+                default:
+                    nextValue();
+            }
+        }
+        while( count > 0);
+    }
+
+    /**
+     * Iterate over the elements of the next value which must be an array. Each element is built as it is
+     * reached, the end of the array is consumed when the last element has been returned.
+     *
+     * @return the elements.
+     * @throws JSONException not an array.
+     */
+    @CheckReturnValue @Nonnull
+    public Iterator<Object> iterateArray() throws JSONException
+    {
+        beginArray();
+        final int arrayDepth=depth;
+
+        return new Iterator<Object>()
+        {
+            private boolean done;
+
+            @Override
+            public boolean hasNext()
+            {
+                if( done) return false;
+                if( depth != arrayDepth)
+                {
+                    throw new IllegalStateException( "the reader has moved out of the array");
+                }
+
+                if( JSONStreamReader.this.hasNext())
+                {
+                    return true;
+                }
+
+                endArray();
+                done=true;
+                return false;
+            }
+
+            @Override
+            public Object next()
+            {
+                if( hasNext() == false)
+                {
+                    throw new NoSuchElementException();
+                }
+
+                return nextValue();
+            }
+
+            @Override
+            public void remove()
+            {
+                throw new UnsupportedOperationException( "read only");
+            }
+        };
+    }
+
+    /**
+     * The nesting depth of the current position, 0 at the top level.
+     *
+     * @return the depth
+     */
+    @CheckReturnValue
+    public int getDepth()
+    {
+        return depth - 1;
+    }
+
+    /**
+     * Close the reader.
+     *
+     * @throws IOException a problem closing.
+     */
+    @Override
+    public void close() throws IOException
+    {
+        reader.close();
+    }
+
+    /**
+     * The current position
+     * @return the position
+     */
+    @Override @CheckReturnValue @Nonnull
+    public String toString()
+    {
+        return "JSONStreamReader" + tokener;
+    }
+
+    private Token peekName() throws JSONException
+    {
+        char c=tokener.nextClean();
+        if( c == '{' || c == '[')
+        {
+            throw tokener.syntaxError( "Expected a key");
+        }
+        tokener.back();
+        peekedName=tokener.nextValue().toString();
+        peeked=Token.NAME;
+        return peeked;
+    }
+
+    private Token peekValue( final boolean inArray) throws JSONException
+    {
+        char c=tokener.nextClean();
+        switch( c)
+        {
+            case '{':
+                peeked=Token.BEGIN_OBJECT;
+                return peeked;
+            case '[':
+                peeked=Token.BEGIN_ARRAY;
+                return peeked;
+            case '"':
+            case '\'':
+                peekedValue=tokener.nextString( c);
+                peeked=Token.STRING;
+                return peeked;
+            case ',':
+                if( inArray)
+                {
+                    // an empty element is null in the same way as JSONArray
+                    tokener.back();
+                    peekedValue=JSONObject.NULL;
+                    peeked=Token.NULL;
+                    return peeked;
+                }
+                break;
+            case 0:
+                if( stack[depth - 1] == SCOPE_EMPTY_DOCUMENT)
+                {
+                    peeked=Token.END_DOCUMENT;
+                    return peeked;
+                }
+                break;
+        }
+
+        tokener.back();
+        Object value=tokener.nextValue();
+        peekedValue=value;
+        if( value instanceof Number)
+        {
+            peeked=Token.NUMBER;
+        }
+        else if( value instanceof Boolean)
+        {
+            peeked=Token.BOOLEAN;
+        }
+        else if( JSONObject.NULL.equals( value))
+        {
+            peeked=Token.NULL;
+        }
+        else
+        {
+            peeked=Token.STRING;
+        }
+        return peeked;
+    }
+
+    private void expect( final @Nonnull Token token) throws JSONException
+    {
+        Token t=peek();
+        if( t != token)
+        {
+            throw new JSONException( "Expected " + token + " but was " + t + " " + tokener);
+        }
+        peeked=null;
+    }
+
+    private void push( final int scope)
+    {
+        if( depth == stack.length)
+        {
+            stack=Arrays.copyOf( stack, depth * 2);
+        }
+        stack[depth++]=scope;
+    }
+
+    private void valueRead()
+    {
+        switch( stack[depth - 1])
+        {
+            case SCOPE_EMPTY_DOCUMENT:
+                stack[depth - 1]=SCOPE_DOCUMENT;
+                break;
+            case SCOPE_EMPTY_ARRAY:
+                stack[depth - 1]=SCOPE_ARRAY;
+                break;
+            case SCOPE_NAME:
+                stack[depth - 1]=SCOPE_OBJECT;
+                break;
+        }
+    }
+}
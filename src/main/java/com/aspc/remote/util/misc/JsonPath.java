@@ -1,7 +1,12 @@
 package com.aspc.remote.util.misc;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
 import javax.annotation.CheckReturnValue;
+import javax.annotation.Nonnegative;
 import javax.annotation.Nonnull;
+import javax.annotation.concurrent.Immutable;
+import org.apache.commons.logging.Log;
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
@@ -19,12 +24,108 @@ import org.json.JSONObject;
  *  <span style='color: red;font-weight: bold;'>.</span> or <span style='color: red;font-weight: bold;'>[</span> or 
  *  <span style='color: red;font-weight: bold;'>]</span>
  * 
+ *  A path that is read many times can be compiled once with {@link #compile(String)}, the static read methods
+ *  use a small LRU cache of compiled paths ( JSON_PATH_CACHE_SIZE).
+ * 
+ *  <br>
+ *  <i>THREAD MODE: READONLY</i>
  * 
  *  @author      Lei Gao
  *  @since       12 August 2015 
  */
-public class JsonPath
+@Immutable
+public final class JsonPath
 {
+    private static final Log LOGGER = CLogger.getLog( "com.aspc.remote.util.misc.JsonPath");//#LOGGER-NOPMD
+
+    /**
+     * The number of compiled paths held for the static read methods.
+     */
+    public static final String PROPERTY_JSON_PATH_CACHE_SIZE="JSON_PATH_CACHE_SIZE";
+
+    private static final int CACHE_SIZE;
+    private static final LinkedHashMap<String, JsonPath> CACHE;
+
+    private final String path;
+    private final String names[];
+    private final int indexes[];
+    private final String functions[];
+
+    private JsonPath( final @Nonnull String path)
+    {
+        checkPath(path);
+        this.path=path;
+
+        String[] list = path.split("\\.");
+        names=new String[list.length];
+        indexes=new int[list.length];
+        functions=new String[list.length];
+        for( int i = 0;i < list.length;i++)
+        {
+            String name = list[i];
+            int index = -1;
+            if( name.endsWith("]"))
+            {
+                int begin = name.indexOf('[');
+                int end = name.indexOf(']');
+                if( begin != -1 && isDigits( name, begin + 1, end))
+                {
+                    index = Integer.parseInt(name.substring(begin + 1, end));
+                    name = name.substring(0, begin);
+                }
+            }
+            names[i]=name;
+            indexes[i]=index;
+            functions[i]=name.replace(" ", "").toLowerCase();
+        }
+    }
+
+    /**
+     * Compile the path so it can be read many times.
+     *
+     * @param jsonPath json path
+     * @return the compiled path
+     */
+    @CheckReturnValue @Nonnull
+    public static JsonPath compile( final @Nonnull String jsonPath)
+    {
+        if( CACHE_SIZE > 0 && jsonPath != null)
+        {
+            synchronized( CACHE)
+            {
+                JsonPath compiled=CACHE.get( jsonPath);
+                if( compiled != null)
+                {
+                    return compiled;
+                }
+            }
+        }
+
+        JsonPath compiled=new JsonPath( jsonPath);
+        if( CACHE_SIZE > 0)
+        {
+            synchronized( CACHE)
+            {
+                CACHE.put( jsonPath, compiled);
+            }
+        }
+
+        return compiled;
+    }
+
+    /**
+     * The number of compiled paths in the cache.
+     * @return the count
+     */
+    @CheckReturnValue @Nonnegative
+    public static int cacheSize()
+    {
+        synchronized( CACHE)
+        {
+            return CACHE.size();
+        }
+    }
+
     /**
      * read the value of the given path
      * @param json json object
@@ -36,25 +137,43 @@ public class JsonPath
     public static Object read(final @Nonnull JSONObject json, final @Nonnull String jsonPath) throws PathNotFoundException
     {
         assert json != null : "json can not be null";
-        checkPath(jsonPath);
-        if(jsonPath.startsWith("$["))
+        return compile(jsonPath).read(json);
+    }
+    
+    /**
+     * read the value of the given path for a JSONArray
+     * @param json json array
+     * @param jsonPath path
+     * @return
+     * @throws PathNotFoundException 
+     */
+    @CheckReturnValue @Nonnull
+    public static Object read(final @Nonnull JSONArray json, final @Nonnull String jsonPath) throws PathNotFoundException
+    {
+        assert json != null : "json can not be null";
+        return compile(jsonPath).read(json);
+    }
+    
+    /**
+     * read the value of this path
+     * @param json json object
+     * @return 
+     * @throws PathNotFoundException 
+     */
+    @CheckReturnValue @Nonnull
+    public Object read(final @Nonnull JSONObject json) throws PathNotFoundException
+    {
+        assert json != null : "json can not be null";
+        if(path.startsWith("$["))
         {
-            throw new UnsupportedOperationException("json path for a JSONObject must not starts with $[\\d+]. " + jsonPath);
+            throw new UnsupportedOperationException("json path for a JSONObject must not starts with $[\\d+]. " + path);
         }
         
-        String[] names = jsonPath.split("\\.");
         Object j = json;
         for(int i = 1;i < names.length;i++)
         {
             String name = names[i];
-            int index = -1;
-            if(name.matches(".*\\[\\d+\\]"))
-            {
-                int begin = name.indexOf('[');
-                int end = name.indexOf(']');
-                index = Integer.parseInt(name.substring(begin + 1, end));
-                name = name.substring(0, begin);
-            }
+            int index = indexes[i];
             
             Object item;
             if( j instanceof JSONObject)
@@ -72,8 +191,7 @@ public class JsonPath
             }
             else if( j instanceof JSONArray)
             {
-                String fn=name.replace(" ", "").toLowerCase();
-                if( fn.equals("length()"))
+                if( functions[i].equals("length()"))
                 {
                     JSONArray a=(JSONArray)j;
                     return a.length();
@@ -137,36 +255,26 @@ public class JsonPath
     }
     
     /**
-     * read the value of the given path for a JSONArray
+     * read the value of this path for a JSONArray
      * @param json json array
-     * @param jsonPath path
      * @return
      * @throws PathNotFoundException 
      */
     @CheckReturnValue @Nonnull
-    public static Object read(final @Nonnull JSONArray json, final @Nonnull String jsonPath) throws PathNotFoundException
+    public Object read(final @Nonnull JSONArray json) throws PathNotFoundException
     {
         assert json != null : "json can not be null";
-        checkPath(jsonPath);
         
-        if(jsonPath.startsWith("$."))
+        if(path.startsWith("$."))
         {
-            throw new UnsupportedOperationException("json path for a JSONArray must not starts with '$.'. " + jsonPath);
+            throw new UnsupportedOperationException("json path for a JSONArray must not starts with '$.'. " + path);
         }
         
-        String[] names = jsonPath.split("\\.");
         JSONObject j = new JSONObject();
         for(int i = 0;i < names.length;i++)
         {
             String name = names[i];
-            int index = -1;
-            if(name.matches(".*\\[\\d+\\]"))
-            {
-                int begin = name.indexOf('[');
-                int end = name.indexOf(']');
-                index = Integer.parseInt(name.substring(begin + 1, end));
-                name = name.substring(0, begin);
-            }
+            int index = indexes[i];
             if(names.length == 1)
             {
                 if(index == -1)
@@ -265,4 +373,50 @@ public class JsonPath
             }
         }
     }
+    
+    /**
+     * The path
+     * @return the path
+     */
+    @Override @CheckReturnValue @Nonnull
+    public String toString()
+    {
+        return path;
+    }
+
+    private static boolean isDigits( final String text, final int start, final int end)
+    {
+        if( start >= end) return false;
+        for( int i = start;i < end;i++)
+        {
+            char c = text.charAt(i);
+            if( c < '0' || c > '9') return false;
+        }
+        return true;
+    }
+
+    static
+    {
+        String temp=System.getProperty(PROPERTY_JSON_PATH_CACHE_SIZE, "256").trim();
+        int tempSize=256;
+        try
+        {
+            tempSize = Integer.parseInt( temp);
+        }
+        catch( NumberFormatException nfe)
+        {
+            LOGGER.warn( "Invalid " + PROPERTY_JSON_PATH_CACHE_SIZE + "='" + temp + "', using " + tempSize, nfe);
+        }
+        CACHE_SIZE = tempSize;
+        CACHE = new LinkedHashMap<String, JsonPath>( 16, 0.75f, true)
+        {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry( final Map.Entry<String, JsonPath> eldest)
+            {
+                return size() > CACHE_SIZE;
+            }
+        };
+    }
 }
@@ -0,0 +1,213 @@
+/**
+ *  STS Remote library
+ *
+ *  Copyright (C) 2006  stSoftware Pty Ltd
+ *
+ *  stSoftware.com.au
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ *  Bug fixes, suggestions and comments should be sent to:
+ *
+ *  info AT stsoftware.com.au
+ *
+ *  or by snail mail to:
+ *
+ *  stSoftware
+ *  building C, level 1,
+ *  14 Rodborough Rd
+ *  Frenchs Forest 2086
+ *  Australia.
+ */
+package com.aspc.remote.util.misc;
+
+import java.util.ArrayList;
+import java.util.StringTokenizer;
+import javax.annotation.CheckReturnValue;
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.Immutable;
+
+/**
+ * A compiled LIKE pattern. The pattern is parsed once so checking many values against the same
+ * pattern does not upper case the value or create any substrings.
+ *
+ * The result is the same as {@link StringUtilities#isLike(String, String)} except the upper case
+ * comparison is done one character at a time so characters that expand when upper cased ( such as &szlig;)
+ * are only equal to themselves.
+ * <br>
+ * <i>THREAD MODE: READONLY</i>
+ *
+ * @author Nigel Leck
+ * @since 18 October 2026
+ */
+@Immutable
+public final class LikePattern
+{
+    private final String pattern;
+    private final String segments[];
+    private final boolean floating[];
+    private final boolean trailingWildcard;
+
+    private LikePattern( final String pattern, final String segments[], final boolean floating[], final boolean trailingWildcard)
+    {
+        this.pattern=pattern;
+        this.segments=segments;
+        this.floating=floating;
+        this.trailingWildcard=trailingWildcard;
+    }
+
+    /**
+     * Compile the pattern. '*' and '%' match any characters, a wild card directly after another wild card is a literal.
+     *
+     * @param pattern the pattern
+     * @return the compiled pattern.
+     */
+    @CheckReturnValue @Nonnull
+    public static LikePattern compile( final @Nonnull String pattern)
+    {
+        StringTokenizer st = new StringTokenizer(toUpperCase( pattern), "*%", true);
+
+        ArrayList<String> segmentList=new ArrayList<>();
+        ArrayList<Boolean> floatingList=new ArrayList<>();
+        boolean trailingWildcard=false;
+        while (st.hasMoreTokens())
+        {
+            String name = st.nextToken();
+            boolean floatingSegment=false;
+            if (name.equals("*") || name.equals("%"))
+            {
+                if (st.hasMoreTokens() == false)
+                {
+                    trailingWildcard=true;
+                    break;
+                }
+
+                name = st.nextToken();
+                floatingSegment=true;
+            }
+
+            segmentList.add( name);
+            floatingList.add( floatingSegment);
+        }
+
+        boolean floating[]=new boolean[floatingList.size()];
+        for( int i=0;i<floating.length;i++)
+        {
+            floating[i]=floatingList.get(i);
+        }
+
+        return new LikePattern( pattern, segmentList.toArray(new String[segmentList.size()]), floating, trailingWildcard);
+    }
+
+    /**
+     * Is the value LIKE this pattern ?
+     *
+     * @param value the value to check.
+     * @return true if matches.
+     */
+    @CheckReturnValue
+    public boolean matches( final @Nonnull CharSequence value)
+    {
+        final int len=value.length();
+        if( segments.length == 0)
+        {
+            return trailingWildcard || len == 0;
+        }
+
+        int pos=0;
+        for( int i=0;i<segments.length;i++)
+        {
+            String segment=segments[i];
+            if( floating[i])
+            {
+                pos=indexOf( value, segment, pos);
+                if( pos == -1)
+                {
+                    return false;
+                }
+            }
+            else if( regionMatches( value, pos, segment) == false)
+            {
+                return false;
+            }
+
+            pos+=segment.length();
+
+            if( i == segments.length - 1 && trailingWildcard == false && pos != len)
+            {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * The source pattern.
+     *
+     * @return the pattern
+     */
+    @Override @CheckReturnValue @Nonnull
+    public String toString()
+    {
+        return pattern;
+    }
+
+    private static String toUpperCase( final String pattern)
+    {
+        char chars[]=pattern.toCharArray();
+        for( int i=0;i<chars.length;i++)
+        {
+            chars[i]=Character.toUpperCase(chars[i]);
+        }
+
+        return new String( chars);
+    }
+
+    private static int indexOf( final CharSequence value, final String segment, final int from)
+    {
+        int last=value.length() - segment.length();
+        for( int pos=from;pos<=last;pos++)
+        {
+            if( regionMatches( value, pos, segment))
+            {
+                return pos;
+            }
+        }
+
+        return -1;
+    }
+
+    private static boolean regionMatches( final CharSequence value, final int offset, final String segment)
+    {
+        int segmentLength=segment.length();
+        if( offset + segmentLength > value.length())
+        {
+            return false;
+        }
+
+        for( int i=0;i<segmentLength;i++)
+        {
+            char c=value.charAt(offset + i);
+            char s=segment.charAt(i);
+            if( c != s && Character.toUpperCase(c) != s)
+            {
+                return false;
+            }
+        }
+
+        return true;
+    }
+}
@@ -0,0 +1,239 @@
+/**
+ *  STS Remote library
+ *
+ *  Copyright (C) 2006  stSoftware Pty Ltd
+ *
+ *  stSoftware.com.au
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ *  Bug fixes, suggestions and comments should be sent to:
+ *
+ *  info AT stsoftware.com.au
+ *
+ *  or by snail mail to:
+ *
+ *  stSoftware
+ *  building C, level 1,
+ *  14 Rodborough Rd
+ *  Frenchs Forest 2086
+ *  Australia.
+ */
+package com.aspc.remote.util.misc;
+
+import java.util.ArrayList;
+import java.util.StringTokenizer;
+import javax.annotation.CheckReturnValue;
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.Immutable;
+
+/**
+ * A compiled search pattern for {@link StringUtilities#matches(String, String)}. The quoted phrases and
+ * the terms are parsed once, each value is normalised in a single pass into a reused buffer
+ * without regular expressions.
+ * <br>
+ * <i>THREAD MODE: READONLY</i>
+ *
+ * @author Nigel Leck
+ * @since 18 October 2026
+ */
+@Immutable
+public final class MatchPattern
+{
+    private static final int MAX_CACHED_BUFFER=16 * 1024;
+
+    private static final ThreadLocal<StringBuilder> BUFFER=new ThreadLocal<StringBuilder>()
+    {
+        @Override
+        protected StringBuilder initialValue()
+        {
+            return new StringBuilder( 256);
+        }
+    };
+
+    private final String pattern;
+    private final boolean blank;
+    private final LikePattern phrases[];
+    private final String terms[];
+    private final boolean negative[];
+
+    private MatchPattern( final String pattern, final boolean blank, final LikePattern phrases[], final String terms[], final boolean negative[])
+    {
+        this.pattern=pattern;
+        this.blank=blank;
+        this.phrases=phrases;
+        this.terms=terms;
+        this.negative=negative;
+    }
+
+    /**
+     * Compile the pattern. The pattern is whitespace separated with support for wild cards,
+     * quoted phrases and negation.
+     *
+     * @param pattern the pattern
+     * @return the compiled pattern.
+     */
+    @CheckReturnValue @Nonnull
+    public static MatchPattern compile( final @Nonnull String pattern)
+    {
+        if( StringUtilities.isBlank(pattern))
+        {
+            return new MatchPattern( pattern, true, new LikePattern[0], new String[0], new boolean[0]);
+        }
+
+        String tmpPattern=pattern.toUpperCase();
+
+        while( tmpPattern.contains("  "))
+        {
+            tmpPattern = tmpPattern.replace("  ", " ");
+        }
+
+        ArrayList<LikePattern> phraseList=new ArrayList<>();
+        while( true)
+        {
+            int startPos=tmpPattern.indexOf('"');
+            if( startPos == -1) break;
+
+            int endPos=tmpPattern.indexOf('"', startPos +1);
+            if( endPos == -1) break;
+
+            phraseList.add( LikePattern.compile( "* " + tmpPattern.substring(startPos + 1, endPos) +" *"));
+
+            tmpPattern=tmpPattern.substring(0, startPos) + tmpPattern.substring(endPos + 1);
+        }
+
+        String uPattern = tmpPattern.replaceAll( "[^\\w\\*%\\-]", " ").trim();
+
+        StringTokenizer st = new StringTokenizer(uPattern, " *%");
+        ArrayList<String> termList=new ArrayList<>();
+        ArrayList<Boolean> negativeList=new ArrayList<>();
+        while (st.hasMoreTokens())
+        {
+            String term = st.nextToken();
+
+            boolean negTerm=false;
+            if( term.startsWith("-"))
+            {
+                negTerm=true;
+                term=term.substring(1);
+            }
+
+            termList.add( " " + term.replace("-", " "));
+            negativeList.add( negTerm);
+        }
+
+        boolean negative[]=new boolean[negativeList.size()];
+        for( int i=0;i<negative.length;i++)
+        {
+            negative[i]=negativeList.get(i);
+        }
+
+        return new MatchPattern(
+            pattern,
+            false,
+            phraseList.toArray( new LikePattern[phraseList.size()]),
+            termList.toArray( new String[termList.size()]),
+            negative
+        );
+    }
+
+    /**
+     * Does the value match this pattern ?
+     *
+     * @param value the value to check.
+     * @return true if matches.
+     */
+    @CheckReturnValue
+    public boolean matches( final @Nonnull CharSequence value)
+    {
+        if( blank) return false;
+
+        StringBuilder uValue;
+        if( value.length() > MAX_CACHED_BUFFER)
+        {
+            uValue=new StringBuilder( value.length() + 2);
+        }
+        else
+        {
+            uValue=BUFFER.get();
+            uValue.setLength(0);
+        }
+
+        normalise( value, uValue);
+
+        for( LikePattern phrase: phrases)
+        {
+            if( phrase.matches( uValue) == false)
+            {
+                return false;
+            }
+        }
+
+        for( int i=0;i<terms.length;i++)
+        {
+            if( ( uValue.indexOf( terms[i]) != -1) == negative[i])
+            {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * The source pattern.
+     *
+     * @return the pattern
+     */
+    @Override @CheckReturnValue @Nonnull
+    public String toString()
+    {
+        return pattern;
+    }
+
+    /**
+     * upper case the word characters with a single space between each word and a space at each end.
+     */
+    private static void normalise( final CharSequence value, final StringBuilder target)
+    {
+        target.append(' ');
+        boolean space=true;
+        int len=value.length();
+        for( int i=0;i<len;i++)
+        {
+            char c=value.charAt(i);
+            if( c >= 'a' && c <= 'z')
+            {
+                target.append( (char)( c - ('a' - 'A')));
+                space=false;
+            }
+            else if( c >= 'A' && c <= 'Z' || c >= '0' && c <= '9' || c == '_')
+            {
+                target.append( c);
+                space=false;
+            }
+            else if( space == false)
+            {
+                target.append(' ');
+                space=true;
+            }
+        }
+
+        if( space == false)
+        {
+            target.append(' ');
+        }
+    }
+}
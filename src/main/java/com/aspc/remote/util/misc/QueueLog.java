@@ -36,15 +36,21 @@ package com.aspc.remote.util.misc;
 import com.aspc.remote.memory.MemoryHandler;
 import com.aspc.remote.memory.MemoryManager;
 //SERVER-END
+import com.aspc.remote.util.misc.internal.MaskEngine;
+import com.aspc.remote.util.misc.internal.RingBuffer;
 import java.io.PrintStream;
+import java.util.Arrays;
 import java.util.LinkedHashMap;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.LockSupport;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -57,6 +63,12 @@ import org.apache.commons.logging.Log;
 /**
  *  Queued logger
  *
+ *  By default the messages are queued on a blocking queue and written one at a time by the log runner. When
+ *  QUEUE_LOG_RING is set the messages are published to a pre-allocated lock free ring buffer and the log runner
+ *  drains them in batches of QUEUE_LOG_BATCH. The QUEUE_LOG_OVERFLOW policy decides what happens when the queue
+ *  is full: BLOCK the caller, DROP_LOWEST to drop the debug and info messages or SAMPLE to keep one in
+ *  QUEUE_LOG_SAMPLE of the debug and info messages. Warnings and errors always block.
+ *
  *  <br>
  *  <i>THREAD MODE: MULTI-THREADED</i>
  *
@@ -71,17 +83,46 @@ public final class QueueLog implements Log
     private static final long MAX_BLOCK;
     private static final String ENVIRONMENT_QUEUE_LOG_LIMIT="QUEUE_LOG_LIMIT";
     private static final String ENVIRONMENT_QUEUE_LOG_MAX_BLOCK="QUEUE_LOG_MAX_BLOCK";
+    private static final String ENVIRONMENT_QUEUE_LOG_RING="QUEUE_LOG_RING";
+    private static final String ENVIRONMENT_QUEUE_LOG_BATCH="QUEUE_LOG_BATCH";
+    private static final String ENVIRONMENT_QUEUE_LOG_OVERFLOW="QUEUE_LOG_OVERFLOW";
+    private static final String ENVIRONMENT_QUEUE_LOG_SAMPLE="QUEUE_LOG_SAMPLE";
     private static final BlockingQueue<LogMessage> QUEUE;
+    private static final RingBuffer<LogMessage> RING;
+    private static final int BATCH_SIZE;
+    private static volatile Overflow overflow;
+    private static final int SAMPLE_RATE;
+    private static final AtomicLong SAMPLE_COUNT=new AtomicLong();
+    private static final AtomicLong DROPPED_COUNT=new AtomicLong();
+    private static final AtomicLong DRAINED_COUNT=new AtomicLong();
+    private static final AtomicLong DRAIN_NANOS=new AtomicLong();
+    private static volatile long drainMaxNanos;
+    private static final AtomicInteger WAITING_PRODUCERS=new AtomicInteger();
+    private static final AtomicBoolean RUNNER_PARKED=new AtomicBoolean();
     private static final Lock QUEUE_LOCK = new ReentrantLock();
     private static final Condition EMPTY_QUEUE  = QUEUE_LOCK.newCondition();
     private static final AtomicBoolean LOW_MEMORY=new AtomicBoolean();
     
     private static final LinkedHashMap<String,PatternMask> MASK_LIST  = new LinkedHashMap();
     private static PatternMask masks[]={};
+    private static volatile MaskEngine maskEngine=new MaskEngine( new Pattern[0], new String[0], new int[0]);
     private static final Thread RUNNER;
 
     public final Log wrappedLog;
 
+    /**
+     * What to do when the queue is full.
+     */
+    public enum Overflow
+    {
+        /** the caller waits for room up to QUEUE_LOG_MAX_BLOCK */
+        BLOCK,
+        /** debug and info messages are dropped, warnings and errors wait */
+        DROP_LOWEST,
+        /** one in QUEUE_LOG_SAMPLE debug and info messages wait the rest are dropped, warnings and errors wait */
+        SAMPLE
+    }
+
     private QueueLog( final Log log)
     {
         wrappedLog=log;
@@ -97,6 +138,91 @@ public final class QueueLog implements Log
         return masks.length;
     }
     
+    /**
+     * Is the pre-allocated ring buffer used ?
+     * @return true if the ring buffer is used.
+     */
+    @CheckReturnValue
+    public static boolean isRingBuffer()
+    {
+        return RING != null;
+    }
+
+    /**
+     * The overflow policy
+     * @return the policy.
+     */
+    @CheckReturnValue @Nonnull
+    public static Overflow getOverflowPolicy()
+    {
+        return overflow;
+    }
+
+    /**
+     * Set the overflow policy
+     * @param policy the policy when the queue is full.
+     */
+    public static void setOverflowPolicy( final @Nonnull Overflow policy)
+    {
+        if( policy == null) throw new IllegalArgumentException("policy is mandatory");
+        overflow=policy;
+    }
+
+    /**
+     * The number of messages currently queued.
+     * @return the depth
+     */
+    @CheckReturnValue @Nonnegative
+    public static int getQueueDepth()
+    {
+        return RING != null ? RING.size() : QUEUE.size();
+    }
+
+    /**
+     * The number of messages dropped because the queue was full.
+     * @return the count
+     */
+    @CheckReturnValue @Nonnegative
+    public static long getDroppedCount()
+    {
+        return DROPPED_COUNT.get();
+    }
+
+    /**
+     * The number of messages written by the log runner.
+     * @return the count
+     */
+    @CheckReturnValue @Nonnegative
+    public static long getDrainedCount()
+    {
+        return DRAINED_COUNT.get();
+    }
+
+    /**
+     * The average time a message waited in the queue before the log runner wrote it.
+     *
+     * @return the latency in milliseconds.
+     */
+    @CheckReturnValue
+    public static double getAverageDrainLatency()
+    {
+        long count = DRAINED_COUNT.get();
+        if( count == 0) return 0;
+
+        return (double)DRAIN_NANOS.get() / (double)count / 1000000.0;
+    }
+
+    /**
+     * The longest time a message waited in the queue before the log runner wrote it.
+     *
+     * @return the latency in milliseconds.
+     */
+    @CheckReturnValue
+    public static double getMaxDrainLatency()
+    {
+        return (double)drainMaxNanos / 1000000.0;
+    }
+
     /**
      * Flush the remaining messages
      * @param timeToWaitMS the number of milliseconds to wait
@@ -105,14 +231,14 @@ public final class QueueLog implements Log
     public static void flush( final long timeToWaitMS)
     {
         long start=System.currentTimeMillis();
-        while( QUEUE.isEmpty() == false)
+        while( isQueueEmpty() == false)
         {
             long now = System.currentTimeMillis();
             if( now > start + timeToWaitMS)
             {
                 @SuppressWarnings("UseOfSystemOutOrSystemErr")
                 PrintStream out=System.out;
-                out.println( "LOST " + QUEUE.size() + " MESSAGES");
+                out.println( "LOST " + getQueueDepth() + " MESSAGES");
                 break;
             }
             QUEUE_LOCK.lock();
@@ -227,7 +353,7 @@ public final class QueueLog implements Log
             QUEUE_LOCK.lock();
             try
             {
-                if( QUEUE.isEmpty()==false)
+                if( isQueueEmpty()==false)
                 {
                     EMPTY_QUEUE.await(60, TimeUnit.SECONDS);
                 }
@@ -249,43 +375,54 @@ public final class QueueLog implements Log
         else if( QUEUE_LIMIT >0)
         {
             long start=System.currentTimeMillis();
+            boolean full=false;
             while( true)
             {
-                try
+                if( offer( msg))
                 {
-                    QUEUE.add(msg);
                     return;
                 }
-                catch( IllegalStateException e)
+
+                if( full == false)
                 {
-                    if( ThreadUtil.isAliveOrStarting(RUNNER))
+                    full=true;
+                    if( dropOnOverflow( msg))
                     {
-                        QUEUE_LOCK.lock();
-                        try
-                        {
-                            if( QUEUE.size() > 0)
-                            {
-                                EMPTY_QUEUE.await(1000, TimeUnit.MILLISECONDS);
-                            }
-                        }
-                        catch( InterruptedException ie)
-                        {
-                            /**
-                             * Do not log as an interrupted thread can't do I/O so the messages isn't excepted 
-                             */
-                            currentThread.interrupt();
-                            break;
-                        }
-                        finally
+                        DROPPED_COUNT.incrementAndGet();
+                        return;
+                    }
+                }
+
+                if( ThreadUtil.isAliveOrStarting(RUNNER))
+                {
+                    WAITING_PRODUCERS.incrementAndGet();
+                    QUEUE_LOCK.lock();
+                    try
+                    {
+                        if( isQueueEmpty() == false)
                         {
-                            QUEUE_LOCK.unlock();
+                            EMPTY_QUEUE.await(1000, TimeUnit.MILLISECONDS);
                         }
                     }
-                    else
+                    catch( InterruptedException ie)
                     {
-                        msg.write();
-                        return;
+                        /**
+                         * Do not log as an interrupted thread can't do I/O so the messages isn't excepted 
+                         */
+                        currentThread.interrupt();
+                        DROPPED_COUNT.incrementAndGet();
+                        break;
                     }
+                    finally
+                    {
+                        QUEUE_LOCK.unlock();
+                        WAITING_PRODUCERS.decrementAndGet();
+                    }
+                }
+                else
+                {
+                    msg.write();
+                    return;
                 }
                 
                 if(MAX_BLOCK> 0)
@@ -297,6 +434,7 @@ public final class QueueLog implements Log
                         PrintStream out=System.out;
                         out.println( "Thread '" + name + "' LOST MESSAGE after " + TimeUtil.getDiff(start, now));
                         out.println( message); 
+                        DROPPED_COUNT.incrementAndGet();
                         break;
                     }
                 }
@@ -308,6 +446,55 @@ public final class QueueLog implements Log
         }
     }
 
+    private static boolean offer( final LogMessage msg)
+    {
+        if( RING != null)
+        {
+            if( RING.offer( msg))
+            {
+                if( RUNNER_PARKED.get())
+                {
+                    LockSupport.unpark( RUNNER);
+                }
+                return true;
+            }
+            return false;
+        }
+
+        return QUEUE.offer( msg);
+    }
+
+    private static boolean isQueueEmpty()
+    {
+        return RING != null ? RING.isEmpty() : QUEUE.isEmpty();
+    }
+
+    private static boolean dropOnOverflow( final LogMessage msg)
+    {
+        switch( overflow)
+        {
+            case DROP_LOWEST:
+                return msg.isLowLevel();
+            case SAMPLE:
+                return msg.isLowLevel() && SAMPLE_COUNT.incrementAndGet() % SAMPLE_RATE != 0;
+            default:
+                return false;
+        }
+    }
+
+    private static void signalEmpty()
+    {
+        QUEUE_LOCK.lock();
+        try
+        {
+            EMPTY_QUEUE.signalAll();
+        }
+        finally
+        {
+            QUEUE_LOCK.unlock();
+        }
+    }
+
     /* {@inheritDoc} */
     @Override
     public void trace(final Object o)
@@ -427,6 +614,7 @@ public final class QueueLog implements Log
         private final String msg;
         private final String level;
         private final Throwable cause;
+        private final long queued=System.nanoTime();
 
         LogMessage(
             final Log log,
@@ -443,6 +631,23 @@ public final class QueueLog implements Log
             this.cause=cause;
         }
 
+        boolean isLowLevel()
+        {
+            return level.equalsIgnoreCase(CLogger.LEVEL_DEBUG) || level.equalsIgnoreCase(CLogger.LEVEL_INFO);
+        }
+
+        void drained()
+        {
+            long nanos=System.nanoTime() - queued;
+            DRAIN_NANOS.addAndGet( nanos);
+            DRAINED_COUNT.incrementAndGet();
+            if( nanos > drainMaxNanos)
+            {
+                drainMaxNanos=nanos;
+            }
+            write();
+        }
+
         void write()
         {
             Thread t= Thread.currentThread();
@@ -494,19 +699,11 @@ public final class QueueLog implements Log
                     LogMessage lm = QUEUE.poll();
                     if( lm == null)
                     {
-                        QUEUE_LOCK.lock();
-                        try
-                        {
-                            EMPTY_QUEUE.signalAll();
-                        }
-                        finally
-                        {
-                            QUEUE_LOCK.unlock();
-                        }
+                        signalEmpty();
                         lm = QUEUE.take();
                     }
 
-                    lm.write();
+                    lm.drained();
                 }
                 catch( InterruptedException ie)
                 {
@@ -521,14 +718,110 @@ public final class QueueLog implements Log
         }
     }
 
+    /**
+     * drains the ring buffer in batches.
+     */
+    private static class RingRunner implements Runnable
+    {
+        @SuppressWarnings({"BroadCatchBlock", "TooBroadCatch", "CallToPrintStackTrace"})
+        @Override
+        public void run()
+        {
+            LogMessage batch[]=new LogMessage[BATCH_SIZE];
+            while( true)
+            {
+                int count = RING.drain( batch);
+                if( count == 0)
+                {
+                    signalEmpty();
+
+                    RUNNER_PARKED.set(true);
+                    if( RING.isEmpty())
+                    {
+                        LockSupport.parkNanos( this, TimeUnit.MILLISECONDS.toNanos(100));
+                    }
+                    RUNNER_PARKED.set(false);
+
+                    if( Thread.interrupted())
+                    {
+                        // Applet finished.
+                        break;
+                    }
+                    continue;
+                }
+
+                for( int i=0;i<count;i++)
+                {
+                    try
+                    {
+                        batch[i].drained();
+                    }
+                    catch( Throwable t)
+                    {
+                        t.printStackTrace();
+                    }
+                    batch[i]=null;
+                }
+
+                if( WAITING_PRODUCERS.get() > 0)
+                {
+                    signalEmpty();
+                }
+            }
+        }
+    }
+
+    private static int intProperty( final String name, final int defaultValue)
+    {
+        String tmp=System.getProperty( name);
+        if( tmp == null) return defaultValue;
+
+        try
+        {
+            return Integer.parseInt( tmp.trim());
+        }
+        catch( NumberFormatException nfe)
+        {
+            /* we can't log to ourselves while we are starting up */
+            System.err.println( name + "=" + tmp + " is not a number, using " + defaultValue);//NOPMD
+            return defaultValue;
+        }
+    }
+
     static
     {
         String tmp=System.getProperty(ENVIRONMENT_QUEUE_LOG_LIMIT, "2048");
         QUEUE_LIMIT=Integer.parseInt(tmp);
         tmp=System.getProperty(ENVIRONMENT_QUEUE_LOG_MAX_BLOCK, "60000");
         MAX_BLOCK=Long.parseLong(tmp);
-        QUEUE=new LinkedBlockingQueue<>( QUEUE_LIMIT > 0 ? QUEUE_LIMIT:1);
-        RUNNER=new Thread(new LogRunner(), "log runner - IDLE");
+        BATCH_SIZE=Math.max( 1, intProperty( ENVIRONMENT_QUEUE_LOG_BATCH, 256));
+        tmp=System.getProperty(ENVIRONMENT_QUEUE_LOG_OVERFLOW, Overflow.BLOCK.name());
+        Overflow tmpOverflow;
+        try
+        {
+            tmpOverflow=Overflow.valueOf( tmp.trim().toUpperCase());
+        }
+        catch( IllegalArgumentException iae)
+        {
+            /* we can't log to ourselves while we are starting up */
+            System.err.println( ENVIRONMENT_QUEUE_LOG_OVERFLOW + "=" + tmp + " is not one of " + Arrays.toString( Overflow.values()) + ", using " + Overflow.BLOCK);//NOPMD
+            tmpOverflow=Overflow.BLOCK;
+        }
+        overflow=tmpOverflow;
+        SAMPLE_RATE=Math.max( 1, intProperty( ENVIRONMENT_QUEUE_LOG_SAMPLE, 10));
+
+        if( QUEUE_LIMIT > 0 && Boolean.parseBoolean( System.getProperty(ENVIRONMENT_QUEUE_LOG_RING, "false")))
+        {
+            QUEUE=null;
+            RING=new RingBuffer<>( QUEUE_LIMIT);
+            RUNNER=new Thread(new RingRunner(), "log runner - IDLE");
+        }
+        else
+        {
+            QUEUE=new LinkedBlockingQueue<>( QUEUE_LIMIT > 0 ? QUEUE_LIMIT:1);
+            RING=null;
+            RUNNER=new Thread(new LogRunner(), "log runner - IDLE");
+        }
         RUNNER.setPriority( Thread.MIN_PRIORITY);
         RUNNER.setDaemon(true);
 
@@ -564,7 +857,7 @@ public final class QueueLog implements Log
 
             @Override
             public long getEstimatedSize() {
-                return QUEUE.size()*1024;
+                return getQueueDepth()*1024;
             }
 
             @Override
@@ -576,69 +869,23 @@ public final class QueueLog implements Log
     }
 
     /**
-     * Mask log message
+     * Mask log message.
+     *
+     * All the masks are applied in a single pass over each line, the line breaks are kept. Where the matches
+     * of two masks overlap the match that starts first wins, at the same position the mask added first wins.
+     * Messages that do not contain a literal required by any of the masks are returned as is without scanning.
+     *
      * @param msg the message
      * @return the value
      */
     public static String maskLogMessageV2(final String msg)
     {
-        if( masks.length==0 || StringUtilities.isBlank(msg))
+        if( StringUtilities.isBlank(msg))
         {
             return msg;
         }
 
-        String tmpMsg = msg;
-
-        for( PatternMask patternMask: masks)
-        {
-            StringBuilder sb=new StringBuilder( tmpMsg.length());
-
-            for( String line: tmpMsg.split("[\n\r]+"))
-            {
-                if( sb.length()>0)
-                {
-                    sb.append("\n");
-                }
-//                StringBuilder result=null;
-                int index = 0;
-
-                Matcher matcher = patternMask.pattern.matcher(line);
-
-                while (matcher.find())
-                {
-//                    if( result == null)
-//                    {
-//                         result= new StringBuilder();
-//                    }
-                    int groupNumber = patternMask.groupNumber;
-
-                    if (groupNumber > 0)
-                    {
-                        int start = matcher.start(groupNumber);
-                        int end = matcher.end(groupNumber);
-                        sb.append(line.substring(index, start ) );
-                        sb.append(patternMask.mask);
-                        index = end;
-                    }
-                    else
-                    {
-                        int start = matcher.start();
-                        int end = matcher.end();
-                        sb.append(line.substring(index, start ) );
-                        sb.append(patternMask.mask);
-                        index = end;
-                    }
-                }
-//                if( result!=null)
-//                {
-                    sb.append(line.substring(index));
-//                    line = result.toString();
-//                }
-            }
-            tmpMsg=sb.toString();
-        }
-        
-        return tmpMsg;
+        return maskEngine.mask( msg);
     }
 
     /**
@@ -652,6 +899,10 @@ public final class QueueLog implements Log
 
         for( PatternMask patternMask: masks)
         {
+            if( patternMask.literal != null && tmpMsg.contains( patternMask.literal) == false)
+            {
+                continue;
+            }
             StringBuilder result=null;
             int index = 0;
 
@@ -709,6 +960,17 @@ public final class QueueLog implements Log
                 MASK_LIST.put(strPattern, patternMask);
                 PatternMask t[]=new PatternMask[MASK_LIST.size()];
                 MASK_LIST.values().toArray(t);
+
+                Pattern patterns[]=new Pattern[t.length];
+                String maskValues[]=new String[t.length];
+                int groups[]=new int[t.length];
+                for( int i=0;i<t.length;i++)
+                {
+                    patterns[i]=t[i].pattern;
+                    maskValues[i]=t[i].mask;
+                    groups[i]=t[i].groupNumber;
+                }
+                maskEngine=new MaskEngine( patterns, maskValues, groups);
                 masks=t;
             }
         }
@@ -719,10 +981,12 @@ public final class QueueLog implements Log
         public final String mask;
         public final int groupNumber;
         public final Pattern pattern;
+        public final String literal;
 
         PatternMask(final String patternStr, final String mask,final Integer groupNumber)
         {
             this.pattern = Pattern.compile(patternStr);
+            this.literal = MaskEngine.requiredLiteral(patternStr);
             if (StringUtilities.isBlank(mask))
             {
                 this.mask = "********";
@@ -739,6 +1003,10 @@ public final class QueueLog implements Log
             {
                 int value = groupNumber;
                 assert value >= 0: "group must NOT be negative " + value;
+                if( value > pattern.matcher("").groupCount())
+                {
+                    throw new IllegalArgumentException( "no group " + value + " in " + patternStr);
+                }
                 this.groupNumber = groupNumber;
             }
         }
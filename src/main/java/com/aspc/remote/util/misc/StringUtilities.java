@@ -37,6 +37,7 @@ import com.aspc.remote.database.NotFoundException;
 
 import com.aspc.remote.memory.HashMapFactory;
 import java.io.*;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.util.*;
 import java.util.regex.Matcher;
@@ -2146,6 +2147,8 @@ public final class StringUtilities
      * Check if a value matches a pattern. The pattern is whitespace separated with
      * support for wild cards and negation.
      *
+     * Use {@link MatchPattern} when the same pattern is checked against many values.
+     *
      * @param pattern the pattern to check
      * @param value the value
      * @return matches.
@@ -2238,6 +2241,8 @@ public final class StringUtilities
     /**
      * Is a value LIKE and a pattern
      *
+     * Use {@link LikePattern} when the same pattern is checked against many values.
+     *
      * @return true if match
      * @param pattern The pattern to match to.
      * @param value The value to match
@@ -2723,6 +2728,96 @@ public final class StringUtilities
         return buffer.toString();
     }
 
+    /**
+     * Encode the value as HTML appending to the caller's buffer. The result is the same as {@link #encodeHTML(String)}.
+     *
+     * @param value the value
+     * @param target the buffer to append to.
+     * @return the target buffer.
+     */
+    @Nonnull
+    public static StringBuilder encodeHTML(final @Nonnull CharSequence value, final @Nonnull StringBuilder target)
+    {
+        target.ensureCapacity(target.length() + value.length());
+        try
+        {
+            encodeHTML(value, (Appendable)target);
+        }
+        catch( IOException io)
+        {
+            // StringBuilder does not throw IOException.
+            throw new IllegalStateException(io);
+        }
+
+        return target;
+    }
+
+    /**
+     * Encode the value as HTML directly to the writer or buffer. The result is the same as {@link #encodeHTML(String)}.
+     *
+     * @param value the value
+     * @param target where to write the encoded value.
+     * @throws IOException the target could not be written to.
+     */
+    public static void encodeHTML(final @Nonnull CharSequence value, final @Nonnull Appendable target) throws IOException
+    {
+        assert validCharactersHTML( value.toString()): "invalid HTML '" + encode( value.toString()) +"'";
+        int len = value.length();
+
+        for (int i = 0; i < len; i++)
+        {
+            char c = value.charAt(i);
+
+            if (
+                c >= 'A' && c <= 'Z' ||
+                c >= 'a' && c <= 'z' ||
+                c >= '0' && c <= '9' ||
+                c == '-' ||
+                c == ',' ||
+                c == '=' ||
+                c == ' ' ||
+                c == ':' ||
+                c == '_' ||
+                c == '.' ||
+                c == '*'
+            )
+            {
+                target.append(c);
+            }
+            else if( c== '&')
+            {
+                target.append("&amp;");
+            }
+            else if( c== '"')
+            {
+                target.append("&quot;");
+            }
+            else if( c== '<')
+            {
+                target.append("&lt;");
+            }
+            else if( c== '>')
+            {
+                target.append("&gt;");
+            }
+            else
+            {
+                target.append("&#");
+                int divisor = 10000;
+                while (divisor > 1 && c / divisor == 0)
+                {
+                    divisor /= 10;
+                }
+                while (divisor > 0)
+                {
+                    target.append((char) ('0' + c / divisor % 10));
+                    divisor /= 10;
+                }
+                target.append(';');
+            }
+        }
+    }
+
     /**
      * get the Adler32 checksum value of this string
      * @param str String
@@ -2987,6 +3082,57 @@ public final class StringUtilities
         return buffer.toString();
     }
 
+    /**
+     * Encode the double byte characters appending to the caller's buffer. The result is the same as {@link #encodeSQL(String)}.
+     *
+     * @param doubleByteStr the value
+     * @param target the buffer to append to.
+     * @return the target buffer.
+     */
+    @Nonnull
+    public static StringBuilder encodeSQL(final @Nonnull CharSequence doubleByteStr, final @Nonnull StringBuilder target)
+    {
+        int len = doubleByteStr.length();
+        target.ensureCapacity(target.length() + len);
+
+        for (int i = 0; i < len; i++)
+        {
+            char c = doubleByteStr.charAt(i);
+
+            if (
+                c == '#' ||
+                c > 0x7e ||
+                (
+                    c < 0x20 && // Less than a space
+                    c != 0x09 && // Tab
+                    c != 0x0a && // Line Feed
+                    c != 0x0d // Carage return
+                )
+            )
+            {
+                target.append('#');
+                if (c == 0)
+                {
+                    target.append('0');
+                }
+                else
+                {
+                    for (int shift = (31 - Integer.numberOfLeadingZeros(c)) & ~3; shift >= 0; shift -= 4)
+                    {
+                        target.append(HEX_CHAR[(c >> shift) & 0x0f]);
+                    }
+                }
+                target.append(';');
+            }
+            else
+            {
+                target.append(c);
+            }
+        }
+
+        return target;
+    }
+
     /**
      *
      * @param utf8
@@ -3679,6 +3825,81 @@ public final class StringUtilities
 
         return sb.toString();
     }
+
+    /**
+     * Encodes into a MIME format called "<code>x-www-form-urlencoded</code>" format, appending to the
+     * caller's buffer so no intermediate String or byte array is created. The result is the same as {@link #encode(String)}.
+     *
+     * @param str the value to encode
+     * @param target the buffer to append to.
+     * @return the target buffer.
+     */
+    @Nonnull
+    public static StringBuilder encode(final @Nonnull CharSequence str, final @Nonnull StringBuilder target)
+    {
+        int len = str.length();
+        target.ensureCapacity(target.length() + len);
+
+        for (int i = 0; i < len; i++)
+        {
+            char c = str.charAt(i);
+
+            if (c < 0x80)
+            {
+                if (
+                    c >= 'A' && c <= 'Z' ||
+                    c >= 'a' && c <= 'z' ||
+                    c >= '0' && c <= '9' ||
+                    c == '-' ||
+                    c == '_' ||
+                    c == '.' ||
+                    c == '*' ||
+                    c == '(' ||
+                    c == ')'
+                )
+                {
+                    target.append(c);
+                }
+                else if (c == ' ')
+                {
+                    target.append('+');
+                }
+                else
+                {
+                    target.append(HEX_CODES[c]);
+                }
+            }
+            else if (c < 0x800)
+            {
+                target.append(HEX_CODES[0xc0 | (c >> 6)]);
+                target.append(HEX_CODES[0x80 | (c & 0x3f)]);
+            }
+            else if (Character.isSurrogate(c))
+            {
+                if (Character.isHighSurrogate(c) && i + 1 < len && Character.isLowSurrogate(str.charAt(i + 1)))
+                {
+                    int cp = Character.toCodePoint(c, str.charAt(++i));
+                    target.append(HEX_CODES[0xf0 | (cp >> 18)]);
+                    target.append(HEX_CODES[0x80 | ((cp >> 12) & 0x3f)]);
+                    target.append(HEX_CODES[0x80 | ((cp >> 6) & 0x3f)]);
+                    target.append(HEX_CODES[0x80 | (cp & 0x3f)]);
+                }
+                else
+                {
+                    // same replacement as String.getBytes()
+                    target.append(HEX_CODES['?']);
+                }
+            }
+            else
+            {
+                target.append(HEX_CODES[0xe0 | (c >> 12)]);
+                target.append(HEX_CODES[0x80 | ((c >> 6) & 0x3f)]);
+                target.append(HEX_CODES[0x80 | (c & 0x3f)]);
+            }
+        }
+
+        return target;
+    }
     
     /**
      * check if the str is NOT strictly encoded into
@@ -3842,6 +4063,204 @@ public final class StringUtilities
         return result;
     }
 
+    /**
+     * Decodes from a MIME format called "<code>x-www-form-urlencoded</code>" format, appending to the
+     * caller's buffer. The UTF-8 sequences are decoded in place so no intermediate byte array or String
+     * is created, malformed sequences are replaced with U+FFFD. The result is the same as {@link #decode(String)}.
+     *
+     * @param str the encoded value
+     * @param target the buffer to append to.
+     * @return the target buffer.
+     */
+    @Nonnull
+    public static StringBuilder decode(final @Nonnull CharSequence str, final @Nonnull StringBuilder target)
+    {
+        final int len = str.length();
+        target.ensureCapacity(target.length() + len);
+
+        int i = 0;
+        while (i < len && str.charAt(i) != '+' && str.charAt(i) != '%')
+        {
+            i++;
+        }
+
+        /*
+         * The need for speed.
+         */
+        if (i == len)
+        {
+            return target.append(str);
+        }
+
+        i = 0;
+        while (i < len)
+        {
+            char c = str.charAt(i);
+
+            if (c == '+')
+            {
+                target.append(' ');
+                i++;
+            }
+            else if (c == '%')
+            {
+                int b = decodeHex(str, i);
+                i += 3;
+
+                if (b < 0x80)
+                {
+                    target.append((char) b);
+                    continue;
+                }
+
+                int need;
+                int cp;
+                int min;
+                if ((b & 0xe0) == 0xc0)
+                {
+                    need = 1;
+                    cp = b & 0x1f;
+                    min = 0x80;
+                }
+                else if ((b & 0xf0) == 0xe0)
+                {
+                    need = 2;
+                    cp = b & 0x0f;
+                    min = 0x800;
+                }
+                else if ((b & 0xf8) == 0xf0)
+                {
+                    need = 3;
+                    cp = b & 0x07;
+                    min = 0x10000;
+                }
+                else
+                {
+                    target.append('\uFFFD');
+                    continue;
+                }
+
+                int next = i;
+                while (need > 0 && next < len && str.charAt(next) == '%')
+                {
+                    int cb = decodeHex(str, next);
+                    if ((cb & 0xc0) != 0x80)
+                    {
+                        break;
+                    }
+                    cp = cp << 6 | cb & 0x3f;
+                    next += 3;
+                    need--;
+                }
+
+                if (need > 0 || cp < min || cp > Character.MAX_CODE_POINT || cp >= Character.MIN_SURROGATE && cp <= Character.MAX_SURROGATE)
+                {
+                    target.append('\uFFFD');
+                }
+                else
+                {
+                    target.appendCodePoint(cp);
+                    i = next;
+                }
+            }
+            else
+            {
+                if (Character.isSurrogate(c))
+                {
+                    if (Character.isHighSurrogate(c) && i + 1 < len && Character.isLowSurrogate(str.charAt(i + 1)))
+                    {
+                        target.append(c);
+                        c = str.charAt(++i);
+                    }
+                    else
+                    {
+                        // same replacement as String.getBytes()
+                        c = '?';
+                    }
+                }
+                target.append(c);
+                i++;
+            }
+        }
+
+        return target;
+    }
+
+    /**
+     * Decode into the caller's buffer
+     *
+     * @param str the encoded value
+     * @param target the buffer to write to.
+     * @return the number of bytes written.
+     * @throws java.nio.BufferOverflowException the buffer is too small.
+     */
+    @SuppressWarnings("AssignmentToForLoopParameter")
+    public static int decodeToBytes(final @Nonnull CharSequence str, final @Nonnull ByteBuffer target)
+    {
+        final int start = target.position();
+        final int len = str.length();
+        for (int i = 0; i < len; i++)
+        {
+            char c = str.charAt(i);
+
+            if (c == '+')
+            {
+                target.put((byte) ' ');
+            }
+            else if (c == '%')
+            {
+                target.put((byte) decodeHex(str, i));
+                i += 2;
+            }
+            else if (c < 0x80)
+            {
+                target.put((byte) c);
+            }
+            else if (c < 0x800)
+            {
+                target.put((byte) (0xc0 | (c >> 6)));
+                target.put((byte) (0x80 | (c & 0x3f)));
+            }
+            else if (Character.isSurrogate(c))
+            {
+                if (Character.isHighSurrogate(c) && i + 1 < len && Character.isLowSurrogate(str.charAt(i + 1)))
+                {
+                    int cp = Character.toCodePoint(c, str.charAt(++i));
+                    target.put((byte) (0xf0 | (cp >> 18)));
+                    target.put((byte) (0x80 | ((cp >> 12) & 0x3f)));
+                    target.put((byte) (0x80 | ((cp >> 6) & 0x3f)));
+                    target.put((byte) (0x80 | (cp & 0x3f)));
+                }
+                else
+                {
+                    target.put((byte) '?');
+                }
+            }
+            else
+            {
+                target.put((byte) (0xe0 | (c >> 12)));
+                target.put((byte) (0x80 | ((c >> 6) & 0x3f)));
+                target.put((byte) (0x80 | (c & 0x3f)));
+            }
+        }
+
+        return target.position() - start;
+    }
+
+    private static int decodeHex(final CharSequence str, final int pos)
+    {
+        if (pos + 2 >= str.length())
+        {
+            throw new IllegalArgumentException("not an encoded value: " + str);
+        }
+
+        int b = Character.digit(str.charAt(pos + 1), 16);
+        b *= 16;
+        b += Character.digit(str.charAt(pos + 2), 16);
+
+        return b & 0xff;
+    }
+
     /**
      *
      * @param strToPad
@@ -4685,6 +5104,130 @@ StringBuilder sb=new StringBuilder();
         return valueList;
     }
 
+    /**
+     * Performs a split into the caller's list. The fields are found by position so no intermediate
+     * strings are created for the remainder of the value. The result is the same as {@link #split(String, char, char)}.
+     *
+     * @param values - value to be parsed
+     * @param fieldDelim the field delimiter
+     * @param quote the quote character
+     * @param target the list to add the values to.
+     * @return the number of values added.
+     */
+    public static int split(final @Nonnull String values, final char fieldDelim, final char quote, final @Nonnull List<String> target)
+    {
+        int end = values.length();
+        while (end > 0 && values.charAt(end - 1) <= ' ')
+        {
+            end--;
+        }
+        int start = skipSpaces(values, 0, end);
+
+        int count = 0;
+        StringBuilder buffer = null;
+        while (start < end)
+        {
+            if (values.charAt(start) == quote)
+            {
+                int last = -1;
+                boolean lastEscape = false;
+                boolean escaped = false;
+                if (buffer != null)
+                {
+                    buffer.setLength(0);
+                }
+
+                for (int i = start + 1; i < end; i++)
+                {
+                    char c = values.charAt(i);
+
+                    if (lastEscape == true)
+                    {
+                        lastEscape = false;
+                        buffer.append(c);
+                        continue;
+                    }
+
+                    if (c == '\\')
+                    {
+                        if (escaped == false)
+                        {
+                            escaped = true;
+                            if (buffer == null)
+                            {
+                                buffer = new StringBuilder(i - start + 16);
+                            }
+                            buffer.append(values, start + 1, i);
+                        }
+                        lastEscape = true;
+                    }
+                    else if (c == quote)
+                    {
+                        last = i;
+                        break;
+                    }
+                    else if (escaped)
+                    {
+                        buffer.append(c);
+                    }
+                }
+
+                if (last > 0)
+                {
+                    target.add(escaped ? buffer.toString() : values.substring(start + 1, last));
+                    count++;
+                }
+                else
+                {
+                    throw new IllegalArgumentException("unclosed quote string: " + values);
+                }
+
+                int pos = indexOf(values, fieldDelim, last + 1, end);
+
+                if (pos == -1)
+                {
+                    break;
+                }
+                start = skipSpaces(values, pos + 1, end);
+            }
+            else
+            {
+                int pos = indexOf(values, fieldDelim, start, end);
+
+                if (pos == -1)
+                {
+                    target.add(values.substring(start, end));
+                    start = end;
+                }
+                else
+                {
+                    target.add(values.substring(start, pos));
+                    start = skipSpaces(values, pos + 1, end);
+                }
+                count++;
+            }
+        }
+
+        return count;
+    }
+
+    private static int skipSpaces(final String values, final int start, final int end)
+    {
+        int pos = start;
+        while (pos < end && values.charAt(pos) <= ' ')
+        {
+            pos++;
+        }
+        return pos;
+    }
+
+    private static int indexOf(final String values, final char c, final int start, final int end)
+    {
+        int pos = values.indexOf(c, start);
+
+        return pos < end ? pos : -1;
+    }
+
     /**
      * Capitalizes the first character IN EACH WORD of the specified string.
      *
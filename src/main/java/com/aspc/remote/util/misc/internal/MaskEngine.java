@@ -0,0 +1,485 @@
+/**
+ *  STS Remote library
+ *
+ *  Copyright (C) 2006  stSoftware Pty Ltd
+ *
+ *  stSoftware.com.au
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ *  Bug fixes, suggestions and comments should be sent to:
+ *
+ *  info AT stsoftware.com.au
+ *
+ *  or by snail mail to:
+ *
+ *  stSoftware
+ *  building C, level 1,
+ *  14 Rodborough Rd
+ *  Frenchs Forest 2086
+ *  Australia.
+ */
+package com.aspc.remote.util.misc.internal;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import javax.annotation.CheckReturnValue;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * Applies a set of log masks in a single pass over each line of the message.
+ *
+ * Each pattern has a literal that every match must contain ( when one can be found), patterns whose literal
+ * is not in the message are skipped and when no pattern can match the message is returned without running any
+ * regular expression. The matches of the remaining patterns are merged in order of position so the message is
+ * copied once however many masks are registered. Where the matches of two masks overlap the match that starts
+ * first wins, at the same position the mask registered first wins. The matchers are reused by each thread so
+ * nothing is allocated unless a mask matches.
+ *  <br>
+ *  <i>THREAD MODE: READONLY</i>
+ *
+ * @author Nigel Leck
+ * @since 18 October 2026
+ */
+public final class MaskEngine
+{
+    private static final Pattern INLINE_FLAGS=Pattern.compile( "\\(\\?[idmsuxU-]|\\\\Q");
+
+    private final Pattern patterns[];
+    private final String masks[];
+    private final int groups[];
+    private final String literals[];
+    private final ThreadLocal<Scan> scans;
+
+    /**
+     * Create a new mask engine
+     *
+     * @param patterns the patterns in the order registered.
+     * @param masks the replacement for each pattern.
+     * @param groups the group to replace for each pattern, zero for the whole match.
+     */
+    public MaskEngine( final @Nonnull Pattern patterns[], final @Nonnull String masks[], final @Nonnull int groups[])
+    {
+        if( patterns.length != masks.length || patterns.length != groups.length)
+        {
+            throw new IllegalArgumentException( "patterns, masks and groups must be the same length");
+        }
+        this.patterns=patterns.clone();
+        this.masks=masks.clone();
+        this.groups=groups.clone();
+
+        literals=new String[patterns.length];
+        for( int i=0;i<patterns.length;i++)
+        {
+            if( patterns[i].flags() == 0)
+            {
+                literals[i]=requiredLiteral( patterns[i].pattern());
+            }
+        }
+
+        scans=new ThreadLocal<Scan>()
+        {
+            @Override
+            protected Scan initialValue()
+            {
+                return new Scan();
+            }
+        };
+    }
+
+    /**
+     * Could any of the masks match this message ? false if the message does not contain a literal required by each mask.
+     *
+     * @param msg the message
+     * @return false if no mask can match.
+     */
+    @CheckReturnValue
+    public boolean mayMatch( final @Nonnull String msg)
+    {
+        for( String literal: literals)
+        {
+            if( literal == null || msg.contains( literal))
+            {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Mask the message one line at a time, the line breaks are kept.
+     *
+     * @param msg the message
+     * @return the masked message or the same message if nothing matched.
+     */
+    @CheckReturnValue @Nullable
+    public String mask( final @Nullable String msg)
+    {
+        if( msg == null || mayMatch( msg) == false)
+        {
+            return msg;
+        }
+
+        Scan scan=scans.get();
+        try
+        {
+            return scan.mask( msg);
+        }
+        finally
+        {
+            scan.reset();
+        }
+    }
+
+    /**
+     * the reusable matchers of one thread.
+     */
+    private final class Scan
+    {
+        private final Matcher matchers[]=new Matcher[patterns.length];
+        private final boolean active[]=new boolean[patterns.length];
+        private final boolean found[]=new boolean[patterns.length];
+
+        Scan()
+        {
+            for( int i=0;i<patterns.length;i++)
+            {
+                matchers[i]=patterns[i].matcher( "");
+            }
+        }
+
+        String mask( final String msg)
+        {
+            for( int i=0;i<patterns.length;i++)
+            {
+                active[i]=literals[i] == null || msg.contains( literals[i]);
+                if( active[i])
+                {
+                    matchers[i].reset( msg);
+                }
+            }
+
+            StringBuilder sb=null;
+            int copied=0;
+            final int len=msg.length();
+            int lineStart=0;
+            while( lineStart < len)
+            {
+                int lineEnd=lineStart;
+                while( lineEnd < len)
+                {
+                    char c=msg.charAt( lineEnd);
+                    if( c == '\n' || c == '\r') break;
+                    lineEnd++;
+                }
+
+                if( lineEnd > lineStart)
+                {
+                    for( int i=0;i<patterns.length;i++)
+                    {
+                        if( active[i])
+                        {
+                            matchers[i].region( lineStart, lineEnd);
+                            found[i]=matchers[i].find();
+                        }
+                        else
+                        {
+                            found[i]=false;
+                        }
+                    }
+
+                    while( true)
+                    {
+                        int first=-1;
+                        for( int i=0;i<patterns.length;i++)
+                        {
+                            if( found[i] && ( first == -1 || matchers[i].start() < matchers[first].start()))
+                            {
+                                first=i;
+                            }
+                        }
+                        if( first == -1) break;
+
+                        Matcher m=matchers[first];
+                        int matchEnd=m.end();
+                        int start=m.start( groups[first]);
+                        if( start != -1 && start >= copied)
+                        {
+                            if( sb == null)
+                            {
+                                sb=new StringBuilder( len + 16);
+                            }
+                            sb.append( msg, copied, start);
+                            sb.append( masks[first]);
+                            copied=m.end( groups[first]);
+                        }
+
+                        found[first]=m.find();
+                        for( int i=0;i<patterns.length;i++)
+                        {
+                            while( found[i] && matchers[i].start() < matchEnd)
+                            {
+                                // overlapped by the match just masked.
+                                found[i]=matchers[i].find();
+                            }
+                        }
+                    }
+                }
+
+                lineStart=lineEnd + 1;
+            }
+
+            if( sb == null)
+            {
+                return msg;
+            }
+
+            sb.append( msg, copied, len);
+            return sb.toString();
+        }
+
+        void reset()
+        {
+            for( Matcher m: matchers)
+            {
+                m.reset( "");
+            }
+        }
+    }
+
+    /**
+     * Find the longest run of literal characters that every match of the regular expression must contain.
+     *
+     * @param regex the regular expression
+     * @return the literal or null if there isn't one.
+     */
+    @CheckReturnValue @Nullable
+    public static String requiredLiteral( final @Nonnull String regex)
+    {
+        if( INLINE_FLAGS.matcher( regex).find())
+        {
+            return null;
+        }
+
+        String best="";
+        StringBuilder current=new StringBuilder();
+        final int len=regex.length();
+        int i=0;
+        while( i < len)
+        {
+            char c=regex.charAt( i);
+            int literal=-1;
+            String groupLiteral=null;
+            switch( c)
+            {
+                case '|':
+                    // alternation at the top level, nothing is required.
+                    return null;
+                case '(':
+                    int end=skipGroup( regex, i);
+                    int bodyStart=i + 1;
+                    if( regex.startsWith( "?:", bodyStart))
+                    {
+                        bodyStart+=2;
+                    }
+                    else if( regex.startsWith( "?<", bodyStart) && regex.startsWith( "?<=", bodyStart) == false && regex.startsWith( "?<!", bodyStart) == false)
+                    {
+                        bodyStart=regex.indexOf( '>', bodyStart) + 1;
+                    }
+
+                    if( regex.charAt( bodyStart) != '?' && end - 1 > bodyStart)
+                    {
+                        groupLiteral=requiredLiteral( regex.substring( bodyStart, end - 1));
+                    }
+                    i=end;
+                    break;
+                case '[':
+                    i=skipClass( regex, i);
+                    break;
+                case '\\':
+                    if( i + 1 >= len) return null;
+                    char next=regex.charAt( i + 1);
+                    if( "xu0cpPkN".indexOf( next) != -1)
+                    {
+                        // character codes, properties and named references.
+                        return null;
+                    }
+                    if( Character.isLetterOrDigit( next) == false)
+                    {
+                        literal=next;
+                    }
+                    i+=2;
+                    break;
+                case '.':
+                case '^':
+                case '$':
+                case '*':
+                case '+':
+                case '?':
+                case '{':
+                    i++;
+                    break;
+                default:
+                    literal=c;
+                    i++;
+            }
+
+            boolean optional=false;
+            boolean quantified=false;
+            if( i < len)
+            {
+                char q=regex.charAt( i);
+                if( q == '?' || q == '*')
+                {
+                    optional=true;
+                    quantified=true;
+                }
+                else if( q == '+')
+                {
+                    quantified=true;
+                }
+                else if( q == '{')
+                {
+                    quantified=true;
+                    optional=i + 1 < len && regex.charAt( i + 1) == '0';
+                }
+            }
+
+            if( literal != -1 && optional == false)
+            {
+                current.append( (char)literal);
+            }
+
+            if( literal == -1 || quantified)
+            {
+                if( current.length() > best.length())
+                {
+                    best=current.toString();
+                }
+                current.setLength( 0);
+            }
+
+            if( groupLiteral != null && optional == false && groupLiteral.length() > best.length())
+            {
+                best=groupLiteral;
+            }
+
+            if( quantified)
+            {
+                i=skipQuantifier( regex, i);
+            }
+        }
+
+        if( current.length() > best.length())
+        {
+            best=current.toString();
+        }
+
+        return best.isEmpty() ? null : best;
+    }
+
+    private static int skipQuantifier( final String regex, final int start)
+    {
+        int i=start;
+        if( regex.charAt( i) == '{')
+        {
+            int end=regex.indexOf( '}', i);
+            i=end == -1 ? regex.length() : end + 1;
+        }
+        else
+        {
+            i++;
+        }
+
+        if( i < regex.length() && ( regex.charAt( i) == '?' || regex.charAt( i) == '+'))
+        {
+            i++;
+        }
+
+        return i;
+    }
+
+    private static int skipGroup( final String regex, final int start)
+    {
+        int depth=0;
+        int i=start;
+        final int len=regex.length();
+        while( i < len)
+        {
+            char c=regex.charAt( i);
+            if( c == '\\')
+            {
+                i+=2;
+                continue;
+            }
+            if( c == '[')
+            {
+                i=skipClass( regex, i);
+                continue;
+            }
+            if( c == '(')
+            {
+                depth++;
+            }
+            else if( c == ')')
+            {
+                depth--;
+                if( depth == 0)
+                {
+                    return i + 1;
+                }
+            }
+            i++;
+        }
+
+        return len;
+    }
+
+    private static int skipClass( final String regex, final int start)
+    {
+        final int len=regex.length();
+        int i=start + 1;
+        if( i < len && regex.charAt( i) == '^') i++;
+        if( i < len && regex.charAt( i) == ']') i++;
+
+        int depth=1;
+        while( i < len)
+        {
+            char c=regex.charAt( i);
+            if( c == '\\')
+            {
+                i+=2;
+                continue;
+            }
+            if( c == '[')
+            {
+                depth++;
+            }
+            else if( c == ']')
+            {
+                depth--;
+                if( depth == 0)
+                {
+                    return i + 1;
+                }
+            }
+            i++;
+        }
+
+        return len;
+    }
+}
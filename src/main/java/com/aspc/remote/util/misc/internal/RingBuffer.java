@@ -0,0 +1,181 @@
+/**
+ *  STS Remote library
+ *
+ *  Copyright (C) 2006  stSoftware Pty Ltd
+ *
+ *  stSoftware.com.au
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ *  Bug fixes, suggestions and comments should be sent to:
+ *
+ *  info AT stsoftware.com.au
+ *
+ *  or by snail mail to:
+ *
+ *  stSoftware
+ *  building C, level 1,
+ *  14 Rodborough Rd
+ *  Frenchs Forest 2086
+ *  Australia.
+ */
+package com.aspc.remote.util.misc.internal;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import javax.annotation.CheckReturnValue;
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+
+/**
+ * A bounded, pre-allocated multi-producer single-consumer ring buffer.
+ *
+ * Producers claim a slot with a single compare and set of the tail and publish it by setting the
+ * slot's sequence, no locks are taken. The one consumer drains the published slots in order in batches.
+ *  <br>
+ *  <i>THREAD MODE: MULTI-THREADED producers, SINGLE-THREADED consumer</i>
+ *
+ * @param <T> the type of the elements
+ * @author Nigel Leck
+ * @since 18 October 2026
+ */
+public final class RingBuffer<T>
+{
+    private final int mask;
+    private final Object slots[];
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail=new AtomicLong();
+    private final AtomicLong head=new AtomicLong();
+
+    /**
+     * Create a new ring buffer
+     *
+     * @param capacity the minimum capacity, rounded up to a power of two.
+     */
+    public RingBuffer( final @Nonnegative int capacity)
+    {
+        if( capacity < 1 || capacity > 1 << 30)
+        {
+            throw new IllegalArgumentException( "invalid capacity " + capacity);
+        }
+
+        int size=Integer.highestOneBit( capacity);
+        if( size < capacity)
+        {
+            size <<= 1;
+        }
+        mask=size - 1;
+        slots=new Object[size];
+        sequences=new AtomicLongArray( size);
+        for( int i=0;i<size;i++)
+        {
+            sequences.set( i, i);
+        }
+    }
+
+    /**
+     * Add an element if there is room.
+     *
+     * @param element the element
+     * @return true if added, false if the buffer is full.
+     */
+    @CheckReturnValue
+    public boolean offer( final @Nonnull T element)
+    {
+        while( true)
+        {
+            long pos=tail.get();
+            int index=(int)( pos & mask);
+            long diff=sequences.get( index) - pos;
+
+            if( diff == 0)
+            {
+                if( tail.compareAndSet( pos, pos + 1))
+                {
+                    slots[index]=element;
+                    sequences.set( index, pos + 1);
+                    return true;
+                }
+            }
+            else if( diff < 0)
+            {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Move the published elements to the target, only ONE thread may drain.
+     *
+     * @param target the array to fill.
+     * @return the number of elements moved.
+     */
+    @SuppressWarnings("unchecked")
+    public int drain( final @Nonnull T target[])
+    {
+        long pos=head.get();
+        int count=0;
+        while( count < target.length)
+        {
+            int index=(int)( pos & mask);
+            if( sequences.get( index) != pos + 1)
+            {
+                break;
+            }
+
+            target[count++]=(T)slots[index];
+            slots[index]=null;
+            sequences.lazySet( index, pos + mask + 1);
+            pos++;
+        }
+
+        head.lazySet( pos);
+        return count;
+    }
+
+    /**
+     * The number of elements waiting to be drained.
+     * @return the size
+     */
+    @CheckReturnValue @Nonnegative
+    public int size()
+    {
+        long size=tail.get() - head.get();
+
+        return (int)Math.max( 0, Math.min( size, slots.length));
+    }
+
+    /**
+     * Are there any elements waiting ?
+     * @return true if empty
+     */
+    @CheckReturnValue
+    public boolean isEmpty()
+    {
+        long pos=head.get();
+
+        return sequences.get( (int)( pos & mask)) != pos + 1;
+    }
+
+    /**
+     * The number of slots.
+     * @return the capacity
+     */
+    @CheckReturnValue @Nonnegative
+    public int capacity()
+    {
+        return slots.length;
+    }
+}
@@ -0,0 +1,393 @@
+/**
+ *  STS Remote library
+ *
+ *  Copyright (C) 2006  stSoftware Pty Ltd
+ *
+ *  stSoftware.com.au
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ *  Bug fixes, suggestions and comments should be sent to:
+ *
+ *  info AT stsoftware.com.au
+ *
+ *  or by snail mail to:
+ *
+ *  stSoftware
+ *  building C, level 1,
+ *  14 Rodborough Rd
+ *  Frenchs Forest 2086
+ *  Australia.
+ */
+package com.aspc.remote.util.net;
+
+import com.aspc.remote.util.misc.CLogger;
+import com.aspc.remote.util.misc.VersionENV;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URL;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.CheckReturnValue;
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import org.apache.commons.logging.Log;
+import org.apache.http.HeaderElement;
+import org.apache.http.HeaderElementIterator;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpResponse;
+import org.apache.http.config.Registry;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.LayeredConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.message.BasicHeaderElementIterator;
+import org.apache.http.pool.PoolStats;
+import org.apache.http.protocol.HTTP;
+import org.apache.http.protocol.HttpContext;
+
+/**
+ *  The shared pool of persistent HTTP connections.
+ *
+ *  Each host has its own pool of keep-alive connections so the service to service calls reuse
+ *  the TCP and TLS session instead of connecting per call. Idle connections are closed by a
+ *  background evictor and a connection that has been idle is validated before it is reused.
+ *
+ *  <br>
+ *  <i>THREAD MODE: MULTI-THREADED</i>
+ *
+ *  @author      Nigel Leck
+ *  @since       18 October 2026
+ */
+public final class HttpConnectionPool
+{
+    /** the maximum connections in all pools */
+    public static final String PROPERTY_HTTP_POOL_MAX_TOTAL="HTTP_POOL_MAX_TOTAL";
+    /** the default maximum connections to one host */
+    public static final String PROPERTY_HTTP_POOL_MAX_PER_HOST="HTTP_POOL_MAX_PER_HOST";
+    /** the seconds a connection is kept alive when the server doesn't say */
+    public static final String PROPERTY_HTTP_POOL_KEEP_ALIVE="HTTP_POOL_KEEP_ALIVE";
+    /** the seconds an idle connection is kept in the pool */
+    public static final String PROPERTY_HTTP_POOL_IDLE="HTTP_POOL_IDLE";
+    /** the seconds to wait for a connection from the pool */
+    public static final String PROPERTY_HTTP_POOL_ACQUIRE_TIMEOUT="HTTP_POOL_ACQUIRE_TIMEOUT";
+
+    private static final Log LOGGER = CLogger.getLog( "com.aspc.remote.util.net.HttpConnectionPool");//#LOGGER-NOPMD
+
+    private static final PoolingHttpClientConnectionManager MANAGER;
+    private static final CloseableHttpClient CLIENT;
+    private static final long KEEP_ALIVE_MS;
+    private static final int ACQUIRE_TIMEOUT_MS;
+    private static final AtomicLong REQUEST_COUNT=new AtomicLong();
+    private static final AtomicLong CONNECT_COUNT=new AtomicLong();
+
+    private HttpConnectionPool()
+    {
+    }
+
+    /**
+     * The shared client.
+     * @return the client
+     */
+    @CheckReturnValue @Nonnull
+    static CloseableHttpClient getClient()
+    {
+        return CLIENT;
+    }
+
+    /**
+     * The milliseconds to wait for a connection from the pool.
+     * @return the timeout
+     */
+    @CheckReturnValue @Nonnegative
+    static int getAcquireTimeout()
+    {
+        return ACQUIRE_TIMEOUT_MS;
+    }
+
+    /**
+     * Record a request sent through the pool.
+     */
+    static void recordRequest()
+    {
+        REQUEST_COUNT.incrementAndGet();
+    }
+
+    /**
+     * Open a pooled connection to this URL.
+     *
+     * @param url the URL
+     * @return the connection
+     */
+    @CheckReturnValue @Nonnull
+    public static PooledHttpURLConnection openConnection( final @Nonnull URL url)
+    {
+        return new PooledHttpURLConnection( url);
+    }
+
+    /**
+     * Set the maximum connections to the host of this URL.
+     *
+     * @param url the URL of the host.
+     * @param max the maximum connections.
+     */
+    public static void setMaxPerHost( final @Nonnull URL url, final @Nonnegative int max)
+    {
+        if( max < 1) throw new IllegalArgumentException( "maximum connections must be positive was: " + max);
+
+        MANAGER.setMaxPerRoute( route( url), max);
+    }
+
+    /**
+     * The maximum connections to the host of this URL.
+     *
+     * @param url the URL of the host.
+     * @return the maximum
+     */
+    @CheckReturnValue @Nonnegative
+    public static int getMaxPerHost( final @Nonnull URL url)
+    {
+        return MANAGER.getMaxPerRoute( route( url));
+    }
+
+    /**
+     * Close the connections that have been idle for longer than this.
+     *
+     * @param idleMS the idle milliseconds.
+     */
+    public static void closeIdle( final @Nonnegative long idleMS)
+    {
+        MANAGER.closeExpiredConnections();
+        MANAGER.closeIdleConnections( idleMS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * The number of requests sent through the pool.
+     * @return the count
+     */
+    @CheckReturnValue @Nonnegative
+    public static long getRequestCount()
+    {
+        return REQUEST_COUNT.get();
+    }
+
+    /**
+     * The number of new connections opened, the rest of the requests reused a pooled connection.
+     * @return the count
+     */
+    @CheckReturnValue @Nonnegative
+    public static long getConnectCount()
+    {
+        return CONNECT_COUNT.get();
+    }
+
+    /**
+     * The connections in use.
+     * @return the count
+     */
+    @CheckReturnValue @Nonnegative
+    public static int getLeasedCount()
+    {
+        return MANAGER.getTotalStats().getLeased();
+    }
+
+    /**
+     * The idle connections held for reuse.
+     * @return the count
+     */
+    @CheckReturnValue @Nonnegative
+    public static int getAvailableCount()
+    {
+        return MANAGER.getTotalStats().getAvailable();
+    }
+
+    /**
+     * The requests waiting for a connection.
+     * @return the count
+     */
+    @CheckReturnValue @Nonnegative
+    public static int getPendingCount()
+    {
+        return MANAGER.getTotalStats().getPending();
+    }
+
+    /**
+     * The idle connections held for reuse to the host of this URL.
+     *
+     * @param url the URL of the host.
+     * @return the count
+     */
+    @CheckReturnValue @Nonnegative
+    public static int getAvailableCount( final @Nonnull URL url)
+    {
+        return MANAGER.getStats( route( url)).getAvailable();
+    }
+
+    /**
+     * The connections in use to the host of this URL.
+     *
+     * @param url the URL of the host.
+     * @return the count
+     */
+    @CheckReturnValue @Nonnegative
+    public static int getLeasedCount( final @Nonnull URL url)
+    {
+        return MANAGER.getStats( route( url)).getLeased();
+    }
+
+    /**
+     * The pool sizes and counters
+     *
+     * @return the description
+     */
+    @CheckReturnValue @Nonnull
+    public static String getStatus()
+    {
+        PoolStats stats = MANAGER.getTotalStats();
+
+        return "HttpConnectionPool{requests=" + REQUEST_COUNT.get() + ", connects=" + CONNECT_COUNT.get() +
+            ", leased=" + stats.getLeased() + ", available=" + stats.getAvailable() +
+            ", pending=" + stats.getPending() + ", max=" + stats.getMax() + '}';
+    }
+
+    @CheckReturnValue @Nonnull
+    private static HttpRoute route( final @Nonnull URL url)
+    {
+        boolean secure = "https".equalsIgnoreCase( url.getProtocol());
+        int port = url.getPort();
+        if( port == -1)
+        {
+            port = url.getDefaultPort();
+        }
+
+        return new HttpRoute( new HttpHost( url.getHost(), port, url.getProtocol()), null, secure);
+    }
+
+    /**
+     * counts the new connections.
+     */
+    private static class CountingSocketFactory implements ConnectionSocketFactory
+    {
+        private final ConnectionSocketFactory factory;
+
+        CountingSocketFactory( final ConnectionSocketFactory factory)
+        {
+            this.factory = factory;
+        }
+
+        @Override
+        public Socket createSocket( final HttpContext context) throws IOException
+        {
+            return factory.createSocket( context);
+        }
+
+        @Override
+        public Socket connectSocket(
+            final int connectTimeout,
+            final Socket sock,
+            final HttpHost host,
+            final InetSocketAddress remoteAddress,
+            final InetSocketAddress localAddress,
+            final HttpContext context
+        ) throws IOException
+        {
+            Socket s = factory.connectSocket( connectTimeout, sock, host, remoteAddress, localAddress, context);
+            CONNECT_COUNT.incrementAndGet();
+            return s;
+        }
+    }
+
+    /**
+     * counts the new secure connections.
+     */
+    private static final class CountingLayeredSocketFactory extends CountingSocketFactory implements LayeredConnectionSocketFactory
+    {
+        private final LayeredConnectionSocketFactory layered;
+
+        CountingLayeredSocketFactory( final LayeredConnectionSocketFactory factory)
+        {
+            super( factory);
+            layered = factory;
+        }
+
+        @Override
+        public Socket createLayeredSocket( final Socket socket, final String target, final int port, final HttpContext context) throws IOException
+        {
+            return layered.createLayeredSocket( socket, target, port, context);
+        }
+    }
+
+    static
+    {
+        int maxTotal = new VersionENV( PROPERTY_HTTP_POOL_MAX_TOTAL, 200, 1, 100000).calculateVersion();
+        int maxPerHost = new VersionENV( PROPERTY_HTTP_POOL_MAX_PER_HOST, 20, 1, 100000).calculateVersion();
+        KEEP_ALIVE_MS = new VersionENV( PROPERTY_HTTP_POOL_KEEP_ALIVE, 30, 1, 24 * 60 * 60).calculateVersion() * 1000L;
+        int idleSeconds = new VersionENV( PROPERTY_HTTP_POOL_IDLE, 60, 1, 24 * 60 * 60).calculateVersion();
+        ACQUIRE_TIMEOUT_MS = new VersionENV( PROPERTY_HTTP_POOL_ACQUIRE_TIMEOUT, 60, 1, 24 * 60 * 60).calculateVersion() * 1000;
+
+        Registry<ConnectionSocketFactory> registry = RegistryBuilder.<ConnectionSocketFactory>create()
+            .register( "http", new CountingSocketFactory( PlainConnectionSocketFactory.getSocketFactory()))
+            .register( "https", new CountingLayeredSocketFactory( SSLConnectionSocketFactory.getSystemSocketFactory()))
+            .build();
+
+        MANAGER = new PoolingHttpClientConnectionManager( registry);
+        MANAGER.setMaxTotal( maxTotal);
+        MANAGER.setDefaultMaxPerRoute( maxPerHost);
+        MANAGER.setValidateAfterInactivity( 2000);
+
+        ConnectionKeepAliveStrategy keepAlive = new ConnectionKeepAliveStrategy()
+        {
+            @Override
+            public long getKeepAliveDuration( final HttpResponse response, final HttpContext context)
+            {
+                HeaderElementIterator it = new BasicHeaderElementIterator( response.headerIterator( HTTP.CONN_KEEP_ALIVE));
+                while( it.hasNext())
+                {
+                    HeaderElement he = it.nextElement();
+                    if( "timeout".equalsIgnoreCase( he.getName()) && he.getValue() != null)
+                    {
+                        try
+                        {
+                            return Long.parseLong( he.getValue().trim()) * 1000L;
+                        }
+                        catch( NumberFormatException nf)
+                        {
+                            LOGGER.warn( "invalid keep alive " + he.getValue(), nf);
+                        }
+                    }
+                }
+
+                return KEEP_ALIVE_MS;
+            }
+        };
+
+        CLIENT = HttpClients.custom()
+            .setConnectionManager( MANAGER)
+            .setKeepAliveStrategy( keepAlive)
+            .evictExpiredConnections()
+            .evictIdleConnections( idleSeconds, TimeUnit.SECONDS)
+            .disableContentCompression()
+            .disableCookieManagement()
+            .useSystemProperties()
+            .build();
+    }
+}
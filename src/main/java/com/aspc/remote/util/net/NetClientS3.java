@@ -40,9 +40,23 @@ import com.aspc.remote.rest.ReST;
 import com.aspc.remote.rest.Response;
 import com.aspc.remote.rest.internal.AWSReSTAuthorization;
 import com.aspc.remote.util.misc.CLogger;
+import com.aspc.remote.util.misc.CUtilities;
 import com.aspc.remote.util.misc.FileUtil;
 import com.aspc.remote.util.misc.StringUtilities;
+import com.aspc.remote.util.net.internal.ChunkedTransfer;
+import java.io.EOFException;
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
 import javax.annotation.Nonnull;
 import org.apache.commons.logging.Log;
 
@@ -63,6 +77,9 @@ public class NetClientS3 implements NetClient
     private String baseDir;
     private String path;
     private static final Log LOGGER = CLogger.getLog( "com.aspc.remote.util.net.NetClientS3");//#LOGGER-NOPMD
+    private static final int CONNECT_TIMEOUT_MS=60 * 1000;
+    private static final int READ_TIMEOUT_MS=5 * 60 * 1000;
+
     @Override
     public boolean exists(String path) throws Exception {
         throw new UnsupportedOperationException("Not supported yet."); //To change body of generated methods, choose Tools | Templates.
@@ -94,6 +111,12 @@ public class NetClientS3 implements NetClient
         {
             cachePeriod =NetUtil.CACHE_PERIOD.get();
         }
+        if( StringUtilities.isBlank(cachePeriod))
+        {
+            fetchRanges( url, target);
+            return;
+        }
+
         File tmpFile = ReST
             .builder(url)
             .setMethod(Method.GET)
@@ -106,6 +129,318 @@ public class NetClientS3 implements NetClient
         FileUtil.copy(tmpFile, target);
     }
 
+    /**
+     * Download the object with ranged GETs written directly to the target. The first range also
+     * returns the object size, the remaining ranges are fetched in parallel.
+     */
+    private void fetchRanges( final @Nonnull String url, final @Nonnull File target) throws Exception
+    {
+        final long chunkSize=ChunkedTransfer.CHUNK_SIZE;
+        FileUtil.mkdirs( target.getParentFile());
+        try(
+            final FileChannel channel=FileChannel.open(
+                target.toPath(),
+                StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING
+            )
+        )
+        {
+            HttpURLConnection c=open( url, "GET");
+            long size;
+            try
+            {
+                c.setRequestProperty( "Range", "bytes=0-" + ( chunkSize - 1));
+                sign( c);
+                int code=c.getResponseCode();
+
+                if( code == ChunkedTransfer.HTTP_RANGE_NOT_SATISFIABLE)
+                {
+                    // S3 can't satisfy any range of an empty object, the target is already truncated.
+                    try
+                    {
+                        size=ChunkedTransfer.rangeObjectSize( code, c.getHeaderField( "Content-Range"));
+                    }
+                    catch( IOException e)
+                    {
+                        throw new IOException( "GET " + url + " " + e.getMessage(), e);
+                    }
+                    return;
+                }
+
+                code=check( c, "GET " + url);
+
+                if( code == HttpURLConnection.HTTP_PARTIAL)
+                {
+                    try
+                    {
+                        size=ChunkedTransfer.rangeObjectSize( code, c.getHeaderField( "Content-Range"));
+                    }
+                    catch( IOException e)
+                    {
+                        throw new IOException( "GET " + url + " " + e.getMessage(), e);
+                    }
+                    try( InputStream in=c.getInputStream())
+                    {
+                        ChunkedTransfer.copy( in, channel, 0, Math.min( chunkSize, size));
+                    }
+                }
+                else
+                {
+                    // the whole object was returned.
+                    try( InputStream in=c.getInputStream())
+                    {
+                        channel.transferFrom( Channels.newChannel( in), 0, Long.MAX_VALUE);
+                    }
+                    size=c.getContentLengthLong();
+                    if( size >= 0 && channel.size() != size)
+                    {
+                        throw new IOException( "GET " + url + " received " + channel.size() + " of " + size + " bytes");
+                    }
+                    return;
+                }
+            }
+            finally
+            {
+                c.disconnect();
+            }
+
+            if( size > chunkSize)
+            {
+                ChunkedTransfer.transfer( size, chunkSize, ChunkedTransfer.PARALLEL, new ChunkedTransfer.Part()
+                {
+                    @Override
+                    public void transfer( final int partNumber, final long offset, final long length) throws Exception
+                    {
+                        if( partNumber == 0) return;
+
+                        HttpURLConnection pc=open( url, "GET");
+                        try
+                        {
+                            pc.setRequestProperty( "Range", "bytes=" + offset + "-" + ( offset + length - 1));
+                            sign( pc);
+                            if( check( pc, "GET " + url) != HttpURLConnection.HTTP_PARTIAL)
+                            {
+                                throw new IOException( "GET " + url + " ignored the range " + offset + "-" + ( offset + length - 1));
+                            }
+                            try( InputStream in=pc.getInputStream())
+                            {
+                                ChunkedTransfer.copy( in, channel, offset, length);
+                            }
+                        }
+                        finally
+                        {
+                            pc.disconnect();
+                        }
+                    }
+                });
+            }
+
+            if( channel.size() != size)
+            {
+                throw new IOException( "GET " + url + " received " + channel.size() + " of " + size + " bytes");
+            }
+        }
+    }
+
+    /**
+     * Upload the file as a S3 multipart upload, the parts are read directly from the file and sent in parallel.
+     * The upload is aborted if any part fails.
+     */
+    private void sendMultipart( final @Nonnull String url, final @Nonnull File rawFile) throws Exception
+    {
+        final long size=rawFile.length();
+        final long chunkSize=ChunkedTransfer.CHUNK_SIZE;
+        final String etags[]=new String[ChunkedTransfer.partCount( size, chunkSize)];
+
+        HttpURLConnection c=open( url + "?uploads", "POST");
+        final String uploadID;
+        try
+        {
+            c.setRequestProperty( "Content-Type", ContentType.APPLICATION_OCTET_STREAM.mimeType);
+            sign( c);
+            c.setDoOutput( true);
+            c.setFixedLengthStreamingMode( 0);
+            c.getOutputStream().close();
+            check( c, "POST " + url + "?uploads");
+            uploadID=element( read( c), "UploadId");
+        }
+        finally
+        {
+            c.disconnect();
+        }
+
+        final String uploadQuery="uploadId=" + URLEncoder.encode( uploadID, "UTF-8");
+        boolean completed=false;
+        try( final FileChannel channel=FileChannel.open( rawFile.toPath(), StandardOpenOption.READ))
+        {
+            ChunkedTransfer.transfer( size, chunkSize, ChunkedTransfer.PARALLEL, new ChunkedTransfer.Part()
+            {
+                @Override
+                public void transfer( final int partNumber, final long offset, final long length) throws Exception
+                {
+                    String partURL=url + "?partNumber=" + ( partNumber + 1) + "&" + uploadQuery;
+                    HttpURLConnection pc=open( partURL, "PUT");
+                    try
+                    {
+                        pc.setRequestProperty( "Content-Type", ContentType.APPLICATION_OCTET_STREAM.mimeType);
+                        sign( pc);
+                        pc.setDoOutput( true);
+                        pc.setFixedLengthStreamingMode( length);
+                        try( OutputStream out=pc.getOutputStream())
+                        {
+                            WritableByteChannel target=Channels.newChannel( out);
+                            long position=offset;
+                            long remaining=length;
+                            while( remaining > 0)
+                            {
+                                long sent=channel.transferTo( position, remaining, target);
+                                if( sent <= 0) throw new EOFException( rawFile + " ended at " + position);
+                                position+=sent;
+                                remaining-=sent;
+                            }
+                        }
+                        check( pc, "PUT " + partURL);
+                        String etag=pc.getHeaderField( "ETag");
+                        if( StringUtilities.isBlank( etag)) throw new IOException( "PUT " + partURL + " returned no ETag");
+                        etags[partNumber]=etag;
+                    }
+                    finally
+                    {
+                        pc.disconnect();
+                    }
+                }
+            });
+
+            StringBuilder xml=new StringBuilder( 64 + etags.length * 64);
+            xml.append( "<CompleteMultipartUpload>");
+            for( int i=0;i<etags.length;i++)
+            {
+                xml.append( "<Part><PartNumber>").append( i + 1).append( "</PartNumber><ETag>")
+                    .append( StringUtilities.encodeHTML( etags[i])).append( "</ETag></Part>");
+            }
+            xml.append( "</CompleteMultipartUpload>");
+            byte body[]=xml.toString().getBytes( StandardCharsets.UTF_8);
+
+            c=open( url + "?" + uploadQuery, "POST");
+            try
+            {
+                c.setRequestProperty( "Content-Type", "application/xml");
+                sign( c);
+                c.setDoOutput( true);
+                c.setFixedLengthStreamingMode( body.length);
+                try( OutputStream out=c.getOutputStream())
+                {
+                    out.write( body);
+                }
+                check( c, "POST " + url + "?uploadId");
+
+                // S3 can return an error in the body of a 200 response to the complete request.
+                String result=read( c);
+                if( result.contains( "<Error>"))
+                {
+                    throw new IOException( "POST " + url + "?uploadId failed: " + result);
+                }
+            }
+            finally
+            {
+                c.disconnect();
+            }
+            completed=true;
+        }
+        finally
+        {
+            if( completed == false)
+            {
+                abortMultipart( url + "?" + uploadQuery);
+            }
+        }
+    }
+
+    private void abortMultipart( final @Nonnull String url)
+    {
+        try
+        {
+            HttpURLConnection c=open( url, "DELETE");
+            try
+            {
+                sign( c);
+                check( c, "DELETE " + url);
+            }
+            finally
+            {
+                c.disconnect();
+            }
+        }
+        catch( Exception e)
+        {
+            LOGGER.warn( "could not abort multipart upload " + url, e);
+        }
+    }
+
+    @Nonnull
+    private HttpURLConnection open( final @Nonnull String url, final @Nonnull String method) throws IOException
+    {
+        HttpURLConnection c=(HttpURLConnection)new URL( url).openConnection();
+        c.setRequestMethod( method);
+        c.setConnectTimeout( CONNECT_TIMEOUT_MS);
+        c.setReadTimeout( READ_TIMEOUT_MS);
+        c.setUseCaches( false);
+
+        return c;
+    }
+
+    private void sign( final @Nonnull HttpURLConnection c)
+    {
+        new AWSReSTAuthorization(accessKeyID,secretAccessKey).setRequestProperty( c);
+    }
+
+    /**
+     * check the response code.
+     * @return the response code.
+     */
+    private int check( final @Nonnull HttpURLConnection c, final @Nonnull String request) throws IOException
+    {
+        int code=c.getResponseCode();
+        if( code < 200 || code > 299)
+        {
+            String error="";
+            try( InputStream in=c.getErrorStream())
+            {
+                if( in != null)
+                {
+                    error=new String( CUtilities.toByteArray( in), StandardCharsets.UTF_8);
+                }
+            }
+
+            throw new IOException( request + " returned " + code + " " + c.getResponseMessage() + ": " + error);
+        }
+
+        return code;
+    }
+
+    @Nonnull
+    private String read( final @Nonnull HttpURLConnection c) throws IOException
+    {
+        try( InputStream in=c.getInputStream())
+        {
+            return new String( CUtilities.toByteArray( in), StandardCharsets.UTF_8);
+        }
+    }
+
+    @Nonnull
+    private static String element( final @Nonnull String xml, final @Nonnull String name) throws IOException
+    {
+        int start=xml.indexOf( "<" + name + ">");
+        int end=xml.indexOf( "</" + name + ">");
+        if( start == -1 || end < start)
+        {
+            throw new IOException( "no " + name + " in " + xml);
+        }
+
+        return xml.substring( start + name.length() + 2, end);
+    }
+
     @Override
     public void remove(String path) throws Exception {
         throw new UnsupportedOperationException("Not supported yet."); //To change body of generated methods, choose Tools | Templates.
@@ -122,6 +457,12 @@ public class NetClientS3 implements NetClient
 
         String url=makeURL( sendPath);
 
+        if( rawFile.length() >= ChunkedTransfer.THRESHOLD)
+        {
+            sendMultipart( url, rawFile);
+            return;
+        }
+
         Response r = ReST
                 .builder(url)
                 .setMethod(Method.PUT)
@@ -37,6 +37,7 @@ import com.aspc.remote.util.misc.CLogger;
 import com.aspc.remote.util.misc.CProperties;
 import com.aspc.remote.util.misc.FileUtil;
 import com.aspc.remote.util.misc.StringUtilities;
+import com.aspc.remote.util.net.internal.ChunkedTransfer;
 import com.jcraft.jsch.ChannelSftp;
 import com.jcraft.jsch.ChannelSftp.LsEntry;
 import com.jcraft.jsch.JSch;
@@ -48,6 +49,9 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 
 import java.util.Iterator;
@@ -212,15 +216,17 @@ public class NetClientSftp implements NetClient, SftpProgressMonitor
         if( sftp != null && sftp.isConnected() )
         {            
             try
-            (FileOutputStream fos = new FileOutputStream( target )) {
-                
+            {
                 if( monitor != null )
                 {
-                    sftp.get( path, fos, this );
+                    try( FileOutputStream fos = new FileOutputStream( target ))
+                    {
+                        sftp.get( path, fos, this );
+                    }
                 }
                 else
                 {
-                    sftp.get( path, fos );
+                    fetchSegments( path, target );
                 }
             }
             catch( Exception e )
@@ -239,6 +245,67 @@ public class NetClientSftp implements NetClient, SftpProgressMonitor
         }
     }
     
+    /**
+     * Fetch the first segment on this channel, if the file is larger than one segment the remaining
+     * segments are fetched in parallel on their own channels of the same session and written directly
+     * to their position in the target.
+     */
+    private void fetchSegments( final @Nonnull String path, final @Nonnull File target ) throws Exception
+    {
+        final long chunkSize = ChunkedTransfer.CHUNK_SIZE;
+        try(
+            final FileChannel channel = FileChannel.open(
+                target.toPath(),
+                StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING
+            )
+        )
+        {
+            boolean more;
+            try( InputStream in = sftp.get( path ))
+            {
+                long copied = ChunkedTransfer.copyUpTo( in, channel, 0, chunkSize);
+
+                more = copied == chunkSize && in.read() != -1;
+            }
+
+            if( more == false ) return;
+
+            String pwd = sftp.pwd();
+            final String absolutePath = pwd.endsWith( "/" ) ? pwd + path : pwd + "/" + path;
+            final long size = sftp.stat( path ).getSize();
+
+            ChunkedTransfer.transfer( size, chunkSize, ChunkedTransfer.PARALLEL, new ChunkedTransfer.Part()
+            {
+                @Override
+                public void transfer( final int partNumber, final long offset, final long length ) throws Exception
+                {
+                    if( partNumber == 0 ) return;
+
+                    ChannelSftp segment = (ChannelSftp)session.openChannel( "sftp" );
+                    try
+                    {
+                        segment.connect( CONNECTION_TIMEOUT_MS );
+                        try( InputStream in = segment.get( absolutePath, null, offset ))
+                        {
+                            ChunkedTransfer.copy( in, channel, offset, length );
+                        }
+                    }
+                    finally
+                    {
+                        segment.disconnect();
+                    }
+                }
+            });
+
+            if( channel.size() != size )
+            {
+                throw new IOException( "fetched " + channel.size() + " of " + size + " bytes of " + path );
+            }
+        }
+    }
+
     /**
      * Removes the physical file specified by the given arguments.
      * @param path the file to remove
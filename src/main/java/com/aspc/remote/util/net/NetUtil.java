@@ -43,6 +43,13 @@ import java.net.NoRouteToHostException;
 import java.net.UnknownHostException;
 import java.util.ArrayList;
 import java.util.StringTokenizer;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import javax.annotation.CheckReturnValue;
 import javax.annotation.Nonnull;
@@ -71,6 +78,12 @@ public final class NetUtil
     /** Time in milliseconds to check idle connections */
     public static final String NETCLIENT_TEST_IDLE_MS="NETCLIENT_TEST_IDLE";
 
+    /** Time in milliseconds before the next url of a volume is fetched in parallel, zero to disable */
+    public static final String NETCLIENT_HEDGE_MS="NETCLIENT_HEDGE_MS";
+
+    /** the delay before the next url of a volume is fetched in parallel, zero to fetch the urls one after another */
+    public static final AtomicInteger HEDGE_DELAY_MS;
+
     /** the number of re-attempts on error */
     public static final AtomicInteger RETRY_ATTEMPTS=new AtomicInteger(2);
     
@@ -235,6 +248,10 @@ public final class NetUtil
      *               have the file on all urls if it is found on one and not the others.  This should not
      *               happen as files are placed at all locations in a volume when the file is uploaded.
      * @throws Exception A serious problem
+     *
+     * When the hedge delay ({@link #HEDGE_DELAY_MS}) is set the next url of a volume is started if the
+     * current fetches have not received any bytes within the delay, the first valid file is used and the other fetches
+     * are cancelled. In REPAIR_MODE the other urls of the volume are checked and repaired in the background.
      */
     public static void retrieveData( final @Nonnull String URLs, final @Nonnull String path, final @Nonnull File targetFile, final boolean haMode, final @Nullable String checksum) throws Exception
     {
@@ -251,7 +268,17 @@ public final class NetUtil
             try
             {
                 String urlList[]=volume.split(",");
-                
+
+                int hedgeMS=HEDGE_DELAY_MS.get();
+                if( hedgeMS > 0 && urlList.length > 1)
+                {
+                    ArrayList<String> failed = haMode ? new ArrayList<String>() : null;
+                    String url = hedgedFetch( urlList, path, tmpFile, checksum, hedgeMS, failed);
+
+                    completeFetch( url, urlList, path, tmpFile, targetFile, checksum, failed);
+                    return;
+                }
+
                 ArrayList<String> list = null;
                 Exception lastE=null;
                 for( String url: urlList)
@@ -279,56 +306,7 @@ public final class NetUtil
                             }
                         }
 
-                        if( list != null)
-                        {
-                            for (String temp : list) 
-                            {
-                                try
-                                {
-                                    sendData( tmpFile, temp, path);
-                                }
-                                catch( Exception e)
-                                {
-                                    LOGGER.warn( "HA re-sync of file " + tmpFile + " -> " + StringUtilities.stripPasswordFromURL(temp) , e);
-                                }
-                            }
-                        }
-
-                        if( REPAIR_MODE.get())
-                        {
-                            for( String tmpURL: urlList)
-                            {           
-                                if( tmpURL.equals(url)) continue;
-                                NetClient tmpClient = null;
-                                File checkFile = File.createTempFile( targetFile.getName(), ".check", targetFile.getParentFile() );
-                                try
-                                {
-                                    tmpClient = borrowClient( tmpURL);                                    
-                                    
-                                    tmpClient.fetch(path, checkFile);
-
-                                    // verify the file that we recieved.
-                                    if( StringUtilities.isBlank( checksum ) == false )
-                                    {
-                                        if( FileUtil.isValid( checkFile, checksum, -1 ) == false )
-                                        {
-                                            checkFile.delete();
-                                            sendData( tmpFile, tmpURL, path);
-                                        }
-                                    }
-                                }
-                                catch( Exception e)
-                                {
-                                    sendData( tmpFile, tmpURL, path);
-                                }
-                                finally
-                                {
-                                    returnClient(tmpClient);
-                                    checkFile.delete();
-                                }
-                            }
-                        }                                
-                        FileUtil.replaceTargetWithTempFile(tmpFile, targetFile);
+                        completeFetch( url, urlList, path, tmpFile, targetFile, checksum, list);
 
                         return;
                     }
@@ -374,6 +352,401 @@ public final class NetUtil
         throw new Exception( "No valid URLs to fetch file");
     }
 
+    /**
+     * Wait for the background repairs to complete.
+     *
+     * @param timeoutMS the maximum time to wait.
+     * @return true if there are no repairs pending.
+     * @throws InterruptedException interrupted while waiting.
+     */
+    public static boolean waitForRepairs( final long timeoutMS) throws InterruptedException
+    {
+        long endMS = System.currentTimeMillis() + timeoutMS;
+
+        synchronized( REPAIR_MONITOR)
+        {
+            while( pendingRepairs > 0)
+            {
+                long waitMS = endMS - System.currentTimeMillis();
+                if( waitMS <= 0) return false;
+
+                REPAIR_MONITOR.wait( waitMS);
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * The number of background repairs pending.
+     *
+     * @return the count
+     */
+    @CheckReturnValue
+    public static int getPendingRepairCount()
+    {
+        synchronized( REPAIR_MONITOR)
+        {
+            return pendingRepairs;
+        }
+    }
+
+    /**
+     * The file has been fetched from the url, re-sync the HA alternatives that failed, schedule the repair of the
+     * other urls of the volume and move the file into place.
+     */
+    private static void completeFetch(
+        final @Nonnull String url,
+        final @Nonnull String urlList[],
+        final @Nonnull String path,
+        final @Nonnull File tmpFile,
+        final @Nonnull File targetFile,
+        final @Nullable String checksum,
+        final @Nullable ArrayList<String> list
+    ) throws Exception
+    {
+        if( list != null)
+        {
+            for (String temp : list)
+            {
+                try
+                {
+                    sendData( tmpFile, temp, path);
+                }
+                catch( Exception e)
+                {
+                    LOGGER.warn( "HA re-sync of file " + tmpFile + " -> " + StringUtilities.stripPasswordFromURL(temp) , e);
+                }
+            }
+        }
+
+        if( REPAIR_MODE.get() && urlList.length > 1)
+        {
+            scheduleRepair( url, urlList, path, tmpFile, checksum);
+        }
+
+        FileUtil.replaceTargetWithTempFile(tmpFile, targetFile);
+    }
+
+    /**
+     * Repair the other urls of the volume in the background with a copy of the fetched file.
+     */
+    private static void scheduleRepair(
+        final @Nonnull String url,
+        final @Nonnull String urlList[],
+        final @Nonnull String path,
+        final @Nonnull File file,
+        final @Nullable String checksum
+    ) throws Exception
+    {
+        final File repairFile = File.createTempFile( file.getName(), ".repair", file.getParentFile() );
+        FileUtil.copy( file, repairFile);
+
+        synchronized( REPAIR_MONITOR)
+        {
+            pendingRepairs++;
+        }
+
+        try
+        {
+            EXECUTOR.execute( new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    try
+                    {
+                        repair( url, urlList, path, repairFile, checksum);
+                    }
+                    finally
+                    {
+                        repairFile.delete();
+                        repairDone();
+                    }
+                }
+            });
+        }
+        catch( RuntimeException re)
+        {
+            repairFile.delete();
+            repairDone();
+            throw re;
+        }
+    }
+
+    private static void repairDone()
+    {
+        synchronized( REPAIR_MONITOR)
+        {
+            pendingRepairs--;
+            if( pendingRepairs <= 0)
+            {
+                REPAIR_MONITOR.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Check the other urls of the volume have a valid copy of the file.
+     */
+    private static void repair(
+        final @Nonnull String url,
+        final @Nonnull String urlList[],
+        final @Nonnull String path,
+        final @Nonnull File file,
+        final @Nullable String checksum
+    )
+    {
+        for( String tmpURL: urlList)
+        {
+            if( tmpURL.equals(url)) continue;
+
+            NetClient tmpClient = null;
+            File checkFile = null;
+            try
+            {
+                boolean valid;
+                try
+                {
+                    checkFile = File.createTempFile( file.getName(), ".check", file.getParentFile() );
+                    tmpClient = borrowClient( tmpURL);
+
+                    tmpClient.fetch(path, checkFile);
+
+                    // verify the file that we recieved.
+                    valid = StringUtilities.isBlank( checksum ) || FileUtil.isValid( checkFile, checksum, -1 );
+                }
+                catch( Exception e)
+                {
+                    valid = false;
+                }
+
+                if( valid == false)
+                {
+                    LOGGER.info( "repair '" + path + "' on " + StringUtilities.stripPasswordFromURL(tmpURL));
+                    sendData( file, tmpURL, path);
+                }
+            }
+            catch( Exception e)
+            {
+                LOGGER.warn( "could not repair '" + path + "' on " + StringUtilities.stripPasswordFromURL(tmpURL), e);
+            }
+            finally
+            {
+                try
+                {
+                    returnClient(tmpClient);
+                }
+                catch( Exception e)
+                {
+                    LOGGER.warn( "could not return client", e);
+                }
+
+                if( checkFile != null)
+                {
+                    checkFile.delete();
+                }
+            }
+        }
+    }
+
+    /**
+     * Fetch the file from the urls of a volume starting the next url when the running fetches have not received
+     * any bytes within the hedge delay. The first valid file is moved to the temporary file and the other fetches are
+     * cancelled.
+     *
+     * @return the url the file was fetched from.
+     */
+    @Nonnull
+    private static String hedgedFetch(
+        final @Nonnull String urlList[],
+        final @Nonnull String path,
+        final @Nonnull File tmpFile,
+        final @Nullable String checksum,
+        final int hedgeMS,
+        final @Nullable ArrayList<String> failed
+    ) throws Exception
+    {
+        ExecutorCompletionService<FetchAttempt> service = new ExecutorCompletionService<>( EXECUTOR);
+        ArrayList<FetchAttempt> attempts = new ArrayList<>();
+        ArrayList<Future<FetchAttempt>> futures = new ArrayList<>();
+        Exception lastE = null;
+        int running = 0;
+        try
+        {
+            while( true)
+            {
+                if( running == 0)
+                {
+                    if( attempts.size() >= urlList.length) break;
+
+                    startAttempt( service, urlList[attempts.size()], path, tmpFile, checksum, attempts, futures);
+                    running++;
+                }
+
+                Future<FetchAttempt> done;
+                if( attempts.size() < urlList.length)
+                {
+                    done = service.poll( hedgeMS, TimeUnit.MILLISECONDS);
+                    if( done == null)
+                    {
+                        if( hasProgress( attempts) == false)
+                        {
+                            LOGGER.info( "hedge fetch of '" + path + "' from " + StringUtilities.stripPasswordFromURL( urlList[attempts.size()]));
+                            startAttempt( service, urlList[attempts.size()], path, tmpFile, checksum, attempts, futures);
+                            running++;
+                        }
+                        continue;
+                    }
+                }
+                else
+                {
+                    done = service.take();
+                }
+
+                running--;
+                FetchAttempt attempt = done.get();
+                if( attempt.error == null)
+                {
+                    attempts.remove( attempt);
+                    FileUtil.replaceTargetWithTempFile( attempt.file, tmpFile);
+                    return attempt.url;
+                }
+
+                lastE = attempt.error;
+                LOGGER.warn( "failed to fetch file from HA alternative " + StringUtilities.stripPasswordFromURL(attempt.url), lastE);
+                if( failed != null)
+                {
+                    failed.add( attempt.url);
+                }
+            }
+        }
+        finally
+        {
+            for( FetchAttempt attempt: attempts)
+            {
+                attempt.cancel();
+            }
+
+            for( Future<FetchAttempt> future: futures)
+            {
+                future.cancel( true);
+            }
+        }
+
+        if( lastE != null)
+        {
+            throw lastE;
+        }
+
+        throw new Exception( "No valid URLs to fetch file");
+    }
+
+    private static void startAttempt(
+        final @Nonnull ExecutorCompletionService<FetchAttempt> service,
+        final @Nonnull String url,
+        final @Nonnull String path,
+        final @Nonnull File tmpFile,
+        final @Nullable String checksum,
+        final @Nonnull ArrayList<FetchAttempt> attempts,
+        final @Nonnull ArrayList<Future<FetchAttempt>> futures
+    )
+    {
+        FetchAttempt attempt = new FetchAttempt( url, path, tmpFile, checksum);
+        attempts.add( attempt);
+        futures.add( service.submit( attempt));
+    }
+
+    private static boolean hasProgress( final @Nonnull ArrayList<FetchAttempt> attempts)
+    {
+        for( FetchAttempt attempt: attempts)
+        {
+            File file = attempt.file;
+            if( file != null && file.length() > 0) return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * One fetch of a hedged request, the file is fetched to its own temporary file.
+     */
+    private static final class FetchAttempt implements Callable<FetchAttempt>
+    {
+        final String url;
+        private final String path;
+        private final File tmpFile;
+        private final String checksum;
+        private volatile boolean cancelled;
+        volatile File file;
+        Exception error;
+
+        FetchAttempt( final @Nonnull String url, final @Nonnull String path, final @Nonnull File tmpFile, final @Nullable String checksum)
+        {
+            this.url = url;
+            this.path = path;
+            this.tmpFile = tmpFile;
+            this.checksum = checksum;
+        }
+
+        void cancel()
+        {
+            cancelled = true;
+        }
+
+        @Override
+        public FetchAttempt call() throws Exception
+        {
+            NetClient client = null;
+            boolean ok = false;
+            try
+            {
+                file = File.createTempFile( tmpFile.getName(), ".hedge", tmpFile.getParentFile() );
+                client = borrowClient( url);
+
+                client.fetch(path, file);
+
+                if( StringUtilities.isBlank( checksum ) == false && FileUtil.isValid( file, checksum, -1 ) == false )
+                {
+                    throw new Exception( "checksum failed on '" + path + "' from " + StringUtilities.stripPasswordFromURL(url) + " as checksum '" + checksum + "' didn't match");
+                }
+
+                ok = cancelled == false;
+            }
+            catch( Exception e)
+            {
+                error = e;
+            }
+            finally
+            {
+                if( client != null)
+                {
+                    if( cancelled)
+                    {
+                        // the fetch may have been interrupted part way through the transfer.
+                        invalidateClient( client);
+                    }
+                    else
+                    {
+                        returnClient( client);
+                    }
+                }
+
+                if( ok == false && file != null)
+                {
+                    file.delete();
+                }
+            }
+
+            if( ok == false && error == null)
+            {
+                error = new Exception( "fetch of '" + path + "' from " + StringUtilities.stripPasswordFromURL(url) + " cancelled");
+            }
+
+            return this;
+        }
+    }
+
     /**
      * rename the original file to the new name/location
      *
@@ -676,6 +1049,14 @@ public final class NetUtil
      */
     private static final NetClientPool CLIENT_POOL;
 
+    /**
+     * runs the hedged fetches and the background repairs.
+     */
+    private static final ThreadPoolExecutor EXECUTOR;
+
+    private static final Object REPAIR_MONITOR=new Object();
+    private static int pendingRepairs;//MT CHECKED
+
     static
     {
         CLIENT_POOL= new com.aspc.remote.util.net.internal.ServerClientPoolImpl();//#CLEINT_POOL
@@ -690,5 +1071,39 @@ public final class NetUtil
         }
 
         LOCAL_HOST_NAME=temp;
+
+        int hedgeMS=0;
+        try
+        {
+            temp = CProperties.getProperty(NETCLIENT_HEDGE_MS);
+            if( StringUtilities.isBlank(temp) == false)
+            {
+                hedgeMS = Integer.parseInt(temp);
+            }
+        }
+        catch( NumberFormatException nf)
+        {
+            LOGGER.warn( "Couldn't set " + NETCLIENT_HEDGE_MS, nf);
+        }
+        HEDGE_DELAY_MS=new AtomicInteger( hedgeMS);
+
+        final AtomicInteger threadCount = new AtomicInteger();
+        EXECUTOR = new ThreadPoolExecutor(
+            0,
+            Integer.MAX_VALUE,
+            60,
+            TimeUnit.SECONDS,
+            new SynchronousQueue<Runnable>(),
+            new ThreadFactory()
+            {
+                @Override
+                public Thread newThread( final Runnable r)
+                {
+                    Thread t = new Thread( r, "NetUtil fetch-" + threadCount.incrementAndGet());
+                    t.setDaemon( true);
+                    return t;
+                }
+            }
+        );
     }
 }
@@ -0,0 +1,697 @@
+/**
+ *  STS Remote library
+ *
+ *  Copyright (C) 2006  stSoftware Pty Ltd
+ *
+ *  stSoftware.com.au
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ *  Bug fixes, suggestions and comments should be sent to:
+ *
+ *  info AT stsoftware.com.au
+ *
+ *  or by snail mail to:
+ *
+ *  stSoftware
+ *  building C, level 1,
+ *  14 Rodborough Rd
+ *  Frenchs Forest 2086
+ *  Australia.
+ */
+package com.aspc.remote.util.net;
+
+import com.aspc.remote.util.misc.CLogger;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.net.HttpURLConnection;
+import java.net.ProtocolException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.annotation.CheckReturnValue;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import org.apache.commons.logging.Log;
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.client.methods.RequestBuilder;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.FileEntity;
+import org.apache.http.entity.InputStreamEntity;
+
+/**
+ *  A HttpURLConnection sent through the shared {@link HttpConnectionPool}.
+ *
+ *  The request headers, body and timeouts are set as for any HttpURLConnection so the existing
+ *  callers only change how the connection is opened. The request is sent when the response is
+ *  first asked for, {@link #disconnect()} returns the connection to the pool once the response
+ *  has been read rather than closing the socket. The request body is buffered in memory up to
+ *  1MB and in a temporary file after that, unless a chunked or fixed length streaming mode is set.
+ *  When streaming the request is started by {@link #getOutputStream()} with the headers set so far
+ *  and the body is sent to the server as it is written.
+ *
+ *  <br>
+ *  <i>THREAD MODE: SINGLE-THREADED</i>
+ *
+ *  @author      Nigel Leck
+ *  @since       18 October 2026
+ */
+public final class PooledHttpURLConnection extends HttpURLConnection
+{
+    private static final Log LOGGER = CLogger.getLog( "com.aspc.remote.util.net.PooledHttpURLConnection");//#LOGGER-NOPMD
+    private static final int MAX_MEMORY_BODY=1024 * 1024;
+    private static final int PIPE_SIZE=64 * 1024;
+    private static final ThreadPoolExecutor EXECUTOR;
+
+    private BodyBuffer body;
+    private BodyStream stream;
+    private CloseableHttpResponse response;
+    private InputStream content;
+
+    PooledHttpURLConnection( final @Nonnull URL url)
+    {
+        super( url);
+    }
+
+    /**
+     * Send the request and read the response status and headers.
+     * @throws IOException the request failed.
+     */
+    @Override
+    public void connect() throws IOException
+    {
+        if( connected) return;
+
+        if( stream != null)
+        {
+            response = stream.finish();
+        }
+        else
+        {
+            HttpEntity entity = null;
+            if( body != null)
+            {
+                body.close();
+                entity = body.toEntity();
+            }
+
+            HttpUriRequest request = buildRequest( entity);
+            HttpConnectionPool.recordRequest();
+            try
+            {
+                response = HttpConnectionPool.getClient().execute( request);
+            }
+            finally
+            {
+                if( body != null)
+                {
+                    body.delete();
+                }
+            }
+        }
+
+        responseCode = response.getStatusLine().getStatusCode();
+        responseMessage = response.getStatusLine().getReasonPhrase();
+        connected = true;
+    }
+
+    @CheckReturnValue @Nonnull
+    private HttpUriRequest buildRequest( final @Nullable HttpEntity entity) throws IOException
+    {
+        RequestBuilder rb;
+        try
+        {
+            rb = RequestBuilder.create( getRequestMethod()).setUri( url.toURI());
+        }
+        catch( URISyntaxException use)
+        {
+            throw new IOException( "invalid URL " + url, use);
+        }
+
+        for( Map.Entry<String, List<String>> e: getRequestProperties().entrySet())
+        {
+            String name = e.getKey();
+            if( name == null || "Content-Length".equalsIgnoreCase( name)) continue;
+
+            for( String value: e.getValue())
+            {
+                rb.addHeader( name, value);
+            }
+        }
+
+        if( entity != null)
+        {
+            rb.setEntity( entity);
+        }
+
+        rb.setConfig( RequestConfig.custom()
+            .setConnectTimeout( getConnectTimeout() > 0 ? getConnectTimeout() : -1)
+            .setSocketTimeout( getReadTimeout() > 0 ? getReadTimeout() : -1)
+            .setConnectionRequestTimeout( HttpConnectionPool.getAcquireTimeout())
+            .setRedirectsEnabled( getInstanceFollowRedirects())
+            .build());
+
+        return rb.build();
+    }
+
+    /**
+     * Return the connection to the pool, the connection is closed if the response was not read fully.
+     */
+    @Override
+    public void disconnect()
+    {
+        if( stream != null && response == null)
+        {
+            stream.abort();
+        }
+        if( response != null)
+        {
+            try
+            {
+                response.close();
+            }
+            catch( IOException io)
+            {
+                LOGGER.warn( "could not release " + url, io);
+            }
+        }
+        if( body != null)
+        {
+            body.delete();
+        }
+    }
+
+    /**
+     * Never a proxy, any proxy is handled by the pool.
+     * @return false
+     */
+    @Override
+    public boolean usingProxy()
+    {
+        return false;
+    }
+
+    /**
+     * The response status.
+     * @return the status code
+     * @throws IOException the request failed.
+     */
+    @Override
+    public int getResponseCode() throws IOException
+    {
+        connect();
+        return responseCode;
+    }
+
+    /**
+     * The response message.
+     * @return the reason phrase
+     * @throws IOException the request failed.
+     */
+    @Override
+    public String getResponseMessage() throws IOException
+    {
+        connect();
+        return responseMessage;
+    }
+
+    /**
+     * The request body.
+     * @return the output stream.
+     * @throws IOException the request has already been sent.
+     */
+    @Override
+    public OutputStream getOutputStream() throws IOException
+    {
+        if( doOutput == false) throw new ProtocolException( "cannot write to a URLConnection if doOutput=false - call setDoOutput(true)");
+        if( connected) throw new ProtocolException( "cannot write request body after response has been read");
+
+        if( "GET".equals( method))
+        {
+            method = "POST";
+        }
+
+        if( chunkLength > 0 || fixedContentLength != -1 || fixedContentLengthLong != -1)
+        {
+            if( stream == null)
+            {
+                long length = fixedContentLengthLong != -1 ? fixedContentLengthLong : fixedContentLength;
+                stream = new BodyStream( length, chunkLength > 0 ? chunkLength : PIPE_SIZE);
+            }
+
+            return stream;
+        }
+
+        if( body == null)
+        {
+            body = new BodyBuffer();
+        }
+
+        return body;
+    }
+
+    /**
+     * The response body.
+     * @return the input stream.
+     * @throws IOException the request failed or the server returned an error.
+     */
+    @Override
+    public InputStream getInputStream() throws IOException
+    {
+        connect();
+        if( responseCode >= 400)
+        {
+            if( responseCode == HTTP_NOT_FOUND || responseCode == HTTP_GONE)
+            {
+                throw new FileNotFoundException( url.toString());
+            }
+            throw new IOException( "Server returned HTTP response code: " + responseCode + " for URL: " + url);
+        }
+
+        return content();
+    }
+
+    /**
+     * The response body of an error.
+     * @return the input stream or null if not an error.
+     */
+    @Override @Nullable
+    public InputStream getErrorStream()
+    {
+        if( connected == false || responseCode < 400) return null;
+
+        try
+        {
+            return content();
+        }
+        catch( IOException io)
+        {
+            LOGGER.warn( "could not read error of " + url, io);
+            return null;
+        }
+    }
+
+    /**
+     * The last value of this response header.
+     * @param name the header name
+     * @return the value or null
+     */
+    @Override @Nullable
+    public String getHeaderField( final @Nullable String name)
+    {
+        if( connectQuietly() == false || name == null) return null;
+
+        Header h = response.getLastHeader( name);
+        return h != null ? h.getValue() : null;
+    }
+
+    /**
+     * The n'th response header value, zero is the status line.
+     * @param n the position
+     * @return the value or null
+     */
+    @Override @Nullable
+    public String getHeaderField( final int n)
+    {
+        if( connectQuietly() == false) return null;
+        if( n == 0) return response.getStatusLine().toString();
+
+        Header all[] = response.getAllHeaders();
+        return n > 0 && n <= all.length ? all[n - 1].getValue() : null;
+    }
+
+    /**
+     * The n'th response header name, zero is the status line.
+     * @param n the position
+     * @return the name or null
+     */
+    @Override @Nullable
+    public String getHeaderFieldKey( final int n)
+    {
+        if( connectQuietly() == false || n == 0) return null;
+
+        Header all[] = response.getAllHeaders();
+        return n > 0 && n <= all.length ? all[n - 1].getName() : null;
+    }
+
+    /**
+     * All the response headers.
+     * @return the headers.
+     */
+    @Override @CheckReturnValue @Nonnull
+    public Map<String, List<String>> getHeaderFields()
+    {
+        if( connectQuietly() == false) return Collections.emptyMap();
+
+        LinkedHashMap<String, List<String>> map = new LinkedHashMap<>();
+        map.put( null, Collections.singletonList( response.getStatusLine().toString()));
+        for( Header h: response.getAllHeaders())
+        {
+            List<String> list = map.get( h.getName());
+            if( list == null)
+            {
+                list = new ArrayList<>();
+                map.put( h.getName(), list);
+            }
+            list.add( h.getValue());
+        }
+
+        for( Map.Entry<String, List<String>> e: map.entrySet())
+        {
+            e.setValue( Collections.unmodifiableList( e.getValue()));
+        }
+
+        return Collections.unmodifiableMap( map);
+    }
+
+    private boolean connectQuietly()
+    {
+        try
+        {
+            connect();
+            return true;
+        }
+        catch( IOException io)
+        {
+            LOGGER.warn( "could not connect " + url, io);
+            return false;
+        }
+    }
+
+    @CheckReturnValue @Nonnull
+    private InputStream content() throws IOException
+    {
+        if( content == null)
+        {
+            HttpEntity entity = response.getEntity();
+            if( entity == null)
+            {
+                content = new ByteArrayInputStream( new byte[0]);
+            }
+            else
+            {
+                content = entity.getContent();
+            }
+        }
+
+        return content;
+    }
+
+    /**
+     * The request body, held in memory until too large.
+     */
+    private static final class BodyBuffer extends OutputStream
+    {
+        private ByteArrayOutputStream memory = new ByteArrayOutputStream();
+        private File file;
+        private OutputStream out = memory;
+
+        @Override
+        public void write( final int b) throws IOException
+        {
+            spillIfNeeded( 1);
+            out.write( b);
+        }
+
+        @Override
+        public void write( final byte[] b, final int off, final int len) throws IOException
+        {
+            spillIfNeeded( len);
+            out.write( b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException
+        {
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException
+        {
+            out.close();
+        }
+
+        @CheckReturnValue @Nonnull
+        HttpEntity toEntity()
+        {
+            if( file != null)
+            {
+                return new FileEntity( file);
+            }
+
+            return new ByteArrayEntity( memory.toByteArray());
+        }
+
+        void delete()
+        {
+            if( file != null)
+            {
+                try
+                {
+                    out.close();
+                }
+                catch( IOException io)
+                {
+                    LOGGER.warn( "could not close " + file, io);
+                }
+
+                if( file.delete() == false && file.exists())
+                {
+                    LOGGER.warn( "could not delete " + file);
+                }
+                file = null;
+            }
+            memory = null;
+        }
+
+        private void spillIfNeeded( final int len) throws IOException
+        {
+            if( memory != null && file == null && memory.size() + len > MAX_MEMORY_BODY)
+            {
+                file = File.createTempFile( "body", ".http");
+                file.deleteOnExit();
+                out = new FileOutputStream( file);
+                memory.writeTo( out);
+                memory = null;
+            }
+        }
+    }
+
+    /**
+     * The request body streamed to the server as it is written. The request is executed by a pool
+     * thread that reads the body from a pipe, so the body is never held in full.
+     */
+    private final class BodyStream extends OutputStream
+    {
+        private final PipedOutputStream pipe;
+        private final HttpUriRequest request;
+        private final Future<CloseableHttpResponse> future;
+
+        BodyStream( final long length, final int pipeSize) throws IOException
+        {
+            final PipedInputStream in = new PipedInputStream( pipeSize);
+            pipe = new PipedOutputStream( in);
+
+            InputStreamEntity entity = new InputStreamEntity( in, length);
+            entity.setChunked( length < 0);
+
+            request = buildRequest( entity);
+            HttpConnectionPool.recordRequest();
+            future = EXECUTOR.submit( new Callable<CloseableHttpResponse>()
+            {
+                @Override
+                public CloseableHttpResponse call() throws IOException
+                {
+                    try
+                    {
+                        return HttpConnectionPool.getClient().execute( request);
+                    }
+                    finally
+                    {
+                        /* the writer fails rather than blocks once the request has finished. */
+                        in.close();
+                    }
+                }
+            });
+        }
+
+        @Override
+        public void write( final int b) throws IOException
+        {
+            try
+            {
+                pipe.write( b);
+            }
+            catch( IOException io)
+            {
+                throw failed( io);
+            }
+        }
+
+        @Override
+        public void write( final byte[] b, final int off, final int len) throws IOException
+        {
+            try
+            {
+                pipe.write( b, off, len);
+            }
+            catch( IOException io)
+            {
+                throw failed( io);
+            }
+        }
+
+        @Override
+        public void flush() throws IOException
+        {
+            pipe.flush();
+        }
+
+        @Override
+        public void close() throws IOException
+        {
+            pipe.close();
+        }
+
+        /**
+         * End the body and wait for the response.
+         */
+        @CheckReturnValue @Nonnull
+        CloseableHttpResponse finish() throws IOException
+        {
+            close();
+
+            try
+            {
+                return future.get();
+            }
+            catch( InterruptedException ie)
+            {
+                request.abort();
+                InterruptedIOException iio = new InterruptedIOException( "interrupted sending " + url);
+                iio.initCause( ie);
+                throw iio;
+            }
+            catch( ExecutionException ee)
+            {
+                throw cause( ee);
+            }
+        }
+
+        /**
+         * Abort the request and release the connection.
+         */
+        void abort()
+        {
+            request.abort();
+            try
+            {
+                pipe.close();
+                future.get().close();
+            }
+            catch( IOException | ExecutionException e)
+            {
+                LOGGER.debug( "aborted " + url, e);
+            }
+            catch( InterruptedException ie)
+            {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        /**
+         * The write failed, report why the request failed if it has.
+         */
+        @CheckReturnValue @Nonnull
+        private IOException failed( final @Nonnull IOException io)
+        {
+            if( future.isDone())
+            {
+                try
+                {
+                    future.get();
+                }
+                catch( ExecutionException ee)
+                {
+                    return cause( ee);
+                }
+                catch( InterruptedException ie)
+                {
+                    Thread.currentThread().interrupt();
+                }
+            }
+
+            return io;
+        }
+
+        @CheckReturnValue @Nonnull
+        private IOException cause( final @Nonnull ExecutionException ee)
+        {
+            Throwable t = ee.getCause();
+            if( t instanceof IOException) return (IOException)t;
+            if( t instanceof RuntimeException) throw (RuntimeException)t;
+
+            return new IOException( "could not send " + url, t);
+        }
+    }
+
+    static
+    {
+        final AtomicInteger threadCount = new AtomicInteger();
+        EXECUTOR = new ThreadPoolExecutor(
+            0,
+            Integer.MAX_VALUE,
+            60,
+            TimeUnit.SECONDS,
+            new SynchronousQueue<Runnable>(),
+            new ThreadFactory()
+            {
+                @Override
+                public Thread newThread( final Runnable r)
+                {
+                    Thread t = new Thread( r, "http body-" + threadCount.incrementAndGet());
+                    t.setDaemon( true);
+                    return t;
+                }
+            }
+        );
+    }
+}
@@ -0,0 +1,347 @@
+/**
+ *  STS Remote library
+ *
+ *  Copyright (C) 2006  stSoftware Pty Ltd
+ *
+ *  stSoftware.com.au
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ *  Bug fixes, suggestions and comments should be sent to:
+ *
+ *  info AT stsoftware.com.au
+ *
+ *  or by snail mail to:
+ *
+ *  stSoftware
+ *  building C, level 1,
+ *  14 Rodborough Rd
+ *  Frenchs Forest 2086
+ *  Australia.
+ */
+package com.aspc.remote.util.net.internal;
+
+import com.aspc.remote.util.misc.CLogger;
+import com.aspc.remote.util.misc.VersionENV;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import javax.annotation.CheckReturnValue;
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import org.apache.commons.logging.Log;
+
+/**
+ *  Transfers a large file as fixed size parts in parallel.
+ *
+ *  The caller's thread works on the parts too, so a transfer never waits for a pool thread
+ *  to become free. The first part that fails stops the remaining parts and the error is
+ *  rethrown to the caller.
+ *
+ *  <br>
+ *  <i>THREAD MODE: MULTI-THREADED</i>
+ *
+ *  @author      Nigel Leck
+ *  @since       18 October 2026
+ */
+public final class ChunkedTransfer
+{
+    /** The size in megabytes of each part of a chunked transfer */
+    public static final String PROPERTY_NET_CHUNK_SIZE_MB="NET_CHUNK_SIZE_MB";
+
+    /** Files of at least this many megabytes are transferred in parts */
+    public static final String PROPERTY_NET_CHUNK_THRESHOLD_MB="NET_CHUNK_THRESHOLD_MB";
+
+    /** The number of parts transferred at the same time */
+    public static final String PROPERTY_NET_CHUNK_PARALLEL="NET_CHUNK_PARALLEL";
+
+    /** the size of each part in bytes */
+    public static final long CHUNK_SIZE;
+
+    /** the minimum file size in bytes for a chunked transfer */
+    public static final long THRESHOLD;
+
+    /** the number of parts transferred at the same time */
+    public static final int PARALLEL;
+
+    /** the response code for a range past the end of the object */
+    public static final int HTTP_RANGE_NOT_SATISFIABLE=416;
+
+    private static final int BUFFER_SIZE=64 * 1024;
+
+    private static final ThreadPoolExecutor EXECUTOR;
+
+    private static final Log LOGGER = CLogger.getLog( "com.aspc.remote.util.net.internal.ChunkedTransfer");//#LOGGER-NOPMD
+
+    /**
+     * Transfers one part.
+     */
+    public interface Part
+    {
+        /**
+         * Transfer one part.
+         *
+         * @param partNumber the part number starting from zero.
+         * @param offset the offset of the part in the file
+         * @param length the length of the part.
+         * @throws Exception the part could not be transferred.
+         */
+        void transfer( int partNumber, long offset, long length) throws Exception;
+    }
+
+    private ChunkedTransfer()
+    {
+    }
+
+    /**
+     * The number of parts for this size.
+     *
+     * @param size the file size
+     * @param chunkSize the size of each part.
+     * @return the number of parts.
+     */
+    @CheckReturnValue @Nonnegative
+    public static int partCount( final @Nonnegative long size, final @Nonnegative long chunkSize)
+    {
+        if( chunkSize <= 0) throw new IllegalArgumentException( "chunk size must be positive: " + chunkSize);
+        long count = ( size + chunkSize - 1) / chunkSize;
+        if( count > Integer.MAX_VALUE) throw new IllegalArgumentException( "too many parts: " + count);
+
+        return (int)count;
+    }
+
+    /**
+     * The size of the whole object from the response to the first ranged GET.
+     *
+     * A 206 has the size after the '/' of the Content-Range. A 416 is returned by S3 for the range
+     * of an empty object, that is an empty object when the Content-Range is missing or has a
+     * size of zero.
+     *
+     * @param code the response code, 206 or 416.
+     * @param contentRange the Content-Range header.
+     * @return the size of the object.
+     * @throws IOException the Content-Range is not valid for this response.
+     */
+    @CheckReturnValue @Nonnegative
+    public static long rangeObjectSize( final int code, final String contentRange) throws IOException
+    {
+        if( code == HTTP_RANGE_NOT_SATISFIABLE && contentRange == null)
+        {
+            return 0;
+        }
+
+        int pos = contentRange != null ? contentRange.indexOf( '/') : -1;
+        long size = -1;
+        if( pos != -1)
+        {
+            try
+            {
+                size = Long.parseLong( contentRange.substring( pos + 1).trim());
+            }
+            catch( NumberFormatException nfe)
+            {
+                size = -1;
+            }
+        }
+
+        if( size < 0)
+        {
+            throw new IOException( "invalid Content-Range: " + contentRange);
+        }
+
+        if( code == HTTP_RANGE_NOT_SATISFIABLE && size != 0)
+        {
+            throw new IOException( "range not satisfiable for an object of " + size + " bytes");
+        }
+
+        return size;
+    }
+
+    /**
+     * Transfer all the parts of the file.
+     *
+     * @param size the file size
+     * @param chunkSize the size of each part, the last part may be smaller.
+     * @param parallel the maximum number of parts transferred at the same time.
+     * @param part transfers each part.
+     * @throws Exception the first part that failed.
+     */
+    public static void transfer(
+        final @Nonnegative long size,
+        final @Nonnegative long chunkSize,
+        final @Nonnegative int parallel,
+        final @Nonnull Part part
+    ) throws Exception
+    {
+        if( parallel < 1) throw new IllegalArgumentException( "parallel must be at least 1: " + parallel);
+
+        final int parts = partCount( size, chunkSize);
+        final AtomicInteger nextPart = new AtomicInteger();
+        final AtomicReference<Exception> failure = new AtomicReference<>();
+
+        Runnable worker = new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                while( failure.get() == null)
+                {
+                    int partNumber = nextPart.getAndIncrement();
+                    if( partNumber >= parts) return;
+
+                    long offset = partNumber * chunkSize;
+                    long length = Math.min( chunkSize, size - offset);
+                    try
+                    {
+                        part.transfer( partNumber, offset, length);
+                    }
+                    catch( Exception e)
+                    {
+                        failure.compareAndSet( null, e);
+                    }
+                }
+            }
+        };
+
+        int helpers = Math.min( parallel, parts) - 1;
+        ArrayList<Future<?>> futures = new ArrayList<>( Math.max( helpers, 0));
+        for( int i = 0; i < helpers; i++)
+        {
+            futures.add( EXECUTOR.submit( worker));
+        }
+
+        worker.run();
+
+        for( Future<?> future: futures)
+        {
+            try
+            {
+                future.get();
+            }
+            catch( ExecutionException ee)
+            {
+                Throwable cause = ee.getCause();
+                failure.compareAndSet( null, cause instanceof Exception ? (Exception)cause : ee);
+            }
+        }
+
+        Exception e = failure.get();
+        if( e != null)
+        {
+            throw e;
+        }
+    }
+
+    /**
+     * Copy the part from the stream to its position in the file.
+     *
+     * @param in the part data
+     * @param channel the target file
+     * @param offset the position of the part.
+     * @param length the length of the part.
+     * @throws IOException the stream ended before the whole part was read.
+     */
+    public static void copy(
+        final @Nonnull InputStream in,
+        final @Nonnull FileChannel channel,
+        final @Nonnegative long offset,
+        final @Nonnegative long length
+    ) throws IOException
+    {
+        long copied = copyUpTo( in, channel, offset, length);
+        if( copied != length)
+        {
+            throw new EOFException( "part at " + offset + " ended after " + copied + " of " + length + " bytes");
+        }
+    }
+
+    /**
+     * Copy up to the maximum bytes from the stream to the position in the file.
+     *
+     * @param in the data
+     * @param channel the target file
+     * @param offset the position to write to.
+     * @param max the maximum number of bytes to copy.
+     * @return the number of bytes copied, less than the maximum if the stream ended.
+     * @throws IOException the file could not be written.
+     */
+    @Nonnegative
+    public static long copyUpTo(
+        final @Nonnull InputStream in,
+        final @Nonnull FileChannel channel,
+        final @Nonnegative long offset,
+        final @Nonnegative long max
+    ) throws IOException
+    {
+        byte array[] = new byte[(int)Math.min( BUFFER_SIZE, Math.max( max, 1))];
+        ByteBuffer buffer = ByteBuffer.wrap( array);
+        long position = offset;
+        long remaining = max;
+        while( remaining > 0)
+        {
+            int len = in.read( array, 0, (int)Math.min( array.length, remaining));
+            if( len == -1) break;
+
+            buffer.limit( len);
+            buffer.position( 0);
+            while( buffer.hasRemaining())
+            {
+                position += channel.write( buffer, position);
+            }
+            remaining -= len;
+        }
+
+        return max - remaining;
+    }
+
+    static
+    {
+        CHUNK_SIZE = new VersionENV( PROPERTY_NET_CHUNK_SIZE_MB, 16, 5, 1024).calculateVersion() * 1024L * 1024L;
+        THRESHOLD = new VersionENV( PROPERTY_NET_CHUNK_THRESHOLD_MB, 64, 5, 1024 * 1024).calculateVersion() * 1024L * 1024L;
+        PARALLEL = new VersionENV( PROPERTY_NET_CHUNK_PARALLEL, 4, 1, 64).calculateVersion();
+
+        final AtomicInteger threadCount = new AtomicInteger();
+        EXECUTOR = new ThreadPoolExecutor(
+            0,
+            Integer.MAX_VALUE,
+            60,
+            TimeUnit.SECONDS,
+            new SynchronousQueue<Runnable>(),
+            new ThreadFactory()
+            {
+                @Override
+                public Thread newThread( final Runnable r)
+                {
+                    Thread t = new Thread( r, "chunked transfer-" + threadCount.incrementAndGet());
+                    t.setDaemon( true);
+                    return t;
+                }
+            }
+        );
+
+        LOGGER.debug( "chunk size=" + CHUNK_SIZE + " threshold=" + THRESHOLD + " parallel=" + PARALLEL);
+    }
+}
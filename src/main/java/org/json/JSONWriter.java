@@ -111,25 +111,46 @@ public class JSONWriter {
         if (string == null) {
             throw new JSONException("Null pointer");
         }
+        this.beforeValue();
+        try {
+            this.writer.write(string);
+        } catch (IOException e) {
+            throw new JSONException(e);
+        }
+        return this.afterValue();
+    }
+
+    /**
+     * Check the value is in sequence and write the comma if needed.
+     * @throws JSONException If the value is out of sequence.
+     */
+    private void beforeValue() throws JSONException {
         if (this.mode == 'o' || this.mode == 'a') {
-            try {
-                if (this.comma && this.mode == 'a') {
+            if (this.comma && this.mode == 'a') {
+                try {
                     this.writer.write(',');
+                } catch (IOException e) {
+                    throw new JSONException(e);
                 }
-                this.writer.write(string);
-            } catch (IOException e) {
-                throw new JSONException(e);
-            }
-            if (this.mode == 'o') {
-                this.mode = 'k';
             }
-            this.comma = true;
-            return this;
+            return;
         }
-        
+
         throw new JSONException("Value out of sequence.");
     }
 
+    /**
+     * A value has been written.
+     * @return this
+     */
+    private JSONWriter afterValue() {
+        if (this.mode == 'o') {
+            this.mode = 'k';
+        }
+        this.comma = true;
+        return this;
+    }
+
     /**
      * Begin appending a new array. All values until the balancing
      * <code>endArray</code> will be appended to this array. The
@@ -323,6 +344,31 @@ public class JSONWriter {
      * @throws JSONException If the value is out of sequence.
      */
     public JSONWriter value(Object object) throws JSONException {
+        if (object instanceof JSONObject || object instanceof JSONArray
+                || object instanceof String) {
+            // written straight to the writer so large values are not built as a String first.
+            this.beforeValue();
+            try {
+                JSONObject.writeValue(this.writer, object, 0, 0);
+            } catch (IOException e) {
+                throw new JSONException(e);
+            }
+            return this.afterValue();
+        }
         return this.append(JSONObject.valueToString(object));
     }
+
+    /**
+     * Flush the writer, useful when a large text is written in parts.
+     * @return this
+     * @throws JSONException If the writer could not be flushed.
+     */
+    public JSONWriter flush() throws JSONException {
+        try {
+            this.writer.flush();
+        } catch (IOException e) {
+            throw new JSONException(e);
+        }
+        return this;
+    }
 }
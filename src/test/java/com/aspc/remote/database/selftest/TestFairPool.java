@@ -0,0 +1,618 @@
+/**
+ *  STS Remote library
+ *
+ *  Copyright (C) 2006  stSoftware Pty Ltd
+ *
+ *  stSoftware.com.au
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ *  Bug fixes, suggestions and comments should be sent to:
+ *
+ *  info AT stsoftware.com.au
+ *
+ *  or by snail mail to:
+ *
+ *  stSoftware
+ *  building C, level 1,
+ *  14 Rodborough Rd
+ *  Frenchs Forest 2086
+ *  Australia.
+ */
+package com.aspc.remote.database.selftest;
+
+import com.aspc.remote.database.DataBase;
+import com.aspc.remote.database.PoolMetrics;
+import com.aspc.remote.util.links.LinkConnection;
+import com.aspc.remote.util.links.LinkManager;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.Driver;
+import java.sql.DriverPropertyInfo;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+import junit.textui.TestRunner;
+
+/**
+ * Check the fair connection pool hands the connections to the waiting threads in order.
+ *
+ * <br>
+ * <i>THREAD MODE: MULTI-THREADED self test unit</i>
+ *
+ *  @author      Nigel Leck
+ *  @since       18 October 2026
+ */
+public class TestFairPool extends TestCase
+{
+    private static final int MAX_CONNECTIONS = 2;
+
+    /**
+     * Constructor for the test unit.
+     * @param testName The name of the test unit
+     */
+    public TestFairPool(String testName)
+    {
+        super(testName);
+    }
+
+    /**
+     * The main for the program
+     *
+     * @param args The command line arguments
+     */
+    public static void main(String[] args)
+    {
+        Test test = suite();
+
+        TestRunner.run(test);
+    }
+
+    /**
+     * Creates the test suite.
+     *
+     * @return The test suite
+     */
+    public static Test suite()
+    {
+        TestSuite suite = new TestSuite(TestFairPool.class);
+        return suite;
+    }
+
+    /**
+     * the waiting threads get the connections in the order they asked.
+     * @throws Exception a test failure.
+     */
+    public void testFIFO() throws Exception
+    {
+        final DataBase db = makeDataBase( "fifo");
+        db.setFairPool( true);
+
+        Connection first = db.checkOutConnection();
+        Connection second = db.checkOutConnection();
+        assertEquals( MAX_CONNECTIONS, db.getPoolMetrics().getActiveCount());
+
+        final List<Integer> order = Collections.synchronizedList( new ArrayList<Integer>());
+        Thread threads[] = new Thread[ 4];
+        for( int i = 0; i < threads.length; i++)
+        {
+            final int id = i;
+            final CountDownLatch started = new CountDownLatch( 1);
+            threads[i] = new Thread( "waiter " + i)
+            {
+                @Override
+                public void run()
+                {
+                    try
+                    {
+                        started.countDown();
+                        Connection c = db.checkOutConnection();
+                        order.add( id);
+                        db.checkInConnection( c);
+                    }
+                    catch( Exception e)
+                    {
+                        order.add( -1);
+                    }
+                }
+            };
+            threads[i].start();
+            started.await();
+            /* wait for the thread to join the queue */
+            while( threads[i].getState() != Thread.State.TIMED_WAITING && threads[i].getState() != Thread.State.WAITING)
+            {
+                Thread.sleep( 1);
+            }
+        }
+
+        db.checkInConnection( first);
+        for( Thread t: threads)
+        {
+            t.join( 10000);
+        }
+        db.checkInConnection( second);
+
+        assertEquals( "[0, 1, 2, 3]", order.toString());
+
+        PoolMetrics metrics = db.getPoolMetrics();
+        assertEquals( 6, metrics.getCheckOutCount());
+        assertTrue( metrics.toString(), metrics.getHandOffCount() >= 4);
+        assertEquals( 0, metrics.getActiveCount());
+    }
+
+    /**
+     * the check out gives up after the acquire timeout.
+     * @throws Exception a test failure.
+     */
+    public void testTimeout() throws Exception
+    {
+        DataBase db = makeDataBase( "timeout");
+        db.setFairPool( true);
+        db.setAcquireTimeout( 200);
+
+        Connection first = db.checkOutConnection();
+        Connection second = db.checkOutConnection();
+        long start = System.currentTimeMillis();
+        try
+        {
+            db.checkOutConnection();
+            fail( "should time out");
+        }
+        catch( Exception e)
+        {
+            long waited = System.currentTimeMillis() - start;
+            assertTrue( "waited " + waited, waited >= 150 && waited < 5000);
+        }
+        assertEquals( 1, db.getPoolMetrics().getTimeoutCount());
+
+        db.checkInConnection( first);
+        db.checkInConnection( second);
+    }
+
+    /**
+     * many threads checking out and in again over and over each get their turn in order.
+     * @throws Exception a test failure.
+     */
+    public void testFIFOUnderContention() throws Exception
+    {
+        final DataBase db = makeDataBase( "contention");
+        db.setFairPool( true);
+        db.setAcquireTimeout( 30000);
+
+        final int loops = 25;
+        final AtomicInteger holding = new AtomicInteger();
+        final AtomicInteger maxHolding = new AtomicInteger();
+        final AtomicInteger done[] = new AtomicInteger[ 8];
+        final AtomicInteger doneWhenFirstFinished = new AtomicInteger( -1);
+        final List<Throwable> errors = Collections.synchronizedList( new ArrayList<Throwable>());
+        final CountDownLatch gate = new CountDownLatch( 1);
+
+        Thread threads[] = new Thread[ done.length];
+        for( int i = 0; i < threads.length; i++)
+        {
+            done[i] = new AtomicInteger();
+            final AtomicInteger count = done[i];
+            threads[i] = new Thread( "contender " + i)
+            {
+                @Override
+                public void run()
+                {
+                    try
+                    {
+                        gate.await();
+                        for( int j = 0; j < loops; j++)
+                        {
+                            Connection c = db.checkOutConnection();
+                            int now = holding.incrementAndGet();
+                            while( true)
+                            {
+                                int max = maxHolding.get();
+                                if( now <= max || maxHolding.compareAndSet( max, now)) break;
+                            }
+                            Thread.sleep( 1);
+                            holding.decrementAndGet();
+                            count.incrementAndGet();
+                            db.checkInConnection( c);
+                        }
+
+                        if( doneWhenFirstFinished.get() == -1)
+                        {
+                            int least = loops;
+                            for( AtomicInteger other: done)
+                            {
+                                least = Math.min( least, other.get());
+                            }
+                            doneWhenFirstFinished.compareAndSet( -1, least);
+                        }
+                    }
+                    catch( Throwable t)
+                    {
+                        errors.add( t);
+                    }
+                }
+            };
+            threads[i].start();
+        }
+
+        gate.countDown();
+        for( Thread t: threads)
+        {
+            t.join( 60000);
+            assertFalse( t.getName() + " still running", t.isAlive());
+        }
+
+        assertEquals( errors.toString(), 0, errors.size());
+        assertTrue( "held " + maxHolding.get(), maxHolding.get() <= MAX_CONNECTIONS);
+        assertTrue(
+            "a thread finished when another had only " + doneWhenFirstFinished.get() + " turns",
+            doneWhenFirstFinished.get() >= loops / 2
+        );
+
+        PoolMetrics metrics = db.getPoolMetrics();
+        assertEquals( threads.length * loops, metrics.getCheckOutCount());
+        assertEquals( 0, metrics.getTimeoutCount());
+        assertTrue( metrics.toString(), metrics.getHandOffCount() > 0);
+        assertEquals( 0, metrics.getActiveCount());
+    }
+
+    /**
+     * a waiter that times out leaves the queue, the threads behind it are still served.
+     * @throws Exception a test failure.
+     */
+    public void testTimeoutInQueue() throws Exception
+    {
+        final DataBase db = makeDataBase( "queueTimeout");
+        db.setFairPool( true);
+        db.setAcquireTimeout( 200);
+
+        Connection first = db.checkOutConnection();
+        Connection second = db.checkOutConnection();
+
+        final List<String> results = Collections.synchronizedList( new ArrayList<String>());
+        Thread impatient = new Thread( "impatient")
+        {
+            @Override
+            public void run()
+            {
+                try
+                {
+                    db.checkInConnection( db.checkOutConnection());
+                    results.add( "impatient served");
+                }
+                catch( Exception e)
+                {
+                    results.add( "impatient timed out");
+                }
+            }
+        };
+        impatient.start();
+        waitUntilParked( impatient);
+
+        db.setAcquireTimeout( 10000);
+        Thread patient = new Thread( "patient")
+        {
+            @Override
+            public void run()
+            {
+                try
+                {
+                    db.checkInConnection( db.checkOutConnection());
+                    results.add( "patient served");
+                }
+                catch( Exception e)
+                {
+                    results.add( "patient timed out");
+                }
+            }
+        };
+        patient.start();
+
+        impatient.join( 10000);
+        db.checkInConnection( first);
+        patient.join( 10000);
+        db.checkInConnection( second);
+
+        assertEquals( "[impatient timed out, patient served]", results.toString());
+
+        PoolMetrics metrics = db.getPoolMetrics();
+        assertEquals( 1, metrics.getTimeoutCount());
+        assertEquals( 1, metrics.getHandOffCount());
+        assertEquals( 0, metrics.getActiveCount());
+    }
+
+    /**
+     * a connection that fails validation is closed and a new connection opened in its place.
+     * @throws Exception a test failure.
+     */
+    public void testValidationReplaced() throws Exception
+    {
+        final DataBase db = makeDataBase( "validation");
+        db.setFairPool( true);
+        db.setAcquireTimeout( 10000);
+
+        Connection first = db.checkOutConnection();
+        db.checkInConnection( first);
+        assertEquals( 1, db.getPoolMetrics().getConnectionCount());
+
+        StubHandler bad = StubHandler.last();
+        bad.valid = false;
+        LinkManager.getType( db.getTypeKey()).testLines( new ConcurrentHashMap<Object, LinkConnection>());
+        assertTrue( "invalid connection closed", bad.closed);
+        assertEquals( 0, db.getPoolMetrics().getConnectionCount());
+
+        Connection replaced = db.checkOutConnection();
+        assertNotSame( "replaced", bad, StubHandler.last());
+        assertEquals( 1, db.getPoolMetrics().getConnectionCount());
+
+        /* a connection that failed in use is killed, the waiting thread opens a new one */
+        Connection other = db.checkOutConnection();
+        final List<Connection> got = Collections.synchronizedList( new ArrayList<Connection>());
+        Thread waiter = new Thread( "waiter")
+        {
+            @Override
+            public void run()
+            {
+                try
+                {
+                    got.add( db.checkOutConnection());
+                }
+                catch( Exception e)
+                {
+                    got.add( null);
+                }
+            }
+        };
+        waiter.start();
+        waitUntilParked( waiter);
+
+        LinkManager.killClient( replaced);
+        waiter.join( 10000);
+
+        assertEquals( 1, got.size());
+        assertNotNull( "new connection", got.get( 0));
+        assertNotSame( replaced, got.get( 0));
+        assertEquals( MAX_CONNECTIONS, db.getPoolMetrics().getConnectionCount());
+
+        db.checkInConnection( got.get( 0));
+        db.checkInConnection( other);
+        assertEquals( 0, db.getPoolMetrics().getTimeoutCount());
+    }
+
+    /**
+     * the metric counters follow the check outs, hand offs, timeouts and check ins.
+     * @throws Exception a test failure.
+     */
+    public void testMetrics() throws Exception
+    {
+        final DataBase db = makeDataBase( "metrics");
+        db.setFairPool( true);
+        db.setAcquireTimeout( 10000);
+        PoolMetrics metrics = db.getPoolMetrics();
+
+        Connection first = db.checkOutConnection();
+        Connection second = db.checkOutConnection();
+        assertEquals( 2, metrics.getCheckOutCount());
+        assertEquals( 0, metrics.getHandOffCount());
+        assertEquals( 2, metrics.getActiveCount());
+        assertEquals( 0, metrics.getIdleCount());
+        assertEquals( 2, metrics.getConnectionCount());
+
+        Thread.sleep( 50);
+        db.checkInConnection( first);
+        assertEquals( 1, metrics.getActiveCount());
+        assertEquals( 1, metrics.getIdleCount());
+        assertTrue( "max " + metrics.getMaxCheckOutMillis(), metrics.getMaxCheckOutMillis() >= 40);
+        assertTrue( "average " + metrics.getAverageCheckOutMillis(), metrics.getAverageCheckOutMillis() >= 40);
+
+        first = db.checkOutConnection();
+        final List<Connection> got = Collections.synchronizedList( new ArrayList<Connection>());
+        Thread waiter = new Thread( "waiter")
+        {
+            @Override
+            public void run()
+            {
+                try
+                {
+                    got.add( db.checkOutConnection());
+                }
+                catch( Exception e)
+                {
+                    got.add( null);
+                }
+            }
+        };
+        waiter.start();
+        waitUntilParked( waiter);
+        Thread.sleep( 100);
+        db.checkInConnection( first);
+        waiter.join( 10000);
+        assertNotNull( got.get( 0));
+
+        assertEquals( 4, metrics.getCheckOutCount());
+        assertEquals( 1, metrics.getHandOffCount());
+        assertTrue( "average wait " + metrics.getAverageWaitMillis(), metrics.getAverageWaitMillis() >= 20);
+
+        db.setAcquireTimeout( 50);
+        try
+        {
+            db.checkOutConnection();
+            fail( "should time out");
+        }
+        catch( Exception e)
+        {
+            // expected
+        }
+        assertEquals( 1, metrics.getTimeoutCount());
+        assertEquals( 4, metrics.getCheckOutCount());
+
+        long total = 0;
+        for( long count: metrics.getWaitHistogram())
+        {
+            total += count;
+        }
+        assertEquals( "every wait recorded", 5, total);
+        assertEquals( PoolMetrics.getWaitLimits().length + 1, metrics.getWaitHistogram().length);
+        assertTrue( metrics.toString(), metrics.toString().contains( "timeouts=1"));
+
+        db.checkInConnection( got.get( 0));
+        db.checkInConnection( second);
+        assertEquals( 0, metrics.getActiveCount());
+        assertEquals( 2, metrics.getIdleCount());
+    }
+
+    private void waitUntilParked( final Thread thread) throws InterruptedException
+    {
+        while( thread.getState() != Thread.State.TIMED_WAITING && thread.getState() != Thread.State.WAITING)
+        {
+            Thread.sleep( 1);
+        }
+    }
+
+    private DataBase makeDataBase( final String name) throws Exception
+    {
+        System.setProperty( "MAX_DBCONNECTIONS", "" + MAX_CONNECTIONS);
+        return new DataBase( "test", "", "ODBC", name + ",DRIVER=" + StubDriver.class.getName(), DataBase.Protection.NONE);
+    }
+
+    /**
+     * A driver of connections that do nothing.
+     */
+    public static final class StubDriver implements Driver
+    {
+        @Override
+        public Connection connect( final String url, final Properties info)
+        {
+            return (Connection)Proxy.newProxyInstance(
+                StubDriver.class.getClassLoader(),
+                new Class[]{Connection.class},
+                new StubHandler( true)
+            );
+        }
+
+        @Override
+        public boolean acceptsURL( final String url)
+        {
+            return true;
+        }
+
+        @Override
+        public DriverPropertyInfo[] getPropertyInfo( final String url, final Properties info)
+        {
+            return new DriverPropertyInfo[0];
+        }
+
+        @Override
+        public int getMajorVersion()
+        {
+            return 1;
+        }
+
+        @Override
+        public int getMinorVersion()
+        {
+            return 0;
+        }
+
+        @Override
+        public boolean jdbcCompliant()
+        {
+            return false;
+        }
+
+        @Override
+        public Logger getParentLogger() throws SQLFeatureNotSupportedException
+        {
+            throw new SQLFeatureNotSupportedException();
+        }
+    }
+
+    private static final class StubHandler implements InvocationHandler
+    {
+        private static volatile StubHandler last;
+
+        private boolean autoCommit = true;
+        private volatile boolean valid = true;
+        private volatile boolean closed;
+
+        StubHandler( final boolean connection)
+        {
+            if( connection)
+            {
+                last = this;
+            }
+        }
+
+        /**
+         * the handler of the last connection made.
+         */
+        static StubHandler last()
+        {
+            return last;
+        }
+
+        @Override
+        public Object invoke( final Object proxy, final Method method, final Object[] args)
+        {
+            String name = method.getName();
+            switch( name)
+            {
+                case "setAutoCommit":
+                    autoCommit = (Boolean)args[0];
+                    return null;
+                case "getAutoCommit":
+                    return autoCommit;
+                case "getMetaData":
+                    return Proxy.newProxyInstance(
+                        StubDriver.class.getClassLoader(),
+                        new Class[]{DatabaseMetaData.class},
+                        new StubHandler( false)
+                    );
+                case "hashCode":
+                    return System.identityHashCode( proxy);
+                case "equals":
+                    return proxy == args[0];
+                case "toString":
+                    return "stub@" + System.identityHashCode( proxy);
+                case "isValid":
+                    return valid;
+                case "close":
+                    closed = true;
+                    return null;
+                case "isClosed":
+                    return closed;
+                default:
+                    break;
+            }
+
+            Class type = method.getReturnType();
+            if( type == boolean.class) return false;
+            if( type == int.class) return 0;
+            if( type == long.class) return 0L;
+            return null;
+        }
+    }
+}
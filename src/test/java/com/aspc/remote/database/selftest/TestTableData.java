@@ -0,0 +1,375 @@
+/**
+ *  STS Remote library
+ *
+ *  Copyright (C) 2006  stSoftware Pty Ltd
+ *
+ *  stSoftware.com.au
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ *  Bug fixes, suggestions and comments should be sent to:
+ *
+ *  info AT stsoftware.com.au
+ *
+ *  or by snail mail to:
+ *
+ *  stSoftware
+ *  building C, level 1,
+ *  14 Rodborough Rd
+ *  Frenchs Forest 2086
+ *  Australia.
+ */
+package com.aspc.remote.database.selftest;
+
+import com.aspc.remote.database.internal.SResultSet;
+import com.aspc.remote.database.internal.TableDataDecoder;
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.StringTokenizer;
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+import junit.textui.TestRunner;
+
+/**
+ * Check the single pass decoder of the tab separated table data.
+ *
+ * <br>
+ * <i>THREAD MODE: SINGLE-THREADED self test unit</i>
+ *
+ *  @author      Nigel Leck
+ *  @since       18 October 2026
+ */
+public class TestTableData extends TestCase
+{
+    private static final String DATA=
+        "name,String\tage,Integer\tdob,Date\tnote\n" +
+        "fred\t42\t2020-01-02 10:11:12.123\thello\n" +
+        "\n" +
+        "\t7\t02-Mar-2019\t\n" +
+        "jane\t\t2021-12-31\t$NULL$\n" +
+        "bob\n";
+
+    /**
+     * Constructor for the test unit.
+     * @param testName The name of the test unit
+     */
+    public TestTableData(String testName)
+    {
+        super(testName);
+    }
+
+    /**
+     * The main for the program
+     *
+     * @param args The command line arguments
+     */
+    public static void main(String[] args)
+    {
+        Test test = suite();
+
+        TestRunner.run(test);
+    }
+
+    /**
+     * Creates the test suite.
+     *
+     * @return The test suite
+     */
+    public static Test suite()
+    {
+        TestSuite suite = new TestSuite(TestTableData.class);
+        return suite;
+    }
+
+    /**
+     * the cells are split the same as the original tokenizer.
+     */
+    public void testSplit()
+    {
+        Random r = new Random( 42);
+        String parts[]={"a", "", "$NULL$", "bc", " "};
+        for( int loop = 0; loop < 5000; loop++)
+        {
+            StringBuilder sb = new StringBuilder();
+            int cells = 1 + r.nextInt( 6);
+            for( int c = 0; c < cells; c++)
+            {
+                if( c > 0) sb.append( '\t');
+                sb.append( parts[r.nextInt( parts.length)]);
+            }
+            String line = sb.toString();
+            if( line.trim().isEmpty()) continue;
+
+            ArrayList<String> expected = tokenize( line);
+            String values[] = new String[ 8];
+            int count = TableDataDecoder.split( line, values);
+            for( int i = 0; i < values.length; i++)
+            {
+                String value = i < count ? values[i] : null;
+                String e = i < expected.size() ? expected.get( i) : null;
+                assertEquals( "cell " + i + " of '" + line + "'", e, value);
+            }
+
+            String streamed[] = new String[ 8];
+            try
+            {
+                int streamCount = new TableDataDecoder( new StringReader( line + "\n")).readCells( streamed);
+                assertEquals( "count of '" + line + "'", count, streamCount);
+            }
+            catch( IOException io)
+            {
+                fail( io.toString());
+            }
+            for( int i = 0; i < count && i < values.length; i++)
+            {
+                assertEquals( "streamed cell " + i + " of '" + line + "'", values[i], streamed[i]);
+            }
+        }
+    }
+
+    /**
+     * decode the table data.
+     * @throws Exception a test failure.
+     */
+    public void testDecode() throws Exception
+    {
+        SResultSet rs = new SResultSet( DATA);
+        check( rs);
+    }
+
+    /**
+     * decode the table data one character at a time so every cell spans a buffer.
+     * @throws Exception a test failure.
+     */
+    public void testDecodeSlowReader() throws Exception
+    {
+        SResultSet rs = new SResultSet();
+        rs.decodeTableData( new OneCharReader( new StringReader( DATA)), false);
+        check( rs);
+
+        StringBuilder big = new StringBuilder();
+        for( int i = 0; i < 20000; i++)
+        {
+            big.append( (char)('a' + i % 26));
+        }
+        rs = new SResultSet();
+        rs.decodeTableData( new StringReader( "big\n" + big + "\n" + big + "x"), false);
+        assertTrue( rs.next());
+        assertEquals( big.toString(), rs.getString( 1));
+        assertTrue( rs.next());
+        assertEquals( big + "x", rs.getString( 1));
+        assertFalse( rs.next());
+    }
+
+    /**
+     * the lazy result set decodes the rows as they are fetched.
+     * @throws Exception a test failure.
+     */
+    public void testLazy() throws Exception
+    {
+        SResultSet rs = new SResultSet();
+        rs.decodeTableData( new StringReader( DATA), true);
+        check( rs);
+
+        rs = new SResultSet();
+        rs.decodeTableData( new StringReader( DATA), true);
+        assertTrue( rs.next());
+        assertFalse( rs.isLast());
+        assertTrue( rs.next());
+        assertTrue( rs.next());
+        assertTrue( rs.next());
+        assertTrue( rs.isLast());
+        try
+        {
+            rs.previous();
+            fail( "lazy result set is forward only");
+        }
+        catch( SQLException e)
+        {
+            // expected
+        }
+    }
+
+    /**
+     * the columnar result set returns the same values as the row result set.
+     * @throws Exception a test failure.
+     */
+    public void testColumnar() throws Exception
+    {
+        String data = makeData();
+
+        SResultSet rows = new SResultSet( data);
+        SResultSet columns = new SResultSet();
+        columns.setColumnar( true);
+        columns.decodeTableData( data);
+
+        int count = 0;
+        while( rows.next())
+        {
+            assertTrue( columns.next());
+            count++;
+            for( int c = 1; c <= 5; c++)
+            {
+                assertEquals( "row " + count + " col " + c, rows.getObject( c), columns.getObject( c));
+                assertEquals( rows.getString( c), columns.getString( c));
+                assertEquals( rows.isNull( c), columns.isNull( c));
+            }
+            assertEquals( rows.getInt( 2), columns.getInt( 2));
+            assertEquals( rows.getLong( 2), columns.getLong( 2));
+            assertEquals( rows.getDouble( 3), columns.getDouble( 3), 0);
+            assertEquals( rows.getDate( 4), columns.getDate( 4));
+        }
+        assertFalse( columns.next());
+        assertEquals( 5000, count);
+        assertTrue( columns.isLast());
+        assertTrue( columns.previous());
+        assertEquals( "u4998", columns.getString( 5));
+    }
+
+    /**
+     * the rows past the budget spill to disk and are read back.
+     * @throws Exception a test failure.
+     */
+    public void testSpill() throws Exception
+    {
+        String data = makeData();
+
+        SResultSet rows = new SResultSet( data);
+        SResultSet spilled = new SResultSet();
+        spilled.setSpillBudget( 64 * 1024);
+        spilled.decodeTableData( data);
+        assertTrue( "rows spilled", spilled.getSpilledRowCount() > 0);
+        assertTrue( "rows in memory", spilled.getSpilledRowCount() < 5000);
+
+        int count = 0;
+        while( rows.next())
+        {
+            assertTrue( spilled.next());
+            count++;
+            for( int c = 1; c <= 5; c++)
+            {
+                assertEquals( "row " + count + " col " + c, rows.getObject( c), spilled.getObject( c));
+            }
+        }
+        assertFalse( spilled.next());
+        assertEquals( 5000, count);
+
+        /* random access seeks back in to the file */
+        for( int row = 4990; row > 10; row -= 997)
+        {
+            rows.setCurrentRow( row);
+            spilled.setCurrentRow( row);
+            assertEquals( rows.getString( 5), spilled.getString( 5));
+            assertTrue( spilled.previous());
+            assertEquals( "u" + ( row - 2), spilled.getString( 5));
+        }
+        spilled.close();
+    }
+
+    private String makeData()
+    {
+        Random r = new Random( 7);
+        StringBuilder sb = new StringBuilder( "code\tid,Integer\tamount,Float\tdob,Date\tunique\n");
+        for( int row = 0; row < 5000; row++)
+        {
+            sb.append( r.nextInt( 10) == 0 ? "" : "code" + r.nextInt( 20)).append( '\t');
+            sb.append( r.nextInt( 10) == 0 ? "" : Integer.toString( r.nextInt())).append( '\t');
+            sb.append( r.nextInt( 10) == 0 ? "" : Double.toString( r.nextDouble() * 1000)).append( '\t');
+            sb.append( r.nextInt( 10) == 0 ? "" : "20" + ( 10 + r.nextInt( 20)) + "-0" + ( 1 + r.nextInt( 9)) + "-1" + r.nextInt( 10)).append( '\t');
+            sb.append( "u").append( row).append( '\n');
+        }
+        return sb.toString();
+    }
+
+    private void check( final SResultSet rs) throws Exception
+    {
+        assertTrue( rs.next());
+        assertEquals( "fred", rs.getString( "name"));
+        assertEquals( Integer.valueOf( 42), rs.getObject( 2));
+        Object dob = rs.getObject( 3);
+        assertTrue( "date " + dob, dob instanceof java.util.Date);
+        assertEquals( "hello", rs.getString( 4));
+
+        assertTrue( rs.next());
+        assertNull( rs.getObject( 1));
+        assertEquals( Integer.valueOf( 7), rs.getObject( 2));
+        assertTrue( rs.getObject( 3) instanceof java.util.Date);
+        assertNull( rs.getObject( 4));
+
+        assertTrue( rs.next());
+        assertEquals( "jane", rs.getString( 1));
+        assertNull( rs.getObject( 2));
+        assertTrue( rs.getObject( 3) instanceof java.util.Date);
+        assertFalse( rs.getObject( 3) instanceof Timestamp);
+        assertNull( rs.getObject( 4));
+
+        assertTrue( rs.next());
+        assertEquals( "bob", rs.getString( 1));
+        assertNull( rs.getObject( 2));
+        assertNull( rs.getObject( 3));
+
+        assertFalse( rs.next());
+    }
+
+    /**
+     * The original split of a line.
+     */
+    private ArrayList<String> tokenize( final String data)
+    {
+        String temp = data;
+        if( temp.startsWith( "\t"))
+        {
+            temp = "$NULL$" + temp;
+        }
+
+        while( temp.contains("\t\t"))
+        {
+            temp  = temp.replace( "\t\t", "\t$NULL$\t");
+        }
+        ArrayList<String> list = new ArrayList<>();
+        StringTokenizer cd = new StringTokenizer( temp, "\t");
+        while( cd.hasMoreTokens())
+        {
+            String od = cd.nextToken();
+            list.add( od.equals( "$NULL$") ? null : od);
+        }
+
+        return list;
+    }
+
+    /**
+     * returns one character per read.
+     */
+    private static final class OneCharReader extends FilterReader
+    {
+        OneCharReader( final Reader in)
+        {
+            super( in);
+        }
+
+        @Override
+        public int read( final char[] cbuf, final int off, final int len) throws IOException
+        {
+            return super.read( cbuf, off, Math.min( len, 1));
+        }
+    }
+}
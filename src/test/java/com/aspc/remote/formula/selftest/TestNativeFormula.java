@@ -0,0 +1,322 @@
+/*
+ *  Copyright (c) 2001-2004 ASP Converters pty ltd
+ *
+ *  www.stSoftware.com.au
+ *
+ *  All Rights Reserved.
+ *
+ *  This software is the proprietary information of
+ *  ASP Converters Pty Ltd.
+ *  Use is subject to license terms.
+ */
+package com.aspc.remote.formula.selftest;
+
+import com.aspc.remote.formula.Formula;
+import com.aspc.remote.formula.internal.NativeExpression;
+import com.aspc.remote.util.misc.CLogger;
+import com.aspc.remote.util.misc.QueueLog;
+import java.util.HashMap;
+import javax.script.ScriptEngine;
+import javax.script.ScriptEngineManager;
+import javax.script.SimpleBindings;
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+import junit.textui.TestRunner;
+import org.apache.commons.logging.Log;
+
+/**
+ *  Check the native evaluator and the compiled formula cache.
+ *
+ * <br>
+ * <i>THREAD MODE: SINGLE-THREADED self test unit</i>
+ *
+ *  @author         Nigel Leck
+ *  @since          18 October 2026
+ */
+public class TestNativeFormula extends TestCase
+{
+    private static final Log LOGGER = CLogger.getLog( "com.aspc.remote.formula.selftest.TestNativeFormula");//#LOGGER-NOPMD
+
+    /**
+     * Creates new TestNativeFormula
+     * @param name The name of the test unit
+     */
+    public TestNativeFormula(String name)
+    {
+        super( name);
+    }
+
+    /**
+     * @param args  */
+    public static void main(String[] args)
+    {
+        TestRunner.run(suite());
+        QueueLog.flush(10000);
+    }
+
+    /**
+     * @return the value
+     */
+    public static Test suite()
+    {
+        TestSuite suite = new TestSuite(TestNativeFormula.class);
+        return suite;
+    }
+
+    /**
+     * The supported subset gives the same answers as the script engine.
+     *
+     * @throws Exception a serious problem
+     */
+    public void testEvaluate() throws Exception
+    {
+        SimpleBindings bindings=new SimpleBindings();
+        bindings.put( "price", 12.5);
+        bindings.put( "qty", 4);
+        bindings.put( "code", "SELL");
+        bindings.put( "flag", true);
+        bindings.put( "missing", null);
+
+        Object checks[][]={
+            {"1+1", 2},
+            {"7/2", 3.5},
+            {"8/2", 4},
+            {"7 % 3", 1},
+            {"-qty + 1", -3.0},
+            {"price * qty", 50.0},
+            {"2 + 3 * 4", 14},
+            {"(2 + 3) * 4", 20},
+            {"1.5e2", 150.0},
+            {"1e3", 1000},
+            {"qty / 2", 2.0},
+            {"qty", 4},
+            {"price > 10 && qty <= 4", true},
+            {"price < 10 || qty != 4", false},
+            {"qty === 4", true},
+            {"qty === '4'", false},
+            {"code == 'SELL' ? 'S' : 'B'", "S"},
+            {"code + ' ' + qty", "SELL 4"},
+            {"'a\\'b'", "a'b"},
+            {"!flag", false},
+            {"missing", null},
+            {"missing || 'none'", "none"},
+            {"qty > 3 ? price > 20 ? 'high' : 'mid' : 'low'", "mid"},
+            {"price * qty;", 50.0},
+        };
+
+        for( Object check[]: checks)
+        {
+            String text=(String)check[0];
+            Formula formula = new Formula( text);
+
+            assertTrue( text + " should be native", formula.isNative());
+
+            Object result=formula.compute( bindings);
+            LOGGER.debug( text + "=" + result);
+            assertEquals( text, check[1], result);
+        }
+    }
+
+    /**
+     * The native evaluator gives the same values of the same types as the script engine.
+     *
+     * @throws Exception a serious problem
+     */
+    public void testSameAsScriptEngine() throws Exception
+    {
+        ScriptEngine engine=new ScriptEngineManager().getEngineByName( "JavaScript");
+        if( engine == null)
+        {
+            LOGGER.info( "no JavaScript engine, can't compare");
+            return;
+        }
+
+        SimpleBindings bindings=new SimpleBindings();
+        bindings.put( "price", 12.5);
+        bindings.put( "qty", 4);
+        bindings.put( "big", 3000000000L);
+        bindings.put( "whole", 2.0);
+        bindings.put( "small", (short)3);
+        bindings.put( "code", "SELL");
+        bindings.put( "flag", true);
+        bindings.put( "missing", null);
+
+        String list[]={
+            "1+1", "7/2", "8/2", "6 / 4", "0 / 5", "7 % 3", "-7 % 3", "10 % 4.5",
+            "-5", "+5", "-(2)", "(2 + 3) * 4", "2 + 3 * 4", "3 - 5", "-0", "0 * -1", "-0 + 0",
+            "1.5 + 1.5", "4.0", "1.5e2", "1e3", "2 * 3.0", "2147483647", "2147483648", "2147483647 + 1",
+            "1/0", "0/0", "true + 1", "null + 1",
+            "qty", "price", "big", "whole", "small", "-qty", "+qty", "-qty + 1", "qty + 0", "qty - qty",
+            "qty * 2", "qty / 2", "price * qty", "big + 1", "whole * 2", "small + 1", "price - price",
+            "code + ' ' + qty", "'a' + 1.5", "'a' + whole", "1 + 2 + 'a'", "'a' + (1 + 2)",
+            "price > 10 && qty <= 4", "qty === 4", "qty == 4.0", "!qty", "!flag",
+            "flag ? 1 : 2", "flag ? qty : 2", "qty > 3 ? price : 0", "flag && qty", "1 > 2 || 3",
+            "missing", "missing || 'none'", "price * qty;",
+        };
+
+        for( String text: list)
+        {
+            Formula formula = new Formula( text);
+            assertTrue( text + " should be native", formula.isNative());
+
+            Object expected=engine.eval( text, new SimpleBindings( new HashMap<>( bindings)));
+            Object result=formula.compute( bindings);
+
+            assertEquals( text, expected, result);
+            if( expected != null)
+            {
+                assertEquals( text + " type", expected.getClass(), result.getClass());
+            }
+        }
+    }
+
+    /**
+     * Anything outside the subset is left to the script engine.
+     */
+    public void testNotNative()
+    {
+        String list[]={
+            "Math.max(1,2)",
+            "x = 1",
+            "x += 1",
+            "x++",
+            "typeof x",
+            "undefined + 1",
+            "0x10",
+            "a & b",
+            "a ** 2",
+            "1 +",
+            "(1",
+            "'abc",
+            "function(){ return 1;}",
+            "a.b",
+            "a[0]",
+        };
+
+        for( String text: list)
+        {
+            assertNull( text, NativeExpression.compile( text));
+        }
+    }
+
+    /**
+     * Values that need the JavaScript coercion rules are handed back to the script engine.
+     */
+    public void testUnsupportedValues()
+    {
+        NativeExpression expression=NativeExpression.compile( "a < b");
+        assertNotNull( expression);
+
+        SimpleBindings bindings=new SimpleBindings();
+        bindings.put( "a", "10");
+        bindings.put( "b", 9);
+
+        try
+        {
+            expression.eval( bindings);
+            fail( "string compared to a number is not native");
+        }
+        catch( RuntimeException re)
+        {
+            assertSame( NativeExpression.UNSUPPORTED, re);
+        }
+
+        bindings.remove( "b");
+        try
+        {
+            expression.eval( bindings);
+            fail( "unknown variable is not native");
+        }
+        catch( RuntimeException re)
+        {
+            assertSame( NativeExpression.UNSUPPORTED, re);
+        }
+    }
+
+    /**
+     * Formulas with the same definition share the compiled form.
+     *
+     * @throws Exception a serious problem
+     */
+    public void testCache() throws Exception
+    {
+        Formula.clearCache();
+        SimpleBindings bindings=new SimpleBindings();
+        bindings.put( "a", 2);
+        for( int i=0;i<100;i++)
+        {
+            Formula formula = new Formula( " a * " + ( i % 5) + " ");
+            assertEquals( formula.getDefinition(), 2.0 * ( i % 5), formula.compute( bindings));
+        }
+        assertEquals( "one entry per definition", 5, Formula.cacheSize());
+
+        Formula.clearCache();
+        assertEquals( "cleared", 0, Formula.cacheSize());
+    }
+
+    /**
+     * The least recently used definitions are dropped when the cache is full.
+     *
+     * @throws Exception a serious problem
+     */
+    public void testCacheLRU() throws Exception
+    {
+        Formula.clearCache();
+        SimpleBindings bindings=new SimpleBindings();
+        bindings.put( "a", 2);
+
+        int limit=10000;
+        for( int i=0;i<limit;i++)
+        {
+            new Formula( "a * " + i);
+        }
+        assertEquals( "full", limit, Formula.cacheSize());
+
+        /* keep the first definition in use while new definitions are added */
+        Formula first=new Formula( "a * 0");
+        for( int i=limit;i<limit + 100;i++)
+        {
+            new Formula( "a * " + i);
+        }
+        assertEquals( "bounded", limit, Formula.cacheSize());
+        assertTrue( "recently used", Formula.isCached( "a * 0"));
+        assertTrue( "new definitions are added", Formula.isCached( "a * " + ( limit + 99)));
+        assertFalse( "least recently used", Formula.isCached( "a * 1"));
+        assertEquals( "still works", 0.0, first.compute( bindings));
+
+        Formula.clearCache();
+    }
+
+    /**
+     * Row by row evaluation, the pattern used by the validate formulas.
+     *
+     * @throws Exception a serious problem
+     */
+    public void testRows() throws Exception
+    {
+        Formula formula = new Formula( "duration < limit && status == 'OK'");
+        SimpleBindings bindings=new SimpleBindings();
+        bindings.put( "limit", 100);
+
+        int passed=0;
+        for( int row=0;row<1000;row++)
+        {
+            bindings.put( "duration", row % 200);
+            bindings.put( "status", row % 3 == 0 ? "FAIL" : "OK");
+
+            if( Boolean.TRUE.equals( formula.compute( bindings)))
+            {
+                passed++;
+            }
+        }
+
+        int expected=0;
+        for( int row=0;row<1000;row++)
+        {
+            if( row % 200 < 100 && row % 3 != 0) expected++;
+        }
+        assertEquals( "passed rows", expected, passed);
+        assertTrue( "compiled", formula.isCompiled());
+    }
+}
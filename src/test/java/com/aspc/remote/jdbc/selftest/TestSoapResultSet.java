@@ -0,0 +1,230 @@
+/**
+ *  STS Remote library
+ *
+ *  Copyright (C) 2006  stSoftware Pty Ltd
+ *
+ *  stSoftware.com.au
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ *  Bug fixes, suggestions and comments should be sent to:
+ *
+ *  info AT stsoftware.com.au
+ *
+ *  or by snail mail to:
+ *
+ *  stSoftware
+ *  building C, level 1,
+ *  14 Rodborough Rd
+ *  Frenchs Forest 2086
+ *  Australia.
+ */
+package com.aspc.remote.jdbc.selftest;
+
+import com.aspc.remote.jdbc.Executor;
+import com.aspc.remote.jdbc.SoapResultSet;
+import com.aspc.remote.util.misc.DocumentUtil;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TimeZone;
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+import junit.textui.TestRunner;
+import org.w3c.dom.Document;
+
+/**
+ * Check the storage of the SOAP result sets that are fetched a page at a time.
+ *
+ * <br>
+ * <i>THREAD MODE: SINGLE-THREADED self test unit</i>
+ *
+ *  @author      Nigel Leck
+ *  @since       18 October 2026
+ */
+public class TestSoapResultSet extends TestCase
+{
+    private static final int ROWS = 250;
+    private static final int PAGE = 100;
+
+    /**
+     * Constructor for the test unit.
+     * @param testName The name of the test unit
+     */
+    public TestSoapResultSet(String testName)
+    {
+        super(testName);
+    }
+
+    /**
+     * The main for the program
+     *
+     * @param args The command line arguments
+     */
+    public static void main(String[] args)
+    {
+        Test test = suite();
+
+        TestRunner.run(test);
+    }
+
+    /**
+     * Creates the test suite.
+     *
+     * @return The test suite
+     */
+    public static Test suite()
+    {
+        TestSuite suite = new TestSuite(TestSoapResultSet.class);
+        return suite;
+    }
+
+    /**
+     * the columnar SOAP result set returns the same values and attributes, including the rows fetched from the cursor.
+     * @throws Exception a test failure.
+     */
+    public void testColumnar() throws Exception
+    {
+        StubExecutor plainExecutor = new StubExecutor();
+        SoapResultSet plain = new SoapResultSet( plainExecutor.page( 0), 0, plainExecutor);
+
+        StubExecutor executor = new StubExecutor();
+        SoapResultSet columns = new SoapResultSet( executor.page( 0), 0, executor);
+        columns.setColumnar( true);
+
+        compare( plain, columns);
+
+        assertTrue( columns.isLast());
+        assertTrue( columns.previous());
+        assertEquals( "u" + ( ROWS - 2), columns.getString( "unique"));
+
+        assertEquals( "[CURSOR FETCH c1, 100, 100, CURSOR FETCH c1, 200, 100]", executor.calls.toString());
+        columns.close();
+    }
+
+    /**
+     * the rows past the budget of a SOAP result set spill to disk and the file is removed on close.
+     * @throws Exception a test failure.
+     */
+    public void testSpill() throws Exception
+    {
+        StubExecutor plainExecutor = new StubExecutor();
+        SoapResultSet plain = new SoapResultSet( plainExecutor.page( 0), 0, plainExecutor);
+
+        StubExecutor executor = new StubExecutor();
+        SoapResultSet spilled = new SoapResultSet( executor.page( 0), 0, executor);
+        spilled.setSpillBudget( 4 * 1024);
+
+        compare( plain, spilled);
+        assertTrue( "rows spilled", spilled.getSpilledRowCount() > 0);
+        assertTrue( "rows in memory", spilled.getSpilledRowCount() < ROWS);
+
+        spilled.setCurrentRow( 7);
+        assertEquals( "u6", spilled.getString( "unique"));
+        assertEquals( "6", spilled.getRowAttributevValue( "id"));
+
+        spilled.close();
+        assertEquals( "removed", 0, spilled.getSpilledRowCount());
+    }
+
+    private void compare( final SoapResultSet expected, final SoapResultSet actual) throws Exception
+    {
+        int count = 0;
+        while( expected.next())
+        {
+            assertTrue( actual.next());
+            count++;
+            for( int c = 1; c <= 4; c++)
+            {
+                assertEquals( "row " + count + " col " + c, expected.getObject( c), actual.getObject( c));
+            }
+            assertEquals( expected.getRowAttributevValue( "id"), actual.getRowAttributevValue( "id"));
+            assertEquals( Integer.toString( count - 1), actual.getRowAttributevValue( "id"));
+            assertEquals( expected.getAttributeValue( "code", "colour"), actual.getAttributeValue( "code", "colour"));
+        }
+        assertFalse( actual.next());
+        assertEquals( ROWS, count);
+    }
+
+    /**
+     * Serves the rows a page at a time.
+     */
+    private static final class StubExecutor implements Executor
+    {
+        final List<String> calls = new ArrayList<>();
+
+        Document page( final int offset) throws Exception
+        {
+            int end = Math.min( ROWS, offset + PAGE);
+            StringBuilder sb = new StringBuilder( "<ROOT><RS");
+            if( end < ROWS)
+            {
+                sb.append( " cursor=\"c1\"");
+            }
+            sb.append( ">");
+            sb.append( "<CD p=\"code\" t=\"string\"/><CD p=\"amount\" t=\"double\"/><CD p=\"count\" t=\"int\"/><CD p=\"unique\" t=\"string\"/>");
+            for( int row = offset; row < end; row++)
+            {
+                sb.append( "<R id=\"").append( row).append( "\">");
+                sb.append( "<C p=\"code\" colour=\"").append( row % 2 == 0 ? "red" : "blue").append( "\">code").append( row % 7).append( "</C>");
+                if( row % 5 != 0)
+                {
+                    sb.append( "<C p=\"amount\">").append( row * 1.5).append( "</C>");
+                }
+                sb.append( "<C p=\"count\">").append( row % 11).append( "</C>");
+                sb.append( "<C p=\"unique\">u").append( row).append( "</C>");
+                sb.append( "</R>");
+            }
+            sb.append( "</RS></ROOT>");
+            return DocumentUtil.makeDocument( sb.toString());
+        }
+
+        @Override
+        public Document execute( final String sql) throws Exception
+        {
+            calls.add( sql);
+            if( sql.startsWith( "CURSOR CLOSE"))
+            {
+                return null;
+            }
+            String parts[] = sql.split( ",");
+            return page( Integer.parseInt( parts[1].trim()));
+        }
+
+        @Override
+        public TimeZone getTimeZone()
+        {
+            return TimeZone.getTimeZone( "UTC");
+        }
+
+        @Override
+        public SoapResultSet fetch( final String sql) throws Exception
+        {
+            throw new UnsupportedOperationException( sql);
+        }
+
+        @Override
+        public boolean isStateless()
+        {
+            return true;
+        }
+
+        @Override
+        public String getUserName()
+        {
+            return "test";
+        }
+    }
+}
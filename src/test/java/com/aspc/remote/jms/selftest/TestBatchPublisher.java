@@ -0,0 +1,472 @@
+/**
+ *  STS Remote library
+ *
+ *  Copyright (C) 2006  stSoftware Pty Ltd
+ *
+ *  stSoftware.com.au
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ *  Bug fixes, suggestions and comments should be sent to:
+ *
+ *  info AT stsoftware.com.au
+ *
+ *  or by snail mail to:
+ *
+ *  stSoftware
+ *  building C, level 1,
+ *  14 Rodborough Rd
+ *  Frenchs Forest 2086
+ *  Australia.
+ */
+package com.aspc.remote.jms.selftest;
+
+import com.aspc.remote.jms.Client;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Hashtable;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import javax.jms.JMSException;
+import javax.jms.TextMessage;
+import javax.jms.Topic;
+import javax.jms.TopicConnection;
+import javax.jms.TopicConnectionFactory;
+import javax.jms.TopicPublisher;
+import javax.jms.TopicSession;
+import javax.naming.Context;
+import javax.naming.spi.InitialContextFactory;
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+import junit.textui.TestRunner;
+
+/**
+ * Check the batch publisher of the JMS client against a stub JMS provider.
+ *
+ * <br>
+ * <i>THREAD MODE: SINGLE-THREADED self test unit</i>
+ *
+ *  @author      Nigel Leck
+ *  @since       18 October 2026
+ */
+public class TestBatchPublisher extends TestCase
+{
+    /** the stub provider of the running test */
+    static volatile StubJMS jms;
+
+    /**
+     * Constructor for the test unit.
+     * @param testName The name of the test unit
+     */
+    public TestBatchPublisher(String testName)
+    {
+        super(testName);
+    }
+
+    /**
+     * The main for the program
+     *
+     * @param args The command line arguments
+     */
+    public static void main(String[] args)
+    {
+        Test test = suite();
+
+        TestRunner.run(test);
+    }
+
+    /**
+     * Creates the test suite.
+     *
+     * @return The test suite
+     */
+    public static Test suite()
+    {
+        TestSuite suite = new TestSuite(TestBatchPublisher.class);
+        return suite;
+    }
+
+    /**
+     * a fresh stub provider for each test.
+     * @throws Exception a serious problem
+     */
+    @Override
+    protected void setUp() throws Exception
+    {
+        super.setUp();
+        jms = new StubJMS();
+    }
+
+    /**
+     * N messages are published in ceil( N/batch) transactions.
+     * @throws Exception a test failure.
+     */
+    public void testBatches() throws Exception
+    {
+        StubClient client = new StubClient();
+        client.setBatchSize( 10);
+        client.setBatchLingerMS( 5000);
+        client.connect();
+        try
+        {
+            for( int i = 0; i < 30; i++)
+            {
+                client.send( "M" + i);
+            }
+            assertTrue( "flushed", client.flush( 10000));
+
+            assertEquals( "commits", 3, jms.commits);
+            assertEquals( "batch count", 3, client.getBatchCount());
+            assertEquals( "max batch", 10, client.getMaxBatchSize());
+            assertEquals( 10.0, client.getAverageBatchSize(), 0);
+            assertEquals( "published", 30, jms.published.size());
+            for( int i = 0; i < 30; i++)
+            {
+                assertEquals( "in order", "M" + i, jms.published.get( i));
+            }
+            assertEquals( 30, client.getTotalSentCount());
+            assertEquals( 0, client.getBatchFailedCount());
+            assertEquals( 0, client.getBatchPendingCount());
+        }
+        finally
+        {
+            client.shutdown();
+        }
+    }
+
+    /**
+     * a partial batch is published once the linger time is up.
+     * @throws Exception a test failure.
+     */
+    public void testLinger() throws Exception
+    {
+        StubClient client = new StubClient();
+        client.setBatchSize( 100);
+        client.setBatchLingerMS( 300);
+        client.connect();
+        try
+        {
+            long start = System.nanoTime();
+            for( int i = 0; i < 7; i++)
+            {
+                client.send( "M" + i);
+            }
+            assertTrue( "flushed", client.flush( 10000));
+            long tookMS = TimeUnit.NANOSECONDS.toMillis( System.nanoTime() - start);
+
+            assertEquals( "one partial batch", 1, jms.commits);
+            assertEquals( 7, jms.published.size());
+            assertTrue( "waited for the linger time " + tookMS, tookMS >= 250);
+        }
+        finally
+        {
+            client.shutdown();
+        }
+    }
+
+    /**
+     * a full queue blocks the sender for the queue timeout and then drops the message.
+     * @throws Exception a test failure.
+     */
+    public void testQueueFull() throws Exception
+    {
+        StubClient client = new StubClient();
+        client.setBatchSize( 2);
+        client.setBatchLingerMS( 0);
+        client.setBatchQueueCapacity( 1);
+        client.setBatchQueueTimeoutMS( 0);
+        client.connect();
+        try
+        {
+            jms.blockCommit = new CountDownLatch( 1);
+
+            /* the publisher takes the first message and waits in the commit */
+            client.send( "M0");
+            assertTrue( "commit started", jms.commitStarted.await( 10, TimeUnit.SECONDS));
+
+            /* the second message fills the queue */
+            client.send( "M1");
+
+            try
+            {
+                client.send( "M2");
+                fail( "queue is full");
+            }
+            catch( Exception e)
+            {
+                // expected
+            }
+            assertEquals( "dropped", 1, client.getBatchDroppedCount());
+
+            /* with a timeout the sender waits for room in the queue */
+            client.setBatchQueueTimeoutMS( 10000);
+            new Thread( "release commit")
+            {
+                @Override
+                public void run()
+                {
+                    try
+                    {
+                        Thread.sleep( 200);
+                    }
+                    catch( InterruptedException e)
+                    {
+                        return;
+                    }
+                    jms.blockCommit.countDown();
+                }
+            }.start();
+
+            long start = System.nanoTime();
+            client.send( "M3");
+            long tookMS = TimeUnit.NANOSECONDS.toMillis( System.nanoTime() - start);
+            assertTrue( "blocked until there was room " + tookMS, tookMS >= 150);
+
+            assertTrue( "flushed", client.flush( 10000));
+            assertEquals( "dropped", 1, client.getBatchDroppedCount());
+            assertEquals( "[M0, M1, M3]", jms.published.toString());
+            assertEquals( 0, client.getBatchFailedCount());
+        }
+        finally
+        {
+            jms.blockCommit.countDown();
+            client.shutdown();
+        }
+    }
+
+    /**
+     * a failed commit is rolled back and the batch is published again on a new connection.
+     * @throws Exception a test failure.
+     */
+    public void testRollback() throws Exception
+    {
+        StubClient client = new StubClient();
+        client.setBatchSize( 5);
+        client.setBatchLingerMS( 5000);
+        client.connect();
+        try
+        {
+            jms.failCommits = 1;
+            for( int i = 0; i < 5; i++)
+            {
+                client.send( "M" + i);
+            }
+            assertTrue( "flushed", client.flush( 10000));
+
+            assertEquals( "rollbacks", 1, jms.rollbacks);
+            assertEquals( "commits", 1, jms.commits);
+            assertEquals( "published once", "[M0, M1, M2, M3, M4]", jms.published.toString());
+            assertEquals( 0, client.getBatchFailedCount());
+
+            /* a batch that fails twice is counted as failed */
+            jms.failCommits = 2;
+            for( int i = 5; i < 10; i++)
+            {
+                client.send( "M" + i);
+            }
+            assertTrue( "flushed", client.flush( 10000));
+
+            assertEquals( "rollbacks", 3, jms.rollbacks);
+            assertEquals( "commits", 1, jms.commits);
+            assertEquals( "failed", 5, client.getBatchFailedCount());
+            assertEquals( 5, jms.published.size());
+        }
+        finally
+        {
+            client.shutdown();
+        }
+    }
+
+    /**
+     * The client connected to the stub provider.
+     */
+    private static final class StubClient extends Client
+    {
+        @Override
+        public String getContextFactory()
+        {
+            return StubContextFactory.class.getName();
+        }
+
+        @Override
+        public String getProviderUrl()
+        {
+            return "stub://localhost";
+        }
+    }
+
+    /**
+     * The JNDI context of the stub provider.
+     */
+    public static final class StubContextFactory implements InitialContextFactory
+    {
+        @Override
+        public Context getInitialContext( final Hashtable<?, ?> environment)
+        {
+            return (Context)jms.stub( Context.class, false);
+        }
+    }
+
+    /**
+     * Records the messages published and the transactions.
+     */
+    static final class StubJMS
+    {
+        final List<String> published = new ArrayList<>();
+        int commits;
+        int rollbacks;
+        volatile int failCommits;
+        volatile CountDownLatch blockCommit;
+        final CountDownLatch commitStarted = new CountDownLatch( 1);
+
+        Object stub( final Class<?> type, final boolean transacted)
+        {
+            return Proxy.newProxyInstance(
+                TestBatchPublisher.class.getClassLoader(),
+                new Class<?>[]{ type},
+                new Handler( transacted)
+            );
+        }
+
+        private synchronized void publish( final List<String> pending, final String text, final boolean transacted)
+        {
+            if( transacted)
+            {
+                pending.add( text);
+            }
+            else
+            {
+                published.add( text);
+            }
+        }
+
+        private void commit( final List<String> pending) throws JMSException
+        {
+            commitStarted.countDown();
+            CountDownLatch latch = blockCommit;
+            if( latch != null)
+            {
+                try
+                {
+                    latch.await();
+                }
+                catch( InterruptedException e)
+                {
+                    throw new JMSException( "interrupted");
+                }
+            }
+
+            synchronized( this)
+            {
+                if( failCommits > 0)
+                {
+                    failCommits--;
+                    throw new JMSException( "stub commit failed");
+                }
+                commits++;
+                published.addAll( pending);
+                pending.clear();
+            }
+        }
+
+        private synchronized void rollback( final List<String> pending)
+        {
+            rollbacks++;
+            pending.clear();
+        }
+
+        /**
+         * One stub JMS object, a session holds the messages of the current transaction.
+         */
+        private final class Handler implements InvocationHandler
+        {
+            private final boolean transacted;
+            private final List<String> pending = new ArrayList<>();
+            private String text;
+
+            Handler( final boolean transacted)
+            {
+                this.transacted = transacted;
+            }
+
+            @Override
+            public Object invoke( final Object proxy, final Method method, final Object[] args) throws Throwable
+            {
+                String name = method.getName();
+                switch( name)
+                {
+                    case "equals":
+                        return proxy == args[0];
+                    case "hashCode":
+                        return System.identityHashCode( proxy);
+                    case "toString":
+                        return "stub " + method.getDeclaringClass().getSimpleName();
+                    case "lookup":
+                        return "TopicConnectionFactory".equals( args[0]) ? stub( TopicConnectionFactory.class, false) : stub( Topic.class, false);
+                    case "createTopicConnection":
+                        return stub( TopicConnection.class, false);
+                    case "createTopicSession":
+                        return stub( TopicSession.class, (Boolean)args[0]);
+                    case "createTopic":
+                    case "getTopic":
+                        return stub( Topic.class, false);
+                    case "createPublisher":
+                        /* the publisher shares the transaction of its session */
+                        return Proxy.newProxyInstance( TestBatchPublisher.class.getClassLoader(), new Class<?>[]{ TopicPublisher.class}, this);
+                    case "createTextMessage":
+                    {
+                        Handler message = new Handler( false);
+                        message.text = (String)args[0];
+                        return Proxy.newProxyInstance( TestBatchPublisher.class.getClassLoader(), new Class<?>[]{ TextMessage.class}, message);
+                    }
+                    case "getText":
+                        return text;
+                    case "publish":
+                    {
+                        TextMessage message = (TextMessage)args[args.length - 1];
+                        publish( pending, message.getText(), transacted);
+                        return null;
+                    }
+                    case "commit":
+                        commit( pending);
+                        return null;
+                    case "rollback":
+                        rollback( pending);
+                        return null;
+                    default:
+                        return defaultValue( method.getReturnType());
+                }
+            }
+        }
+
+        private static Object defaultValue( final Class<?> type)
+        {
+            if( type == boolean.class) return Boolean.FALSE;
+            if( type == int.class) return 0;
+            if( type == long.class) return 0L;
+            if( type == short.class) return (short)0;
+            if( type == byte.class) return (byte)0;
+            if( type == float.class) return 0f;
+            if( type == double.class) return 0d;
+            if( type == char.class) return (char)0;
+
+            return null;
+        }
+    }
+}
@@ -0,0 +1,250 @@
+/*
+ *  Copyright (c) 2000-2004 ASP Converters pty ltd
+ *
+ *  www.stSoftware.com.au
+ *
+ *  All Rights Reserved.
+ *
+ *  This software is the proprietary information of
+ *  ASP Converters Pty Ltd.
+ *  Use is subject to license terms.
+ */
+package com.aspc.remote.memory.selftest;
+
+import com.aspc.remote.memory.CacheLongTable;
+import com.aspc.remote.memory.CacheTable;
+import com.aspc.remote.memory.MemoryHandler;
+import com.aspc.remote.memory.MemoryManager;
+import com.aspc.remote.memory.internal.InterfaceEntry;
+import com.aspc.remote.memory.internal.SegmentStatsCollector;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+import junit.textui.TestRunner;
+
+/**
+ * Check the segmented cache tables.
+ *
+ * <br>
+ * <i>THREAD MODE: SINGLE-THREADED self test unit</i>
+ *
+ *  @author      Nigel Leck
+ *  @since       18 October 2026
+ */
+public class TestCacheTableSegments extends TestCase
+{
+    /**
+     * Constructor for the test unit.
+     * @param testName The name of the test unit
+     */
+    public TestCacheTableSegments(String testName)
+    {
+        super(testName);
+    }
+
+    /**
+     * The main for the program
+     *
+     * @param args The command line arguments
+     */
+    public static void main(String[] args)
+    {
+        Test test = suite();
+
+        TestRunner.run(test);
+    }
+
+    /**
+     * Creates the test suite.
+     *
+     * @return The test suite
+     */
+    public static Test suite()
+    {
+        TestSuite suite = new TestSuite(TestCacheTableSegments.class);
+        return suite;
+    }
+
+    /**
+     * the segment count is rounded up to a power of 2.
+     */
+    public void testSegmentCount()
+    {
+        assertEquals( "default", 1, new CacheLongTable("default").getSegmentCount());
+        assertEquals( "rounded", 8, new CacheLongTable("rounded", MemoryHandler.Cost.MEDIUM, 5).getSegmentCount());
+
+        try
+        {
+            CacheLongTable ct = new CacheLongTable("zero", MemoryHandler.Cost.MEDIUM, 0);
+            fail( "should not allow zero segments " + ct);
+        }
+        catch( IllegalArgumentException iae)
+        {
+            // expected
+        }
+    }
+
+    /**
+     * A segmented table should behave like a single segment table.
+     */
+    public void testBasic()
+    {
+        CacheLongTable ct = new CacheLongTable("Testing", MemoryHandler.Cost.MEDIUM, 16);
+        ct.setThreshold( Integer.MAX_VALUE);
+
+        for( int i = 0; i < 10000; i++)
+        {
+            ct.put( i, "ROW:" + i);
+        }
+
+        assertEquals( "size", 10000, ct.size());
+        assertEquals( "hard links", 10000, ct.getHardLinkCount());
+        assertEquals( "get", "ROW:123", ct.get( 123));
+        assertEquals( "remove", "ROW:123", ct.remove( 123));
+        assertFalse( "removed", ct.containsKey( 123));
+
+        long keys[] = ct.getKeyArray();
+        assertEquals( "key array", 9999, keys.length);
+        Arrays.sort( keys);
+        assertEquals( "first", 0, keys[0]);
+        assertEquals( "last", 9999, keys[keys.length - 1]);
+
+        assertTrue( "estimated size", ct.getEstimatedSize() > 0);
+
+        CacheTable<String, String> st = new CacheTable<>("Testing", MemoryHandler.Cost.LOW, 4);
+        st.setThreshold( Integer.MAX_VALUE);
+        for( int i = 0; i < 1000; i++)
+        {
+            st.put( "K" + i, "V" + i);
+        }
+        assertEquals( "object size", 1000, st.size());
+        assertEquals( "object get", "V999", st.get( "K999"));
+
+        ct.clear();
+        assertTrue( "cleared", ct.isEmpty());
+    }
+
+    /**
+     * freeing memory must walk every segment.
+     */
+    public void testFreeMemory()
+    {
+        CacheLongTable ct = new CacheLongTable("Testing", MemoryHandler.Cost.MEDIUM, 8);
+        ct.setThreshold( Integer.MAX_VALUE);
+
+        for( int i = 0; i < 1000; i++)
+        {
+            ct.put( i, "ROW:" + i);
+            if( i % 2 == 0)
+            {
+                ct.lock(i);
+            }
+        }
+
+        ct.freeMemory( 1);
+        MemoryManager.gc();
+
+        for( int i = 0; i < 1000; i++)
+        {
+            Object obj = ct.get( i);
+
+            if( i % 2 == 0)
+            {
+                assertNotNull( "Should not have freed locked object " + i, obj);
+            }
+            else
+            {
+                assertNull( "Should have freed unlocked object " + obj, obj);
+            }
+        }
+    }
+
+    /**
+     * the stats should report every segment.
+     */
+    public void testStats()
+    {
+        CacheLongTable ct = new CacheLongTable("Testing", MemoryHandler.Cost.MEDIUM, 4);
+        ct.setThreshold( Integer.MAX_VALUE);
+
+        for( int i = 0; i < 100; i++)
+        {
+            ct.put( i, "ROW:" + i);
+        }
+
+        final AtomicInteger entries = new AtomicInteger();
+        final AtomicInteger segments = new AtomicInteger();
+        final AtomicInteger segmentEntries = new AtomicInteger();
+        ct.stats( new SegmentStatsCollector()
+        {
+            @Override
+            public void examine( final InterfaceEntry entry)
+            {
+                entries.incrementAndGet();
+            }
+
+            @Override
+            public void examineSegment( final int segment, final int count, final int capacity, final long locks, final long contended)
+            {
+                segments.incrementAndGet();
+                segmentEntries.addAndGet( count);
+                assertTrue( "locks", locks > 0);
+                assertTrue( "contended", contended >= 0 && contended <= locks);
+            }
+        });
+
+        assertEquals( "entries", 100, entries.get());
+        assertEquals( "segments", 4, segments.get());
+        assertEquals( "segment entries", 100, segmentEntries.get());
+    }
+
+    /**
+     * concurrent readers and writers on different segments.
+     *
+     * @throws Exception a serious problem
+     */
+    public void testConcurrent() throws Exception
+    {
+        final CacheLongTable ct = new CacheLongTable("Testing", MemoryHandler.Cost.MEDIUM, 16);
+        ct.setThreshold( Integer.MAX_VALUE);
+
+        final AtomicReference<String> error = new AtomicReference<>();
+        ArrayList<Thread> threads = new ArrayList<>();
+        for( int t = 0; t < 8; t++)
+        {
+            final long base = t * 100000L;
+            Thread thread = new Thread( "worker " + t)
+            {
+                @Override
+                public void run()
+                {
+                    for( long i = 0; i < 10000; i++)
+                    {
+                        ct.put( base + i, "V" + i);
+                        Object value = ct.get( base + i);
+                        if( value == null)
+                        {
+                            error.set( "missing " + ( base + i));
+                            return;
+                        }
+                    }
+                }
+            };
+            threads.add( thread);
+            thread.start();
+        }
+
+        for( Thread thread: threads)
+        {
+            thread.join();
+        }
+
+        assertNull( error.get(), error.get());
+        assertEquals( "size", 80000, ct.size());
+        assertEquals( "keys", 80000, ct.getKeyArray().length);
+    }
+}
@@ -0,0 +1,224 @@
+/*
+ *  Copyright (c) 2000-2004 ASP Converters pty ltd
+ *
+ *  www.stSoftware.com.au
+ *
+ *  All Rights Reserved.
+ *
+ *  This software is the proprietary information of
+ *  ASP Converters Pty Ltd.
+ *  Use is subject to license terms.
+ */
+package com.aspc.remote.memory.selftest;
+
+import com.aspc.remote.memory.CacheLongTable;
+import com.aspc.remote.memory.EvictionPolicy;
+import com.aspc.remote.memory.MemoryHandler;
+import com.aspc.remote.memory.MemoryManager;
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+import junit.textui.TestRunner;
+
+/**
+ * Check the cache table eviction policies.
+ *
+ * <br>
+ * <i>THREAD MODE: SINGLE-THREADED self test unit</i>
+ *
+ *  @author      Nigel Leck
+ *  @since       18 October 2026
+ */
+public class TestEvictionPolicy extends TestCase
+{
+    /**
+     * Constructor for the test unit.
+     * @param testName The name of the test unit
+     */
+    public TestEvictionPolicy(String testName)
+    {
+        super(testName);
+    }
+
+    /**
+     * The main for the program
+     *
+     * @param args The command line arguments
+     */
+    public static void main(String[] args)
+    {
+        Test test = suite();
+
+        TestRunner.run(test);
+    }
+
+    /**
+     * Creates the test suite.
+     *
+     * @return The test suite
+     */
+    public static Test suite()
+    {
+        TestSuite suite = new TestSuite(TestEvictionPolicy.class);
+        return suite;
+    }
+
+    /**
+     * the least recently used entries are released first.
+     */
+    public void testLRU()
+    {
+        CacheLongTable ct = new CacheLongTable("Testing", MemoryHandler.Cost.MEDIUM);
+        ct.setEvictionPolicy( EvictionPolicy.create( EvictionPolicy.Type.LRU, 1000));
+        ct.setMayReleaseReferences( true);
+        ct.setThreshold( Integer.MAX_VALUE);
+        /* large rows so the element overhead doesn't dominate the number to release */
+        ct.setAverageSize( 10000);
+
+        for( int i = 0; i < 1000; i++)
+        {
+            ct.put( i, "ROW:" + i);
+        }
+
+        /* touch the second half so the first half is the least recently used */
+        for( int i = 500; i < 1000; i++)
+        {
+            assertNotNull( "get " + i, ct.get( i));
+        }
+
+        ct.freeMemory( 0.25);
+
+        assertTrue( "should have released some", ct.size() < 1000);
+        for( int i = 500; i < 1000; i++)
+        {
+            assertTrue( "recently used " + i + " should be kept", ct.containsKey( i));
+        }
+
+        EvictionPolicy policy = ct.getEvictionPolicy();
+        assertEquals( "hits", 500, policy.getHitCount());
+        assertEquals( "evictions", 1000 - ct.size(), policy.getEvictionCount());
+    }
+
+    /**
+     * a hot entry loaded long ago is kept and the entries loaded once are released.
+     */
+    public void testTinyLFU()
+    {
+        CacheLongTable ct = new CacheLongTable("Testing", MemoryHandler.Cost.MEDIUM);
+        ct.setEvictionPolicy( EvictionPolicy.create( EvictionPolicy.Type.TINY_LFU, 1000));
+        ct.setThreshold( Integer.MAX_VALUE);
+        /* large rows so the element overhead doesn't dominate the number to release */
+        ct.setAverageSize( 10000);
+
+        for( int i = 0; i < 10; i++)
+        {
+            ct.put( i, "HOT:" + i);
+        }
+
+        for( int loop = 0; loop < 10; loop++)
+        {
+            for( int i = 0; i < 10; i++)
+            {
+                assertNotNull( "hot " + i, ct.get( i));
+            }
+        }
+
+        /* a scan of rows that are only read once */
+        for( int i = 10; i < 1000; i++)
+        {
+            ct.put( i, "ROW:" + i);
+        }
+
+        ct.freeMemory( 0.5);
+        MemoryManager.gc();
+
+        for( int i = 0; i < 10; i++)
+        {
+            assertNotNull( "hot " + i + " should be kept", ct.get( i));
+        }
+        assertTrue( "should have released some", ct.getHardLinkCount() < 1000);
+
+        assertNull( "miss", ct.get( 123456));
+        assertTrue( "misses", ct.getEvictionPolicy().getMissCount() > 0);
+        assertTrue( "hit ratio", ct.getEvictionPolicy().getHitRatio() > 0);
+    }
+
+    /**
+     * a bounded table only admits a new entry that is requested more often than the victim.
+     */
+    public void testAdmission()
+    {
+        CacheLongTable ct = new CacheLongTable("Testing", MemoryHandler.Cost.MEDIUM, 1);
+        EvictionPolicy policy = EvictionPolicy.create( EvictionPolicy.Type.TINY_LFU, 100);
+        policy.setMaximumSize( 100);
+        ct.setEvictionPolicy( policy);
+        ct.setThreshold( Integer.MAX_VALUE);
+
+        for( int i = 0; i < 100; i++)
+        {
+            ct.put( i, "HOT:" + i);
+        }
+
+        for( int loop = 0; loop < 10; loop++)
+        {
+            for( int i = 0; i < 100; i++)
+            {
+                assertNotNull( "hot " + i, ct.get( i));
+            }
+        }
+
+        /* a scan of rows that are only read once */
+        for( int i = 1000; i < 2000; i++)
+        {
+            assertNull( "scan " + i, ct.get( i));
+            ct.put( i, "ROW:" + i);
+        }
+
+        assertEquals( "bounded", 100, ct.size());
+
+        /* the sketch can over estimate a few of the one-hit rows */
+        int kept = 0;
+        for( int i = 0; i < 100; i++)
+        {
+            if( ct.containsKey( i)) kept++;
+        }
+        assertTrue( "hot rows should be kept " + kept, kept >= 95);
+        assertTrue( "scan should be rejected " + policy, policy.getRejectedCount() >= 950);
+        long evictions = policy.getEvictionCount();
+
+        /* a row that is requested often enough replaces the coldest row of the sample, retry as the sample may only hold rows as hot as it */
+        for( int attempt = 0; attempt < 5 && ct.containsKey( 5000) == false; attempt++)
+        {
+            for( int loop = 0; loop < 20; loop++)
+            {
+                assertNull( "frequent", ct.get( 5000));
+            }
+            ct.put( 5000, "FREQUENT");
+        }
+
+        assertTrue( "admitted", ct.containsKey( 5000));
+        assertEquals( "bounded", 100, ct.size());
+        assertEquals( "evictions", evictions + 1, policy.getEvictionCount());
+    }
+
+    /**
+     * the default policy keeps the original behaviour.
+     */
+    public void testDefault()
+    {
+        CacheLongTable ct = new CacheLongTable("Testing", MemoryHandler.Cost.MEDIUM);
+
+        assertEquals( "default", EvictionPolicy.Type.ACCESS_TIME, ct.getEvictionPolicy().getType());
+        assertFalse( "ranked", ct.getEvictionPolicy().isRanked());
+
+        try
+        {
+            ct.setEvictionPolicy( null);
+            fail( "policy is mandatory");
+        }
+        catch( IllegalArgumentException iae)
+        {
+            // expected
+        }
+    }
+}
@@ -0,0 +1,185 @@
+/*
+ *  Copyright (c) 2000-2004 ASP Converters pty ltd
+ *
+ *  www.stSoftware.com.au
+ *
+ *  All Rights Reserved.
+ *
+ *  This software is the proprietary information of
+ *  ASP Converters Pty Ltd.
+ *  Use is subject to license terms.
+ */
+package com.aspc.remote.memory.selftest;
+
+import com.aspc.remote.memory.HashLongMap;
+import com.aspc.remote.memory.HashLongMapFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReference;
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+import junit.textui.TestRunner;
+
+/**
+ * check the concurrent HashLongMap
+ *
+ * <br>
+ * <i>THREAD MODE: SINGLE-THREADED self test unit</i>
+ *
+ *  @author      Nigel Leck
+ *  @since       18 October 2026
+ */
+public class TestHashLongMapConcurrent extends TestCase
+{
+    /**
+     * Constructor for the test unit.
+     * @param testName The name of the test unit
+     */
+    public TestHashLongMapConcurrent(String testName)
+    {
+        super(testName);
+    }
+
+    /**
+     * The main for the program
+     *
+     * @param args The command line arguments
+     */
+    public static void main(String[] args)
+    {
+       Test test = suite();
+
+       TestRunner.run(test);
+    }
+
+    /**
+     * Creates the test suite.
+     *
+     * @return The test suite
+     */
+    public static Test suite()
+    {
+        TestSuite suite = new TestSuite(TestHashLongMapConcurrent.class);
+        return suite;
+    }
+
+    /**
+     * check the basic map operations.
+     */
+    @SuppressWarnings("unchecked")
+    public void testBasic()
+    {
+        HashLongMap lm = HashLongMapFactory.createConcurrent(10);
+
+        for( long key=1000; key > 0; key--)
+        {
+            assertNull( "new key " + key, lm.put(key, "V" + key));
+        }
+
+        assertEquals( "size", 1000, lm.size());
+        assertEquals( "get", "V500", lm.get(500));
+        assertEquals( "replace", "V500", lm.put(500, "X"));
+        assertEquals( "size after replace", 1000, lm.size());
+        assertEquals( "remove", "X", lm.remove(500));
+        assertFalse( "removed", lm.containsKey(500));
+        assertNull( "remove again", lm.remove(500));
+        assertEquals( "size after remove", 999, lm.size());
+
+        long sorted[]=lm.getSortedKeyArray();
+        assertEquals( "sorted size", 999, sorted.length);
+        assertEquals( "first", 1, sorted[0]);
+        assertEquals( "last", 1000, sorted[sorted.length -1]);
+        assertTrue( "sorted", lm.isKeyArraySorted());
+
+        lm.clear();
+        assertTrue( "empty", lm.isEmpty());
+        assertEquals( "empty keys", 0, lm.getKeyArray().length);
+    }
+
+    /**
+     * the key array should follow the changes.
+     */
+    @SuppressWarnings("unchecked")
+    public void testKeyArrayAfterChange()
+    {
+        HashLongMap lm = HashLongMapFactory.createConcurrent(10);
+
+        long rows[]={1,2,3,5,8,13};
+        lm.putMultiRows(rows, "A", HashLongMap.State.UNIQUE_SORTED);
+
+        assertTrue( "keys", Arrays.equals(rows, lm.getKeyArray()));
+        assertTrue( "sorted", lm.isKeyArraySorted());
+        assertEquals( "value", "A", lm.get(13));
+
+        lm.put(4, "B");
+        long expected[]={1,2,3,4,5,8,13};
+        assertTrue( "keys after put", Arrays.equals(expected, lm.getSortedKeyArray()));
+
+        lm.remove(1);
+        assertEquals( "keys after remove", 6, lm.getKeyArray().length);
+        assertEquals( "key data", 6, lm.getKeyData()[0].length);
+    }
+
+    /**
+     * readers should never block or miss a key while other threads are writing.
+     *
+     * @throws Exception a serious problem
+     */
+    @SuppressWarnings("unchecked")
+    public void testConcurrentReadWrite() throws Exception
+    {
+        final HashLongMap lm = HashLongMapFactory.createConcurrent(10);
+        final int stable=10000;
+        for( long key=0; key < stable; key++)
+        {
+            lm.put(key, key);
+        }
+
+        final AtomicReference<String> error=new AtomicReference<>();
+        ArrayList<Thread> threads=new ArrayList<>();
+        for( int t=0;t < 8;t++)
+        {
+            final int threadNumber=t;
+            Thread thread=new Thread( "worker " + t)
+            {
+                @Override
+                public void run()
+                {
+                    for( int loop=0;loop < 20000;loop++)
+                    {
+                        if( threadNumber % 2 == 0)
+                        {
+                            long key=stable + threadNumber * 100000L + loop;
+                            lm.put(key, key);
+                            if( loop % 3 == 0) lm.remove(key);
+                        }
+                        else
+                        {
+                            long key=loop % stable;
+                            Object value=lm.get(key);
+                            if( value == null || ((Long)value) != key)
+                            {
+                                error.set( "key " + key + " was " + value);
+                                return;
+                            }
+                        }
+                    }
+                }
+            };
+            threads.add(thread);
+            thread.start();
+        }
+
+        for( Thread thread: threads)
+        {
+            thread.join();
+        }
+
+        assertNull( error.get(), error.get());
+
+        int expected=stable + 4 * ( 20000 - 6667);
+        assertEquals( "size", expected, lm.size());
+        assertEquals( "key array", expected, lm.getKeyArray().length);
+    }
+}
@@ -12,6 +12,7 @@
 package com.aspc.remote.memory.selftest;
 
 import com.aspc.remote.memory.LargeLongArray;
+import com.aspc.remote.memory.MappedLongArray;
 import com.aspc.remote.memory.LargeLongArray.SanityArrayCounter;
 import com.aspc.remote.util.misc.*;
 import com.aspc.remote.util.timer.StopWatch;
@@ -1195,5 +1196,155 @@ public class TestLargeLongArray extends TestCase
         }
     }
 
+    /**
+     * Sort larger than the heap budget via the external merge sort.
+     */
+    public void testExternalSort()
+    {
+        LargeLongArray la=LargeLongArray.factory()
+            .setSegmentSize(1000)
+            .setSortHeapBudget(8 * 2000)
+            .build();
+
+        int count=25000;
+        for( int i=count;i>0;i--)
+        {
+            la.append( (i * 7919L) % count + 1);
+        }
+
+        long sortedData[][]=la.sort();
+
+        long expect=1;
+        for( long rows[]: sortedData)
+        {
+            assertTrue( "segment size " + rows.length, rows.length <= 1000);
+            for( long actual:rows)
+            {
+                assertEquals( "expected", expect, actual);
+                expect++;
+            }
+        }
+        assertEquals( "count", count + 1, expect);
+        assertEquals( "source unchanged", count, la.size());
+    }
+
+    /**
+     * Build, sort and read a memory mapped array.
+     *
+     * @throws Exception a serious problem
+     */
+    public void testMapped() throws Exception
+    {
+        long data[]={5,3,9};
+        try( MappedLongArray ma=LargeLongArray.factory(data)
+            .setSegmentSize(1000)
+            .setSortHeapBudget(8 * 3000)
+            .buildMapped())
+        {
+            int count=20000;
+            for( int i=0;i<count;i++)
+            {
+                ma.append( 1000000 - i);
+            }
+
+            assertEquals( "size", count + 3, ma.size());
+            assertEquals( "first", 5, ma.get( 0));
+            assertEquals( "set", 1000000, ma.set( 3, 42));
+            assertFalse( "not sorted", ma.isSorted());
+
+            ma.sort();
+
+            assertTrue( "sorted", ma.isSorted());
+            assertEquals( "smallest", 3, ma.get( 0));
+            assertEquals( "largest", 999999, ma.get( ma.size() - 1));
+
+            long rows[]=new long[5];
+            assertEquals( "read", 5, ma.read( 0, rows, 0, rows.length));
+            assertEquals( "read value", 42, rows[3]);
+        }
+    }
+
+    /**
+     * The parallel sort and bulk operations give the same results as the serial versions.
+     */
+    public void testParallel()
+    {
+        java.util.Random random=new java.util.Random(42);
+        long data[][]=new long[37][];
+        for( int j=0;j<data.length;j++)
+        {
+            long rows[]=new long[5000 + j * 100];
+            for( int k=0;k<rows.length;k++)
+            {
+                rows[k]=random.nextInt(100000) + 1;
+            }
+            data[j]=rows;
+        }
+
+        long serial[][]=LargeLongArray.factory(data).setSegmentSize(4096).build().sort();
+        long parallel[][]=LargeLongArray.factory(data).setSegmentSize(4096).setParallel(true).build().sort();
+
+        LargeLongArray serialSorted=LargeLongArray.factory(serial).build();
+        LargeLongArray parallelSorted=LargeLongArray.factory(parallel).build();
+        assertEquals( "size", serialSorted.size(), parallelSorted.size());
+        for( long pos=0;pos<serialSorted.size();pos++)
+        {
+            assertEquals( "position " + pos, serialSorted.get(pos), parallelSorted.get(pos));
+        }
+        for( long rows[]: parallel)
+        {
+            assertTrue( "segment size " + rows.length, rows.length <= 4096);
+        }
+
+        LargeLongArray sa=LargeLongArray.factory(data).build();
+        LargeLongArray pa=LargeLongArray.factory(data).setParallel(true).build();
+        long value=data[3][7];
+        assertTrue( "contains", pa.contains(value));
+        assertFalse( "not contains", pa.contains(-1));
+        assertEquals( "replace", sa.replace(value, -5), pa.replace(value, -5));
+        assertTrue( "remove", pa.remove(-5));
+        assertTrue( "remove serial", sa.remove(-5));
+        assertFalse( "removed", pa.contains(-5));
+        assertEquals( "size", sa.size(), pa.size());
+        assertTrue( "repack", java.util.Arrays.deepEquals(sa.repack(), pa.repack()));
+        assertEquals( "original unchanged", value, data[3][7]);
+    }
+
+    /**
+     * Compare the serial and parallel sort. The sizes can be set with -DLARGE_LONG_ARRAY_SIZES=1000000,500000000
+     */
+    public void testParallelSortTiming()
+    {
+        String sizes=System.getProperty( "LARGE_LONG_ARRAY_SIZES", "1000000");
+        for( String size: sizes.split(","))
+        {
+            long count=Long.parseLong(size.trim());
+            java.util.Random random=new java.util.Random(count);
+            LargeLongArray.Builder builder=LargeLongArray.factory();
+            LargeLongArray la=builder.build();
+            for( long i=0;i<count;i++)
+            {
+                la.append( random.nextLong());
+            }
+            long data[][]=la.repack();
+
+            StopWatch swSerial=new StopWatch();
+            StopWatch swParallel=new StopWatch();
+            for( int loop=0;loop<3;loop++)
+            {
+                swSerial.start();
+                LargeLongArray.factory(data).build().sort();
+                swSerial.stop();
+
+                swParallel.start();
+                LargeLongArray.factory(data).setParallel(true).build().sort();
+                swParallel.stop();
+            }
+
+            LOGGER.info( swSerial.summary("serial sort of " + count));
+            LOGGER.info( swParallel.summary("parallel sort of " + count));
+        }
+    }
+
     private static final Log LOGGER = CLogger.getLog( "com.aspc.remote.memory.selftest.TestLargeLongArray");//#LOGGER-NOPMD
 }
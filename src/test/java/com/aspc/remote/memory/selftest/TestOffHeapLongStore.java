@@ -0,0 +1,281 @@
+/*
+ *  Copyright (c) 2000-2004 ASP Converters pty ltd
+ *
+ *  www.stSoftware.com.au
+ *
+ *  All Rights Reserved.
+ *
+ *  This software is the proprietary information of
+ *  ASP Converters Pty Ltd.
+ *  Use is subject to license terms.
+ */
+package com.aspc.remote.memory.selftest;
+
+import com.aspc.remote.memory.CacheLongTable;
+import com.aspc.remote.memory.MemoryHandler;
+import com.aspc.remote.memory.OffHeapLongStore;
+import com.aspc.remote.memory.internal.JavaOffHeapSerializer;
+import java.io.File;
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+import junit.textui.TestRunner;
+
+/**
+ * Check the off heap store.
+ *
+ * <br>
+ * <i>THREAD MODE: SINGLE-THREADED self test unit</i>
+ *
+ *  @author      Nigel Leck
+ *  @since       18 October 2026
+ */
+public class TestOffHeapLongStore extends TestCase
+{
+    /**
+     * Constructor for the test unit.
+     * @param testName The name of the test unit
+     */
+    public TestOffHeapLongStore(String testName)
+    {
+        super(testName);
+    }
+
+    /**
+     * The main for the program
+     *
+     * @param args The command line arguments
+     */
+    public static void main(String[] args)
+    {
+        Test test = suite();
+
+        TestRunner.run(test);
+    }
+
+    /**
+     * Creates the test suite.
+     *
+     * @return The test suite
+     */
+    public static Test suite()
+    {
+        TestSuite suite = new TestSuite(TestOffHeapLongStore.class);
+        return suite;
+    }
+
+    /**
+     * store, replace and remove values.
+     *
+     * @throws Exception a serious problem
+     */
+    public void testBasic() throws Exception
+    {
+        OffHeapLongStore<String> store = OffHeapLongStore.factory( "test", new JavaOffHeapSerializer<String>()).build();
+        try
+        {
+            for( int i = 0; i < 1000; i++)
+            {
+                assertTrue( "stored " + i, store.put( i, "ROW:" + i));
+            }
+
+            assertEquals( "size", 1000, store.size());
+            assertEquals( "get", "ROW:123", store.get( 123));
+            assertTrue( "replace", store.put( 123, "X"));
+            assertEquals( "replaced", "X", store.get( 123));
+            assertTrue( "remove", store.remove( 123));
+            assertNull( "removed", store.get( 123));
+            assertFalse( "contains", store.containsKey( 123));
+            assertEquals( "size", 999, store.size());
+            assertTrue( "off heap", store.getOffHeapSize() > 0);
+            assertTrue( "estimated", store.getEstimatedSize() > 0);
+
+            store.panicFreeMemory();
+            assertEquals( "panic", 0, store.size());
+        }
+        finally
+        {
+            store.close();
+        }
+    }
+
+    /**
+     * the oldest block is dropped when the store is full.
+     *
+     * @throws Exception a serious problem
+     */
+    public void testFull() throws Exception
+    {
+        File file = File.createTempFile( "offheap", ".dat");
+        file.deleteOnExit();
+
+        OffHeapLongStore<String> store = OffHeapLongStore.factory( "test", new JavaOffHeapSerializer<String>())
+            .setBlockSize( 4096)
+            .setMaxSize( 4 * 4096)
+            .setMappedFile( file)
+            .build();
+        try
+        {
+            for( int i = 0; i < 10000; i++)
+            {
+                store.put( i, "ROW:" + i);
+            }
+
+            assertEquals( "max size", 4 * 4096, store.getOffHeapSize());
+            assertTrue( "should have dropped the oldest", store.size() < 10000);
+            assertNull( "oldest", store.get( 0));
+            assertEquals( "newest", "ROW:9999", store.get( 9999));
+
+            char big[] = new char[5000];
+            assertFalse( "too big", store.put( 1, new String( big)));
+            assertEquals( "rejected", 1, store.getRejectedCount());
+        }
+        finally
+        {
+            store.close();
+        }
+    }
+
+    /**
+     * released values are reloaded from the off heap store.
+     *
+     * @throws Exception a serious problem
+     */
+    public void testCacheLongTable() throws Exception
+    {
+        OffHeapLongStore<String> store = OffHeapLongStore.factory( "test", new JavaOffHeapSerializer<String>()).build();
+        try
+        {
+            CacheLongTable<String> ct = new CacheLongTable<>( "Testing", MemoryHandler.Cost.MEDIUM);
+            ct.setOffHeapStore( store);
+            ct.setMayReleaseReferences( true);
+
+            for( int i = 0; i < 1000; i++)
+            {
+                ct.put( i, "ROW:" + i);
+            }
+
+            ct.freeMemory( 1);
+            assertEquals( "still in the store", 1000, ct.size());
+            assertEquals( "keys", 1000, ct.getKeyArray().length);
+            assertTrue( "index counted", ct.getEstimatedSize() >= store.getEstimatedSize());
+
+            assertTrue( "contains", ct.containsKey( 10));
+            assertEquals( "reloaded", "ROW:10", ct.get( 10));
+            assertEquals( "size", 1000, ct.size());
+
+            ct.remove( 20);
+            assertNull( "removed", ct.get( 20));
+            assertFalse( "removed", ct.containsKey( 20));
+            assertEquals( "size", 999, ct.size());
+            assertEquals( "keys", 999, ct.getKeyArray().length);
+
+            ct.clear();
+            assertNull( "cleared", ct.get( 30));
+            assertEquals( "store cleared", 0, store.size());
+        }
+        finally
+        {
+            store.close();
+        }
+    }
+
+    /**
+     * the size is kept without listing the keys, check it against the keys as values move between
+     * the heap and the store and the store drops its oldest values.
+     *
+     * @throws Exception a serious problem
+     */
+    public void testSize() throws Exception
+    {
+        OffHeapLongStore<String> store = OffHeapLongStore.factory( "test", new JavaOffHeapSerializer<String>())
+            .setBlockSize( 4096)
+            .setMaxSize( 8 * 4096)
+            .build();
+        try
+        {
+            CacheLongTable<String> ct = new CacheLongTable<>( "Testing", MemoryHandler.Cost.MEDIUM);
+            ct.setMayReleaseReferences( true);
+
+            for( int i = 0; i < 200; i++)
+            {
+                ct.put( i, "ROW:" + i);
+            }
+
+            ct.setOffHeapStore( store);
+            assertEquals( "attached", ct.getKeyArray().length, ct.size());
+
+            for( int i = 200; i < 400; i++)
+            {
+                ct.put( i, "ROW:" + i);
+            }
+            assertEquals( "put", ct.getKeyArray().length, ct.size());
+
+            ct.freeMemory( 0.5);
+            assertEquals( "released", ct.getKeyArray().length, ct.size());
+
+            for( int i = 250; i < 300; i++)
+            {
+                ct.get( i);
+            }
+            assertEquals( "reloaded", ct.getKeyArray().length, ct.size());
+
+            for( int i = 0; i < 400; i += 3)
+            {
+                ct.remove( i);
+            }
+            assertEquals( "removed", ct.getKeyArray().length, ct.size());
+
+            for( int i = 400; i < 3000; i++)
+            {
+                ct.put( i, "ROW:" + i);
+            }
+            assertTrue( "should have dropped the oldest", store.size() < 3000);
+            assertEquals( "dropped", ct.getKeyArray().length, ct.size());
+
+            ct.panicFreeMemory();
+            assertEquals( "panic", ct.getKeyArray().length, ct.size());
+
+            ct.setOffHeapStore( null);
+            assertEquals( "detached", ct.getKeyArray().length, ct.size());
+            assertEquals( "store", store.size(), store.getKeyArray().length);
+        }
+        finally
+        {
+            store.close();
+        }
+    }
+
+    /**
+     * values that can't be serialized are only held on the heap.
+     *
+     * @throws Exception a serious problem
+     */
+    public void testNotSerializable() throws Exception
+    {
+        OffHeapLongStore<Object> store = OffHeapLongStore.factory( "test", new JavaOffHeapSerializer<Object>()).build();
+        try
+        {
+            CacheLongTable<Object> ct = new CacheLongTable<>( "Testing", MemoryHandler.Cost.MEDIUM);
+            ct.setOffHeapStore( store);
+
+            ct.put( 1, "ROW:1");
+            Object plain = new Object();
+            ct.put( 2, plain);
+
+            assertTrue( "stored", store.containsKey( 1));
+            assertFalse( "not serializable", store.containsKey( 2));
+            assertEquals( "rejected", 1, store.getRejectedCount());
+            assertSame( "heap", plain, ct.get( 2));
+            assertEquals( "size", 2, ct.size());
+
+            ct.put( 1, new Object());
+            assertFalse( "old copy dropped", store.containsKey( 1));
+            assertEquals( "size", 2, ct.size());
+        }
+        finally
+        {
+            store.close();
+        }
+    }
+}
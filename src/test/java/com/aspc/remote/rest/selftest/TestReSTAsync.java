@@ -0,0 +1,211 @@
+/**
+ *  STS Remote library
+ *
+ *  Copyright (C) 2006  stSoftware Pty Ltd
+ *
+ *  stSoftware.com.au
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ *  Bug fixes, suggestions and comments should be sent to:
+ *
+ *  info AT stsoftware.com.au
+ *
+ *  or by snail mail to:
+ *
+ *  stSoftware
+ *  building C, level 1,
+ *  14 Rodborough Rd
+ *  Frenchs Forest 2086
+ *  Australia.
+ */
+package com.aspc.remote.rest.selftest;
+
+import com.aspc.remote.rest.ReST;
+import com.aspc.remote.rest.Response;
+import com.aspc.remote.rest.ResponseCallback;
+import com.aspc.remote.rest.Status;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+import junit.textui.TestRunner;
+
+/**
+ * Check the asynchronous ReST calls against a local server.
+ *
+ * <br>
+ * <i>THREAD MODE: MULTI-THREADED self test unit</i>
+ *
+ *  @author      Nigel Leck
+ *  @since       18 October 2026
+ */
+public class TestReSTAsync extends TestCase
+{
+    private HttpServer server;
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicInteger maxActive = new AtomicInteger();
+    private final AtomicInteger requests = new AtomicInteger();
+
+    /**
+     * Constructor for the test unit.
+     * @param testName The name of the test unit
+     */
+    public TestReSTAsync(String testName)
+    {
+        super(testName);
+    }
+
+    /**
+     * The main for the program
+     *
+     * @param args The command line arguments
+     */
+    public static void main(String[] args)
+    {
+        Test test = suite();
+
+        TestRunner.run(test);
+    }
+
+    /**
+     * Creates the test suite.
+     *
+     * @return The test suite
+     */
+    public static Test suite()
+    {
+        TestSuite suite = new TestSuite(TestReSTAsync.class);
+        return suite;
+    }
+
+    @Override
+    protected void setUp() throws Exception
+    {
+        super.setUp();
+        server = HttpServer.create( new InetSocketAddress( "127.0.0.1", 0), 0);
+        server.createContext( "/", new HttpHandler()
+        {
+            @Override
+            public void handle( final HttpExchange exchange) throws IOException
+            {
+                requests.incrementAndGet();
+                int now = active.incrementAndGet();
+                while( true)
+                {
+                    int max = maxActive.get();
+                    if( now <= max || maxActive.compareAndSet( max, now)) break;
+                }
+                try
+                {
+                    Thread.sleep( 50);
+                    byte data[] = ( "hello " + exchange.getRequestURI().getQuery()).getBytes( StandardCharsets.UTF_8);
+                    exchange.getResponseHeaders().add( "Content-Type", "text/plain");
+                    exchange.sendResponseHeaders( 200, data.length);
+                    try( OutputStream out = exchange.getResponseBody())
+                    {
+                        out.write( data);
+                    }
+                }
+                catch( InterruptedException ie)
+                {
+                    Thread.currentThread().interrupt();
+                }
+                finally
+                {
+                    active.decrementAndGet();
+                }
+            }
+        });
+        server.setExecutor( java.util.concurrent.Executors.newCachedThreadPool());
+        server.start();
+    }
+
+    @Override
+    protected void tearDown() throws Exception
+    {
+        server.stop( 0);
+        super.tearDown();
+    }
+
+    /**
+     * the calls to one host are limited.
+     * @throws Exception a test failure.
+     */
+    public void testHostLimit() throws Exception
+    {
+        String host = "127.0.0.1:" + server.getAddress().getPort();
+        ReST.setMaxConcurrentCalls( host, 3);
+
+        long run = System.nanoTime();
+        List<Future<Response>> futures = new ArrayList<>();
+        for( int i = 0; i < 30; i++)
+        {
+            futures.add( ReST.builder( "http://" + host + "/limit?run=" + run + "&call=" + i).getResponseAsync());
+        }
+
+        for( int i = 0; i < futures.size(); i++)
+        {
+            Response r = futures.get( i).get( 60, TimeUnit.SECONDS);
+            assertEquals( Status.C200_SUCCESS_OK, r.status);
+            assertTrue( r.getContentAsString(), r.getContentAsString().endsWith( "call=" + i));
+        }
+
+        assertTrue( "max active " + maxActive.get(), maxActive.get() <= 3);
+        assertEquals( 30, requests.get());
+    }
+
+    /**
+     * the callback receives the response and the same URL is only fetched once.
+     * @throws Exception a test failure.
+     */
+    public void testCallback() throws Exception
+    {
+        String url = "http://127.0.0.1:" + server.getAddress().getPort() + "/callback?run=" + System.nanoTime();
+        final CountDownLatch latch = new CountDownLatch( 5);
+        final AtomicInteger ok = new AtomicInteger();
+        for( int i = 0; i < 5; i++)
+        {
+            ReST.builder( url).setMinCachePeriod( "1 minute").getResponseAsync( new ResponseCallback()
+            {
+                @Override
+                public void completed( final Response response)
+                {
+                    if( response.status == Status.C200_SUCCESS_OK)
+                    {
+                        ok.incrementAndGet();
+                    }
+                    latch.countDown();
+                }
+            });
+        }
+
+        assertTrue( "callbacks", latch.await( 60, TimeUnit.SECONDS));
+        assertEquals( 5, ok.get());
+        assertEquals( "fetched once", 1, requests.get());
+    }
+}
@@ -0,0 +1,184 @@
+/**
+ *  STS Remote library
+ *
+ *  Copyright (C) 2006  stSoftware Pty Ltd
+ *
+ *  stSoftware.com.au
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ *  Bug fixes, suggestions and comments should be sent to:
+ *
+ *  info AT stsoftware.com.au
+ *
+ *  or by snail mail to:
+ *
+ *  stSoftware
+ *  building C, level 1,
+ *  14 Rodborough Rd
+ *  Frenchs Forest 2086
+ *  Australia.
+ */
+package com.aspc.remote.rest.selftest;
+
+import com.aspc.remote.rest.ReST;
+import com.aspc.remote.rest.Response;
+import com.aspc.remote.rest.Status;
+import com.aspc.remote.rest.internal.ReSTMemoryCache;
+import com.aspc.remote.rest.internal.Trace;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+import junit.textui.TestRunner;
+
+/**
+ * Check the in-memory tier of the ReST cache.
+ *
+ * <br>
+ * <i>THREAD MODE: SINGLE-THREADED self test unit</i>
+ *
+ *  @author      Nigel Leck
+ *  @since       18 October 2026
+ */
+public class TestReSTMemoryCache extends TestCase
+{
+    private HttpServer server;
+    private final AtomicInteger requests = new AtomicInteger();
+
+    /**
+     * Constructor for the test unit.
+     * @param testName The name of the test unit
+     */
+    public TestReSTMemoryCache(String testName)
+    {
+        super(testName);
+    }
+
+    /**
+     * The main for the program
+     *
+     * @param args The command line arguments
+     */
+    public static void main(String[] args)
+    {
+        Test test = suite();
+
+        TestRunner.run(test);
+    }
+
+    /**
+     * Creates the test suite.
+     *
+     * @return The test suite
+     */
+    public static Test suite()
+    {
+        TestSuite suite = new TestSuite(TestReSTMemoryCache.class);
+        return suite;
+    }
+
+    @Override
+    protected void setUp() throws Exception
+    {
+        super.setUp();
+        server = HttpServer.create( new InetSocketAddress( "127.0.0.1", 0), 0);
+        server.createContext( "/", new HttpHandler()
+        {
+            @Override
+            public void handle( final HttpExchange exchange) throws IOException
+            {
+                requests.incrementAndGet();
+                byte data[] = ( "hello " + exchange.getRequestURI().getQuery()).getBytes( StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().add( "Content-Type", "text/plain");
+                exchange.sendResponseHeaders( 200, data.length);
+                try( OutputStream out = exchange.getResponseBody())
+                {
+                    out.write( data);
+                }
+            }
+        });
+        server.start();
+    }
+
+    @Override
+    protected void tearDown() throws Exception
+    {
+        server.stop( 0);
+        super.tearDown();
+    }
+
+    /**
+     * the second cached read is served from memory.
+     * @throws Exception a test failure.
+     */
+    public void testHit() throws Exception
+    {
+        if( ReSTMemoryCache.isEnabled() == false) return;
+
+        String url = "http://127.0.0.1:" + server.getAddress().getPort() + "/hit?run=" + System.nanoTime();
+
+        Response first = ReST.builder( url).setMinCachePeriod( "1 minute").getResponse();
+        assertEquals( Status.C200_SUCCESS_OK, first.status);
+        String expected = first.getContentAsString();
+
+        Response second = ReST.builder( url).setMinCachePeriod( "1 minute").getResponse();
+        assertEquals( Trace.CACHED, second.trace);
+
+        long hits = ReSTMemoryCache.getHitCount();
+        Response third = ReST.builder( url).setMinCachePeriod( "1 minute").getResponse();
+        assertEquals( Trace.CACHED, third.trace);
+        assertEquals( "should be served from memory", hits + 1, ReSTMemoryCache.getHitCount());
+        assertEquals( expected, third.getContentAsString());
+        assertTrue( Arrays.equals( expected.getBytes( StandardCharsets.UTF_8), third.getContentAsByteArray()));
+        assertEquals( second.lastModified, third.lastModified);
+        assertEquals( 1, requests.get());
+    }
+
+    /**
+     * released entries are read from disk again.
+     * @throws Exception a test failure.
+     */
+    public void testClear() throws Exception
+    {
+        if( ReSTMemoryCache.isEnabled() == false) return;
+
+        String url = "http://127.0.0.1:" + server.getAddress().getPort() + "/clear?run=" + System.nanoTime();
+
+        ReST.builder( url).setMinCachePeriod( "1 minute").getResponse();
+        ReST.builder( url).setMinCachePeriod( "1 minute").getResponse();
+        assertTrue( ReSTMemoryCache.getEntryCount() > 0);
+
+        long evictions = ReSTMemoryCache.getEvictionCount();
+        ReSTMemoryCache.clear();
+        assertEquals( 0, ReSTMemoryCache.getEntryCount());
+        assertTrue( ReSTMemoryCache.getEvictionCount() > evictions);
+
+        long misses = ReSTMemoryCache.getMissCount();
+        Response r = ReST.builder( url).setMinCachePeriod( "1 minute").getResponse();
+        assertEquals( Trace.CACHED, r.trace);
+        assertEquals( misses + 1, ReSTMemoryCache.getMissCount());
+        assertEquals( 1, ReSTMemoryCache.getEntryCount());
+        assertEquals( 1, requests.get());
+    }
+}
@@ -0,0 +1,243 @@
+/**
+ *  STS Remote library
+ *
+ *  Copyright (C) 2006  stSoftware Pty Ltd
+ *
+ *  stSoftware.com.au
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ *  Bug fixes, suggestions and comments should be sent to:
+ *
+ *  info AT stsoftware.com.au
+ *
+ *  or by snail mail to:
+ *
+ *  stSoftware
+ *  building C, level 1,
+ *  14 Rodborough Rd
+ *  Frenchs Forest 2086
+ *  Australia.
+ */
+package com.aspc.remote.soap.selftest;
+
+import com.aspc.remote.soap.Client;
+import com.aspc.remote.soap.internal.SoapTransport;
+import com.aspc.remote.soap.internal.TransportBalancer;
+import com.aspc.remote.util.misc.DocumentUtil;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+import junit.textui.TestRunner;
+import org.w3c.dom.Document;
+
+/**
+ * Check the concurrent calls of the SOAP client.
+ *
+ * <br>
+ * <i>THREAD MODE: MULTI-THREADED self test unit</i>
+ *
+ *  @author      Nigel Leck
+ *  @since       18 October 2026
+ */
+public class TestConcurrentClient extends TestCase
+{
+    /**
+     * Constructor for the test unit.
+     * @param testName The name of the test unit
+     */
+    public TestConcurrentClient(String testName)
+    {
+        super(testName);
+    }
+
+    /**
+     * The main for the program
+     *
+     * @param args The command line arguments
+     */
+    public static void main(String[] args)
+    {
+        Test test = suite();
+
+        TestRunner.run(test);
+    }
+
+    /**
+     * Creates the test suite.
+     *
+     * @return The test suite
+     */
+    public static Test suite()
+    {
+        TestSuite suite = new TestSuite(TestConcurrentClient.class);
+        return suite;
+    }
+
+    /**
+     * stateless calls run in parallel up to the limit.
+     * @throws Exception a test failure.
+     */
+    public void testConcurrent() throws Exception
+    {
+        StubTransport transport = new StubTransport( "http://stub1", 100);
+        final Client client = new Client( transport);
+        client.setMaxConcurrentRequests( 4);
+
+        ExecutorService pool = Executors.newFixedThreadPool( 8);
+        try
+        {
+            List<Future<String>> futures = new ArrayList<>();
+            for( int i = 0; i < 8; i++)
+            {
+                final int call = i;
+                futures.add( pool.submit( new Callable<String>()
+                {
+                    @Override
+                    public String call() throws Exception
+                    {
+                        return client.execute( "SELECT " + call).getDocumentElement().getNodeName();
+                    }
+                }));
+            }
+
+            for( Future<String> f: futures)
+            {
+                assertEquals( "ok", f.get( 30, TimeUnit.SECONDS));
+            }
+        }
+        finally
+        {
+            pool.shutdown();
+        }
+
+        assertEquals( 8, transport.calls.get());
+        assertEquals( "max in flight " + transport.maxActive.get(), 4, transport.maxActive.get());
+        assertEquals( 0, transport.getInFlight());
+    }
+
+    /**
+     * without a limit the calls wait for each other.
+     * @throws Exception a test failure.
+     */
+    public void testSerial() throws Exception
+    {
+        StubTransport transport = new StubTransport( "http://stub1", 20);
+        final Client client = new Client( transport);
+        assertEquals( 1, client.getMaxConcurrentRequests());
+
+        ExecutorService pool = Executors.newFixedThreadPool( 4);
+        try
+        {
+            List<Future<Document>> futures = new ArrayList<>();
+            for( int i = 0; i < 4; i++)
+            {
+                futures.add( pool.submit( new Callable<Document>()
+                {
+                    @Override
+                    public Document call() throws Exception
+                    {
+                        return client.execute( "SELECT 1");
+                    }
+                }));
+            }
+            for( Future<Document> f: futures)
+            {
+                f.get( 30, TimeUnit.SECONDS);
+            }
+        }
+        finally
+        {
+            pool.shutdown();
+        }
+
+        assertEquals( 1, transport.maxActive.get());
+    }
+
+    /**
+     * the slow server receives less traffic.
+     * @throws Exception a test failure.
+     */
+    public void testLatencyAware() throws Exception
+    {
+        StubTransport fast = new StubTransport( "http://fast", 1);
+        StubTransport slow = new StubTransport( "http://slow", 40);
+        Client client = new Client( fast);
+        client.addTransport( slow);
+        client.setMaxConcurrentRequests( 2);
+
+        /* warm up the XML parsers so the first call isn't slow */
+        new Client( new StubTransport( "http://warm", 0)).execute( "SELECT 0");
+
+        for( int i = 0; i < 60; i++)
+        {
+            client.execute( "SELECT " + i);
+        }
+
+        assertTrue( "fast " + fast.calls.get() + " slow " + slow.calls.get(), fast.calls.get() > slow.calls.get() * 2);
+        assertTrue( slow.getAverageLatency() > fast.getAverageLatency());
+
+        List<SoapTransport> list = new ArrayList<>();
+        list.add( fast);
+        list.add( slow);
+        assertSame( slow, TransportBalancer.choose( list, fast));
+    }
+
+    /**
+     * a SOAP transport that answers after a delay.
+     */
+    private static final class StubTransport extends SoapTransport
+    {
+        final AtomicInteger calls = new AtomicInteger();
+        final AtomicInteger active = new AtomicInteger();
+        final AtomicInteger maxActive = new AtomicInteger();
+        private final long delay;
+
+        StubTransport( final String url, final long delay)
+        {
+            super( url);
+            this.delay = delay;
+        }
+
+        @Override
+        public Document sendEnvelope( final Document envelope, final String relativePath) throws Exception
+        {
+            calls.incrementAndGet();
+            int now = active.incrementAndGet();
+            while( true)
+            {
+                int max = maxActive.get();
+                if( now <= max || maxActive.compareAndSet( max, now)) break;
+            }
+            try
+            {
+                Thread.sleep( delay);
+                return DocumentUtil.makeDocument( "<Envelope><Body><result>&lt;ok/&gt;</result></Body></Envelope>");
+            }
+            finally
+            {
+                active.decrementAndGet();
+            }
+        }
+    }
+}
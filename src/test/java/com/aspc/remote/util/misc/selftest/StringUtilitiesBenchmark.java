@@ -0,0 +1,195 @@
+/**
+ *  STS Remote library
+ *
+ *  Copyright (C) 2006  stSoftware Pty Ltd
+ *
+ *  stSoftware.com.au
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ *  Bug fixes, suggestions and comments should be sent to:
+ *
+ *  info AT stsoftware.com.au
+ *
+ *  or by snail mail to:
+ *
+ *  stSoftware
+ *  building C, level 1,
+ *  14 Rodborough Rd
+ *  Frenchs Forest 2086
+ *  Australia.
+ */
+package com.aspc.remote.util.misc.selftest;
+
+import com.aspc.remote.application.AppCmdLine;
+import com.aspc.remote.util.misc.CLogger;
+import com.aspc.remote.util.misc.LikePattern;
+import com.aspc.remote.util.misc.MatchPattern;
+import com.aspc.remote.util.misc.QueueLog;
+import com.aspc.remote.util.misc.StringUtilities;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.Options;
+import org.apache.commons.logging.Log;
+
+/**
+ * Benchmark the StringUtilities encoders, decoders, split and pattern matching against the
+ * buffer and compiled pattern variants.
+ *
+ * Each case is warmed up then timed, the time and the bytes allocated by the thread per operation are reported.
+ *  <br>
+ *  <i>THREAD MODE: SINGLE-THREADED application</i>
+ *
+ * @author Nigel Leck
+ * @since 18 October 2026
+ */
+public class StringUtilitiesBenchmark extends AppCmdLine
+{
+    private static final Log LOGGER = CLogger.getLog( "com.aspc.remote.util.misc.selftest.StringUtilitiesBenchmark");//#LOGGER-NOPMD
+
+    private static final String TEXT="A penny saved is a penny earned & the café costs €10 <today> #1 (see notes)";
+    private static final String ENCODED=StringUtilities.encode( TEXT);
+    private static final String CSV="'abc', 'd\\'ef', ghi, jkl ,'mno, pqr', stu, vwx, yz";
+    private static final String LIKE="*penny*saved*earned*";
+    private static final String MATCH="penny \"saved is a\" -dollar earn*";
+
+    private int iterations=200000;
+    private long sink;
+
+    /**
+     * add extra command line options
+     * @param options the options
+     */
+    @Override
+    protected void addExtraOptions( final Options options)
+    {
+        super.addExtraOptions( options);
+        options.addOption( "n", true, "The number of iterations" );
+    }
+
+    /**
+     * handle the command line
+     * @param line the command line
+     * @throws Exception a serious problem
+     */
+    @Override
+    public void handleCommandLine(final CommandLine line) throws Exception
+    {
+        super.handleCommandLine(line);
+        String tmp=line.getOptionValue('n');
+        if( StringUtilities.isBlank(tmp) == false)
+        {
+            iterations = Integer.parseInt( tmp.trim());
+        }
+    }
+
+    /**
+     * run the benchmark
+     */
+    @Override
+    public void process()
+    {
+        final StringBuilder sb=new StringBuilder( 256);
+        final ByteBuffer bb=ByteBuffer.allocate( 256);
+        final ArrayList<String> list=new ArrayList<>();
+        final LikePattern likePattern=LikePattern.compile( LIKE);
+        final MatchPattern matchPattern=MatchPattern.compile( MATCH);
+
+        Case cases[]={
+            new Case( "encode") { @Override int run() { return StringUtilities.encode( TEXT).length(); } },
+            new Case( "encode(sb)") { @Override int run() { sb.setLength(0); return StringUtilities.encode( TEXT, sb).length(); } },
+            new Case( "decode") { @Override int run() { return StringUtilities.decode( ENCODED).length(); } },
+            new Case( "decode(sb)") { @Override int run() { sb.setLength(0); return StringUtilities.decode( ENCODED, sb).length(); } },
+            new Case( "decodeToBytes") { @Override int run() { return StringUtilities.decodeToBytes( ENCODED).length; } },
+            new Case( "decodeToBytes(bb)") { @Override int run() { bb.clear(); return StringUtilities.decodeToBytes( ENCODED, bb); } },
+            new Case( "encodeHTML") { @Override int run() { return StringUtilities.encodeHTML( TEXT).length(); } },
+            new Case( "encodeHTML(sb)") { @Override int run() { sb.setLength(0); return StringUtilities.encodeHTML( TEXT, sb).length(); } },
+            new Case( "encodeSQL") { @Override int run() { return StringUtilities.encodeSQL( TEXT).length(); } },
+            new Case( "encodeSQL(sb)") { @Override int run() { sb.setLength(0); return StringUtilities.encodeSQL( TEXT, sb).length(); } },
+            new Case( "split") { @Override int run() { return StringUtilities.split( CSV, ',', '\'').length; } },
+            new Case( "split(list)") { @Override int run() { list.clear(); return StringUtilities.split( CSV, ',', '\'', list); } },
+            new Case( "isLike") { @Override int run() { return StringUtilities.isLike( LIKE, TEXT) ? 1 : 0; } },
+            new Case( "LikePattern") { @Override int run() { return likePattern.matches( TEXT) ? 1 : 0; } },
+            new Case( "matches") { @Override int run() { return StringUtilities.matches( MATCH, TEXT) ? 1 : 0; } },
+            new Case( "MatchPattern") { @Override int run() { return matchPattern.matches( TEXT) ? 1 : 0; } },
+        };
+
+        StringBuilder report=new StringBuilder( "StringUtilities benchmark " + iterations + " iterations\n");
+        for( Case c: cases)
+        {
+            measure( c, iterations);
+
+            long start=System.nanoTime();
+            long allocated=allocatedBytes();
+            measure( c, iterations);
+            long nanos=System.nanoTime() - start;
+            long bytes=allocatedBytes() - allocated;
+
+            report.append( String.format( "%-20s %10.1f ns/op %10.1f bytes/op\n", c.name, (double)nanos / iterations, (double)bytes / iterations));
+        }
+
+        LOGGER.info( report + "checksum " + sink);
+    }
+
+    private void measure( final Case c, final int count)
+    {
+        long total=0;
+        for( int i=0;i<count;i++)
+        {
+            total+=c.run();
+        }
+        sink+=total;
+    }
+
+    private static long allocatedBytes()
+    {
+        ThreadMXBean bean=ManagementFactory.getThreadMXBean();
+        if( bean instanceof com.sun.management.ThreadMXBean)
+        {
+            return ((com.sun.management.ThreadMXBean)bean).getThreadAllocatedBytes( Thread.currentThread().getId());
+        }
+
+        return 0;
+    }
+
+    /**
+     * one benchmark case
+     */
+    private abstract static class Case
+    {
+        final String name;
+
+        Case( final String name)
+        {
+            this.name=name;
+        }
+
+        abstract int run();
+    }
+
+    /**
+     * The main for the program
+     *
+     * @param args The command line arguments
+     */
+    public static void main( final String[] args)
+    {
+        new StringUtilitiesBenchmark().execute( args);
+        QueueLog.flush( 1000);
+    }
+}
@@ -39,10 +39,13 @@ import junit.framework.TestSuite;
 import junit.textui.TestRunner;
 
 import com.aspc.remote.util.misc.*;
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.UnsupportedEncodingException;
 import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 import javax.xml.transform.Transformer;
 import javax.xml.transform.TransformerException;
 import javax.xml.transform.dom.DOMSource;
@@ -50,6 +53,7 @@ import javax.xml.transform.stream.StreamResult;
 
 import org.apache.commons.logging.Log;
 import org.w3c.dom.Document;
+import org.w3c.dom.Element;
 
 /**
  *  Check DocumentUtil
@@ -101,6 +105,38 @@ public class TestDocumentUtil extends TestCase
         DocumentUtil.docToString(doc);
     }
     
+    /**
+     * write a document to a compressed stream and parse it back as it is read.
+     * @throws Exception a serious problem
+     */
+    public void testStreamRoundTrip() throws Exception
+    {
+        Document doc = DocumentUtil.newDocument();
+        Element root = doc.createElement( "Envelope");
+        doc.appendChild( root);
+        for( int i = 0; i < 1000; i++)
+        {
+            Element row = doc.createElement( "row");
+            row.setAttribute( "id", Integer.toString( i));
+            row.setTextContent( "caf\u00e9 & <" + i + ">");
+            root.appendChild( row);
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try( GZIPOutputStream gzip = new GZIPOutputStream( out))
+        {
+            DocumentUtil.writeNode( doc, gzip, 0);
+        }
+
+        Document parsed = DocumentUtil.makeDocument(
+            new GZIPInputStream( new ByteArrayInputStream( out.toByteArray())),
+            DocumentUtil.PARSER.TOLERANT
+        );
+
+        assertEquals( DocumentUtil.docToString( doc), DocumentUtil.docToString( parsed));
+        assertEquals( "caf\u00e9 & <999>", parsed.getElementsByTagName( "row").item( 999).getTextContent());
+    }
+
     /**
      * check tolerance
      * @throws Exception a serious problem
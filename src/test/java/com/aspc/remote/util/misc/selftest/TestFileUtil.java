@@ -36,6 +36,13 @@ package com.aspc.remote.util.misc.selftest;
 import com.aspc.remote.util.misc.CLogger;
 import com.aspc.remote.util.misc.FileUtil;
 
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Random;
 import junit.framework.Test;
 import junit.framework.TestCase;
 import junit.framework.TestSuite;
@@ -172,6 +179,106 @@ public class TestFileUtil extends TestCase
         assertEquals( "default doc cache dir", tmpDir + "/st/docs/", calculatedDocCache);
     }
 
+    /**
+     * copy a file larger than the IO buffer.
+     * @throws Exception a test failure
+     */
+    public void testCopy() throws Exception
+    {
+        byte data[]=new byte[200 * 1024 + 7];
+        new Random( 1).nextBytes( data);
+        File src=File.createTempFile( "copy", ".src");
+        File target=new File( src.getPath() + ".target");
+        try
+        {
+            Files.write( src.toPath(), data);
+            FileUtil.copy( src, target);
+
+            assertTrue( "content matches", Arrays.equals( data, FileUtil.readFileAsBytes( target)));
+        }
+        finally
+        {
+            src.delete();
+            target.delete();
+        }
+    }
+
+    /**
+     * the single pass digests match the individual digests.
+     * @throws Exception a test failure
+     */
+    public void testDigests() throws Exception
+    {
+        byte data[]=new byte[150 * 1024];
+        new Random( 2).nextBytes( data);
+        File file=File.createTempFile( "digest", ".bin");
+        try
+        {
+            Files.write( file.toPath(), data);
+            byte digests[][]=FileUtil.generateDigests( file, "MD5", "SHA1", "SHA-512");
+
+            assertTrue( "MD5", Arrays.equals( MessageDigest.getInstance( "MD5").digest( data), digests[0]));
+            assertTrue( "SHA1", Arrays.equals( MessageDigest.getInstance( "SHA1").digest( data), digests[1]));
+            assertTrue( "SHA-512", Arrays.equals( MessageDigest.getInstance( "SHA-512").digest( data), digests[2]));
+            assertTrue( "generateSHA1", Arrays.equals( digests[1], FileUtil.generateSHA1( file)));
+        }
+        finally
+        {
+            file.delete();
+        }
+    }
+
+    /**
+     * read a file with a known character set.
+     * @throws Exception a test failure
+     */
+    public void testReadFileCharset() throws Exception
+    {
+        String text="caf\u00e9 \u00fcber \u4e2d\u6587";
+        File file=File.createTempFile( "read", ".txt");
+        try
+        {
+            Files.write( file.toPath(), text.getBytes( StandardCharsets.UTF_8));
+
+            assertEquals( "UTF-8", text, FileUtil.readFile( file, StandardCharsets.UTF_8));
+            assertEquals( "ISO-8859-1", new String( text.getBytes( StandardCharsets.UTF_8), StandardCharsets.ISO_8859_1), FileUtil.readFile( file, StandardCharsets.ISO_8859_1));
+        }
+        finally
+        {
+            file.delete();
+        }
+    }
+
+    /**
+     * a missing file is still reported as a FileNotFoundException.
+     * @throws Exception a test failure
+     */
+    public void testReadMissingFile() throws Exception
+    {
+        File file=File.createTempFile( "missing", ".txt");
+        file.delete();
+
+        try
+        {
+            FileUtil.readFile( file, StandardCharsets.UTF_8);
+            fail( "should not read a missing file");
+        }
+        catch( FileNotFoundException fnfe)
+        {
+            // expected
+        }
+
+        try
+        {
+            FileUtil.readFileAsBytes( file);
+            fail( "should not read a missing file");
+        }
+        catch( FileNotFoundException fnfe)
+        {
+            // expected
+        }
+    }
+
     @Override
     /**
      * Close any resources used by the test case. <B>DO NOT RELY ON THE TEAR DOWN RUNNING</B> when debugging we can
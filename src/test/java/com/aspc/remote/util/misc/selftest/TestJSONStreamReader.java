@@ -0,0 +1,301 @@
+/**
+ *  STS Remote library
+ *
+ *  Copyright (C) 2006  stSoftware Pty Ltd
+ *
+ *  stSoftware.com.au
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ *  Bug fixes, suggestions and comments should be sent to:
+ *
+ *  info AT stsoftware.com.au
+ *
+ *  or by snail mail to:
+ *
+ *  stSoftware
+ *  building C, level 1,
+ *  14 Rodborough Rd
+ *  Frenchs Forest 2086
+ *  Australia.
+ */
+package com.aspc.remote.util.misc.selftest;
+
+import com.aspc.remote.util.misc.CLogger;
+import com.aspc.remote.util.misc.JSONStreamReader;
+import com.aspc.remote.util.misc.QueueLog;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Iterator;
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+import junit.textui.TestRunner;
+import org.apache.commons.logging.Log;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.json.JSONWriter;
+
+/**
+ *  check the streaming JSON reader and writer.
+ *
+ * <br>
+ * <i>THREAD MODE: SINGLE-THREADED self test unit</i>
+ *
+ *  @author         Nigel Leck
+ *  @since          18 October 2026
+ */
+public class TestJSONStreamReader extends TestCase
+{
+    private static final Log LOGGER = CLogger.getLog( "com.aspc.remote.util.misc.selftest.TestJSONStreamReader");//#LOGGER-NOPMD
+
+    /**
+     * Creates a new unit test
+     * @param name the name of the unit
+     */
+    public TestJSONStreamReader( final String name )
+    {
+        super( name );
+    }
+
+    /**
+     * Creates the test suite
+     * @return Test the test suite
+     */
+    public static Test suite()
+    {
+        TestSuite suite = new TestSuite( TestJSONStreamReader.class );
+        return suite;
+    }
+
+    /**
+     * Entry point to run this test standalone
+     * @param args the arguments to the test
+     */
+    public static void main( String[] args )
+    {
+        TestRunner.run( suite() );
+        QueueLog.flush(10000);
+    }
+
+    /**
+     * walk the tokens of a document.
+     * @throws Exception a serious problem
+     */
+    public void testTokens() throws Exception
+    {
+        String text="{\"a\": 1, \"b\": [true, null, \"x\"], \"c\": {\"d\": 2.5}}";
+        try( JSONStreamReader r=new JSONStreamReader( new StringReader( text)))
+        {
+            r.beginObject();
+            assertEquals( "a", r.nextName());
+            assertEquals( JSONStreamReader.Token.NUMBER, r.peek());
+            assertEquals( 1, r.nextValue());
+            assertEquals( "b", r.nextName());
+            r.beginArray();
+            assertEquals( 2, r.getDepth());
+            assertEquals( JSONStreamReader.Token.BOOLEAN, r.peek());
+            assertEquals( Boolean.TRUE, r.nextValue());
+            assertEquals( JSONStreamReader.Token.NULL, r.peek());
+            assertEquals( JSONObject.NULL, r.nextValue());
+            assertEquals( "x", r.nextValue());
+            assertFalse( r.hasNext());
+            r.endArray();
+            assertEquals( "c", r.nextName());
+            JSONObject c=r.nextJSONObject();
+            assertEquals( 2.5, c.getDouble( "d"));
+            assertFalse( r.hasNext());
+            r.endObject();
+            assertEquals( JSONStreamReader.Token.END_DOCUMENT, r.peek());
+        }
+    }
+
+    /**
+     * the values built are the same as the JSONObject parser including the lenient syntax.
+     * @throws Exception a serious problem
+     */
+    public void testSameAsJSONObject() throws Exception
+    {
+        String list[]={
+            "{\"a\":\"aa\",\"b\":[\"bb0\"],\"c\":[\"cc0\",\"cc1\"],\"d\":{\"d1\":\"dd1\",\"d3\":[{\"e\":\"ee\"},{\"f\":\"ff\"}]}}",
+            "{a: 'single', b : [1,,3,], c: {x: 1; y: 2,}, 'd': -1.5e3, e: \"\\u0041\\n\"}",
+            "{ }",
+            "{\"empty\":[], \"nested\":[[],[[1]],{}]}",
+        };
+
+        for( String text: list)
+        {
+            JSONObject expected=new JSONObject( text);
+
+            try( JSONStreamReader r=new JSONStreamReader( new StringReader( text)))
+            {
+                JSONObject json=r.nextJSONObject();
+                assertEquals( text, expected.toString(), json.toString());
+            }
+
+            try( JSONStreamReader r=new JSONStreamReader( new StringReader( text)))
+            {
+                JSONObject json=rebuild( r);
+                assertEquals( text, expected.toString(), json.toString());
+            }
+        }
+    }
+
+    /**
+     * iterate over a large array one element at a time and skip the rest.
+     * @throws Exception a serious problem
+     */
+    public void testIterateArray() throws Exception
+    {
+        final int rows=50000;
+
+        StringWriter sw=new StringWriter();
+        JSONWriter w=new JSONWriter( sw);
+        w.object().key( "header").object().key( "skip").array().value( 1).value( new JSONObject( "{\"x\":[1,2]}")).endArray().endObject();
+        w.key( "results").array();
+        for( int i=0;i<rows;i++)
+        {
+            w.object().key( "id").value( i).key( "name").value( "row \"" + i + "\"").endObject();
+        }
+        w.endArray();
+        w.key( "count").value( rows);
+        w.endObject().flush();
+
+        String text=sw.toString();
+        JSONObject expected=new JSONObject( text);
+        assertEquals( rows, expected.getJSONArray( "results").length());
+
+        int count=0;
+        long total=0;
+        try( Reader reader=new StringReader( text); JSONStreamReader r=new JSONStreamReader( reader))
+        {
+            r.beginObject();
+            while( r.hasNext())
+            {
+                String name=r.nextName();
+                if( name.equals( "results"))
+                {
+                    Iterator<Object> it=r.iterateArray();
+                    while( it.hasNext())
+                    {
+                        JSONObject row=(JSONObject)it.next();
+                        assertEquals( "row \"" + count + "\"", row.getString( "name"));
+                        total+=row.getInt( "id");
+                        count++;
+                    }
+                }
+                else if( name.equals( "count"))
+                {
+                    assertEquals( rows, r.nextValue());
+                }
+                else
+                {
+                    r.skipValue();
+                }
+            }
+            r.endObject();
+        }
+
+        assertEquals( "rows", rows, count);
+        assertEquals( "total", (long)rows * ( rows - 1) / 2, total);
+    }
+
+    /**
+     * invalid text is reported.
+     * @throws Exception a serious problem
+     */
+    public void testInvalid() throws Exception
+    {
+        String list[]={
+            "{\"a\" 1}",
+            "{\"a\":1 \"b\":2}",
+            "[1,2",
+            "{\"a\":1",
+        };
+
+        for( String text: list)
+        {
+            try( JSONStreamReader r=new JSONStreamReader( new StringReader( text)))
+            {
+                r.skipValue();
+                fail( "should be invalid " + text);
+            }
+            catch( JSONException je)
+            {
+                LOGGER.debug( text + " -> " + je.getMessage());
+            }
+        }
+
+        try( JSONStreamReader r=new JSONStreamReader( new StringReader( "[1]")))
+        {
+            r.beginObject();
+            fail( "not an object");
+        }
+        catch( JSONException je)
+        {
+            // expected
+        }
+    }
+
+    /**
+     * the streaming writer gives the same text as the JSONObject writer.
+     * @throws Exception a serious problem
+     */
+    public void testWriter() throws Exception
+    {
+        JSONObject value=new JSONObject( "{\"a\":[1,\"two\",{\"b\":null}],\"c\":\"q\\\"uote\"}");
+        StringWriter sw=new StringWriter();
+        new JSONWriter( sw).array().value( value).value( new JSONArray( "[1,2]")).value( "x\"y").value( 3).value( (Object)null).endArray();
+
+        assertEquals( "[" + value + ",[1,2]," + JSONObject.quote( "x\"y") + ",3,null]", sw.toString());
+    }
+
+    private JSONObject rebuild( final JSONStreamReader r) throws Exception
+    {
+        JSONObject json=new JSONObject();
+        r.beginObject();
+        while( r.hasNext())
+        {
+            String name=r.nextName();
+            json.put( name, rebuildValue( r));
+        }
+        r.endObject();
+        return json;
+    }
+
+    private Object rebuildValue( final JSONStreamReader r) throws Exception
+    {
+        switch( r.peek())
+        {
+            case BEGIN_OBJECT:
+                return rebuild( r);
+            case BEGIN_ARRAY:
+            {
+                JSONArray array=new JSONArray();
+                r.beginArray();
+                while( r.hasNext())
+                {
+                    array.put( rebuildValue( r));
+                }
+                r.endArray();
+                return array;
+            }
+            default:
+                return r.nextValue();
+        }
+    }
+}
@@ -154,6 +154,70 @@ public class TestJsonPath extends TestCase
         }
     }
     
+    /**
+     * A compiled path is reused by the static read methods and can be shared between threads.
+     * @throws Exception a serious problem
+     */
+    public void testCompiled() throws Exception
+    {
+        JsonPath path=JsonPath.compile("$.d.d3[1].f");
+        assertSame("cached", path, JsonPath.compile("$.d.d3[1].f"));
+        assertEquals("$.d.d3[1].f", path.toString());
+        assertTrue("cache used", JsonPath.cacheSize() > 0);
+
+        try
+        {
+            JsonPath.compile("$.a[s].b");
+            fail("invalid path should not compile");
+        }
+        catch(UnsupportedOperationException e)
+        {
+            //expected
+        }
+
+        final JSONObject json = new JSONObject("{\"d\":{\"d3\":[{\"e\":\"ee\"},{\"f\":\"ff\"}]},\"list\":[1,2,3]}");
+        final JsonPath compiled=path;
+        final JsonPath length=JsonPath.compile("$.list.length()");
+        final JSONArray array=new JSONArray("[" + json + "]");
+        final JsonPath arrayPath=JsonPath.compile("$[0].d.d3[0].e");
+
+        Thread threads[]=new Thread[4];
+        final Throwable problem[]=new Throwable[1];
+        for( int t=0;t<threads.length;t++)
+        {
+            threads[t]=new Thread("JsonPath-" + t)
+            {
+                @Override
+                public void run()
+                {
+                    try
+                    {
+                        for( int i=0;i<1000;i++)
+                        {
+                            assertEquals("ff", compiled.read(json));
+                            assertEquals(3, length.read(json));
+                            assertEquals("ee", arrayPath.read(array));
+                        }
+                    }
+                    catch( Throwable e)
+                    {
+                        problem[0]=e;
+                    }
+                }
+            };
+            threads[t].start();
+        }
+        for( Thread t: threads)
+        {
+            t.join();
+        }
+        if( problem[0] != null)
+        {
+            LOGGER.warn("compiled read", problem[0]);
+            fail(problem[0].toString());
+        }
+    }
+
     public void testInvalidPath() throws Exception
     {
         String[] invalid = {
@@ -0,0 +1,218 @@
+/**
+ *  STS Remote library
+ *
+ *  Copyright (C) 2006  stSoftware Pty Ltd
+ *
+ *  stSoftware.com.au
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ *  Bug fixes, suggestions and comments should be sent to:
+ *
+ *  info AT stsoftware.com.au
+ *
+ *  or by snail mail to:
+ *
+ *  stSoftware
+ *  building C, level 1,
+ *  14 Rodborough Rd
+ *  Frenchs Forest 2086
+ *  Australia.
+ */
+package com.aspc.remote.util.misc.selftest;
+
+import com.aspc.remote.util.misc.CLogger;
+import com.aspc.remote.util.misc.QueueLog;
+import com.aspc.remote.util.misc.internal.RingBuffer;
+import java.util.concurrent.atomic.AtomicReference;
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+import junit.textui.TestRunner;
+import org.apache.commons.logging.Log;
+
+/**
+ *  check the ring buffer used by the queue log.
+ *
+ * <br>
+ * <i>THREAD MODE: SINGLE-THREADED self test unit</i>
+ *
+ *  @author         Nigel Leck
+ *  @since          18 October 2026
+ */
+public class TestRingBuffer extends TestCase
+{
+    private static final Log LOGGER = CLogger.getLog( "com.aspc.remote.util.misc.selftest.TestRingBuffer");//#LOGGER-NOPMD
+
+    /**
+     * Creates a new unit test
+     * @param name the name of the unit
+     */
+    public TestRingBuffer( final String name )
+    {
+        super( name );
+    }
+
+    /**
+     * Creates the test suite
+     * @return Test the test suite
+     */
+    public static Test suite()
+    {
+        TestSuite suite = new TestSuite( TestRingBuffer.class );
+        return suite;
+    }
+
+    /**
+     * Entry point to run this test standalone
+     * @param args the arguments to the test
+     */
+    public static void main( String[] args )
+    {
+        TestRunner.run( suite() );
+        QueueLog.flush(60000);
+    }
+
+    /**
+     * the buffer is bounded and drained in order.
+     */
+    public void testFull()
+    {
+        RingBuffer<Integer> ring=new RingBuffer<>( 5);
+        assertEquals( "rounded up", 8, ring.capacity());
+        assertTrue( "empty", ring.isEmpty());
+
+        for( int i=0;i<8;i++)
+        {
+            assertTrue( "room for " + i, ring.offer( i));
+        }
+        assertFalse( "should be full", ring.offer( 8));
+        assertEquals( "size", 8, ring.size());
+
+        Integer batch[]=new Integer[3];
+        assertEquals( "batch", 3, ring.drain( batch));
+        assertEquals( "first", 0, batch[0].intValue());
+        assertEquals( "third", 2, batch[2].intValue());
+
+        assertTrue( "room after drain", ring.offer( 8));
+
+        int expected=3;
+        int count;
+        while( ( count=ring.drain( batch)) > 0)
+        {
+            for( int i=0;i<count;i++)
+            {
+                assertEquals( "order", expected++, batch[i].intValue());
+            }
+        }
+        assertEquals( "all drained", 9, expected);
+        assertTrue( "empty", ring.isEmpty());
+    }
+
+    /**
+     * many producers with one consumer, nothing lost and each producer's messages in order.
+     *
+     * @throws Exception a test failure.
+     */
+    public void testProducers() throws Exception
+    {
+        final RingBuffer<long[]> ring=new RingBuffer<>( 64);
+        final int producers=4;
+        final int perProducer=50000;
+        final AtomicReference<String> error=new AtomicReference<>();
+
+        Thread consumer=new Thread( "consumer")
+        {
+            @Override
+            public void run()
+            {
+                long last[]=new long[producers];
+                long batch[][]=new long[16][];
+                int total=0;
+                while( total < producers * perProducer)
+                {
+                    int count=ring.drain( batch);
+                    for( int i=0;i<count;i++)
+                    {
+                        int producer=(int)batch[i][0];
+                        if( batch[i][1] != last[producer] + 1)
+                        {
+                            error.compareAndSet( null, "producer " + producer + " expected " + (last[producer] + 1) + " was " + batch[i][1]);
+                        }
+                        last[producer]=batch[i][1];
+                    }
+                    total+=count;
+                    if( count == 0)
+                    {
+                        Thread.yield();
+                    }
+                }
+            }
+        };
+        consumer.start();
+
+        Thread threads[]=new Thread[producers];
+        for( int p=0;p<producers;p++)
+        {
+            final int producer=p;
+            threads[p]=new Thread( "producer " + p)
+            {
+                @Override
+                public void run()
+                {
+                    for( long i=1;i<=perProducer;i++)
+                    {
+                        long value[]={producer, i};
+                        while( ring.offer( value) == false)
+                        {
+                            Thread.yield();
+                        }
+                    }
+                }
+            };
+            threads[p].start();
+        }
+
+        for( Thread t: threads)
+        {
+            t.join( 60000);
+        }
+        consumer.join( 60000);
+
+        assertFalse( "consumer finished", consumer.isAlive());
+        assertNull( error.get(), error.get());
+        assertTrue( "empty", ring.isEmpty());
+    }
+
+    /**
+     * the queue log counts the messages written by the log runner.
+     */
+    public void testQueueLogStatistics()
+    {
+        long drained=QueueLog.getDrainedCount();
+        for( int i=0;i<10;i++)
+        {
+            LOGGER.info( "statistics " + i);
+        }
+        QueueLog.flush( 10000);
+
+        if( QueueLog.QUEUE_LIMIT > 0)
+        {
+            assertTrue( "drained", QueueLog.getDrainedCount() >= drained + 10);
+            assertTrue( "latency", QueueLog.getMaxDrainLatency() >= QueueLog.getAverageDrainLatency());
+        }
+        assertEquals( "depth", 0, QueueLog.getQueueDepth());
+    }
+}
@@ -37,6 +37,8 @@ import com.aspc.remote.database.selftest.DBTestUnit;
 import com.aspc.remote.util.crypto.CryptoUtil;
 import com.aspc.remote.util.misc.CLogger;
 import com.aspc.remote.util.misc.DocumentUtil;
+import com.aspc.remote.util.misc.LikePattern;
+import com.aspc.remote.util.misc.MatchPattern;
 import com.aspc.remote.util.misc.QueueLog;
 import com.aspc.remote.util.misc.StringUtilities;
 import com.aspc.remote.util.misc.TimeUtil;
@@ -3010,6 +3012,116 @@ public class TestStringUtilities extends TestCase
     }
 
 
+    /**
+     * the buffer variants give the same result as the String variants.
+     */
+    public void testAppendVariants()
+    {
+        String values[]={
+            "", "abc", "a b+c", "100%", "a&b<c>\"d\"", "tab\there", "#hash", "caf\u00e9 \u20ac10",
+            "\ud83d\ude00 smile", "lone \ud83d", "x\u0001y", "(a-b)_c.d*e", "\u00a0\u0100\u0800\uffff"
+        };
+
+        StringBuilder sb=new StringBuilder();
+        ByteBuffer bb=ByteBuffer.allocate(1024);
+        for( String value: values)
+        {
+            sb.setLength(0);
+            String encoded=StringUtilities.encode(value);
+            assertEquals( value, encoded, StringUtilities.encode(value, sb).toString());
+
+            sb.setLength(0);
+            assertEquals( encoded, StringUtilities.decode(encoded), StringUtilities.decode(encoded, sb).toString());
+            sb.setLength(0);
+            String decoded;
+            try
+            {
+                decoded=StringUtilities.decode(value);
+            }
+            catch( IllegalArgumentException iae)
+            {
+                decoded=null;
+            }
+            try
+            {
+                assertEquals( value, decoded, StringUtilities.decode(value, sb).toString());
+            }
+            catch( IllegalArgumentException iae)
+            {
+                assertNull( value, decoded);
+            }
+
+            bb.clear();
+            int len=StringUtilities.decodeToBytes(encoded, bb);
+            assertTrue( encoded, Arrays.equals( StringUtilities.decodeToBytes(encoded), Arrays.copyOf(bb.array(), len)));
+
+            sb.setLength(0);
+            assertEquals( value, StringUtilities.encodeSQL(value), StringUtilities.encodeSQL(value, sb).toString());
+
+            if( StringUtilities.validCharactersHTML(value))
+            {
+                sb.setLength(0);
+                assertEquals( value, StringUtilities.encodeHTML(value), StringUtilities.encodeHTML(value, sb).toString());
+            }
+        }
+
+        sb.setLength(0);
+        assertEquals( "abc\u20ac\ufffdx", StringUtilities.decode("abc%e2%82%ac%e2x", sb).toString());
+
+        String splits[]={
+            "abc,def", "'abc','def'", "'a\\'bc','d,ef'", "'a\\'bc','d,ef\\''", "'abc',  'def'", " a , b ,, c ,", "'a' x, b", ""
+        };
+        ArrayList<String> list=new ArrayList<>();
+        for( String text: splits)
+        {
+            list.clear();
+            int count=StringUtilities.split(text, ',', '\'', list);
+            assertEquals( text, Arrays.asList(StringUtilities.split(text, ',', '\'')), list);
+            assertEquals( text, list.size(), count);
+        }
+    }
+
+    /**
+     * the compiled patterns give the same result as isLike and matches.
+     */
+    public void testCompiledPatterns()
+    {
+        String likes[]={
+            "", "*", "%", "abc*", "*abc", "*a", "a**", "a*%b", "123-*-*", "*-*-*", "* A * SAVED IS A *",
+            "* A * SAVED IS A ", "*-*-*-*-*-*-*-*-", "a%c", "%%", "abc"
+        };
+        String values[]={
+            "", "a", "aa", "abc", "ABCD", "xabc", "a*b", "a%c", "123-456-789", "123-456789", "123--",
+            " A PENNY SAVED IS A PENNY EARNED ", "1-2-3-4-5-6-7-8-9", "ab", "abc*", "%"
+        };
+
+        for( String pattern: likes)
+        {
+            LikePattern like=LikePattern.compile(pattern);
+            for( String value: values)
+            {
+                assertEquals( pattern + " LIKE " + value, StringUtilities.isLike(pattern, value), like.matches(value));
+            }
+        }
+
+        String matches[]={
+            "", "jaguar top car", "\"jaguar top car\"", "\"a * saved is a * earned\"", "jag* -top", "-", "top-car",
+            "a  b", "\"unclosed quote", "car%"
+        };
+        String texts[]={
+            "Top speed Jaguar car is 200kpm", "Jaguar is a top car", "a penny saved is a penny earned",
+            "", "  ", "top car", "jaguar, top-car!", "a b", "café top"
+        };
+        for( String pattern: matches)
+        {
+            MatchPattern match=MatchPattern.compile(pattern);
+            for( String value: texts)
+            {
+                assertEquals( pattern + " matches " + value, StringUtilities.matches(pattern, value), match.matches(value));
+            }
+        }
+    }
+
     static void info( final Object o )
     {
         LOGGER.info( o );
@@ -3017,3 +3129,4 @@ public class TestStringUtilities extends TestCase
 
     private static final Log LOGGER = CLogger.getLog( "com.aspc.remote.util.misc.selftest.TestStringUtilities");//#LOGGER-NOPMD
 }
+
@@ -0,0 +1,194 @@
+/**
+ *  STS Remote library
+ *
+ *  Copyright (C) 2006  stSoftware Pty Ltd
+ *
+ *  stSoftware.com.au
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ *  Bug fixes, suggestions and comments should be sent to:
+ *
+ *  info AT stsoftware.com.au
+ *
+ *  or by snail mail to:
+ *
+ *  stSoftware
+ *  building C, level 1,
+ *  14 Rodborough Rd
+ *  Frenchs Forest 2086
+ *  Australia.
+ */
+package com.aspc.remote.util.net.selftest;
+
+import com.aspc.remote.util.net.internal.ChunkedTransfer;
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+import junit.textui.TestRunner;
+
+/**
+ * Check the parallel chunked transfer writes every part to its position in the file.
+ *
+ * <br>
+ * <i>THREAD MODE: SINGLE-THREADED self test unit</i>
+ *
+ *  @author      Nigel Leck
+ *  @since       18 October 2026
+ */
+public class TestChunkedTransfer extends TestCase
+{
+    /**
+     * Constructor for the test unit.
+     * @param testName The name of the test unit
+     */
+    public TestChunkedTransfer(String testName)
+    {
+        super(testName);
+    }
+
+    /**
+     * The main for the program
+     *
+     * @param args The command line arguments
+     */
+    public static void main(String[] args)
+    {
+        Test test = suite();
+
+        TestRunner.run(test);
+    }
+
+    /**
+     * Creates the test suite.
+     *
+     * @return The test suite
+     */
+    public static Test suite()
+    {
+        TestSuite suite = new TestSuite(TestChunkedTransfer.class);
+        return suite;
+    }
+
+    /**
+     * The parts are copied in parallel to their positions in the target.
+     *
+     * @throws Exception a test failure
+     */
+    public void testParallelParts() throws Exception
+    {
+        final byte data[] = new byte[ 3 * 1024 * 1024 + 17];
+        new Random( 1).nextBytes( data);
+
+        assertEquals( "part count", 4, ChunkedTransfer.partCount( data.length, 1024 * 1024));
+        assertEquals( "part count", 0, ChunkedTransfer.partCount( 0, 1024 * 1024));
+
+        File target = File.createTempFile( "chunked", ".bin");
+        try( final FileChannel channel = FileChannel.open( target.toPath(), StandardOpenOption.WRITE))
+        {
+            final AtomicInteger count = new AtomicInteger();
+            ChunkedTransfer.transfer( data.length, 1024 * 1024, 3, new ChunkedTransfer.Part()
+            {
+                @Override
+                public void transfer( final int partNumber, final long offset, final long length) throws Exception
+                {
+                    count.incrementAndGet();
+                    ChunkedTransfer.copy( new ByteArrayInputStream( data, (int)offset, (int)length), channel, offset, length);
+                }
+            });
+
+            assertEquals( "parts transferred", 4, count.get());
+            assertTrue( "content matches", Arrays.equals( data, Files.readAllBytes( target.toPath())));
+        }
+        finally
+        {
+            target.delete();
+        }
+    }
+
+    /**
+     * The first failed part is rethrown to the caller.
+     *
+     * @throws Exception a test failure
+     */
+    public void testFailure() throws Exception
+    {
+        File target = File.createTempFile( "chunked", ".bin");
+        try( final FileChannel channel = FileChannel.open( target.toPath(), StandardOpenOption.WRITE))
+        {
+            ChunkedTransfer.transfer( 100, 10, 4, new ChunkedTransfer.Part()
+            {
+                @Override
+                public void transfer( final int partNumber, final long offset, final long length) throws Exception
+                {
+                    int len = partNumber == 7 ? (int)length - 1 : (int)length;
+                    ChunkedTransfer.copy( new ByteArrayInputStream( new byte[len]), channel, offset, length);
+                }
+            });
+
+            fail( "the short part should fail");
+        }
+        catch( EOFException e)
+        {
+            assertTrue( e.getMessage(), e.getMessage().contains( "part at 70"));
+        }
+        finally
+        {
+            target.delete();
+        }
+    }
+
+    /**
+     * The object size from the first ranged GET, S3 returns 416 for an empty object.
+     *
+     * @throws Exception a test failure
+     */
+    public void testRangeObjectSize() throws Exception
+    {
+        assertEquals( "partial", 12345, ChunkedTransfer.rangeObjectSize( 206, "bytes 0-1023/12345"));
+        assertEquals( "empty object", 0, ChunkedTransfer.rangeObjectSize( 416, "bytes */0"));
+        assertEquals( "empty object without a range", 0, ChunkedTransfer.rangeObjectSize( 416, null));
+
+        String invalid[][]={
+            {"206", null},
+            {"206", "bytes 0-1023"},
+            {"206", "bytes 0-1023/*"},
+            {"416", "bytes */100"},
+        };
+
+        for( String check[]: invalid)
+        {
+            try
+            {
+                ChunkedTransfer.rangeObjectSize( Integer.parseInt( check[0]), check[1]);
+                fail( check[0] + " " + check[1] + " should be invalid");
+            }
+            catch( IOException e)
+            {
+                // expected
+            }
+        }
+    }
+}
@@ -0,0 +1,300 @@
+/**
+ *  STS Remote library
+ *
+ *  Copyright (C) 2006  stSoftware Pty Ltd
+ *
+ *  stSoftware.com.au
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ *  Bug fixes, suggestions and comments should be sent to:
+ *
+ *  info AT stsoftware.com.au
+ *
+ *  or by snail mail to:
+ *
+ *  stSoftware
+ *  building C, level 1,
+ *  14 Rodborough Rd
+ *  Frenchs Forest 2086
+ *  Australia.
+ */
+package com.aspc.remote.util.net.selftest;
+
+import com.aspc.remote.rest.ReST;
+import com.aspc.remote.rest.Response;
+import com.aspc.remote.rest.Status;
+import com.aspc.remote.rest.internal.PooledHttpRestTransport;
+import com.aspc.remote.util.net.HttpConnectionPool;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import java.io.ByteArrayOutputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+import junit.textui.TestRunner;
+
+/**
+ * Check the pooled HTTP connections against a local server.
+ *
+ * <br>
+ * <i>THREAD MODE: SINGLE-THREADED self test unit</i>
+ *
+ *  @author      Nigel Leck
+ *  @since       18 October 2026
+ */
+public class TestHttpConnectionPool extends TestCase
+{
+    private HttpServer server;
+
+    /**
+     * Constructor for the test unit.
+     * @param testName The name of the test unit
+     */
+    public TestHttpConnectionPool(String testName)
+    {
+        super(testName);
+    }
+
+    /**
+     * The main for the program
+     *
+     * @param args The command line arguments
+     */
+    public static void main(String[] args)
+    {
+        Test test = suite();
+
+        TestRunner.run(test);
+    }
+
+    /**
+     * Creates the test suite.
+     *
+     * @return The test suite
+     */
+    public static Test suite()
+    {
+        TestSuite suite = new TestSuite(TestHttpConnectionPool.class);
+        return suite;
+    }
+
+    @Override
+    protected void setUp() throws Exception
+    {
+        super.setUp();
+        server = HttpServer.create( new InetSocketAddress( "127.0.0.1", 0), 0);
+        server.createContext( "/", new HttpHandler()
+        {
+            @Override
+            public void handle( final HttpExchange exchange) throws IOException
+            {
+                ByteArrayOutputStream request = new ByteArrayOutputStream();
+                try( InputStream in = exchange.getRequestBody())
+                {
+                    byte array[] = new byte[1024];
+                    int len;
+                    while( ( len = in.read( array)) != -1)
+                    {
+                        request.write( array, 0, len);
+                    }
+                }
+                byte data[] = ( exchange.getRequestMethod() + " " + exchange.getRequestURI().getQuery() + " " +
+                    new String( request.toByteArray(), StandardCharsets.UTF_8)).getBytes( StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().add( "Content-Type", "text/plain");
+                exchange.getResponseHeaders().add( "X-Request-Length", Integer.toString( request.size()));
+                String encoding = exchange.getRequestHeaders().getFirst( "Transfer-Encoding");
+                if( encoding != null)
+                {
+                    exchange.getResponseHeaders().add( "X-Transfer-Encoding", encoding);
+                }
+                exchange.sendResponseHeaders( exchange.getRequestURI().getPath().startsWith( "/missing") ? 404 : 200, data.length);
+                try( OutputStream out = exchange.getResponseBody())
+                {
+                    out.write( data);
+                }
+            }
+        });
+        server.start();
+    }
+
+    @Override
+    protected void tearDown() throws Exception
+    {
+        server.stop( 0);
+        super.tearDown();
+    }
+
+    /**
+     * repeated calls to the same host reuse the connection.
+     * @throws Exception a test failure.
+     */
+    public void testReuse() throws Exception
+    {
+        String base = "http://127.0.0.1:" + server.getAddress().getPort() + "/reuse?run=" + System.nanoTime();
+        long requests = HttpConnectionPool.getRequestCount();
+        long connects = HttpConnectionPool.getConnectCount();
+
+        for( int i = 0; i < 20; i++)
+        {
+            Response r = ReST.builder( base + "&call=" + i).setTransport( new PooledHttpRestTransport()).getResponse();
+            assertEquals( Status.C200_SUCCESS_OK, r.status);
+            assertTrue( r.getContentAsString(), r.getContentAsString().contains( "call=" + i));
+        }
+
+        assertEquals( 20, HttpConnectionPool.getRequestCount() - requests);
+        long opened = HttpConnectionPool.getConnectCount() - connects;
+        assertTrue( "opened " + opened + " connections", opened <= 2);
+        assertEquals( 0, HttpConnectionPool.getLeasedCount());
+        assertTrue( HttpConnectionPool.getAvailableCount( new URL( base)) > 0);
+        assertTrue( HttpConnectionPool.getStatus(), HttpConnectionPool.getStatus().contains( "requests="));
+    }
+
+    /**
+     * the request body is sent and errors are returned on the error stream.
+     * @throws Exception a test failure.
+     */
+    public void testPostAndError() throws Exception
+    {
+        URL url = new URL( "http://127.0.0.1:" + server.getAddress().getPort() + "/post");
+        HttpURLConnection c = HttpConnectionPool.openConnection( url);
+        try
+        {
+            c.setDoOutput( true);
+            c.setRequestProperty( "Content-Type", "text/plain");
+            try( OutputStream out = c.getOutputStream())
+            {
+                out.write( "hello world".getBytes( StandardCharsets.UTF_8));
+            }
+            assertEquals( 200, c.getResponseCode());
+            assertEquals( "text/plain", c.getContentType());
+            assertEquals( "POST null hello world", read( c.getInputStream()));
+        }
+        finally
+        {
+            c.disconnect();
+        }
+
+        HttpURLConnection missing = HttpConnectionPool.openConnection( new URL( "http://127.0.0.1:" + server.getAddress().getPort() + "/missing"));
+        try
+        {
+            assertEquals( 404, missing.getResponseCode());
+            assertNotNull( missing.getErrorStream());
+            assertEquals( "GET null ", read( missing.getErrorStream()));
+            try
+            {
+                missing.getInputStream();
+                fail( "should throw for 404");
+            }
+            catch( FileNotFoundException fnf)
+            {
+                // expected
+            }
+        }
+        finally
+        {
+            missing.disconnect();
+        }
+    }
+
+    /**
+     * in a streaming mode the request is sent as the body is written rather than buffered.
+     * @throws Exception a test failure.
+     */
+    public void testStreaming() throws Exception
+    {
+        URL url = new URL( "http://127.0.0.1:" + server.getAddress().getPort() + "/stream");
+        byte chunk[] = new byte[100 * 1024];
+        Arrays.fill( chunk, (byte)'x');
+
+        HttpURLConnection c = HttpConnectionPool.openConnection( url);
+        try
+        {
+            c.setDoOutput( true);
+            c.setChunkedStreamingMode( 8 * 1024);
+            long requests = HttpConnectionPool.getRequestCount();
+            try( OutputStream out = c.getOutputStream())
+            {
+                assertEquals( "sent before the body is written", 1, HttpConnectionPool.getRequestCount() - requests);
+                for( int i = 0; i < 30; i++)
+                {
+                    out.write( chunk);
+                }
+            }
+            assertEquals( 200, c.getResponseCode());
+            assertEquals( "chunked", c.getHeaderField( "X-Transfer-Encoding"));
+            assertEquals( Integer.toString( 30 * chunk.length), c.getHeaderField( "X-Request-Length"));
+            read( c.getInputStream());
+        }
+        finally
+        {
+            c.disconnect();
+        }
+
+        HttpURLConnection fixed = HttpConnectionPool.openConnection( url);
+        try
+        {
+            fixed.setDoOutput( true);
+            fixed.setFixedLengthStreamingMode( 11);
+            try( OutputStream out = fixed.getOutputStream())
+            {
+                out.write( "hello world".getBytes( StandardCharsets.UTF_8));
+            }
+            assertEquals( 200, fixed.getResponseCode());
+            assertNull( fixed.getHeaderField( "X-Transfer-Encoding"));
+            assertEquals( "POST null hello world", read( fixed.getInputStream()));
+        }
+        finally
+        {
+            fixed.disconnect();
+        }
+
+        HttpURLConnection aborted = HttpConnectionPool.openConnection( url);
+        aborted.setDoOutput( true);
+        aborted.setFixedLengthStreamingMode( 100);
+        aborted.getOutputStream().write( 'x');
+        aborted.disconnect();
+
+        for( int i = 0; i < 50 && HttpConnectionPool.getLeasedCount() > 0; i++)
+        {
+            Thread.sleep( 100);
+        }
+        assertEquals( "released", 0, HttpConnectionPool.getLeasedCount());
+    }
+
+    private String read( final InputStream in) throws IOException
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte array[] = new byte[1024];
+        int len;
+        while( ( len = in.read( array)) != -1)
+        {
+            out.write( array, 0, len);
+        }
+        in.close();
+
+        return new String( out.toByteArray(), StandardCharsets.UTF_8);
+    }
+}
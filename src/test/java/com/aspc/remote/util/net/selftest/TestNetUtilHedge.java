@@ -0,0 +1,183 @@
+/**
+ *  STS Remote library
+ *
+ *  Copyright (C) 2006  stSoftware Pty Ltd
+ *
+ *  stSoftware.com.au
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ *  Bug fixes, suggestions and comments should be sent to:
+ *
+ *  info AT stsoftware.com.au
+ *
+ *  or by snail mail to:
+ *
+ *  stSoftware
+ *  building C, level 1,
+ *  14 Rodborough Rd
+ *  Frenchs Forest 2086
+ *  Australia.
+ */
+package com.aspc.remote.util.net.selftest;
+
+import com.aspc.remote.util.misc.FileUtil;
+import com.aspc.remote.util.misc.StringUtilities;
+import com.aspc.remote.util.net.NetUtil;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+import junit.textui.TestRunner;
+
+/**
+ * Check the hedged fetch and the background repair of the mirrors of a volume.
+ *
+ * <br>
+ * <i>THREAD MODE: SINGLE-THREADED self test unit</i>
+ *
+ *  @author      Nigel Leck
+ *  @since       18 October 2026
+ */
+public class TestNetUtilHedge extends TestCase
+{
+    private static final String GOOD="the good copy of the file";
+    private File baseDir;
+    private int previousHedgeMS;
+
+    /**
+     * Constructor for the test unit.
+     * @param testName The name of the test unit
+     */
+    public TestNetUtilHedge(String testName)
+    {
+        super(testName);
+    }
+
+    /**
+     * The main for the program
+     *
+     * @param args The command line arguments
+     */
+    public static void main(String[] args)
+    {
+        Test test = suite();
+
+        TestRunner.run(test);
+    }
+
+    /**
+     * Creates the test suite.
+     *
+     * @return The test suite
+     */
+    public static Test suite()
+    {
+        TestSuite suite = new TestSuite(TestNetUtilHedge.class);
+        return suite;
+    }
+
+    @Override
+    protected void setUp() throws Exception
+    {
+        super.setUp();
+        baseDir = File.createTempFile( "hedge", "");
+        baseDir.delete();
+        baseDir.mkdirs();
+        previousHedgeMS = NetUtil.HEDGE_DELAY_MS.get();
+    }
+
+    @Override
+    protected void tearDown() throws Exception
+    {
+        NetUtil.HEDGE_DELAY_MS.set( previousHedgeMS);
+        NetUtil.REPAIR_MODE.set( Boolean.FALSE);
+        FileUtil.deleteAll( baseDir);
+        super.tearDown();
+    }
+
+    /**
+     * The first mirror has a corrupt copy, the hedged fetch must use the valid copy from the second mirror.
+     *
+     * @throws Exception a test failure
+     */
+    public void testHedgedChecksum() throws Exception
+    {
+        File mirrorA = mirror( "a", "a corrupt copy");
+        File mirrorB = mirror( "b", GOOD);
+
+        NetUtil.HEDGE_DELAY_MS.set( 50);
+        File target = new File( baseDir, "target.txt");
+        NetUtil.retrieveData( url( mirrorA) + "," + url( mirrorB), "data.txt", target, false, checksum());
+
+        assertEquals( "fetched the valid copy", GOOD, read( target));
+    }
+
+    /**
+     * In repair mode the corrupt mirror is fixed in the background.
+     *
+     * @throws Exception a test failure
+     */
+    public void testBackgroundRepair() throws Exception
+    {
+        File mirrorA = mirror( "a", GOOD);
+        File mirrorB = mirror( "b", "a corrupt copy");
+
+        NetUtil.HEDGE_DELAY_MS.set( 50);
+        NetUtil.REPAIR_MODE.set( Boolean.TRUE);
+        File target = new File( baseDir, "target.txt");
+        NetUtil.retrieveData( url( mirrorA) + "," + url( mirrorB), "data.txt", target, false, checksum());
+
+        assertEquals( "fetched the valid copy", GOOD, read( target));
+        assertTrue( "repair should complete", NetUtil.waitForRepairs( 60000));
+        assertEquals( "mirror repaired", GOOD, read( new File( mirrorB, "data.txt")));
+    }
+
+    private File mirror( final String name, final String content) throws IOException
+    {
+        File dir = new File( baseDir, name);
+        dir.mkdirs();
+        try( FileOutputStream out = new FileOutputStream( new File( dir, "data.txt")))
+        {
+            out.write( content.getBytes( StandardCharsets.UTF_8));
+        }
+
+        return dir;
+    }
+
+    private String url( final File dir)
+    {
+        return "file://" + dir.getAbsolutePath();
+    }
+
+    private String checksum() throws IOException
+    {
+        File file = new File( baseDir, "checksum.txt");
+        try( FileOutputStream out = new FileOutputStream( file))
+        {
+            out.write( GOOD.getBytes( StandardCharsets.UTF_8));
+        }
+
+        return new String( StringUtilities.encodeBase64( FileUtil.generateSHA1( file)), StandardCharsets.US_ASCII);
+    }
+
+    private String read( final File file) throws IOException
+    {
+        return new String( java.nio.file.Files.readAllBytes( file.toPath()), StandardCharsets.UTF_8);
+    }
+}
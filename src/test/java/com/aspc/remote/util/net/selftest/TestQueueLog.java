@@ -35,6 +35,8 @@ package com.aspc.remote.util.net.selftest;
 import org.apache.commons.logging.Log;
 import com.aspc.remote.util.misc.CLogger;
 import com.aspc.remote.util.misc.QueueLog;
+import com.aspc.remote.util.misc.internal.MaskEngine;
+import java.util.regex.Pattern;
 import junit.framework.Test;
 import junit.framework.TestCase;
 import junit.framework.TestSuite;
@@ -186,6 +188,87 @@ public class TestQueueLog extends TestCase
          assertTrue("Should return the same string ","Should not mask this string *****".equals(tmp));
     }
 
+    /**
+     * all masks applied in one pass of each line.
+     * @throws Exception a test failure.
+     */
+    public void testMaskEngine() throws Exception
+    {
+        String regex[]={
+            "[a-zA-Z0-9._%+-]+:(\\S+)@[a-zA-Z0-9.-]+\\.[a-zA-Z]{2,4}",
+            "[^0-9](4[0-9]{15})[^0-9]",
+            "password=\\S+"
+        };
+        String masks[]={ "****", "######", "password=***"};
+        int groups[]={ 1, 1, 0};
+
+        Pattern patterns[]=new Pattern[regex.length];
+        for( int i=0;i<regex.length;i++)
+        {
+            patterns[i]=Pattern.compile( regex[i]);
+        }
+        MaskEngine engine=new MaskEngine( patterns, masks, groups);
+
+        String value = "nothing to see here";
+        assertSame( "no match should return the same message", value, engine.mask( value));
+        assertFalse( "prefilter", engine.mayMatch( value));
+
+        value = "connect nigel:secret@host.com card 4444333322221111 ok";
+        assertEquals( "connect nigel:****@host.com card ###### ok", engine.mask( value));
+
+        value = "login password=abc123\r\nnext line liam:pw@host.com\n\nVISA 4444333322221111 ok\n";
+        assertEquals(
+            "line breaks kept",
+            "login password=***\r\nnext line liam:****@host.com\n\nVISA ###### ok\n",
+            engine.mask( value)
+        );
+
+        value = "4444333322221111\n 4444333322221111 ";
+        assertEquals( "a match can not span lines", "4444333322221111\n ###### ", engine.mask( value));
+
+        for( String check: new String[]{
+            "something else nigel:nigel#123@host.com bbbbb liam:liam123@host.com",
+            "UPDATE_CREDIT_CARD_DETAILS BANK_CARD_NUMBER '4444333322221111' BANK_CARD_TYPE 'VISA'",
+            "Should not mask this string *****"
+        })
+        {
+            String expected=check;
+            for( int i=0;i<regex.length;i++)
+            {
+                MaskEngine one=new MaskEngine( new Pattern[]{ patterns[i]}, new String[]{ masks[i]}, new int[]{ groups[i]});
+                expected=one.mask( expected);
+            }
+            assertEquals( "same as one at a time", expected, engine.mask( check));
+        }
+    }
+
+    /**
+     * the literals required by a pattern.
+     */
+    public void testRequiredLiteral()
+    {
+        String checks[][]={
+            {"password=\\S+", "password="},
+            {"[a-zA-Z0-9._%+-]+:(\\S+)@[a-zA-Z0-9.-]+\\.[a-zA-Z]{2,4}", ":"},
+            {"[^0-9](4[0-9]{15})[^0-9]", "4"},
+            {"(?:abc)?x", "x"},
+            {"(?<=user=)\\w+", null},
+            {"(?<name>key)=", "key"},
+            {"[^0-9]4[0-9]{15}[^0-9]", "4"},
+            {"abc|def", null},
+            {"colou?r", "colo"},
+            {"ab+c", "ab"},
+            {"(?i)secret", null},
+            {"\\x41BC", null},
+            {"token\\.id", "token.id"},
+        };
+
+        for( String check[]: checks)
+        {
+            assertEquals( check[0], check[1], MaskEngine.requiredLiteral( check[0]));
+        }
+    }
+
     /**
      * Creates a new unit test
      * @param name the name of the unit